@@ -0,0 +1,110 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.headless.HeadlessContext;
+import lando.systems.game.headless.NoopBatch;
+import lando.systems.game.ui.BoardGenerator;
+import lando.systems.game.ui.GridRenderer;
+import lando.systems.game.ui.NodeBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import space.earlygrey.shapedrawer.ShapeDrawer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CPU side cost of drawing the board's connections and grid, submitted to a {@link NoopBatch}
+ * so only tessellation, culling and vertex generation are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DrawBenchmark {
+
+    @Param({"1000", "10000"})
+    int nodeCount;
+
+    @Param({"1", "1.4", "2"})
+    float zoom;
+
+    HeadlessContext context;
+    NodeBoard board;
+    NoopBatch batch;
+    ShapeDrawer shapes;
+    GridRenderer grid;
+    float centerX;
+    float centerY;
+    int frame;
+
+    @Setup
+    public void setup() {
+        context = new HeadlessContext(1920, 1080);
+        batch = context.batch;
+        shapes = context.main.shapes;
+        board = context.createBoard();
+        BoardGenerator.generate(board, nodeCount, 8, nodeCount * 2, 1);
+
+        int columns = (int) Math.ceil(Math.sqrt(nodeCount));
+        centerX = centerY = columns * BoardGenerator.Defaults.NODE_SPACING / 2f;
+        var camera = board.getCamera();
+        camera.position.set(centerX, centerY, 0);
+        camera.zoom = zoom;
+        // bind views for the nodes in view, like the first frame would
+        board.act(0);
+        grid = new GridRenderer();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.dispose();
+    }
+
+    @Benchmark
+    public long drawConnections() {
+        batch.begin();
+        board.drawConnections(shapes);
+        batch.end();
+        return batch.sprites;
+    }
+
+    @Benchmark
+    public long drawConnectionsWhileDragging() {
+        // moving a node invalidates its connections, like a drag does every frame
+        var graph = board.getGraph();
+        int node = frame++ % nodeCount;
+        board.setNodePosition(node, graph.nodeX(node) + 1, graph.nodeY(node));
+
+        batch.begin();
+        board.drawConnections(shapes);
+        batch.end();
+        return batch.sprites;
+    }
+
+    @Benchmark
+    public long drawGridPanning() {
+        // pan a few pixels per frame, so the cached grid is occasionally rebuilt as it would be in use
+        var camera = board.getCamera();
+        camera.position.set(centerX + (frame++ % 1000) * 3, centerY, 0);
+        board.updateCamera();
+
+        batch.begin();
+        grid.draw(shapes, camera, board.getViewBounds());
+        batch.end();
+        return batch.sprites;
+    }
+
+    @Benchmark
+    public long drawContent() {
+        batch.begin();
+        board.drawContent(batch, shapes);
+        board.drawOverlay(batch, shapes);
+        batch.end();
+        return batch.sprites;
+    }
+}
@@ -0,0 +1,136 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.graph.GraphEvaluator;
+import lando.systems.game.graph.NodeFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Evaluation time of {@link GraphEvaluator} on layered DAGs, each node fed by two random nodes of the layer before.
+ * WIDE graphs have a few thousand nodes per layer and parallelize well, DEEP graphs have a handful per layer
+ * and are mostly sequential, compare each with {@code parallel} off to see the speedup and the overhead.
+ * {@code work} is the number of iterations of busy work each node's function does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class EvaluatorBenchmark {
+
+    public enum Shape {
+        WIDE(8),
+        DEEP(2500);
+
+        final int layers;
+
+        Shape(int layers) {
+            this.layers = layers;
+        }
+    }
+
+    private static final int NODE_COUNT = 20_000;
+
+    @Param({"WIDE", "DEEP"})
+    Shape shape;
+
+    @Param({"true", "false"})
+    boolean parallel;
+
+    @Param({"0", "200"})
+    int work;
+
+    Graph graph;
+    GraphEvaluator evaluator;
+    ForkJoinPool pool;
+    int layerWidth;
+    int source;
+    double constant;
+
+    @Setup
+    public void setup() {
+        graph = new Graph();
+        layerWidth = NODE_COUNT / shape.layers;
+        var random = new Random(1234);
+        var outputPorts = new int[NODE_COUNT];
+        var inputPorts = new int[NODE_COUNT];
+        for (int i = 0; i < NODE_COUNT; i++) {
+            int node = graph.addNode(0, 0, 1, 1);
+            inputPorts[i] = graph.addPort(node, Graph.INPUT, Edge.LEFT, "in");
+            outputPorts[i] = graph.addPort(node, Graph.OUTPUT, Edge.RIGHT, "out");
+        }
+        for (int i = layerWidth; i < NODE_COUNT; i++) {
+            int previous = (i / layerWidth - 1) * layerWidth;
+            graph.connect(outputPorts[previous + random.nextInt(layerWidth)], inputPorts[i], 0);
+            graph.connect(outputPorts[previous + random.nextInt(layerWidth)], inputPorts[i], 0);
+        }
+
+        pool = parallel ? ForkJoinPool.commonPool() : new ForkJoinPool(1);
+        evaluator = new GraphEvaluator(graph, pool);
+        NodeFunction function = (constant, inputs, inputCount, outputs, outputCount) -> {
+            double sum = constant;
+            for (int i = 0; i < inputCount; i++) {
+                sum += inputs[i];
+            }
+            // NOTE: damped so values stay finite and keep changing through hundreds of layers
+            sum *= 0.5;
+            for (int i = 0; i < work; i++) {
+                sum += Math.sin(sum) * 1e-9;
+            }
+            outputs[0] = sum;
+        };
+        for (int i = 0; i < NODE_COUNT; i++) {
+            evaluator.setFunction(i, function);
+        }
+        evaluator.update();
+        evaluator.awaitResult();
+        // NOTE: the middle of the first layer, so its change reaches a good part of the graph
+        source = layerWidth / 2;
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Every node in the first layer changes, so the whole graph is recomputed.
+     */
+    @Benchmark
+    public int full() {
+        constant = (constant == 0) ? 1 : 0;
+        for (int i = 0; i < layerWidth; i++) {
+            evaluator.setConstant(i, constant);
+        }
+        return evaluate();
+    }
+
+    /**
+     * One node in the first layer changes, only what's downstream of it is recomputed.
+     */
+    @Benchmark
+    public int incremental() {
+        constant = (constant == 0) ? 1 : 0;
+        evaluator.setConstant(source, constant);
+        return evaluate();
+    }
+
+    private int evaluate() {
+        evaluator.update();
+        evaluator.awaitResult();
+        return evaluator.getEvaluatedCount();
+    }
+}
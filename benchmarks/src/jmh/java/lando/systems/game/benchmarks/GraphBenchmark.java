@@ -0,0 +1,99 @@
+package lando.systems.game.benchmarks;
+
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Model operations on the primitive graph store, without any widgets.
+ * Run with {@code -prof gc} to confirm they don't allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class GraphBenchmark {
+
+    private static final int PORTS_PER_NODE = 8;
+    private static final String[] PORT_NAMES = new String[PORTS_PER_NODE];
+    static {
+        for (int i = 0; i < PORTS_PER_NODE; i++) {
+            PORT_NAMES[i] = "port_" + i;
+        }
+    }
+
+    @Param({"1000", "100000"})
+    int nodeCount;
+
+    Graph graph;
+    final IntList connectionIds = new IntList();
+    int next;
+
+    @Setup
+    public void setup() {
+        graph = build(nodeCount);
+    }
+
+    @Benchmark
+    public Graph buildGraph() {
+        return build(nodeCount);
+    }
+
+    @Benchmark
+    public void rebuildGraph() {
+        // NOTE: clearing keeps capacity, so rebuilding a graph of the same size shouldn't allocate
+        graph.clear();
+        populate(graph, nodeCount);
+    }
+
+    @Benchmark
+    public void layoutAllPorts() {
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            if (graph.isNode(node)) {
+                graph.layoutPorts(node, 40);
+            }
+        }
+    }
+
+    @Benchmark
+    public int moveNodeAndCollectConnections() {
+        int node = next++ % nodeCount;
+        graph.setNodePosition(node, graph.nodeX(node) + 1, graph.nodeY(node));
+        connectionIds.clear();
+        return graph.connections(node, connectionIds).size();
+    }
+
+    private static Graph build(int nodeCount) {
+        var graph = new Graph();
+        populate(graph, nodeCount);
+        return graph;
+    }
+
+    static void populate(Graph graph, int nodeCount) {
+        var random = new Random(1);
+        var edges = Edge.values();
+        int columns = (int) Math.ceil(Math.sqrt(nodeCount));
+        for (int i = 0; i < nodeCount; i++) {
+            int node = graph.addNode((i % columns) * 300, (i / columns) * 300, 200, 200);
+            for (int p = 0; p < PORTS_PER_NODE; p++) {
+                int type = (p % 2 == 0) ? Graph.INPUT : Graph.OUTPUT;
+                graph.addPort(node, type, edges[p % edges.length], PORT_NAMES[p]);
+            }
+        }
+        for (int i = 0; i < 2 * nodeCount; i++) {
+            int src = random.nextInt(nodeCount);
+            int dst = random.nextInt(nodeCount);
+            graph.connect(graph.findPort(src, Graph.OUTPUT, PORT_NAMES[1]), graph.findPort(dst, Graph.INPUT, PORT_NAMES[0]), 0);
+        }
+    }
+}
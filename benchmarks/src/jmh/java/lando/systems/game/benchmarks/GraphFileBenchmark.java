@@ -0,0 +1,79 @@
+package lando.systems.game.benchmarks;
+
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.graph.GraphFile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Save and load throughput of the binary graph file format, on the same synthetic graphs as {@link GraphBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GraphFileBenchmark {
+
+    private static final GraphFile.View VIEW = new GraphFile.View(0, 0, 1);
+    private static final int BATCH_SIZE = 512;
+
+    @Param({"10000", "100000"})
+    int nodeCount;
+
+    Graph graph;
+    Graph loaded;
+    Path file;
+    final IntList ids = new IntList(BATCH_SIZE);
+
+    @Setup
+    public void setup() throws IOException {
+        graph = new Graph();
+        GraphBenchmark.populate(graph, nodeCount);
+        loaded = new Graph();
+
+        file = Files.createTempFile("graph-benchmark", "." + GraphFile.EXTENSION);
+        GraphFile.write(graph, VIEW, file);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @TearDown(Level.Invocation)
+    public void clearLoaded() {
+        loaded.clear();
+    }
+
+    @Benchmark
+    public long save() throws IOException {
+        return GraphFile.write(graph, VIEW, file);
+    }
+
+    @Benchmark
+    public Graph load() throws IOException {
+        // NOTE: reads in the same batches the board loads with, so this includes the per batch overhead
+        try (var reader = GraphFile.open(file)) {
+            while (reader.readNodes(loaded, BATCH_SIZE, ids) > 0) {
+                ids.clear();
+            }
+            while (reader.readConnections(loaded, BATCH_SIZE, ids) > 0) {
+                ids.clear();
+            }
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,85 @@
+package lando.systems.game.benchmarks;
+
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import lando.systems.game.headless.HeadlessContext;
+import lando.systems.game.ui.BoardGenerator;
+import lando.systems.game.ui.NodeBoard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hit-testing a point on boards of increasing size, through the board's spatial index,
+ * compared to the linear walk over every child (the bound node views) that scene2d's Group.hit() does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class HitBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"100", "1000", "10000", "100000"})
+    int nodeCount;
+
+    HeadlessContext context;
+    NodeBoard board;
+    float[] points;
+    int next;
+    final Vector2 local = new Vector2();
+
+    @Setup
+    public void setup() {
+        context = new HeadlessContext(1920, 1080);
+        board = context.createBoard();
+        BoardGenerator.generate(board, nodeCount, 4, 0, 1);
+
+        // look at the middle of the board, so roughly the same number of nodes are on screen for every size
+        int columns = (int) Math.ceil(Math.sqrt(nodeCount));
+        float center = columns * BoardGenerator.Defaults.NODE_SPACING / 2f;
+        board.getCamera().position.set(center, center, 0);
+        board.act(0);
+
+        var random = new RandomXS128(2);
+        points = new float[POINTS * 2];
+        for (int i = 0; i < POINTS; i++) {
+            points[2 * i] = random.nextFloat() * context.width;
+            points[2 * i + 1] = random.nextFloat() * context.height;
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.dispose();
+    }
+
+    @Benchmark
+    public Actor hitIndexed() {
+        int i = 2 * (next++ & (POINTS - 1));
+        return board.hit(points[i], points[i + 1], true);
+    }
+
+    @Benchmark
+    public Actor hitLinear() {
+        int i = 2 * (next++ & (POINTS - 1));
+        var children = board.getChildren();
+        for (int c = children.size - 1; c >= 0; c--) {
+            var child = children.get(c);
+            if (!child.isVisible()) continue;
+            child.parentToLocalCoordinates(local.set(points[i], points[i + 1]));
+            var hit = child.hit(local.x, local.y, true);
+            if (hit != null) return hit;
+        }
+        return board;
+    }
+}
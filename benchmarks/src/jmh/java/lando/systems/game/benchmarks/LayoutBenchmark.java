@@ -0,0 +1,54 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.graph.ForceLayout;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.graph.GraphLayout;
+import lando.systems.game.graph.LayeredLayout;
+import lando.systems.game.graph.LayoutGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to run a {@link GraphLayout} to completion over the random boards from {@link GraphBenchmark},
+ * each node connected to about four others, starting from a grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LayoutBenchmark {
+
+    public enum Kind { FORCE_DIRECTED, LAYERED }
+
+    @Param({"1000", "10000"})
+    int nodeCount;
+
+    @Param({"FORCE_DIRECTED", "LAYERED"})
+    Kind kind;
+
+    LayoutGraph snapshot;
+
+    @Setup
+    public void setup() {
+        var graph = new Graph();
+        GraphBenchmark.populate(graph, nodeCount);
+        snapshot = LayoutGraph.of(graph);
+    }
+
+    @Benchmark
+    public int layout() {
+        GraphLayout layout = (kind == Kind.FORCE_DIRECTED) ? new ForceLayout(snapshot) : new LayeredLayout(snapshot);
+        while (!layout.step()) {
+            // run to completion
+        }
+        return layout.iterations();
+    }
+
+}
@@ -0,0 +1,61 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.headless.HeadlessContext;
+import lando.systems.game.ui.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of creating a node widget, with and without a typical set of ports.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class NodeConstructionBenchmark {
+
+    HeadlessContext context;
+    Graph graph;
+
+    @Setup
+    public void setup() {
+        context = new HeadlessContext(1920, 1080);
+        graph = new Graph();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearGraph() {
+        // NOTE: every constructed node adds to the graph, reset it so it doesn't grow across iterations
+        graph.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.dispose();
+    }
+
+    @Benchmark
+    public Node construct() {
+        return new Node("Node", graph, context.stage, context.skin);
+    }
+
+    @Benchmark
+    public Node constructWithPorts() {
+        var node = new Node("Node", graph, context.stage, context.skin);
+        for (int i = 0; i < 10; i++) {
+            node.addInput("in_" + i, (i % 2 == 0) ? Edge.LEFT : Edge.TOP);
+            node.addOutput("out_" + i, (i % 2 == 0) ? Edge.RIGHT : Edge.BOTTOM);
+        }
+        return node;
+    }
+}
@@ -0,0 +1,65 @@
+package lando.systems.game.benchmarks;
+
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.headless.HeadlessContext;
+import lando.systems.game.ui.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of laying out a node's ports, and of a steady state Node.act() that shouldn't lay them out at all.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PortLayoutBenchmark {
+
+    @Param({"4", "20", "100"})
+    int portCount;
+
+    HeadlessContext context;
+    Node node;
+
+    @Setup
+    public void setup() {
+        context = new HeadlessContext(1920, 1080);
+        node = new Node("Node", new Graph(), context.stage, context.skin);
+
+        var edges = Edge.values();
+        for (int i = 0; i < portCount; i++) {
+            var edge = edges[i % edges.length];
+            if (i % 2 == 0) {
+                node.addInput("in_" + i, edge);
+            } else {
+                node.addOutput("out_" + i, edge);
+            }
+        }
+        node.updatePortPositions();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.dispose();
+    }
+
+    @Benchmark
+    public void updatePortPositions() {
+        node.updatePortPositions();
+    }
+
+    @Benchmark
+    public long actSteadyState() {
+        node.act(1 / 60f);
+        return Node.getPortLayoutCount();
+    }
+}
@@ -1,5 +0,0 @@
-package lando.systems.game;
-
-public enum Edge {
-    TOP, RIGHT, BOTTOM, LEFT
-}
@@ -1,49 +1,79 @@
 package lando.systems.game;
 
+import com.badlogic.gdx.Application;
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.InputMultiplexer;
 import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.graphics.Pixmap;
 import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.scenes.scene2d.Event;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputListener;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.ui.TextField;
 import com.badlogic.gdx.scenes.scene2d.ui.Value;
+import com.badlogic.gdx.scenes.scene2d.utils.UIUtils;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.StreamUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.kotcrab.vis.ui.VisUI;
 import com.kotcrab.vis.ui.widget.PopupMenu;
 import com.kotcrab.vis.ui.widget.VisTable;
+import com.kotcrab.vis.ui.widget.file.FileChooser;
+import lando.systems.game.render.CountingSpriteBatch;
+import lando.systems.game.render.GlyphCache;
+import lando.systems.game.render.RenderPipeline;
+import lando.systems.game.ui.CountingTable;
 import lando.systems.game.ui.MainMenu;
+import lando.systems.game.ui.Minimap;
 import lando.systems.game.ui.NodeBoard;
 import lando.systems.game.ui.Toolbar;
+import lando.systems.game.utils.FrameProfiler;
+import lando.systems.game.utils.StartupLoader;
+import lando.systems.game.utils.StartupTimer;
+import lando.systems.game.utils.Trace;
 import space.earlygrey.shapedrawer.ShapeDrawer;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /** {@link com.badlogic.gdx.ApplicationListener} implementation shared by all platforms. */
 public class Main extends ApplicationAdapter {
 
+    public static class Defaults {
+        /** system property naming a local file to stream {@link Trace#global} events to */
+        public static final String TRACE_FILE_PROPERTY = "trace.file";
+        public static final float TRACE_FLUSH_INTERVAL = 1f;
+        public static final String LOGO_FILE = "libgdx.png";
+    }
+
     public static Main get;
 
-    public SpriteBatch batch;
+    public CountingSpriteBatch batch;
     public ShapeDrawer shapes;
+    public RenderPipeline pipeline;
+    public FrameProfiler profiler;
     public OrthographicCamera windowCamera;
     public OrthographicCamera uiCamera;
     public InputMultiplexer inputMux;
 
+    Writer traceOut;
+    float traceFlushTimer;
+
+    // NOTE: created with the app so the timings include everything from construction to the first frame
+    final StartupTimer startupTimer = new StartupTimer();
+    StartupLoader loader;
+    boolean startupReported = false;
+
     Color backgroundColor;
     TextureAtlas atlas;
     Texture gdx;
-    Texture pixel;
-    TextureRegion pixelRegion;
 
     // NOTE: for convenience to group all these uiskin atlas textures
     public record RadioButtonTextures(
@@ -54,17 +84,44 @@ public class Main extends ApplicationAdapter {
         TextureRegion tickDisabled,
         TextureRegion focusBorder,
         TextureRegion errorBorder
-    ) {}
+    ) {
+        public static RadioButtonTextures from(TextureAtlas atlas) {
+            return new RadioButtonTextures(
+                atlas.findRegion("vis-radio"),
+                atlas.findRegion("vis-radio-over"),
+                atlas.findRegion("vis-radio-down"),
+                atlas.findRegion("vis-radio-tick"),
+                atlas.findRegion("vis-radio-tick-disabled"),
+                atlas.findRegion("border-circle"),
+                atlas.findRegion("border-circle-error")
+            );
+        }
+    }
     public RadioButtonTextures radioBtnTextures;
 
     Skin skin;
     Stage stage;
 
+    // NOTE: the backend can report several resizes per frame while the window is dragged,
+    //  only the latest is applied, once at the start of the next frame's update
+    boolean resizePending = false;
+    int resizeWidth;
+    int resizeHeight;
+
     VisTable root;
     MainMenu menu;
     VisTable workspace;
     Toolbar tools;
     NodeBoard board;
+    Minimap minimap;
+    GlyphCache glyphCache;
+
+    // NOTE: cached so the UI pass doesn't allocate a new method reference each frame
+    final Runnable drawStage = () -> {
+        profiler.begin(FrameProfiler.Phase.STAGE_DRAW);
+        stage.draw();
+        profiler.end(FrameProfiler.Phase.STAGE_DRAW);
+    };
 
     public Main() {
         Main.get = this;
@@ -72,8 +129,16 @@ public class Main extends ApplicationAdapter {
 
     @Override
     public void create() {
-        batch = new SpriteBatch();
+        long start = startupTimer.start();
+        // NOTE: the largest batch size libgdx allows, so large boards flush as rarely as possible
+        batch = new CountingSpriteBatch(8191);
         shapes = new ShapeDrawer(batch);
+        pipeline = new RenderPipeline(batch);
+        profiler = new FrameProfiler();
+        var traceFile = System.getProperty(Defaults.TRACE_FILE_PROPERTY);
+        if (traceFile != null) {
+            traceOut = Gdx.files.local(traceFile).writer(false);
+        }
         inputMux = new InputMultiplexer();
 
         windowCamera = new OrthographicCamera();
@@ -85,49 +150,59 @@ public class Main extends ApplicationAdapter {
         uiCamera.update();
 
         backgroundColor = new Color(0.15f, 0.15f, 0.2f, 1f);
-        gdx = new Texture("libgdx.png");
 
-        // create a single pixel texture and associated region
-        var pixmap = new Pixmap(2, 2, Pixmap.Format.RGBA8888);
-        {
-            pixmap.setColor(Color.WHITE);
-            pixmap.drawPixel(0, 0);
-            pixmap.drawPixel(1, 0);
-            pixmap.drawPixel(0, 1);
-            pixmap.drawPixel(1, 1);
-
-            pixel = new Texture(pixmap);
-            pixelRegion = new TextureRegion(pixel);
+        var skinFile = "ui/skin-talos/uiskin";
+        loader = new StartupLoader(startupTimer,
+            Gdx.files.internal(skinFile + ".atlas"),
+            Gdx.files.internal(skinFile + ".json"),
+            Gdx.files.internal(Defaults.LOGO_FILE));
+        startupTimer.record("create", start);
+
+        // NOTE: headless apps may never render, so there are no frames to spread the loading over
+        if (Gdx.app.getType() == Application.ApplicationType.HeadlessDesktop) {
+            loader.finish();
+            createUi();
         }
-        pixmap.dispose();
-        shapes.setTextureRegion(pixelRegion);
+    }
+
+    /**
+     * Build the ui once the {@link StartupLoader} has the skin ready.
+     */
+    private void createUi() {
+        long start = startupTimer.start();
+        atlas = loader.atlas();
+        skin = loader.skin();
+        gdx = loader.texture(Defaults.LOGO_FILE);
+        loader.dispose();
+        loader = null;
+
+        // NOTE: shapes use a white pixel from the skin's atlas rather than a separate texture,
+        //  so shapes and widgets can be drawn in the same batch without switching textures
+        shapes.setTextureRegion(atlas.findRegion("white-pixel"));
+        radioBtnTextures = RadioButtonTextures.from(atlas);
 
-        var skinFile = "ui/skin-talos/uiskin";
-        atlas = new TextureAtlas(Gdx.files.internal(skinFile + ".atlas"));
-        radioBtnTextures = new RadioButtonTextures(
-            atlas.findRegion("vis-radio"),
-            atlas.findRegion("vis-radio-over"),
-            atlas.findRegion("vis-radio-down"),
-            atlas.findRegion("vis-radio-tick"),
-            atlas.findRegion("vis-radio-tick-disabled"),
-            atlas.findRegion("border-circle"),
-            atlas.findRegion("border-circle-error")
-        );
-
-        skin = new Skin(Gdx.files.internal(skinFile + ".json"), atlas);
-        skin.addRegions(atlas);
         VisUI.load(skin);
         VisUI.setDefaultTitleAlign(Align.center);
+        FileChooser.setDefaultPrefsName("lando.systems.game.filechooser");
+        startupTimer.record("visui", start);
 
-        stage = new Stage(new ScreenViewport(uiCamera));
+        start = startupTimer.start();
+        stage = new Stage(new ScreenViewport(uiCamera), batch);
         //stage.setDebugTableUnderMouse(Table.Debug.all);
 
         // NOTE: the board is independent of the rest of the ui,
         //  and needs to be added first so it behaves like a background canvas
         board = new NodeBoard(stage, skin);
+        board.setProfiler(profiler);
         stage.addActor(board);
 
-        root = new VisTable(true);
+        // NOTE: node titles use the skin's 15px default-font, which was generated from this TTF
+        glyphCache = new GlyphCache(Gdx.files.internal("ui/skin-talos/VisOpenSans.ttf"), 15);
+        board.setGlyphCache(glyphCache);
+
+        minimap = new Minimap(board);
+
+        root = new CountingTable(profiler, true);
         root.setFillParent(true);
         stage.addActor(root);
 
@@ -143,11 +218,32 @@ public class Main extends ApplicationAdapter {
             }
         });
 
+        // undo and redo, keys reach the stage's listeners after the focused actor's
+        // NOTE: a text field with keyboard focus keeps ctrl+z for its own undo
+        stage.addListener(new InputListener() {
+            @Override
+            public boolean keyDown(InputEvent event, int keycode) {
+                if (event.isHandled() || stage.getKeyboardFocus() instanceof TextField) return false;
+                if (!UIUtils.ctrl()) return false;
+                if (keycode == Input.Keys.Z) {
+                    if (UIUtils.shift()) board.getHistory().redo();
+                    else board.getHistory().undo();
+                    return true;
+                }
+                if (keycode == Input.Keys.Y) {
+                    board.getHistory().redo();
+                    return true;
+                }
+                return false;
+            }
+        });
+
         setDefaults();
         populateRoot();
 
         inputMux.addProcessor(stage);
         Gdx.input.setInputProcessor(inputMux);
+        startupTimer.record("stage", start);
     }
 
     public void setDefaults() {
@@ -157,14 +253,19 @@ public class Main extends ApplicationAdapter {
     public void populateRoot() {
         root.clearChildren();
 
-        menu = new MainMenu(stage, skin);
-        workspace = new VisTable(true);
-        tools = new Toolbar(stage, skin);
+        menu = new MainMenu(stage, skin, board);
+        workspace = new CountingTable(profiler, true);
+        tools = new Toolbar(stage, skin, profiler);
 
         var toolsWidth = Value.percentWidth(1 / 4f, root);
         var emptyWidth = Value.percentWidth(3 / 4f, root);
         workspace.add(tools).width(toolsWidth).growY();
-        workspace.add().width(emptyWidth).grow();
+
+        // NOTE: tables only take input through their children,
+        //  so the rest of the dock passes events through to the board behind it
+        var dock = new VisTable();
+        dock.add(minimap).expand().bottom().right().pad(10);
+        workspace.add(dock).width(emptyWidth).grow();
 
         root.add(menu).growX();
         root.row();
@@ -174,51 +275,158 @@ public class Main extends ApplicationAdapter {
     @Override
     public void resize(int width, int height) {
         super.resize(width, height);
+        resizeWidth = width;
+        resizeHeight = height;
+        resizePending = true;
+    }
 
-        PopupMenu.removeEveryMenu(stage);
+    /**
+     * Apply the latest resize since the last frame, if any.
+     * <p>
+     * Only the actors sized from the stage are resized, the root table fills its parent and the board
+     * covers the stage. Layout is then invalidated just where a size actually changed.
+     */
+    private void applyResize() {
+        if (!resizePending) return;
+        resizePending = false;
 
-        stage.getViewport().update(width, height, true);
+        var viewport = stage.getViewport();
+        if (viewport.getScreenWidth() == resizeWidth && viewport.getScreenHeight() == resizeHeight) return;
+        profiler.count(FrameProfiler.Counter.RESIZE);
 
-        var resizeEvent = new Event();
-        for (var actor : stage.getActors()) {
-            actor.fire(resizeEvent);
-        }
+        PopupMenu.removeEveryMenu(stage);
+        viewport.update(resizeWidth, resizeHeight, true);
+        board.fitToStage();
     }
 
     public void update(float dt) {
         if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
             Gdx.app.exit();
         }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F9)) {
+            logTrace();
+        }
+
+        applyResize();
 
+        profiler.begin(FrameProfiler.Phase.STAGE_ACT);
         stage.act(dt);
+        profiler.end(FrameProfiler.Phase.STAGE_ACT);
 
         windowCamera.update();
+        uiCamera.update();
+
+        // NOTE: trace events are only formatted here, off the input paths that record them
+        traceFlushTimer -= dt;
+        if (traceOut != null && traceFlushTimer <= 0) {
+            traceFlushTimer = Defaults.TRACE_FLUSH_INTERVAL;
+            flushTrace();
+        }
+    }
+
+    /**
+     * Log the events currently in the trace buffer, oldest first.
+     */
+    public void logTrace() {
+        var text = new StringBuilder();
+        try {
+            Trace.global.dump(text);
+        } catch (IOException e) {
+            throw new GdxRuntimeException(e);
+        }
+        Gdx.app.log("Trace", "%d events\n%s".formatted(Trace.global.size(), text));
+    }
+
+    private void flushTrace() {
+        try {
+            if (Trace.global.drain(traceOut) > 0) {
+                traceOut.flush();
+            }
+        } catch (IOException e) {
+            Gdx.app.error("Trace", "failed to stream trace, stopping", e);
+            traceOut = null;
+        }
     }
 
     @Override
     public void render() {
+        if (loader != null) {
+            if (!loader.update()) {
+                ScreenUtils.clear(backgroundColor);
+                return;
+            }
+            createUi();
+        }
+
+        profiler.beginFrame();
+
         float dt = Gdx.graphics.getDeltaTime();
+        profiler.begin(FrameProfiler.Phase.UPDATE);
         update(dt);
+        profiler.end(FrameProfiler.Phase.UPDATE);
 
+        profiler.begin(FrameProfiler.Phase.RENDER);
         ScreenUtils.clear(backgroundColor);
 
         float margin = 50;
         float x = windowCamera.viewportWidth - gdx.getWidth() - margin;
 
-        batch.setProjectionMatrix(windowCamera.combined);
-        batch.begin();
-        batch.draw(gdx, x, margin);
-        batch.end();
+        pipeline.begin();
+        {
+            pipeline.pass(RenderPipeline.Pass.BACKGROUND, windowCamera.combined);
+            batch.draw(gdx, x, margin);
 
-        stage.draw();
+            // NOTE: the board, overlays included, uses a single projection and texture,
+            //  plus the glyph cache's pages for node titles, drawn in a pass of their own when zoomed out,
+            //  so its draw calls stay constant as the number of visible nodes grows
+            pipeline.pass(RenderPipeline.Pass.BOARD, board.getCamera().combined);
+            board.drawContent(batch, shapes);
+
+            pipeline.pass(RenderPipeline.Pass.OVERLAY, board.getCamera().combined);
+            board.drawOverlay(batch, shapes);
+        }
+        pipeline.end();
+
+        // NOTE: the stage manages its own begin/end, switching to its camera would flush anyway
+        pipeline.pass(RenderPipeline.Pass.UI, drawStage);
+        profiler.end(FrameProfiler.Phase.RENDER);
+
+        profiler.endFrame();
+
+        if (!startupReported) {
+            startupReported = true;
+            reportStartup();
+        }
+    }
+
+    private void reportStartup() {
+        startupTimer.finish();
+        var report = startupTimer.report();
+        if (startupTimer.isOverBudget()) {
+            Gdx.app.error("Startup", "over budget, " + report);
+        } else {
+            Gdx.app.log("Startup", report);
+        }
     }
 
     @Override
     public void dispose() {
+        if (traceOut != null) {
+            flushTrace();
+            StreamUtils.closeQuietly(traceOut);
+        }
+        if (loader != null) {
+            // NOTE: closed before loading finished, nothing past the loader exists yet
+            loader.dispose();
+            batch.dispose();
+            return;
+        }
+        board.dispose();
+        minimap.dispose();
+        glyphCache.dispose();
         stage.dispose();
         batch.dispose();
         gdx.dispose();
-        pixel.dispose();
         atlas.dispose();
         VisUI.dispose();
     }
@@ -0,0 +1,51 @@
+package lando.systems.game.render;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Matrix4;
+
+/**
+ * {@link SpriteBatch} that keeps running totals of the things that break batching,
+ * so {@link RenderPipeline} can attribute them to render passes.
+ */
+public class CountingSpriteBatch extends SpriteBatch {
+
+    /** calls to flush(), including ones with nothing to submit, but not the one a projection change makes */
+    public long totalFlushes = 0;
+    public long totalTextureSwitches = 0;
+    public long totalProjectionChanges = 0;
+
+    private boolean changingProjection = false;
+
+    public CountingSpriteBatch() {
+        super();
+    }
+
+    public CountingSpriteBatch(int size) {
+        super(size);
+    }
+
+    @Override
+    public void flush() {
+        if (!changingProjection) {
+            totalFlushes++;
+        }
+        super.flush();
+    }
+
+    @Override
+    protected void switchTexture(Texture texture) {
+        totalTextureSwitches++;
+        super.switchTexture(texture);
+    }
+
+    @Override
+    public void setProjectionMatrix(Matrix4 projection) {
+        totalProjectionChanges++;
+        // NOTE: a projection change is counted as such, the flush it makes isn't counted again,
+        //  RenderPipeline flushes on its own beforehand so the geometry goes to the right pass
+        changingProjection = true;
+        super.setProjectionMatrix(projection);
+        changingProjection = false;
+    }
+}
@@ -0,0 +1,457 @@
+package lando.systems.game.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.PixmapPacker;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g2d.freetype.FreeTypeFontGenerator;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntMap;
+import com.badlogic.gdx.utils.IntSet;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Fonts generated from a TTF at the pixel size text actually covers on screen at the board's zoom,
+ * so text drawn in world space stays sharp as the camera zooms instead of scaling one bitmap font.
+ * <p>
+ * Zoom is quantized into bands, one per entry of {@link Defaults#SIZES}, and each band's font is scaled so it
+ * covers the same world size. Glyphs are rasterized lazily, only the characters of text that's been asked for,
+ * by FreeType on a background thread, and uploaded from {@link #update()} on the render thread, a limited number
+ * per frame. Until a band has every glyph a piece of text needs, {@link #font(float, CharSequence)} hands back
+ * the nearest band that does, or null so the caller keeps its own font, and drawing never waits on FreeType.
+ * <p>
+ * Glyphs are packed into pages shared by all bands, each page holds one band's glyphs. Once the pages would go
+ * over the memory budget the least recently used band is evicted and its pages reused, an evicted band is
+ * generated again if it's needed later. Apart from the worker, use from the render thread only.
+ */
+public class GlyphCache implements Disposable {
+
+    public static class Defaults {
+        /** pixel sizes fonts are generated at, a band's font is used while the zoom asks for up to its size */
+        public static final int[] SIZES = {6, 8, 10, 12, 15, 19, 24, 30, 38, 48, 60, 76, 96};
+        public static final int PAGE_SIZE = 512;
+        /** texture memory pages can use before bands are evicted */
+        public static final long MEMORY_BUDGET = 16L * 1024 * 1024;
+        /** glyphs uploaded to pages per frame at most, the rest wait for the next frame */
+        public static final int UPLOADS_PER_FRAME = 128;
+        /** transparent pixels between glyphs, so filtering doesn't bleed neighbours in */
+        public static final int PADDING = 1;
+        public static final float GAMMA = 1.8f;
+    }
+
+    private static final int PAGE_BYTES = Defaults.PAGE_SIZE * Defaults.PAGE_SIZE * 4;
+
+    private static final class Page {
+        final Texture texture;
+        final TextureRegion region;
+        int shelfY;
+        int shelfHeight;
+        int cursorX;
+
+        Page(Texture texture) {
+            this.texture = texture;
+            this.region = new TextureRegion(texture);
+        }
+
+        /**
+         * Reserve space for a glyph with a simple shelf packer.
+         *
+         * @return the glyph's x, y packed into an int, or -1 if the page is full
+         */
+        int allocate(int width, int height) {
+            int paddedWidth = width + Defaults.PADDING;
+            int paddedHeight = height + Defaults.PADDING;
+            if (cursorX + paddedWidth > Defaults.PAGE_SIZE) {
+                shelfY += shelfHeight;
+                shelfHeight = 0;
+                cursorX = 0;
+            }
+            if (shelfY + paddedHeight > Defaults.PAGE_SIZE || paddedWidth > Defaults.PAGE_SIZE) return -1;
+            int x = cursorX;
+            cursorX += paddedWidth;
+            shelfHeight = Math.max(shelfHeight, paddedHeight);
+            return (x << 16) | shelfY;
+        }
+
+        void reset() {
+            shelfY = 0;
+            shelfHeight = 0;
+            cursorX = Defaults.PADDING;
+        }
+    }
+
+    private static final class Band {
+        final int size;
+        final IntSet requested = new IntSet();
+        final Array<Page> pages = new Array<>();
+        final Array<TextureRegion> regions = new Array<>();
+        BitmapFont.BitmapFontData data;
+        BitmapFont font;
+        long lastUsed;
+
+        Band(int size) {
+            this.size = size;
+        }
+    }
+
+    /**
+     * Handed back by the worker, either a band's metrics or one rasterized glyph.
+     */
+    private record Result(int size, BitmapFont.BitmapFontData data, BitmapFont.Glyph glyph, Pixmap pixmap) {}
+
+    private final FileHandle file;
+    private final float worldSize;
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Result> results = new ConcurrentLinkedQueue<>();
+    private final Runnable drain = this::drain;
+
+    // NOTE: requests handed to the worker, guarded by locking queued
+    private final IntArray queued = new IntArray();
+    private boolean drainQueued = false;
+
+    // NOTE: only touched from the worker
+    private FreeTypeFontGenerator generator;
+    private final IntArray batch = new IntArray();
+
+    // NOTE: only touched from the render thread
+    private final IntMap<Band> bands = new IntMap<>();
+    private final Array<Page> freePages = new Array<>();
+    private final IntArray pending = new IntArray();
+    private Pixmap blank;
+    private int pageCount = 0;
+    private long frame = 0;
+    private int evictionCount = 0;
+    private volatile boolean failed = false;
+
+    /**
+     * @param file the TTF to generate fonts from
+     * @param worldSize height in world units that text from every band covers, eg. the size of the font it replaces
+     */
+    public GlyphCache(FileHandle file, float worldSize) {
+        this.file = file;
+        this.worldSize = worldSize;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "glyph-cache");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the pixel size of the band used at the zoom, world units per screen pixel
+     */
+    public int sizeFor(float zoom) {
+        float wanted = worldSize / zoom;
+        for (int size : Defaults.SIZES) {
+            if (size >= wanted) return size;
+        }
+        return Defaults.SIZES[Defaults.SIZES.length - 1];
+    }
+
+    /**
+     * Find a font for drawing the text at the zoom, queueing any of its glyphs the zoom's band is missing.
+     *
+     * @return the zoom's band font, or the nearest band that has every glyph of the text, or null if none does yet
+     */
+    public BitmapFont font(float zoom, CharSequence text) {
+        if (failed) return null;
+
+        int size = sizeFor(zoom);
+        var band = bands.get(size);
+        if (band == null) {
+            band = new Band(size);
+            bands.put(size, band);
+            pending.add(-size);
+        }
+        band.lastUsed = frame;
+        if (request(band, text)) return band.font;
+
+        // NOTE: fall back to the closest band that's ready, so text doesn't flicker between sizes while glyphs load
+        Band nearest = null;
+        for (var other : bands.values()) {
+            if (other == band || !covers(other, text)) continue;
+            if (nearest == null || Math.abs(other.size - size) < Math.abs(nearest.size - size)) {
+                nearest = other;
+            }
+        }
+        if (nearest == null) return null;
+        nearest.lastUsed = frame;
+        return nearest.font;
+    }
+
+    /**
+     * Upload glyphs the worker has finished, and send it the glyphs requested since the last update.
+     * Call once per frame from the render thread.
+     */
+    public void update() {
+        frame++;
+
+        int uploads = 0;
+        Result result;
+        while (uploads < Defaults.UPLOADS_PER_FRAME && (result = results.poll()) != null) {
+            var band = bands.get(result.size);
+            if (result.data != null) {
+                if (band != null && band.data == null) {
+                    createFont(band, result.data);
+                }
+                continue;
+            }
+            if (band != null && band.font != null && !band.data.hasGlyph((char) result.glyph.id)) {
+                addGlyph(band, result.glyph, result.pixmap);
+                uploads++;
+            }
+            if (result.pixmap != null) {
+                result.pixmap.dispose();
+            }
+        }
+
+        if (pending.notEmpty()) {
+            boolean execute;
+            synchronized (queued) {
+                queued.addAll(pending);
+                execute = !drainQueued;
+                drainQueued = true;
+            }
+            pending.clear();
+            // NOTE: a drain that's already queued picks these up too, so at most one is ever waiting
+            if (execute) {
+                executor.execute(drain);
+            }
+        }
+    }
+
+    public int bandCount() {
+        return bands.size;
+    }
+
+    public int pageCount() {
+        return pageCount;
+    }
+
+    public long memoryBytes() {
+        return (long) pageCount * PAGE_BYTES;
+    }
+
+    public int evictionCount() {
+        return evictionCount;
+    }
+
+    @Override
+    public void dispose() {
+        executor.execute(() -> {
+            if (generator != null) {
+                generator.dispose();
+                generator = null;
+            }
+        });
+        executor.shutdown();
+
+        for (var band : bands.values()) {
+            for (var page : band.pages) {
+                page.texture.dispose();
+            }
+        }
+        for (var page : freePages) {
+            page.texture.dispose();
+        }
+        bands.clear();
+        freePages.clear();
+        Result result;
+        while ((result = results.poll()) != null) {
+            if (result.pixmap != null) {
+                result.pixmap.dispose();
+            }
+        }
+        if (blank != null) {
+            blank.dispose();
+        }
+    }
+
+    /**
+     * Queue the text's glyphs the band hasn't been asked for yet.
+     *
+     * @return true if the band has every glyph already
+     */
+    private boolean request(Band band, CharSequence text) {
+        boolean ready = (band.font != null);
+        for (int i = 0; i < text.length(); i++) {
+            char ch = text.charAt(i);
+            if (ready && band.data.hasGlyph(ch)) continue;
+            ready = false;
+            if (band.requested.add(ch)) {
+                pending.add((band.size << 16) | ch);
+            }
+        }
+        return ready;
+    }
+
+    private static boolean covers(Band band, CharSequence text) {
+        if (band.font == null) return false;
+        for (int i = 0; i < text.length(); i++) {
+            if (!band.data.hasGlyph(text.charAt(i))) return false;
+        }
+        return true;
+    }
+
+    private void createFont(Band band, BitmapFont.BitmapFontData data) {
+        var page = allocatePage(band);
+        if (page == null) return;
+        band.data = data;
+        band.font = new BitmapFont(data, band.regions, false);
+        band.font.setUseIntegerPositions(false);
+        data.setScale(worldSize / band.size);
+    }
+
+    private void addGlyph(Band band, BitmapFont.Glyph glyph, Pixmap pixmap) {
+        if (pixmap != null) {
+            var page = band.pages.peek();
+            int packed = page.allocate(glyph.width, glyph.height);
+            if (packed < 0) {
+                page = allocatePage(band);
+                packed = (page != null) ? page.allocate(glyph.width, glyph.height) : -1;
+                if (packed < 0) {
+                    // NOTE: no room for it now, forget the request so it's asked for again once there might be
+                    band.requested.remove(glyph.id);
+                    return;
+                }
+            }
+            glyph.srcX = packed >>> 16;
+            glyph.srcY = packed & 0xFFFF;
+            glyph.page = band.pages.indexOf(page, true);
+            page.texture.draw(pixmap, glyph.srcX, glyph.srcY);
+        } else {
+            glyph.page = 0;
+        }
+        band.data.setGlyphRegion(glyph, band.regions.get(glyph.page));
+        band.data.setGlyph(glyph.id, glyph);
+    }
+
+    /**
+     * Add a page to the band, reusing a free one or evicting the least recently used other band
+     * once the budget is reached.
+     *
+     * @return the page, or null if the band can't have another
+     */
+    private Page allocatePage(Band band) {
+        while (freePages.isEmpty() && memoryBytes() + PAGE_BYTES > Defaults.MEMORY_BUDGET) {
+            Band victim = null;
+            for (var other : bands.values()) {
+                if (other == band || other.pages.isEmpty()) continue;
+                if (victim == null || other.lastUsed < victim.lastUsed) {
+                    victim = other;
+                }
+            }
+            if (victim == null) {
+                // NOTE: a single band over the whole budget keeps the glyphs it has and goes without the rest
+                if (!band.pages.isEmpty()) return null;
+                break;
+            }
+            evict(victim);
+        }
+
+        Page page;
+        if (freePages.notEmpty()) {
+            page = freePages.pop();
+            page.texture.draw(blank(), 0, 0);
+        } else {
+            page = new Page(new Texture(blank(), false));
+            page.texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+            pageCount++;
+        }
+        page.reset();
+        band.pages.add(page);
+        band.regions.add(page.region);
+        return page;
+    }
+
+    private void evict(Band band) {
+        freePages.addAll(band.pages);
+        bands.remove(band.size);
+        evictionCount++;
+        Gdx.app.debug("GlyphCache", "evicted %dpx font, %d pages".formatted(band.size, band.pages.size));
+    }
+
+    private Pixmap blank() {
+        if (blank == null) {
+            blank = new Pixmap(Defaults.PAGE_SIZE, Defaults.PAGE_SIZE, Pixmap.Format.RGBA8888);
+            blank.setBlending(Pixmap.Blending.None);
+        }
+        return blank;
+    }
+
+    /**
+     * Runs on the worker: metrics for negative entries, the negated band size, and glyphs for the rest,
+     * as the band size in the high bits and the character in the low 16.
+     */
+    /**
+     * Rasterize everything queued so far, moving it into the worker's own batch so the render thread can keep queueing.
+     */
+    private void drain() {
+        synchronized (queued) {
+            batch.clear();
+            batch.addAll(queued);
+            queued.clear();
+            drainQueued = false;
+        }
+        rasterize(batch);
+    }
+
+    private void rasterize(IntArray batch) {
+        if (failed) return;
+        try {
+            if (generator == null) {
+                generator = new FreeTypeFontGenerator(file);
+            }
+            for (int i = 0; i < batch.size; i++) {
+                int key = batch.get(i);
+                if (key < 0) {
+                    results.add(new Result(-key, metrics(-key), null, null));
+                } else {
+                    results.add(glyph(key >>> 16, key & 0xFFFF));
+                }
+            }
+        } catch (RuntimeException | LinkageError e) {
+            // NOTE: eg. no FreeType natives on this platform, callers keep using their own fonts
+            failed = true;
+            Gdx.app.error("GlyphCache", "couldn't generate glyphs from " + file.path(), e);
+        }
+    }
+
+    private BitmapFont.BitmapFontData metrics(int size) {
+        // NOTE: no characters, only the metrics, the packer just takes the placeholder for missing glyphs
+        var parameter = new FreeTypeFontGenerator.FreeTypeFontParameter();
+        parameter.size = size;
+        parameter.characters = "";
+        parameter.packer = new PixmapPacker(256, 256, Pixmap.Format.RGBA8888, 1, false);
+        var data = generator.generateData(parameter);
+        parameter.packer.dispose();
+        data.missingGlyph = null;
+        data.setGlyph(0, null);
+        return data;
+    }
+
+    private Result glyph(int size, int ch) {
+        var rasterized = generator.generateGlyphAndBitmap(ch, size, false);
+        if (rasterized == null) {
+            // NOTE: not in the font, an empty glyph so the band doesn't wait for it forever
+            var glyph = new BitmapFont.Glyph();
+            glyph.id = ch;
+            return new Result(size, null, glyph, null);
+        }
+        var glyph = rasterized.glyph;
+        Pixmap pixmap = null;
+        if (glyph.width > 0 && glyph.height > 0) {
+            pixmap = rasterized.bitmap.getPixmap(Pixmap.Format.RGBA8888, Color.WHITE, Defaults.GAMMA);
+        }
+        return new Result(size, null, glyph, pixmap);
+    }
+}
@@ -0,0 +1,136 @@
+package lando.systems.game.render;
+
+import com.badlogic.gdx.math.Matrix4;
+
+import java.util.Arrays;
+
+/**
+ * Groups a frame's drawing into explicit passes that share one batch.
+ * <p>
+ * Consecutive passes that use the same projection don't flush the batch between them,
+ * and every pass records the render calls, flushes, texture switches and projection changes
+ * it caused so the number of draw calls per frame can be tracked as the board grows.
+ * <p>
+ * Usage: {@code begin()}, then any number of {@code pass(Pass, Matrix4)} calls with drawing in between,
+ * then {@code end()}. Passes that manage the batch themselves, like {@code Stage.draw()},
+ * go through {@code pass(Pass, Runnable)} after {@code end()}.
+ */
+public class RenderPipeline {
+
+    public enum Pass { BACKGROUND, BOARD, OVERLAY, UI }
+
+    public static class PassStats {
+        public int renderCalls;
+        public int flushes;
+        public int textureSwitches;
+        public int projectionChanges;
+
+        void add(int renderCalls, int flushes, int textureSwitches, int projectionChanges) {
+            this.renderCalls += renderCalls;
+            this.flushes += flushes;
+            this.textureSwitches += textureSwitches;
+            this.projectionChanges += projectionChanges;
+        }
+
+        void reset() {
+            renderCalls = 0;
+            flushes = 0;
+            textureSwitches = 0;
+            projectionChanges = 0;
+        }
+    }
+
+    private final CountingSpriteBatch batch;
+    private final PassStats[] stats = new PassStats[Pass.values().length];
+    private final PassStats totals = new PassStats();
+
+    private Pass current = null;
+    private long startRenderCalls;
+    private long startFlushes;
+    private long startTextureSwitches;
+    private long startProjectionChanges;
+
+    public RenderPipeline(CountingSpriteBatch batch) {
+        this.batch = batch;
+        for (int i = 0; i < stats.length; i++) {
+            stats[i] = new PassStats();
+        }
+    }
+
+    public CountingSpriteBatch batch() {
+        return batch;
+    }
+
+    public PassStats stats(Pass pass) {
+        return stats[pass.ordinal()];
+    }
+
+    /**
+     * Sum of every pass' stats for the most recently completed frame.
+     */
+    public PassStats totals() {
+        return totals;
+    }
+
+    public void begin() {
+        for (var passStats : stats) {
+            passStats.reset();
+        }
+        totals.reset();
+        batch.begin();
+    }
+
+    /**
+     * Start a pass drawn with the specified projection.
+     * The batch is only flushed if the projection actually changes from the previous pass.
+     */
+    public void pass(Pass pass, Matrix4 projection) {
+        boolean changed = !Arrays.equals(batch.getProjectionMatrix().val, projection.val);
+        if (changed) {
+            // NOTE: flush here rather than letting setProjectionMatrix() do it,
+            //  so the previous pass' geometry is attributed to the previous pass
+            batch.flush();
+        }
+        finishPass();
+        startPass(pass);
+        if (changed) {
+            batch.setProjectionMatrix(projection);
+        }
+    }
+
+    public void end() {
+        batch.end();
+        finishPass();
+    }
+
+    /**
+     * Run a pass that begins and ends the batch on its own, must be called outside of begin() / end().
+     */
+    public void pass(Pass pass, Runnable draw) {
+        startPass(pass);
+        draw.run();
+        finishPass();
+    }
+
+    private void startPass(Pass pass) {
+        current = pass;
+        startRenderCalls = batch.totalRenderCalls;
+        startFlushes = batch.totalFlushes;
+        startTextureSwitches = batch.totalTextureSwitches;
+        startProjectionChanges = batch.totalProjectionChanges;
+    }
+
+    private void finishPass() {
+        if (current == null) return;
+
+        int renderCalls       = (int) (batch.totalRenderCalls - startRenderCalls);
+        int flushes           = (int) (batch.totalFlushes - startFlushes);
+        int textureSwitches   = (int) (batch.totalTextureSwitches - startTextureSwitches);
+        int projectionChanges = (int) (batch.totalProjectionChanges - startProjectionChanges);
+
+        // NOTE: a pass can run more than once per frame, so accumulate rather than assign
+        stats[current.ordinal()].add(renderCalls, flushes, textureSwitches, projectionChanges);
+        totals.add(renderCalls, flushes, textureSwitches, projectionChanges);
+        current = null;
+    }
+}
@@ -0,0 +1,93 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.math.RandomXS128;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+
+/**
+ * Fills a {@link NodeBoard} with synthetic nodes, ports and connections,
+ * for benchmarks, simulations and stress testing large boards.
+ */
+public class BoardGenerator {
+
+    public static class Defaults {
+        public static final float NODE_SPACING = Node.Defaults.NODE_SIZE * 1.5f;
+        public static final float JITTER = Node.Defaults.NODE_SIZE * 0.25f;
+    }
+
+    private static final Edge[] INPUT_EDGES = { Edge.LEFT, Edge.TOP };
+    private static final Edge[] OUTPUT_EDGES = { Edge.RIGHT, Edge.BOTTOM };
+
+    private BoardGenerator() {}
+
+    /**
+     * Replace the board's contents with nodes laid out in a jittered square grid.
+     * Each node gets {@code portsPerNode} ports, split between inputs on its left and top edges
+     * and outputs on its right and bottom edges, then {@code connectionCount} connections
+     * are made between random outputs and inputs of different nodes, always from the lower node id
+     * to the higher so the board evaluates without cycles. Each node gets a random constant in [0, 1),
+     * see {@link lando.systems.game.graph.GraphEvaluator}. The same seed always generates the same board.
+     */
+    public static void generate(NodeBoard board, int nodeCount, int portsPerNode, int connectionCount, long seed) {
+        board.clearBoard();
+
+        // NOTE: a generated board is a starting point, not a series of edits to undo
+        var history = board.getHistory();
+        boolean recording = history.isEnabled();
+        history.setEnabled(false);
+        try {
+            populate(board, nodeCount, portsPerNode, connectionCount, seed);
+        } finally {
+            history.setEnabled(recording);
+        }
+    }
+
+    private static void populate(NodeBoard board, int nodeCount, int portsPerNode, int connectionCount, long seed) {
+        var random = new RandomXS128(seed);
+
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(nodeCount)));
+        int inputCount = portsPerNode / 2;
+        int outputCount = portsPerNode - inputCount;
+
+        for (int i = 0; i < nodeCount; i++) {
+            float x = (i % columns) * Defaults.NODE_SPACING + random.nextFloat() * Defaults.JITTER;
+            float y = (i / columns) * Defaults.NODE_SPACING + random.nextFloat() * Defaults.JITTER;
+            int node = board.createNode("Node " + i, x, y);
+            board.getEvaluator().setConstant(node, random.nextFloat());
+
+            for (int p = 0; p < inputCount; p++) {
+                board.addInput(node, inputName(p), INPUT_EDGES[p % INPUT_EDGES.length]);
+            }
+            for (int p = 0; p < outputCount; p++) {
+                board.addOutput(node, outputName(p), OUTPUT_EDGES[p % OUTPUT_EDGES.length]);
+            }
+        }
+
+        if (nodeCount < 2 || inputCount == 0 || outputCount == 0) return;
+
+        // NOTE: node ids are dense after clearing the board, so they match the loop index above
+        var graph = board.getGraph();
+        for (int i = 0; i < connectionCount; i++) {
+            int src = random.nextInt(nodeCount);
+            int dst = random.nextInt(nodeCount - 1);
+            if (dst >= src) dst++;
+            if (dst < src) {
+                int swap = src;
+                src = dst;
+                dst = swap;
+            }
+
+            int srcPort = graph.findPort(src, Graph.OUTPUT, outputName(random.nextInt(outputCount)));
+            int dstPort = graph.findPort(dst, Graph.INPUT, inputName(random.nextInt(inputCount)));
+            board.connect(srcPort, dstPort);
+        }
+    }
+
+    public static String inputName(int index) {
+        return "in_" + index;
+    }
+
+    public static String outputName(int index) {
+        return "out_" + index;
+    }
+}
@@ -0,0 +1,196 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+import lando.systems.game.graph.ForceLayout;
+import lando.systems.game.graph.GraphLayout;
+import lando.systems.game.graph.LayeredLayout;
+import lando.systems.game.graph.LayoutGraph;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs a {@link GraphLayout} over the board's nodes on a background thread, streaming positions back as it converges.
+ * <p>
+ * The layout works on a {@link LayoutGraph} snapshot taken on the render thread, so the worker never touches the
+ * graph. Whenever at least {@link Defaults#FRAME_INTERVAL_NANOS} has passed since the last hand off, the worker
+ * copies the current positions into a frame and hands it over, replacing any frame the render thread hasn't picked
+ * up yet, so {@link #update()} applies at most one set of positions per render frame however fast the layout steps.
+ * A structural edit to the graph while a layout runs cancels it, its snapshot no longer matches the board.
+ * The whole layout is one step in the board's history, recorded once it finishes or is cancelled.
+ */
+public class BoardLayout implements Disposable {
+
+    public enum Kind { FORCE_DIRECTED, LAYERED }
+
+    public static class Defaults {
+        /** minimum time between frames of positions handed to the render thread */
+        public static final long FRAME_INTERVAL_NANOS = 16_000_000L;
+    }
+
+    private static class Job {
+        final Kind kind;
+        final LayoutGraph snapshot;
+        final GraphLayout layout;
+        final int graphVersion;
+        final AtomicReference<float[]> latest = new AtomicReference<>();
+        final AtomicReference<float[]> spare = new AtomicReference<>();
+        volatile boolean cancelled = false;
+        volatile boolean finished = false;
+        volatile long nanos;
+        volatile RuntimeException error;
+
+        Job(Kind kind, LayoutGraph snapshot, GraphLayout layout, int graphVersion) {
+            this.kind = kind;
+            this.snapshot = snapshot;
+            this.layout = layout;
+            this.graphVersion = graphVersion;
+        }
+    }
+
+    private final NodeBoard board;
+    private final ExecutorService executor;
+
+    // NOTE: only touched from the render thread
+    private Job job = null;
+
+    public BoardLayout(NodeBoard board) {
+        this.board = board;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "board-layout");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isRunning() {
+        return job != null;
+    }
+
+    /**
+     * Snapshot the board's nodes and connections, then lay them out in the background,
+     * cancelling any layout already running. Must be called from the render thread.
+     */
+    public void start(Kind kind) {
+        cancel();
+        var snapshot = LayoutGraph.of(board.graph);
+        var layout = switch (kind) {
+            case FORCE_DIRECTED -> new ForceLayout(snapshot);
+            case LAYERED -> new LayeredLayout(snapshot);
+        };
+        var started = new Job(kind, snapshot, layout, board.graph.version());
+        job = started;
+        executor.execute(() -> run(started));
+    }
+
+    /**
+     * Stop the running layout where it is, nodes keep the positions applied so far.
+     */
+    public void cancel() {
+        if (job == null) return;
+        job.cancelled = true;
+        finish();
+    }
+
+    /**
+     * Apply the latest frame of positions, if there's a new one, and wrap up a finished layout.
+     * Must be called from the render thread.
+     */
+    public void update() {
+        if (job == null) return;
+        if (board.graph.version() != job.graphVersion) {
+            cancel();
+            return;
+        }
+
+        var frame = job.latest.getAndSet(null);
+        if (frame != null) {
+            apply(frame);
+            job.spare.set(frame);
+        }
+
+        // NOTE: the worker hands off its final frame before it marks the job finished
+        if (job.finished && job.latest.get() == null) {
+            if (job.error != null) {
+                Gdx.app.error("Layout", "layout failed", job.error);
+            } else {
+                Gdx.app.log("Layout", "%s layout of %d nodes, %d connections, %d steps in %d ms".formatted(
+                    job.kind, job.snapshot.nodeCount, job.snapshot.edgeCount,
+                    job.layout.iterations(), job.nanos / 1_000_000));
+            }
+            finish();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        if (job != null) {
+            job.cancelled = true;
+            job = null;
+        }
+        executor.shutdownNow();
+    }
+
+    private void apply(float[] frame) {
+        var snapshot = job.snapshot;
+        for (int i = 0; i < snapshot.nodeCount; i++) {
+            int id = snapshot.ids[i];
+            var view = board.getView(id);
+            // NOTE: nodes being dragged stay with the pointer
+            if (view != null && view.dragging) continue;
+            board.placeNode(id, frame[2 * i], frame[2 * i + 1]);
+        }
+    }
+
+    /**
+     * Record every node the layout moved as one step, and let go of the job.
+     */
+    private void finish() {
+        var snapshot = job.snapshot;
+        var graph = board.graph;
+        var history = board.history;
+        history.begin();
+        for (int i = 0; i < snapshot.nodeCount; i++) {
+            int id = snapshot.ids[i];
+            if (!graph.isNode(id)) continue;
+            history.recordMove(id, snapshot.x[i], snapshot.y[i], graph.nodeX(id), graph.nodeY(id));
+        }
+        history.end();
+        job = null;
+    }
+
+    private static void run(Job job) {
+        long start = System.nanoTime();
+        long lastFrame = start;
+        try {
+            while (!job.cancelled) {
+                boolean done = job.layout.step();
+                long now = System.nanoTime();
+                if (done || now - lastFrame >= Defaults.FRAME_INTERVAL_NANOS) {
+                    handOff(job);
+                    lastFrame = now;
+                }
+                if (done) break;
+            }
+        } catch (RuntimeException e) {
+            job.error = e;
+        } finally {
+            job.nanos = System.nanoTime() - start;
+            job.finished = true;
+        }
+    }
+
+    private static void handOff(Job job) {
+        var frame = job.spare.getAndSet(null);
+        if (frame == null) {
+            frame = new float[2 * job.snapshot.nodeCount];
+        }
+        job.layout.positions(frame);
+        var unseen = job.latest.getAndSet(frame);
+        if (unseen != null) {
+            job.spare.set(unseen);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package lando.systems.game.ui;
+
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.graph.GraphFile;
+
+import java.io.IOException;
+
+/**
+ * Builds a {@link NodeBoard} from a {@link GraphFile} a little at a time, so loading a large board
+ * doesn't stall the frame it's opened in. Each {@link #step()} reads batches of nodes, then connections,
+ * straight into the board's graph until its time budget for the frame runs out.
+ */
+class BoardLoader {
+
+    public static class Defaults {
+        /** entries read between checks of the frame budget */
+        public static final int BATCH_SIZE = 512;
+        public static final long FRAME_BUDGET_NANOS = 4_000_000;
+    }
+
+    final NodeBoard board;
+    final GraphFile.Reader reader;
+
+    private final IntList ids = new IntList(Defaults.BATCH_SIZE);
+
+    BoardLoader(NodeBoard board, GraphFile.Reader reader) {
+        this.board = board;
+        this.reader = reader;
+        board.graph.ensureNodeCapacity(reader.nodeCount());
+        board.graph.ensurePortCapacity(reader.portCount());
+        board.graph.ensureConnectionCapacity(reader.connectionCount());
+    }
+
+    /**
+     * @return true once the whole file has been read
+     */
+    boolean step() throws IOException {
+        long deadline = System.nanoTime() + Defaults.FRAME_BUDGET_NANOS;
+        var graph = board.graph;
+        do {
+            ids.clear();
+            if (reader.readNodes(graph, Defaults.BATCH_SIZE, ids) > 0) {
+                for (int i = 0; i < ids.size(); i++) {
+                    board.registerNode(ids.get(i));
+                }
+            } else if (reader.readConnections(graph, Defaults.BATCH_SIZE, ids) > 0) {
+                for (int i = 0; i < ids.size(); i++) {
+                    board.registerConnection(ids.get(i));
+                }
+            }
+        } while (!reader.isDone() && System.nanoTime() < deadline);
+        return reader.isDone();
+    }
+
+    float progress() {
+        return reader.progress();
+    }
+}
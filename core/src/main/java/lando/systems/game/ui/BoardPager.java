@@ -0,0 +1,436 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntIntMap;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.LongMap;
+import com.badlogic.gdx.utils.LongMap.Entry;
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.ChunkStore;
+import lando.systems.game.graph.Graph;
+
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pages the chunks of a {@link ChunkStore} in and out of a {@link NodeBoard} as its camera moves.
+ * <p>
+ * Chunks overlapping the camera's view, plus a margin, are requested every frame, along with chunks in a
+ * lookahead rect that leads the view in the direction it's panning. Chunk files are read and decoded on a
+ * background thread, decoded chunks are added to the board's graph on the render thread within a time budget,
+ * a chunk too large for one frame's budget is added over several frames. Requests for chunks that fall out of
+ * both rects before they're read are cancelled, so chunks panned past don't hold up the ones in view.
+ * Once the estimated memory of the resident chunks exceeds the budget, the least recently viewed chunks that
+ * aren't currently wanted are evicted, chunks with moved nodes are written back to the store first.
+ * <p>
+ * Only node positions and sizes are written back: nodes stay in the chunk they were stored in wherever they're
+ * moved to, and nodes, ports or connections added to a paged board exist only in memory.
+ */
+public class BoardPager implements Disposable {
+
+    public static class Defaults {
+        public static final long MEMORY_BUDGET_BYTES = 256L << 20;
+        /** chunks within this many screen pixels of the view are wanted */
+        public static final float VIEW_MARGIN = 400;
+        /** the lookahead rect leads the view by this many seconds of the current pan velocity */
+        public static final float PREFETCH_SECONDS = 0.75f;
+        /** how quickly the pan velocity estimate follows the actual pan speed, per frame */
+        public static final float VELOCITY_SMOOTHING = 0.25f;
+        /** time spent adding loaded chunks to the graph per frame, checked after every node and connection */
+        public static final long APPLY_BUDGET_NANOS = 3_000_000;
+        /** how long disposing waits for pending write backs */
+        public static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+        // NOTE: rough heap cost of each resident entry, counting both the graph and the decoded chunk kept for write back
+        public static final long NODE_BYTES = 256;
+        public static final long PORT_BYTES = 64;
+        public static final long CONNECTION_BYTES = 96;
+    }
+
+    private static class Request {
+        final int x;
+        final int y;
+        final long key;
+        // NOTE: written by the render thread, read by the io thread before it reads the chunk
+        volatile boolean cancelled;
+        // NOTE: written by the io thread, a failed request is kept so the chunk isn't retried every frame
+        volatile boolean failed;
+        ChunkStore.Chunk chunk;
+        long lastWanted;
+
+        Request(int x, int y, long key) {
+            this.x = x;
+            this.y = y;
+            this.key = key;
+        }
+    }
+
+    private static class Resident {
+        final long key;
+        final ChunkStore.Chunk chunk;
+        final IntList nodeIds = new IntList();
+        final long bytes;
+        long lastViewed;
+        boolean dirty;
+        // how much of the chunk has been added to the graph, it's paged in over several frames when it's large
+        int appliedNodes;
+        int appliedConnections;
+
+        Resident(long key, ChunkStore.Chunk chunk) {
+            this.key = key;
+            this.chunk = chunk;
+            this.bytes = chunk.nodeCount * Defaults.NODE_BYTES
+                + chunk.portCount * Defaults.PORT_BYTES
+                + chunk.connectionCount * Defaults.CONNECTION_BYTES;
+        }
+    }
+
+    private static final Edge[] EDGES = Edge.values();
+
+    final NodeBoard board;
+    final ChunkStore store;
+
+    private final ExecutorService executor;
+    private final ConcurrentLinkedQueue<Request> loaded = new ConcurrentLinkedQueue<>();
+
+    // NOTE: everything below is only touched from the render thread
+    private final LongMap<Resident> residents = new LongMap<>();
+    private final LongMap<Request> requested = new LongMap<>();
+    private final Array<Resident> residentByNode = new Array<>();
+    private final IntIntMap nodeIdsByKey = new IntIntMap();
+    private final IntIntMap connectionKeysById = new IntIntMap();
+    private final IntSet residentConnections = new IntSet();
+    private final IntList connectionIds = new IntList();
+    private final Rectangle wanted = new Rectangle();
+    private final Rectangle lookahead = new Rectangle();
+    private final Vector2 panDelta = new Vector2();
+    private final Vector2 panVelocity = new Vector2();
+
+    private Resident pagingIn;
+    private long memoryBudget = Defaults.MEMORY_BUDGET_BYTES;
+    private long residentBytes;
+    private long frame;
+    private int evictedCount;
+    private boolean overBudgetLogged;
+
+    BoardPager(NodeBoard board, ChunkStore store) {
+        this.board = board;
+        this.store = store;
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "board-pager");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    public void setMemoryBudget(long bytes) {
+        memoryBudget = bytes;
+        overBudgetLogged = false;
+    }
+
+    public long getResidentBytes() {
+        return residentBytes;
+    }
+
+    public int getResidentChunkCount() {
+        return residents.size;
+    }
+
+    public int getRequestedChunkCount() {
+        return requested.size;
+    }
+
+    public int getEvictedChunkCount() {
+        return evictedCount;
+    }
+
+    /**
+     * Accumulate the world space distance the camera was panned by, for the pan velocity estimate.
+     */
+    void panned(float dx, float dy) {
+        panDelta.add(dx, dy);
+    }
+
+    /**
+     * Mark the chunk holding the node as needing to be written back when it's evicted.
+     */
+    void nodeChanged(int id) {
+        var resident = (id < residentByNode.size) ? residentByNode.get(id) : null;
+        if (resident != null) {
+            resident.dirty = true;
+        }
+    }
+
+    void update(float delta, Rectangle view, float zoom) {
+        frame++;
+
+        if (delta > 0) {
+            panVelocity.lerp(panDelta.scl(1 / delta), Defaults.VELOCITY_SMOOTHING);
+        }
+        panDelta.setZero();
+
+        float margin = Defaults.VIEW_MARGIN * zoom;
+        // NOTE: nodes belong to the chunk holding their bottom left corner, so extend left and down by a node
+        float node = Node.Defaults.NODE_SIZE;
+        wanted.set(view.x - margin - node, view.y - margin - node,
+            view.width + 2 * margin + node, view.height + 2 * margin + node);
+        lookahead.set(wanted);
+        lookahead.x += panVelocity.x * Defaults.PREFETCH_SECONDS;
+        lookahead.y += panVelocity.y * Defaults.PREFETCH_SECONDS;
+
+        // what's in view is requested before what's ahead of it, the io thread handles requests in order
+        touch(wanted);
+        touch(lookahead);
+        cancelUnwanted();
+
+        applyLoaded();
+        evict();
+    }
+
+    private void touch(Rectangle rect) {
+        int left   = store.chunkCoord(rect.x);
+        int bottom = store.chunkCoord(rect.y);
+        int right  = store.chunkCoord(rect.x + rect.width);
+        int top    = store.chunkCoord(rect.y + rect.height);
+        for (int x = left; x <= right; x++) {
+            for (int y = bottom; y <= top; y++) {
+                if (!store.hasChunk(x, y)) continue;
+
+                long key = ChunkStore.key(x, y);
+                var resident = residents.get(key);
+                if (resident != null) {
+                    // NOTE: prefetched chunks count as viewed too, so they aren't the first evicted on the way to them
+                    resident.lastViewed = frame;
+                } else {
+                    var request = requested.get(key);
+                    if (request == null) {
+                        request = request(x, y, key);
+                    }
+                    request.lastWanted = frame;
+                }
+            }
+        }
+    }
+
+    private Request request(int x, int y, long key) {
+        var request = new Request(x, y, key);
+        requested.put(key, request);
+        executor.execute(() -> {
+            if (request.cancelled) return;
+            try {
+                request.chunk = store.read(x, y);
+                loaded.add(request);
+            } catch (IOException e) {
+                request.failed = true;
+                Gdx.app.error("Pager", "failed to read chunk " + x + "," + y, e);
+            }
+        });
+        return request;
+    }
+
+    /**
+     * Cancel the requests for chunks that are in neither the wanted nor the lookahead rect any more.
+     */
+    private void cancelUnwanted() {
+        var requests = requested.values();
+        while (requests.hasNext()) {
+            var request = requests.next();
+            if (request.lastWanted < frame && !request.failed) {
+                request.cancelled = true;
+                requests.remove();
+            }
+        }
+    }
+
+    private void applyLoaded() {
+        long deadline = System.nanoTime() + Defaults.APPLY_BUDGET_NANOS;
+        while (true) {
+            if (pagingIn != null) {
+                if (!pageIn(pagingIn, deadline)) return;
+                pagingIn = null;
+            }
+            if (System.nanoTime() >= deadline) return;
+
+            var request = loaded.poll();
+            if (request == null) return;
+            // NOTE: it may have been cancelled, or cancelled and requested again, after the io thread read it
+            if (request.cancelled || requested.get(request.key) != request) continue;
+            requested.remove(request.key);
+
+            var resident = new Resident(request.key, request.chunk);
+            resident.lastViewed = frame;
+            residents.put(resident.key, resident);
+            residentBytes += resident.bytes;
+            pagingIn = resident;
+        }
+    }
+
+    /**
+     * Add the rest of the chunk's nodes, then its connections, to the graph until the deadline passes.
+     *
+     * @return true once the whole chunk has been added
+     */
+    private boolean pageIn(Resident resident, long deadline) {
+        var graph = board.graph;
+        var chunk = resident.chunk;
+
+        for (; resident.appliedNodes < chunk.nodeCount; resident.appliedNodes++) {
+            if (System.nanoTime() >= deadline) return false;
+            int i = resident.appliedNodes;
+            int b = 4 * i;
+            int id = graph.addNode(chunk.nodeBounds[b], chunk.nodeBounds[b + 1], chunk.nodeBounds[b + 2], chunk.nodeBounds[b + 3]);
+            graph.setNodeTitle(id, chunk.nodeTitles[i]);
+            for (int p = chunk.nodePortStart[i]; p < chunk.nodePortStart[i + 1]; p++) {
+                int port = graph.addPort(id, chunk.portTypes[p], EDGES[chunk.portEdges[p]], chunk.portNames[p]);
+                graph.setPortPosition(port, chunk.portPositions[2 * p], chunk.portPositions[2 * p + 1]);
+            }
+
+            // NOTE: registered before it's mapped to its chunk, so registering doesn't mark the chunk dirty
+            board.registerNode(id);
+            resident.nodeIds.add(id);
+            nodeIdsByKey.put(chunk.nodeKeys[i], id);
+            if (id >= residentByNode.size) {
+                residentByNode.setSize(id + 1);
+            }
+            residentByNode.set(id, resident);
+        }
+
+        // connections to chunks that aren't resident yet are made when those chunks arrive, they store them too
+        for (; resident.appliedConnections < chunk.connectionCount; resident.appliedConnections++) {
+            if (System.nanoTime() >= deadline) return false;
+            int c = 6 * resident.appliedConnections;
+            int key = chunk.connections[c];
+            if (residentConnections.contains(key)) continue;
+
+            int src = findPort(chunk.connections[c + 1], chunk.connections[c + 2]);
+            int dst = findPort(chunk.connections[c + 3], chunk.connections[c + 4]);
+            if (src == Graph.NONE || dst == Graph.NONE) continue;
+
+            int id = graph.connect(src, dst, chunk.connections[c + 5]);
+            residentConnections.add(key);
+            connectionKeysById.put(id, key);
+            board.registerConnection(id);
+        }
+        return true;
+    }
+
+    private int findPort(int nodeKey, int index) {
+        int node = nodeIdsByKey.get(nodeKey, Graph.NONE);
+        if (node == Graph.NONE) return Graph.NONE;
+
+        var graph = board.graph;
+        int port = graph.firstPort(node);
+        for (int i = 0; i < index && port != Graph.NONE; i++) {
+            port = graph.nextPort(port);
+        }
+        return port;
+    }
+
+    private void evict() {
+        while (residentBytes > memoryBudget) {
+            Resident oldest = null;
+            for (Entry<Resident> entry : residents) {
+                var resident = entry.value;
+                if (resident.lastViewed < frame && (oldest == null || resident.lastViewed < oldest.lastViewed)) {
+                    oldest = resident;
+                }
+            }
+            if (oldest == null) {
+                if (!overBudgetLogged) {
+                    overBudgetLogged = true;
+                    Gdx.app.log("Pager", "chunks in view exceed the memory budget of %d bytes".formatted(memoryBudget));
+                }
+                return;
+            }
+            pageOut(oldest);
+        }
+    }
+
+    private void pageOut(Resident resident) {
+        var graph = board.graph;
+        var chunk = resident.chunk;
+        residents.remove(resident.key);
+        residentBytes -= resident.bytes;
+        evictedCount++;
+        if (resident == pagingIn) {
+            pagingIn = null;
+        }
+
+        if (resident.dirty) {
+            writeBack(resident);
+        }
+
+        for (int i = 0; i < resident.nodeIds.size(); i++) {
+            int id = resident.nodeIds.get(i);
+            nodeIdsByKey.remove(chunk.nodeKeys[i], Graph.NONE);
+            residentByNode.set(id, null);
+            if (!graph.isNode(id)) continue;
+
+            connectionIds.clear();
+            graph.connections(id, connectionIds);
+            for (int c = 0; c < connectionIds.size(); c++) {
+                int connection = connectionIds.get(c);
+                if (connectionKeysById.containsKey(connection)) {
+                    residentConnections.remove(connectionKeysById.remove(connection, Graph.NONE));
+                }
+            }
+            board.removeNode(id);
+        }
+    }
+
+    /**
+     * Copy the current bounds of the chunk's nodes into it, and queue it to be written to the store.
+     */
+    private void writeBack(Resident resident) {
+        var graph = board.graph;
+        var chunk = resident.chunk;
+        for (int i = 0; i < resident.nodeIds.size(); i++) {
+            int id = resident.nodeIds.get(i);
+            if (!graph.isNode(id)) continue;
+            int b = 4 * i;
+            chunk.nodeBounds[b]     = graph.nodeX(id);
+            chunk.nodeBounds[b + 1] = graph.nodeY(id);
+            chunk.nodeBounds[b + 2] = graph.nodeWidth(id);
+            chunk.nodeBounds[b + 3] = graph.nodeHeight(id);
+        }
+        resident.dirty = false;
+
+        // NOTE: the single io thread runs this before any later read of the same chunk
+        executor.execute(() -> {
+            try {
+                store.write(chunk);
+            } catch (IOException e) {
+                Gdx.app.error("Pager", "failed to write chunk " + chunk.x + "," + chunk.y, e);
+            }
+        });
+    }
+
+    /**
+     * Write back every dirty resident chunk, blocking until the io thread is done, then stop it.
+     */
+    @Override
+    public void dispose() {
+        for (Entry<Resident> entry : residents) {
+            if (entry.value.dirty) {
+                writeBack(entry.value);
+            }
+        }
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Defaults.SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.InputListener;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.utils.Trace;
+import space.earlygrey.shapedrawer.ShapeDrawer;
+
+/**
+ * Drags new connections out of ports. Pressing on a port starts a rubber band link from it, which snaps to the
+ * nearest compatible port within reach as it's dragged, and releasing while snapped connects the two.
+ * <p>
+ * Added to the board as a capture listener, so a press on a port is seen before the listeners of the node
+ * it sits on and never starts dragging the node. Ports are found through the board's port index,
+ * see {@link NodeBoard#pickPort(float, float, float, int)}.
+ */
+class ConnectionDrag extends InputListener {
+
+    public static class Defaults {
+        public static final Color LINK_COLOR = new Color(1, 0, 1, 0.6f);
+        public static final Color TARGET_COLOR = new Color(1, 1, 1, 0.9f);
+        public static final float LINE_WIDTH = 2f;
+    }
+
+    private final NodeBoard board;
+    private final Vector2 pointer = new Vector2();
+
+    // NOTE: graph port ids, source is NONE when there's no drag in progress
+    int source = Graph.NONE;
+    int target = Graph.NONE;
+
+    ConnectionDrag(NodeBoard board) {
+        this.board = board;
+    }
+
+    boolean isDragging() {
+        // NOTE: an undo can take the port away mid drag
+        if (source != Graph.NONE && !board.graph.isPort(source)) {
+            cancel();
+        }
+        return source != Graph.NONE;
+    }
+
+    void cancel() {
+        source = Graph.NONE;
+        target = Graph.NONE;
+    }
+
+    @Override
+    public boolean touchDown(InputEvent event, float x, float y, int pointer, int button) {
+        // NOTE: ports aren't drawn at the RECT level of detail, so there's nothing to press on
+        if (button != Input.Buttons.LEFT || isDragging() || board.detail == Node.Detail.RECT) return false;
+
+        var world = board.screenToWorld(this.pointer.set(x, y));
+        float radius = Math.max(Node.Defaults.PORT_RADIUS, NodeBoard.Defaults.PORT_PICK_RADIUS * board.camera.zoom);
+        int port = board.pickPort(world.x, world.y, radius, Graph.NONE);
+        if (port == Graph.NONE) return false;
+
+        Trace.global.record(Trace.Event.LINK_START, port);
+        source = port;
+        target = Graph.NONE;
+        event.stop();
+        return true;
+    }
+
+    @Override
+    public void touchDragged(InputEvent event, float x, float y, int pointer) {
+        if (!isDragging()) return;
+        snap(x, y);
+        event.stop();
+    }
+
+    @Override
+    public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
+        if (!isDragging()) return;
+        snap(x, y);
+        Trace.global.record(Trace.Event.LINK_STOP, source, target, this.pointer.x, this.pointer.y);
+        if (board.graph.isPort(target)) {
+            var graph = board.graph;
+            boolean fromOutput = (graph.portType(source) == Graph.OUTPUT);
+            board.connect(fromOutput ? source : target, fromOutput ? target : source);
+        }
+        cancel();
+        event.stop();
+    }
+
+    /**
+     * Draw the link from the source port to the snapped port, or to the pointer when nothing is in reach.
+     * Expects the batch to be drawing with the board's camera.
+     */
+    void draw(ShapeDrawer shapes) {
+        if (!isDragging()) return;
+        var graph = board.graph;
+        float x0 = graph.portWorldX(source);
+        float y0 = graph.portWorldY(source);
+        boolean snapped = graph.isPort(target);
+        float x1 = snapped ? graph.portWorldX(target) : pointer.x;
+        float y1 = snapped ? graph.portWorldY(target) : pointer.y;
+
+        shapes.setColor(Defaults.LINK_COLOR);
+        shapes.line(x0, y0, x1, y1, Defaults.LINE_WIDTH);
+        if (snapped) {
+            shapes.setColor(Defaults.TARGET_COLOR);
+            shapes.circle(x1, y1, 1.5f * Node.Defaults.PORT_RADIUS, Defaults.LINE_WIDTH);
+        }
+        shapes.setColor(1, 1, 1, 1);
+    }
+
+    private void snap(float x, float y) {
+        var world = board.screenToWorld(pointer.set(x, y));
+        float radius = NodeBoard.Defaults.PORT_SNAP_RADIUS * board.camera.zoom;
+        target = board.pickPort(world.x, world.y, radius, source);
+    }
+
+}
@@ -0,0 +1,166 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.utils.OrthogonalRouter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes obstacle avoiding routes for {@link Node.Connection}s on a background thread.
+ * <p>
+ * Jobs are built on the render thread from a snapshot of the graph's node rectangles and connection endpoints,
+ * so the worker never touches the graph or actor state. Finished jobs are handed back as a whole through
+ * {@link #publish(Array)}, which applies every route in the job at once from the render thread.
+ * Only one job is in flight at a time, connections invalidated meanwhile wait for the next job.
+ */
+public class ConnectionRouter implements Disposable {
+
+    private static class Job {
+        float[] obstacles = new float[0];
+        int obstacleCount;
+
+        final Array<Node.Connection> connections = new Array<>();
+        // NOTE: per connection, 8 floats: startX, startY, startDx, startDy, endX, endY, endDx, endDy
+        float[] endpoints = new float[0];
+        int[] versions = new int[0];
+        float[][] routes = new float[0][];
+    }
+
+    private final ExecutorService executor;
+    private final AtomicReference<Job> finished = new AtomicReference<>();
+    private final OrthogonalRouter router;
+
+    // NOTE: only touched from the render thread
+    private Job spare = new Job();
+    private boolean busy = false;
+
+    public ConnectionRouter(float cellSize) {
+        this.router = new OrthogonalRouter(cellSize);
+        this.executor = Executors.newSingleThreadExecutor(runnable -> {
+            var thread = new Thread(runnable, "connection-router");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public boolean isBusy() {
+        return busy;
+    }
+
+    /**
+     * Snapshot the nodes and the pending connections, then route them in the background.
+     * Must be called from the render thread, and only when the router isn't busy.
+     */
+    public void submit(Graph graph, Iterable<Node.Connection> pending) {
+        if (busy) {
+            throw new IllegalStateException("ConnectionRouter already has a job in flight");
+        }
+
+        var job = spare;
+        spare = null;
+
+        job.obstacleCount = 0;
+        job.obstacles = ensureCapacity(job.obstacles, graph.nodeCount() * 4);
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            if (!graph.isNode(node)) continue;
+            int i = 4 * job.obstacleCount++;
+            job.obstacles[i]     = graph.nodeX(node);
+            job.obstacles[i + 1] = graph.nodeY(node);
+            job.obstacles[i + 2] = graph.nodeWidth(node);
+            job.obstacles[i + 3] = graph.nodeHeight(node);
+        }
+
+        job.connections.clear();
+        for (var connection : pending) {
+            job.connections.add(connection);
+        }
+
+        int count = job.connections.size;
+        job.endpoints = ensureCapacity(job.endpoints, count * 8);
+        if (job.versions.length < count) {
+            job.versions = new int[count];
+            job.routes = new float[count][];
+        }
+        for (int i = 0; i < count; i++) {
+            var connection = job.connections.get(i);
+            int src = connection.src();
+            int dst = connection.dst();
+            int e = 8 * i;
+            job.endpoints[e]     = graph.portWorldX(src);
+            job.endpoints[e + 1] = graph.portWorldY(src);
+            job.endpoints[e + 2] = graph.portEdge(src).dx;
+            job.endpoints[e + 3] = graph.portEdge(src).dy;
+            job.endpoints[e + 4] = graph.portWorldX(dst);
+            job.endpoints[e + 5] = graph.portWorldY(dst);
+            job.endpoints[e + 6] = graph.portEdge(dst).dx;
+            job.endpoints[e + 7] = graph.portEdge(dst).dy;
+            job.versions[i] = connection.version;
+            job.routes[i] = null;
+        }
+
+        busy = true;
+        executor.execute(() -> {
+            route(job);
+            finished.set(job);
+        });
+    }
+
+    /**
+     * Apply the routes from the most recently finished job, if any.
+     * Routes for connections that changed since the job was submitted are discarded.
+     * Connections no route was found for keep their elbow, and are marked {@link Node.Connection#isUnroutable()}.
+     * Must be called from the render thread.
+     *
+     * @param routed the connections a route was applied to are added to it
+     * @return the number of routes applied
+     */
+    public int publish(Array<Node.Connection> routed) {
+        var job = finished.getAndSet(null);
+        if (job == null) return 0;
+
+        int applied = 0;
+        for (int i = 0; i < job.connections.size; i++) {
+            var connection = job.connections.get(i);
+            var route = job.routes[i];
+            job.routes[i] = null;
+            if (connection.version != job.versions[i]) continue;
+            if (route != null) {
+                connection.setRoute(route);
+                routed.add(connection);
+                applied++;
+            } else {
+                connection.unroutableVersion = connection.version;
+            }
+        }
+        job.connections.clear();
+
+        spare = job;
+        busy = false;
+        return applied;
+    }
+
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private void route(Job job) {
+        router.setObstacles(job.obstacles, job.obstacleCount);
+
+        var e = job.endpoints;
+        for (int i = 0; i < job.connections.size; i++) {
+            int o = 8 * i;
+            job.routes[i] = router.route(
+                e[o],     e[o + 1], (int) e[o + 2], (int) e[o + 3],
+                e[o + 4], e[o + 5], (int) e[o + 6], (int) e[o + 7]);
+        }
+    }
+
+    private static float[] ensureCapacity(float[] array, int capacity) {
+        return (array.length >= capacity) ? array : new float[Math.max(capacity, array.length * 2)];
+    }
+}
@@ -0,0 +1,37 @@
+package lando.systems.game.ui;
+
+import com.kotcrab.vis.ui.widget.VisTable;
+import lando.systems.game.utils.FrameProfiler;
+
+/**
+ * A table that counts its layout passes, see {@link FrameProfiler.Counter#UI_LAYOUT}.
+ * The profiler can be null, eg. when nothing is being profiled, then nothing is counted.
+ */
+public class CountingTable extends VisTable {
+
+    final FrameProfiler profiler;
+
+    public CountingTable(FrameProfiler profiler) {
+        this(profiler, false);
+    }
+
+    public CountingTable(FrameProfiler profiler, boolean setVisDefaults) {
+        super(setVisDefaults);
+        this.profiler = profiler;
+    }
+
+    @Override
+    public void layout() {
+        super.layout();
+        countLayout(profiler, FrameProfiler.Counter.UI_LAYOUT);
+    }
+
+    /**
+     * Count a layout pass with the profiler, if there is one. Used by the actors that aren't tables as well.
+     */
+    static void countLayout(FrameProfiler profiler, FrameProfiler.Counter counter) {
+        if (profiler != null) {
+            profiler.count(counter);
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package lando.systems.game.ui;
+
+import com.github.tommyettinger.ds.IntIntMap;
+import com.github.tommyettinger.ds.IntList;
+import com.github.tommyettinger.ds.ObjectList;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+
+/**
+ * Undo and redo for edits to a {@link NodeBoard}.
+ * <p>
+ * Each step the user can undo is a sequence of ops packed into an int array, with floats stored as their bits
+ * and strings kept alongside. The board records ops as it makes edits. A whole drag is recorded as a single move
+ * when it ends, and edits between {@link #begin()} and {@link #end()} make up one step.
+ * <p>
+ * Memory is bounded in two ways. Past {@link Defaults#DETAIL_STEPS} steps, the oldest steps are merged into
+ * checkpoints of {@link Defaults#CHECKPOINT_STEPS} steps each. A checkpoint holds the net change over its span,
+ * with the moves of each node collapsed into one. Undo then goes back a checkpoint at a time. On top of that,
+ * once the estimated size of the history is over the memory cap, the oldest steps are dropped.
+ * <p>
+ * Ops refer to nodes, ports and connections by graph id. Undoing a removal restores the same ids, see
+ * {@link Graph#restoreNode}, so later steps stay valid.
+ */
+public class EditHistory {
+
+    public static class Defaults {
+        public static final long MEMORY_CAP = 32L << 20;
+        /** steps kept as they were recorded, older ones are merged into checkpoints */
+        public static final int DETAIL_STEPS = 500;
+        /** steps merged into each checkpoint */
+        public static final int CHECKPOINT_STEPS = 50;
+    }
+
+    // NOTE: op codes, each followed by its fields
+    /** node, from x, from y, to x, to y */
+    static final int MOVE = 1;
+    /** node, x, y, width, height, title string index */
+    static final int ADD_NODE = 2;
+    /** the ADD_NODE fields, then the port count and each port's ADD_PORT fields, then the same for connections */
+    static final int REMOVE_NODE = 3;
+    /** port, node, type, edge, name id */
+    static final int ADD_PORT = 4;
+    /** connection, source port, destination port, style */
+    static final int CONNECT = 5;
+    static final int DISCONNECT = 6;
+
+    private static final int MOVE_SIZE = 6;
+    private static final int NODE_SIZE = 7;
+    private static final int PORT_FIELDS = 5;
+    private static final int CONNECTION_FIELDS = 4;
+    private static final Edge[] EDGES = Edge.values();
+
+    // NOTE: rough object overheads, for the memory estimate
+    private static final int STEP_OVERHEAD = 64;
+    private static final int STRING_OVERHEAD = 48;
+
+    private static final class Step {
+        final int[] ops;
+        final String[] strings;
+        final long bytes;
+        /** the number of recorded steps merged into this one */
+        final int span;
+
+        Step(int[] ops, String[] strings, int span) {
+            this.ops = ops;
+            this.strings = strings;
+            this.span = span;
+            long bytes = STEP_OVERHEAD + 4L * ops.length;
+            for (var string : strings) {
+                bytes += (string != null) ? STRING_OVERHEAD + 2L * string.length() : 0;
+            }
+            this.bytes = bytes;
+        }
+    }
+
+    final NodeBoard board;
+    final Graph graph;
+
+    // NOTE: oldest first, checkpoints are always at the front of the done list
+    private final ObjectList<Step> done = new ObjectList<>();
+    private final ObjectList<Step> undone = new ObjectList<>();
+    private int checkpointCount = 0;
+    private long memoryBytes = 0;
+    private long memoryCap = Defaults.MEMORY_CAP;
+    private long droppedSteps = 0;
+
+    private final IntList ops = new IntList();
+    private final ObjectList<String> strings = new ObjectList<>();
+    private int depth = 0;
+    private boolean enabled = true;
+    private boolean applying = false;
+
+    private final IntList opStarts = new IntList();
+    private final IntList ids = new IntList();
+    private final IntIntMap moveOps = new IntIntMap();
+
+    EditHistory(NodeBoard board) {
+        this.board = board;
+        this.graph = board.graph;
+        moveOps.setDefaultValue(-1);
+    }
+
+    public boolean canUndo() {
+        return !done.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !undone.isEmpty();
+    }
+
+    public int getUndoCount() {
+        return done.size();
+    }
+
+    public int getRedoCount() {
+        return undone.size();
+    }
+
+    public int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    /**
+     * @return the estimated size of the history in bytes
+     */
+    public long getMemoryBytes() {
+        return memoryBytes;
+    }
+
+    /**
+     * @return the number of steps dropped to stay under the memory cap
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    public long getMemoryCap() {
+        return memoryCap;
+    }
+
+    public void setMemoryCap(long bytes) {
+        memoryCap = bytes;
+        trim();
+    }
+
+    /**
+     * Whether edits are recorded, eg. generated or paged in content isn't something to undo.
+     */
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void clear() {
+        done.clear();
+        undone.clear();
+        checkpointCount = 0;
+        memoryBytes = 0;
+        ops.clear();
+        strings.clear();
+        depth = 0;
+    }
+
+    /**
+     * Start a step, every edit until the matching {@link #end()} is undone together. Steps can nest.
+     */
+    public void begin() {
+        depth++;
+    }
+
+    public void end() {
+        if (depth == 0) {
+            throw new IllegalStateException("end() without begin()");
+        }
+        if (--depth == 0) {
+            commit();
+        }
+    }
+
+    /**
+     * Undo the most recent step.
+     *
+     * @return false if there was nothing to undo
+     */
+    public boolean undo() {
+        if (done.isEmpty() || depth > 0) return false;
+        var step = done.remove(done.size() - 1);
+        if (done.size() < checkpointCount) {
+            checkpointCount--;
+        }
+        apply(step, true);
+        undone.add(step);
+        return true;
+    }
+
+    /**
+     * Redo the most recently undone step.
+     *
+     * @return false if there was nothing to redo
+     */
+    public boolean redo() {
+        if (undone.isEmpty() || depth > 0) return false;
+        var step = undone.remove(undone.size() - 1);
+        apply(step, false);
+        done.add(step);
+        if (step.span > 1 && done.size() - 1 == checkpointCount) {
+            checkpointCount++;
+        }
+        return true;
+    }
+
+    // ------------------------------------------------------------------------
+    // Recording, called by the board as it makes edits
+    // ------------------------------------------------------------------------
+
+    void recordMove(int node, float fromX, float fromY, float toX, float toY) {
+        if (!recording() || (fromX == toX && fromY == toY)) return;
+        ops.add(MOVE, node);
+        ops.add(bits(fromX), bits(fromY), bits(toX), bits(toY));
+        recorded();
+    }
+
+    /**
+     * Call after the node is added, before its ports are.
+     */
+    void recordAddNode(int node) {
+        if (!recording()) return;
+        ops.add(ADD_NODE);
+        putNode(node);
+        recorded();
+    }
+
+    /**
+     * Call before the node is removed.
+     */
+    void recordRemoveNode(int node) {
+        if (!recording()) return;
+        ops.add(REMOVE_NODE);
+        putNode(node);
+
+        int countIndex = ops.size();
+        ops.add(0);
+        int count = 0;
+        for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+            putPort(port);
+            count++;
+        }
+        ops.set(countIndex, count);
+
+        ids.clear();
+        graph.connections(node, ids);
+        ops.add(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            putConnection(ids.get(i));
+        }
+        recorded();
+    }
+
+    void recordAddPort(int port) {
+        if (!recording()) return;
+        ops.add(ADD_PORT);
+        putPort(port);
+        recorded();
+    }
+
+    void recordConnect(int connection) {
+        if (!recording()) return;
+        ops.add(CONNECT);
+        putConnection(connection);
+        recorded();
+    }
+
+    /**
+     * Call before the connection is removed.
+     */
+    void recordDisconnect(int connection) {
+        if (!recording()) return;
+        ops.add(DISCONNECT);
+        putConnection(connection);
+        recorded();
+    }
+
+    private boolean recording() {
+        return enabled && !applying;
+    }
+
+    private void recorded() {
+        if (depth == 0) {
+            commit();
+        }
+    }
+
+    private void putNode(int node) {
+        ops.add(node);
+        ops.add(bits(graph.nodeX(node)), bits(graph.nodeY(node)), bits(graph.nodeWidth(node)), bits(graph.nodeHeight(node)));
+        ops.add(strings.size());
+        strings.add(graph.nodeTitle(node));
+    }
+
+    private void putPort(int port) {
+        ops.add(port, graph.portNode(port), graph.portType(port));
+        ops.add(graph.portEdge(port).ordinal(), graph.portNameId(port));
+    }
+
+    private void putConnection(int connection) {
+        ops.add(connection, graph.connectionSrc(connection));
+        ops.add(graph.connectionDst(connection), graph.connectionStyle(connection));
+    }
+
+    private void commit() {
+        if (ops.isEmpty()) return;
+        push(new Step(ops.toArray(), strings.toArray(new String[0]), 1));
+        ops.clear();
+        strings.clear();
+        // NOTE: a new edit branches off from here, what was undone can't be redone anymore
+        for (int i = 0; i < undone.size(); i++) {
+            memoryBytes -= undone.get(i).bytes;
+        }
+        undone.clear();
+        trim();
+    }
+
+    private void push(Step step) {
+        done.add(step);
+        memoryBytes += step.bytes;
+    }
+
+    /**
+     * Merge old steps into checkpoints, then drop the oldest steps until the history fits in its memory cap.
+     */
+    private void trim() {
+        while (done.size() - checkpointCount > Defaults.DETAIL_STEPS) {
+            mergeCheckpoint();
+        }
+        while (memoryBytes > memoryCap && (!done.isEmpty() || !undone.isEmpty())) {
+            // NOTE: steps that can be redone are the least likely to be needed, they go first
+            var list = undone.isEmpty() ? done : undone;
+            var step = list.remove(0);
+            if (list == done && checkpointCount > 0) {
+                checkpointCount--;
+            }
+            memoryBytes -= step.bytes;
+            droppedSteps += step.span;
+        }
+    }
+
+    /**
+     * Merge the oldest steps that aren't in a checkpoint yet into one, collapsing repeated moves of a node.
+     */
+    private void mergeCheckpoint() {
+        var merged = new IntList();
+        var mergedStrings = new ObjectList<String>();
+        int span = 0;
+        moveOps.clear();
+
+        int first = checkpointCount;
+        int last = Math.min(done.size(), first + Defaults.CHECKPOINT_STEPS);
+        for (int s = first; s < last; s++) {
+            var step = done.get(s);
+            span += step.span;
+            memoryBytes -= step.bytes;
+
+            var data = step.ops;
+            int i = 0;
+            while (i < data.length) {
+                int op = data[i];
+                int size = opSize(data, i);
+                if (op == MOVE) {
+                    // NOTE: nothing between two moves of a node depends on its position, so the second can fold into the first
+                    int earlier = moveOps.get(data[i + 1]);
+                    if (earlier >= 0) {
+                        merged.set(earlier + 4, data[i + 4]);
+                        merged.set(earlier + 5, data[i + 5]);
+                    } else {
+                        moveOps.put(data[i + 1], merged.size());
+                        merged.addAll(data, i, size);
+                    }
+                } else {
+                    if (op == ADD_NODE || op == REMOVE_NODE) {
+                        // NOTE: the id belongs to a different node on the other side of this op
+                        moveOps.remove(data[i + 1]);
+                    }
+                    int start = merged.size();
+                    merged.addAll(data, i, size);
+                    if (op == ADD_NODE || op == REMOVE_NODE) {
+                        merged.set(start + 6, mergedStrings.size());
+                        mergedStrings.add(step.strings[data[i + 6]]);
+                    }
+                }
+                i += size;
+            }
+        }
+
+        var checkpoint = new Step(merged.toArray(), mergedStrings.toArray(new String[0]), span);
+        done.removeRange(first, last);
+        done.add(first, checkpoint);
+        memoryBytes += checkpoint.bytes;
+        checkpointCount++;
+    }
+
+    // ------------------------------------------------------------------------
+    // Applying
+    // ------------------------------------------------------------------------
+
+    private void apply(Step step, boolean inverse) {
+        var data = step.ops;
+        opStarts.clear();
+        for (int i = 0; i < data.length; i += opSize(data, i)) {
+            opStarts.add(i);
+        }
+
+        applying = true;
+        try {
+            if (inverse) {
+                for (int i = opStarts.size() - 1; i >= 0; i--) {
+                    applyOp(step, opStarts.get(i), true);
+                }
+            } else {
+                for (int i = 0; i < opStarts.size(); i++) {
+                    applyOp(step, opStarts.get(i), false);
+                }
+            }
+        } finally {
+            applying = false;
+        }
+    }
+
+    private void applyOp(Step step, int i, boolean inverse) {
+        var data = step.ops;
+        int op = data[i];
+        switch (op) {
+            case MOVE -> {
+                int offset = inverse ? 2 : 4;
+                board.setNodePosition(data[i + 1], floatAt(data, i + offset), floatAt(data, i + offset + 1));
+            }
+            case ADD_NODE, REMOVE_NODE -> {
+                // NOTE: an add undone and a remove redone both remove, and the other way around
+                if ((op == ADD_NODE) == inverse) {
+                    board.removeNode(data[i + 1]);
+                } else {
+                    restoreNode(step, i);
+                }
+            }
+            case ADD_PORT -> {
+                if (inverse) {
+                    board.removePort(data[i + 1]);
+                } else {
+                    restorePort(data, i + 1);
+                    board.portsChanged(data[i + 2]);
+                }
+            }
+            case CONNECT, DISCONNECT -> {
+                if ((op == CONNECT) == inverse) {
+                    board.disconnect(data[i + 1]);
+                } else {
+                    restoreConnection(data, i + 1);
+                }
+            }
+            default -> throw new IllegalStateException("Unknown op " + op);
+        }
+    }
+
+    private void restoreNode(Step step, int i) {
+        var data = step.ops;
+        int node = data[i + 1];
+        graph.restoreNode(node, floatAt(data, i + 2), floatAt(data, i + 3), floatAt(data, i + 4), floatAt(data, i + 5));
+        graph.setNodeTitle(node, step.strings[data[i + 6]]);
+        if (data[i] == ADD_NODE) {
+            board.registerNode(node);
+            return;
+        }
+
+        // NOTE: a removed node comes back with its ports, in their original order, and its connections
+        int p = i + NODE_SIZE;
+        int portCount = data[p++];
+        for (int k = 0; k < portCount; k++, p += PORT_FIELDS) {
+            restorePort(data, p);
+        }
+        graph.layoutPorts(node, Node.Defaults.PORT_EDGE_MARGIN);
+        board.registerNode(node);
+        int connectionCount = data[p++];
+        for (int k = 0; k < connectionCount; k++, p += CONNECTION_FIELDS) {
+            restoreConnection(data, p);
+        }
+    }
+
+    private void restorePort(int[] data, int p) {
+        graph.restorePort(data[p], data[p + 1], data[p + 2], EDGES[data[p + 3]], graph.name(data[p + 4]));
+    }
+
+    private void restoreConnection(int[] data, int p) {
+        graph.restoreConnection(data[p], data[p + 1], data[p + 2], data[p + 3]);
+        board.registerConnection(data[p]);
+    }
+
+    private static int opSize(int[] data, int i) {
+        return switch (data[i]) {
+            case MOVE -> MOVE_SIZE;
+            case ADD_NODE -> NODE_SIZE;
+            case REMOVE_NODE -> {
+                int p = i + NODE_SIZE;
+                p += 1 + data[p] * PORT_FIELDS;
+                p += 1 + data[p] * CONNECTION_FIELDS;
+                yield p - i;
+            }
+            case ADD_PORT -> 1 + PORT_FIELDS;
+            case CONNECT, DISCONNECT -> 1 + CONNECTION_FIELDS;
+            default -> throw new IllegalStateException("Unknown op " + data[i]);
+        };
+    }
+
+    private static int bits(float value) {
+        return Float.floatToRawIntBits(value);
+    }
+
+    private static float floatAt(int[] data, int index) {
+        return Float.intBitsToFloat(data[index]);
+    }
+}
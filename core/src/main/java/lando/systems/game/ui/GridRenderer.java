@@ -0,0 +1,156 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import space.earlygrey.shapedrawer.ShapeDrawer;
+
+import java.util.Arrays;
+
+/**
+ * Draws the board's background grid with zoom based level of detail.
+ * <p>
+ * Minor lines are spaced at {@code BASE_SPACING * SUBDIVISIONS^band}, where the band is picked so
+ * minor lines are never closer than {@code MIN_SCREEN_SPACING} pixels, every {@code SUBDIVISIONS}th line
+ * is a major line. Minor lines fade out as they approach the minimum spacing, and the next band's minor
+ * lines are the current band's major lines, so the grid transitions smoothly and the number of lines
+ * drawn stays bounded at any zoom.
+ * <p>
+ * Line geometry is cached for an area slightly larger than the view and only rebuilt
+ * when the view leaves that area or the zoom band changes.
+ */
+public class GridRenderer {
+
+    public static class Defaults {
+        public static final float BASE_SPACING = 50;
+        public static final int SUBDIVISIONS = 5;
+        public static final float MIN_SCREEN_SPACING = 10;
+        public static final float FADE_SCREEN_SPACING = 40;
+    }
+
+    final Color minorColor = new Color(Color.DARK_GRAY);
+    final Color majorColor = new Color(0.4f, 0.4f, 0.45f, 1f);
+
+    // NOTE: cached line endpoints, x1,y1,x2,y2 per line
+    private float[] minorLines = new float[0];
+    private float[] majorLines = new float[0];
+    private int minorCount;
+    private int majorCount;
+
+    private final Rectangle covered = new Rectangle();
+    private int band = Integer.MIN_VALUE;
+    private int rebuildCount = 0;
+
+    public int getRebuildCount() {
+        return rebuildCount;
+    }
+
+    public int getLineCount() {
+        return minorCount + majorCount;
+    }
+
+    public void draw(ShapeDrawer shapes, OrthographicCamera camera, Rectangle view) {
+        float zoom = camera.zoom;
+        int currentBand = bandForZoom(zoom);
+        if (currentBand != band || !covered.contains(view)) {
+            rebuild(currentBand, view);
+        }
+
+        float minorSpacing = spacing(band);
+        float minorScreenSpacing = minorSpacing / zoom;
+        float minorAlpha = MathUtils.clamp(
+            (minorScreenSpacing - Defaults.MIN_SCREEN_SPACING) / (Defaults.FADE_SCREEN_SPACING - Defaults.MIN_SCREEN_SPACING),
+            0f, 1f);
+
+        // NOTE: lines are kept about a pixel wide on screen regardless of zoom
+        float lineWidth = zoom;
+
+        if (minorAlpha > 0) {
+            shapes.setColor(minorColor.r, minorColor.g, minorColor.b, minorColor.a * minorAlpha);
+            drawLines(shapes, minorLines, minorCount, lineWidth);
+        }
+        shapes.setColor(majorColor);
+        drawLines(shapes, majorLines, majorCount, lineWidth);
+        shapes.setColor(Color.WHITE);
+    }
+
+    private void drawLines(ShapeDrawer shapes, float[] lines, int count, float lineWidth) {
+        for (int i = 0; i < count; i++) {
+            int l = 4 * i;
+            shapes.line(lines[l], lines[l + 1], lines[l + 2], lines[l + 3], lineWidth);
+        }
+    }
+
+    private void rebuild(int newBand, Rectangle view) {
+        band = newBand;
+        rebuildCount++;
+
+        // cover the view plus a major cell margin, snapped to major lines, so small pans reuse the cache
+        float minor = spacing(band);
+        float major = minor * Defaults.SUBDIVISIONS;
+        int left   = MathUtils.floor(view.x / major) - 1;
+        int bottom = MathUtils.floor(view.y / major) - 1;
+        int right  = MathUtils.ceil((view.x + view.width) / major) + 1;
+        int top    = MathUtils.ceil((view.y + view.height) / major) + 1;
+        covered.set(left * major, bottom * major, (right - left) * major, (top - bottom) * major);
+
+        int subdivisions = Defaults.SUBDIVISIONS;
+        int columns = (right - left) * subdivisions + 1;
+        int rows = (top - bottom) * subdivisions + 1;
+        ensureCapacity(columns + rows);
+
+        float x0 = covered.x;
+        float y0 = covered.y;
+        float x1 = covered.x + covered.width;
+        float y1 = covered.y + covered.height;
+
+        minorCount = 0;
+        majorCount = 0;
+        for (int i = 0; i < columns; i++) {
+            // NOTE: positions are computed from indices rather than accumulated to avoid drift
+            float x = (left * subdivisions + i) * minor;
+            addLine(i % subdivisions == 0, x, y0, x, y1);
+        }
+        for (int i = 0; i < rows; i++) {
+            float y = (bottom * subdivisions + i) * minor;
+            addLine(i % subdivisions == 0, x0, y, x1, y);
+        }
+    }
+
+    private void addLine(boolean isMajor, float x1, float y1, float x2, float y2) {
+        float[] lines;
+        int l;
+        if (isMajor) {
+            lines = majorLines;
+            l = 4 * majorCount++;
+        } else {
+            lines = minorLines;
+            l = 4 * minorCount++;
+        }
+        lines[l]     = x1;
+        lines[l + 1] = y1;
+        lines[l + 2] = x2;
+        lines[l + 3] = y2;
+    }
+
+    private void ensureCapacity(int lines) {
+        if (minorLines.length < 4 * lines) {
+            minorLines = Arrays.copyOf(minorLines, 4 * lines);
+        }
+        if (majorLines.length < 4 * lines) {
+            majorLines = Arrays.copyOf(majorLines, 4 * lines);
+        }
+    }
+
+    private static int bandForZoom(float zoom) {
+        // smallest band whose minor spacing is at least the minimum on screen
+        double minWorldSpacing = Defaults.MIN_SCREEN_SPACING * zoom;
+        double ratio = minWorldSpacing / Defaults.BASE_SPACING;
+        return (int) Math.ceil(Math.log(ratio) / Math.log(Defaults.SUBDIVISIONS));
+    }
+
+    private static float spacing(int band) {
+        return (float) (Defaults.BASE_SPACING * Math.pow(Defaults.SUBDIVISIONS, band));
+    }
+}
@@ -1,27 +1,51 @@
 package lando.systems.game.ui;
 
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputListener;
 import com.badlogic.gdx.scenes.scene2d.Stage;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.utils.ClickListener;
+import com.badlogic.gdx.utils.Array;
 import com.kotcrab.vis.ui.util.dialog.Dialogs;
 import com.kotcrab.vis.ui.widget.Menu;
 import com.kotcrab.vis.ui.widget.MenuBar;
 import com.kotcrab.vis.ui.widget.MenuItem;
-import com.kotcrab.vis.ui.widget.VisTable;
+import com.kotcrab.vis.ui.widget.file.FileChooser;
+import com.kotcrab.vis.ui.widget.file.FileChooserAdapter;
+import com.kotcrab.vis.ui.widget.file.FileTypeFilter;
+import lando.systems.game.graph.ChunkStore;
+import lando.systems.game.graph.GraphFile;
 
-public class MainMenu extends VisTable {
+import java.io.IOException;
+import java.util.function.Consumer;
+
+public class MainMenu extends CountingTable {
 
     Stage stage;
+    NodeBoard board;
     MenuBar menuBar;
     Menu menuFile;
+    MenuItem fileOpen;
+    MenuItem fileSave;
+    MenuItem fileOpenPaged;
+    MenuItem fileSavePaged;
+    Menu menuEdit;
+    MenuItem editUndo;
+    MenuItem editRedo;
+    Menu menuLayout;
+    MenuItem layoutForce;
+    MenuItem layoutLayered;
+    MenuItem layoutStop;
     Menu menuHelp;
     MenuItem helpAbout;
 
-    public MainMenu(Stage stage, Skin skin) {
-        super(true);
+    public MainMenu(Stage stage, Skin skin, NodeBoard board) {
+        super(board.profiler, true);
         this.stage = stage;
+        this.board = board;
 
         setSkin(skin);
         setBackground(skin.getDrawable("button-main-menu"));
@@ -37,12 +61,38 @@ public class MainMenu extends VisTable {
         menuBar = new MenuBar();
 
         menuFile = new Menu("File");
+        fileOpen = new MenuItem("Open...");
+        fileSave = new MenuItem("Save As...");
+        fileOpenPaged = new MenuItem("Open Paged...");
+        fileSavePaged = new MenuItem("Save Paged As...");
+        menuFile.addItem(fileOpen);
+        menuFile.addItem(fileSave);
+        menuFile.addSeparator();
+        menuFile.addItem(fileOpenPaged);
+        menuFile.addItem(fileSavePaged);
+
+        menuEdit = new Menu("Edit");
+        editUndo = new MenuItem("Undo").setShortcut(Input.Keys.CONTROL_LEFT, Input.Keys.Z);
+        editRedo = new MenuItem("Redo").setShortcut(Input.Keys.CONTROL_LEFT, Input.Keys.Y);
+        menuEdit.addItem(editUndo);
+        menuEdit.addItem(editRedo);
+
+        menuLayout = new Menu("Layout");
+        layoutForce = new MenuItem("Force-Directed");
+        layoutLayered = new MenuItem("Layered");
+        layoutStop = new MenuItem("Stop");
+        menuLayout.addItem(layoutForce);
+        menuLayout.addItem(layoutLayered);
+        menuLayout.addSeparator();
+        menuLayout.addItem(layoutStop);
 
         menuHelp = new Menu("Help");
         helpAbout = new MenuItem("About");
         menuHelp.addItem(helpAbout);
 
         menuBar.addMenu(menuFile);
+        menuBar.addMenu(menuEdit);
+        menuBar.addMenu(menuLayout);
         menuBar.addMenu(menuHelp);
 
         // add event listeners
@@ -50,6 +100,18 @@ public class MainMenu extends VisTable {
         menuBar.setMenuListener(new MenuBar.MenuBarListener() {
             @Override
             public void menuOpened(Menu menu) {
+                if (menu == menuEdit) {
+                    var history = board.getHistory();
+                    editUndo.setDisabled(!history.canUndo());
+                    editRedo.setDisabled(!history.canRedo());
+                }
+                if (menu == menuLayout) {
+                    // NOTE: paged nodes come and go with the camera, there's no whole board to lay out
+                    boolean paged = board.getPager() != null;
+                    layoutForce.setDisabled(paged);
+                    layoutLayered.setDisabled(paged);
+                    layoutStop.setDisabled(!board.getAutoLayout().isRunning());
+                }
                 //Dialogs.showOKDialog(stage, "Menu", "Opened: " + menu.getTitle());
             }
 
@@ -59,6 +121,43 @@ public class MainMenu extends VisTable {
             }
         });
 
+        addChooser(fileOpen, FileChooser.Mode.OPEN, FileChooser.SelectionMode.FILES, this::open);
+        addChooser(fileSave, FileChooser.Mode.SAVE, FileChooser.SelectionMode.FILES, this::save);
+        addChooser(fileOpenPaged, FileChooser.Mode.OPEN, FileChooser.SelectionMode.DIRECTORIES, this::openPaged);
+        addChooser(fileSavePaged, FileChooser.Mode.SAVE, FileChooser.SelectionMode.DIRECTORIES, this::savePaged);
+
+        editUndo.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                board.getHistory().undo();
+            }
+        });
+        editRedo.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                board.getHistory().redo();
+            }
+        });
+
+        layoutForce.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                board.getAutoLayout().start(BoardLayout.Kind.FORCE_DIRECTED);
+            }
+        });
+        layoutLayered.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                board.getAutoLayout().start(BoardLayout.Kind.LAYERED);
+            }
+        });
+        layoutStop.addListener(new ClickListener() {
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                board.getAutoLayout().cancel();
+            }
+        });
+
         helpAbout.addListener(new ClickListener() {
             @Override
             public void clicked(InputEvent event, float x, float y) {
@@ -69,4 +168,77 @@ public class MainMenu extends VisTable {
         add(menuBar.getTable()).left().grow();
     }
 
+    /**
+     * Show a file chooser when the item is clicked, the chooser is created the first time it's needed.
+     */
+    private void addChooser(MenuItem item, FileChooser.Mode mode, FileChooser.SelectionMode selection, Consumer<FileHandle> selected) {
+        item.addListener(new ClickListener() {
+            FileChooser chooser;
+
+            @Override
+            public void clicked(InputEvent event, float x, float y) {
+                if (chooser == null) {
+                    chooser = new FileChooser(mode);
+                    chooser.setSelectionMode(selection);
+                    if (selection == FileChooser.SelectionMode.FILES) {
+                        var filter = new FileTypeFilter(true);
+                        filter.addRule("Boards (*." + GraphFile.EXTENSION + ")", GraphFile.EXTENSION);
+                        chooser.setFileTypeFilter(filter);
+                    }
+                    chooser.setListener(new FileChooserAdapter() {
+                        @Override
+                        public void selected(Array<FileHandle> files) {
+                            selected.accept(files.first());
+                        }
+                    });
+                }
+                stage.addActor(chooser.fadeIn());
+            }
+        });
+    }
+
+    private void open(FileHandle file) {
+        try {
+            // NOTE: the board reads the file over the next several frames
+            board.load(GraphFile.open(file.file().toPath()));
+        } catch (IOException e) {
+            Dialogs.showErrorDialog(stage, "Couldn't open " + file.name(), e);
+        }
+    }
+
+    private void save(FileHandle file) {
+        if (!GraphFile.EXTENSION.equals(file.extension())) {
+            file = file.sibling(file.name() + "." + GraphFile.EXTENSION);
+        }
+        try {
+            long start = System.nanoTime();
+            long bytes = board.save(file.file().toPath());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Gdx.app.log("Menu", "saved %d nodes, %d bytes to %s in %d ms".formatted(
+                board.getGraph().nodeCount(), bytes, file.path(), millis));
+        } catch (IOException e) {
+            Dialogs.showErrorDialog(stage, "Couldn't save " + file.name(), e);
+        }
+    }
+
+    private void openPaged(FileHandle directory) {
+        try {
+            board.openPaged(ChunkStore.open(directory.file().toPath()));
+        } catch (IOException e) {
+            Dialogs.showErrorDialog(stage, "Couldn't open " + directory.name(), e);
+        }
+    }
+
+    private void savePaged(FileHandle directory) {
+        try {
+            long start = System.nanoTime();
+            var store = board.saveChunked(directory.file().toPath());
+            long millis = (System.nanoTime() - start) / 1_000_000;
+            Gdx.app.log("Menu", "saved %d nodes in %d chunks to %s in %d ms".formatted(
+                board.getGraph().nodeCount(), store.chunkCount(), directory.path(), millis));
+        } catch (IOException e) {
+            Dialogs.showErrorDialog(stage, "Couldn't save " + directory.name(), e);
+        }
+    }
+
 }
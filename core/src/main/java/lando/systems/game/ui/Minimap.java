@@ -0,0 +1,211 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.scenes.scene2d.InputEvent;
+import com.badlogic.gdx.scenes.scene2d.InputListener;
+import com.badlogic.gdx.scenes.scene2d.ui.Widget;
+import com.badlogic.gdx.utils.Disposable;
+import lando.systems.game.Main;
+import lando.systems.game.utils.DensityGrid;
+
+import java.util.Arrays;
+
+/**
+ * Overview of a {@link NodeBoard} with the camera's view outlined, pressing or dragging on it centers the camera there.
+ * <p>
+ * Drawn from the board's {@link DensityGrid} rather than its nodes: the grid's occupied cells are rasterized into
+ * a small texture, only when the grid changed and at most a few times a second, so even huge boards cost a texture
+ * draw per frame. The area shown is the grid's occupied cells, widened to the widget's aspect ratio.
+ */
+public class Minimap extends Widget implements Disposable {
+
+    public static class Defaults {
+        public static final int RESOLUTION = 128;
+        public static final float WIDTH = 200;
+        public static final float HEIGHT = 150;
+        /** the texture is rebuilt at most this often while the board changes */
+        public static final float REFRESH_INTERVAL = 0.25f;
+        /** the least dense occupied pixels are drawn with this much of the density color's alpha */
+        public static final float MIN_ALPHA = 0.25f;
+        public static final Color BACKGROUND_COLOR = new Color(0.1f, 0.1f, 0.13f, 0.85f);
+        public static final Color DENSITY_COLOR = new Color(0.6f, 0.75f, 1f, 1f);
+        public static final Color VIEW_COLOR = new Color(1f, 1f, 1f, 0.9f);
+    }
+
+    final NodeBoard board;
+
+    private final Pixmap pixmap;
+    private final Texture texture;
+    private final float[] pixels = new float[Defaults.RESOLUTION * Defaults.RESOLUTION];
+    private final Color color = new Color();
+
+    // NOTE: the world space area the texture covers, empty until the grid has something in it
+    private final Rectangle world = new Rectangle();
+    private final Rectangle viewRect = new Rectangle();
+    private int builtVersion = -1;
+    private float builtAspect = 0;
+    private float refreshTimer = 0;
+
+    public Minimap(NodeBoard board) {
+        this.board = board;
+        pixmap = new Pixmap(Defaults.RESOLUTION, Defaults.RESOLUTION, Pixmap.Format.RGBA8888);
+        pixmap.setBlending(Pixmap.Blending.None);
+        texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+
+        addListener(new InputListener() {
+            @Override
+            public boolean touchDown(InputEvent event, float x, float y, int pointer, int button) {
+                centerBoard(x, y);
+                return true;
+            }
+
+            @Override
+            public void touchDragged(InputEvent event, float x, float y, int pointer) {
+                centerBoard(x, y);
+            }
+        });
+    }
+
+    @Override
+    public float getPrefWidth() {
+        return Defaults.WIDTH;
+    }
+
+    @Override
+    public float getPrefHeight() {
+        return Defaults.HEIGHT;
+    }
+
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+
+        refreshTimer -= delta;
+        float aspect = (getHeight() > 0) ? getWidth() / getHeight() : 1;
+        var density = board.getDensity();
+        if (density.version() == builtVersion && aspect == builtAspect) return;
+        // NOTE: a resize is applied right away, the board changing constantly (eg. during auto-layout) is throttled
+        if (refreshTimer > 0 && aspect == builtAspect) return;
+        refreshTimer = Defaults.REFRESH_INTERVAL;
+        builtVersion = density.version();
+        builtAspect = aspect;
+        rebuild(density, aspect);
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
+        validate();
+        var shapes = Main.get.shapes;
+        float x = getX();
+        float y = getY();
+        float width = getWidth();
+        float height = getHeight();
+
+        color.set(Defaults.BACKGROUND_COLOR).a *= parentAlpha;
+        shapes.filledRectangle(x, y, width, height, color);
+        if (world.width <= 0) return;
+
+        batch.setColor(1, 1, 1, parentAlpha);
+        batch.draw(texture, x, y, width, height);
+
+        // the camera's view, clipped as it can extend past the board's occupied area
+        var view = board.getViewBounds();
+        float scaleX = width / world.width;
+        float scaleY = height / world.height;
+        viewRect.set(
+            x + (view.x - world.x) * scaleX,
+            y + (view.y - world.y) * scaleY,
+            view.width * scaleX,
+            view.height * scaleY);
+        if (clipBegin()) {
+            color.set(Defaults.VIEW_COLOR).a *= parentAlpha;
+            shapes.rectangle(viewRect.x, viewRect.y, viewRect.width, viewRect.height, color, 1f);
+            clipEnd();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        texture.dispose();
+        pixmap.dispose();
+    }
+
+    /**
+     * Center the board's camera on the world position under the specified local coordinates.
+     */
+    private void centerBoard(float x, float y) {
+        if (world.width <= 0 || getWidth() <= 0 || getHeight() <= 0) return;
+        float u = MathUtils.clamp(x / getWidth(), 0, 1);
+        float v = MathUtils.clamp(y / getHeight(), 0, 1);
+        board.centerOn(world.x + u * world.width, world.y + v * world.height);
+    }
+
+    /**
+     * Rasterize the grid's occupied cells into the texture, walking the cells rather than the board's nodes.
+     */
+    private void rebuild(DensityGrid density, float aspect) {
+        if (density.isEmpty()) {
+            world.set(0, 0, 0, 0);
+            return;
+        }
+
+        // occupied area, padded by a cell and widened to the widget's aspect ratio
+        // NOTE: bounds are read before walking the cells, they share the grid's iterator
+        float cellSize = density.cellSize();
+        float minX = (density.minCellX() - 1) * cellSize;
+        float minY = (density.minCellY() - 1) * cellSize;
+        float maxX = (density.maxCellX() + 2) * cellSize;
+        float maxY = (density.maxCellY() + 2) * cellSize;
+        float worldWidth = maxX - minX;
+        float worldHeight = maxY - minY;
+        if (worldWidth / worldHeight < aspect) {
+            worldWidth = worldHeight * aspect;
+        } else {
+            worldHeight = worldWidth / aspect;
+        }
+        world.set((minX + maxX - worldWidth) / 2f, (minY + maxY - worldHeight) / 2f, worldWidth, worldHeight);
+
+        // cells smaller than a pixel add up in it, cells larger than a pixel cover every pixel they overlap
+        int resolution = Defaults.RESOLUTION;
+        float pixelsPerX = resolution / world.width;
+        float pixelsPerY = resolution / world.height;
+        Arrays.fill(pixels, 0);
+        float max = 0;
+        for (var cell : density.cells()) {
+            float cellX = DensityGrid.cellX(cell.key) * cellSize - world.x;
+            float cellY = DensityGrid.cellY(cell.key) * cellSize - world.y;
+            int px0 = MathUtils.clamp((int) (cellX * pixelsPerX), 0, resolution - 1);
+            int py0 = MathUtils.clamp((int) (cellY * pixelsPerY), 0, resolution - 1);
+            int px1 = MathUtils.clamp((int) Math.ceil((cellX + cellSize) * pixelsPerX) - 1, px0, resolution - 1);
+            int py1 = MathUtils.clamp((int) Math.ceil((cellY + cellSize) * pixelsPerY) - 1, py0, resolution - 1);
+            for (int py = py0; py <= py1; py++) {
+                for (int px = px0; px <= px1; px++) {
+                    int i = py * resolution + px;
+                    pixels[i] += cell.value;
+                    max = Math.max(max, pixels[i]);
+                }
+            }
+        }
+
+        // NOTE: pixmap rows go top down, the world's y axis goes up
+        for (int py = 0; py < resolution; py++) {
+            for (int px = 0; px < resolution; px++) {
+                float value = pixels[py * resolution + px];
+                if (value <= 0) {
+                    pixmap.drawPixel(px, resolution - 1 - py, 0);
+                    continue;
+                }
+                color.set(Defaults.DENSITY_COLOR);
+                color.a *= MathUtils.lerp(Defaults.MIN_ALPHA, 1f, value / max);
+                pixmap.drawPixel(px, resolution - 1 - py, Color.rgba8888(color));
+            }
+        }
+        texture.draw(pixmap, 0, 0);
+    }
+}
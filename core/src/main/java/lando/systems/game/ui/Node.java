@@ -1,9 +1,12 @@
 package lando.systems.game.ui;
 
-import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
+import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.g2d.Batch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.GlyphLayout;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
@@ -13,46 +16,92 @@ import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.Window;
 import com.badlogic.gdx.scenes.scene2d.utils.NinePatchDrawable;
 import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.Pool;
+import com.kotcrab.vis.ui.widget.VisLabel;
 import com.kotcrab.vis.ui.widget.VisTable;
 import com.kotcrab.vis.ui.widget.VisWindow;
 import lando.systems.game.Edge;
 import lando.systems.game.Main;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.graph.GraphEvaluator;
+import lando.systems.game.utils.FrameProfiler;
+import lando.systems.game.utils.OrthogonalRouter;
+import lando.systems.game.utils.Trace;
+import space.earlygrey.shapedrawer.ShapeDrawer;
 
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-
-public class Node extends VisWindow {
+public class Node extends VisWindow implements Pool.Poolable {
 
     public static class Defaults {
         public static final float NODE_SIZE = 200;
         public static final float PORT_RADIUS = 8;
         public static final float PORT_EDGE_MARGIN = 40;
+        // NOTE: colors for the simplified levels of detail, roughly matching the window background
+        public static final Color DETAIL_BODY_COLOR = new Color(0.16f, 0.2f, 0.28f, 1f);
+        public static final Color DETAIL_TITLE_COLOR = new Color(0.22f, 0.36f, 0.6f, 1f);
+        public static final Color DETAIL_INPUT_COLOR = new Color(0.5f, 0.8f, 0.5f, 1f);
+        public static final Color DETAIL_OUTPUT_COLOR = new Color(0.9f, 0.6f, 0.3f, 1f);
+    }
+
+    /**
+     * How much of a node is drawn, picked by the board from its camera's zoom.
+     */
+    public enum Detail {
+        /** a single filled rect, with the title bar as a second rect */
+        RECT,
+        /** the rects plus the title text, and ports as plain squares */
+        TITLE,
+        /** the full window */
+        FULL
     }
 
     final Stage stage;
     final Skin skin;
-    final Map<String, Port> inputs = new HashMap<>();
-    final Map<String, Port> outputs = new HashMap<>();
-    final Map<Edge, List<Port>> inputsByEdge = new HashMap<>();
-    final Map<Edge, List<Port>> outputsByEdge = new HashMap<>();
 
+    // NOTE: the node's bounds, ports and connections live in the graph,
+    //  this widget is a view over the graph node with this id, and can be rebound to another, see bind()
+    final Graph graph;
+    int id = Graph.NONE;
+    private boolean binding = false;
+
+    // NOTE: total port layout passes across all nodes, steady state frames shouldn't increase it
+    private static long portLayoutCount = 0;
+
+    int drawOrder = 0;
     boolean dragging = false;
+    boolean portsDirty = true;
+
+    // NOTE: the title is laid out separately from the window's title label for the TITLE detail level,
+    //  so the label (and the rest of the window) is never laid out while the node is only drawn simplified
+    private final GlyphLayout titleLayout = new GlyphLayout();
+    private boolean titleLayoutDirty = true;
+
+    // NOTE: the window's title label has a style of its own, its font is swapped for one from the board's
+    //  glyph cache while zoomed, and back to the skin's font when the cache has nothing to offer
+    private BitmapFont skinTitleFont;
+
+    private final VisLabel valuesLabel = new VisLabel("");
+    private final StringBuilder valuesText = new StringBuilder();
+
+    /**
+     * Create a new graph node, and a view of it.
+     */
+    public Node(String title, Graph graph, Stage stage, Skin skin) {
+        this(graph, stage, skin);
+        int id = graph.addNode(0, 0, Defaults.NODE_SIZE, Defaults.NODE_SIZE);
+        graph.setNodeTitle(id, title);
+        bind(id);
+    }
 
-    public Node(String title, Stage stage, Skin skin) {
-        super(title, "default3");
+    /**
+     * Create a view that isn't bound to any graph node yet, see {@link #bind(int)}.
+     */
+    public Node(Graph graph, Stage stage, Skin skin) {
+        super("", "default3");
 
+        this.graph = graph;
         this.stage = stage;
         this.skin = skin;
 
-        // prepopulate edge->port lists
-        for (var edge : Edge.values()) {
-            inputsByEdge.put(edge, new ArrayList<>());
-            outputsByEdge.put(edge, new ArrayList<>());
-        }
-
         setStage(stage);
         setSkin(skin);
         setSize(Defaults.NODE_SIZE, Defaults.NODE_SIZE);
@@ -82,6 +131,7 @@ public class Node extends VisWindow {
 
         var titleLabel = getTitleLabel();
         titleLabel.setAlignment(Align.center);
+        skinTitleFont = titleLabel.getStyle().font;
 
         build();
     }
@@ -90,61 +140,386 @@ public class Node extends VisWindow {
         defaults().pad(10).top().left();
 
         var content = new VisTable(true);
-        content.add("Content").growX().row();
+        content.add(valuesLabel).growX().row();
 
         add(content).grow();
 
         addInputListener();
     }
 
+    /**
+     * Make this a view of the specified graph node, taking its title and bounds from the graph.
+     */
+    public Node bind(int id) {
+        // NOTE: the graph is already up to date, so don't write the bounds back to it or invalidate anything
+        binding = true;
+        this.id = id;
+        var title = graph.nodeTitle(id);
+        getTitleLabel().setText((title != null) ? title : "");
+        setBounds(graph.nodeX(id), graph.nodeY(id), graph.nodeWidth(id), graph.nodeHeight(id));
+        binding = false;
+
+        // NOTE: the board lays out ports in the graph as they're added,
+        //  so a view only needs to lay them out again when it resizes its node
+        portsDirty = false;
+        dragging = false;
+        titleLayoutDirty = true;
+        return this;
+    }
+
+    /**
+     * Draw the title with the specified font, or with the skin's font if it's null,
+     * see {@link lando.systems.game.render.GlyphCache}.
+     */
+    void setTitleFont(BitmapFont font) {
+        if (font == null) {
+            font = skinTitleFont;
+        }
+        var label = getTitleLabel();
+        var style = label.getStyle();
+        if (style.font == font) return;
+        style.font = font;
+        label.setStyle(style);
+        titleLayoutDirty = true;
+    }
+
+    public boolean isBound() {
+        return id != Graph.NONE;
+    }
+
+    /**
+     * Show the evaluated value of each of the node's outputs, call when it's bound and when its outputs change.
+     */
+    public void updateValues(GraphEvaluator evaluator) {
+        valuesText.setLength(0);
+        for (int port = graph.firstPort(id); port != Graph.NONE; port = graph.nextPort(port)) {
+            if (graph.portType(port) != Graph.OUTPUT) continue;
+            if (!valuesText.isEmpty()) {
+                valuesText.append('\n');
+            }
+            valuesText.append(graph.portName(port)).append(" = ");
+            double value = evaluator.value(port);
+            if (Double.isNaN(value)) {
+                valuesText.append('-');
+            } else {
+                // NOTE: two decimals without String.format, this runs for every changed node each frame
+                long hundredths = Math.round(value * 100);
+                if (hundredths < 0) {
+                    valuesText.append('-');
+                    hundredths = -hundredths;
+                }
+                long fraction = hundredths % 100;
+                valuesText.append(hundredths / 100).append('.');
+                if (fraction < 10) {
+                    valuesText.append('0');
+                }
+                valuesText.append(fraction);
+            }
+        }
+        valuesLabel.setText(valuesText);
+    }
+
+    @Override
+    public void reset() {
+        id = Graph.NONE;
+        dragging = false;
+        portsDirty = false;
+        clearActions();
+    }
+
     @Override
     public void act(float delta) {
         super.act(delta);
-        updatePortPositions();
+        // NOTE: port positions are relative to the node, so they only change with its size or port set
+        if (portsDirty) {
+            updatePortPositions();
+        }
+    }
+
+    @Override
+    public void toFront() {
+        super.toFront();
+        if (getParent() instanceof NodeBoard board) {
+            board.nodeToFront(this);
+        }
+    }
+
+    @Override
+    public Vector2 parentToLocalCoordinates(Vector2 parentCoords) {
+        // NOTE: nodes are drawn through the board's camera rather than the stage's,
+        //  so coordinates coming from the board need to be mapped into world space first
+        if (getParent() instanceof NodeBoard board) {
+            board.screenToWorld(parentCoords);
+        }
+        return super.parentToLocalCoordinates(parentCoords);
+    }
+
+    @Override
+    public Vector2 localToParentCoordinates(Vector2 localCoords) {
+        super.localToParentCoordinates(localCoords);
+        if (getParent() instanceof NodeBoard board) {
+            board.worldToScreen(localCoords);
+        }
+        return localCoords;
+    }
+
+    @Override
+    protected void positionChanged() {
+        super.positionChanged();
+        // NOTE: can be called from the VisWindow constructor before fields are initialized
+        if (graph == null || binding || !isBound()) return;
+        graph.setNodePosition(id, getX(), getY());
+        invalidateConnections();
+        if (getParent() instanceof NodeBoard board) {
+            board.nodeBoundsChanged(id);
+        }
     }
 
     @Override
-    public void draw(Batch batch, float parentAlpha) {
-        super.draw(batch, parentAlpha);
-        drawPorts(batch);
+    protected void sizeChanged() {
+        super.sizeChanged();
+        if (graph == null || binding || !isBound()) return;
+        graph.setNodeSize(id, getWidth(), getHeight());
+        portsDirty = true;
+        if (getParent() instanceof NodeBoard board) {
+            board.nodeBoundsChanged(id);
+        }
+    }
+
+    @Override
+    public void layout() {
+        super.layout();
+        if (getParent() instanceof NodeBoard board) {
+            CountingTable.countLayout(board.profiler, FrameProfiler.Counter.NODE_LAYOUT);
+        }
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public static long getPortLayoutCount() {
+        return portLayoutCount;
     }
 
     public Node addInput(String name, Edge edge) {
-        addPort(Port.Type.INPUT, name, edge);
+        graph.addPort(id, Graph.INPUT, edge, name);
+        portsDirty = true;
         return this;
     }
 
     public Node addOutput(String name, Edge edge) {
-        addPort(Port.Type.OUTPUT, name, edge);
+        graph.addPort(id, Graph.OUTPUT, edge, name);
+        portsDirty = true;
         return this;
     }
 
-    public record Port(
-        Node node,
-        Type type,
-        Edge edge,
-        String name,
-        Vector2 pos
-    ) {
-        public enum Type { INPUT, OUTPUT }
+    /**
+     * @return the graph id of the input port with the specified name, or {@link Graph#NONE}
+     */
+    public int getInput(String name) {
+        return graph.findPort(id, Graph.INPUT, name);
+    }
 
-        public Port(Node node, Type type, Edge edge, String name) {
-            this(node, type, edge, name, new Vector2());
-        }
+    /**
+     * @return the graph id of the output port with the specified name, or {@link Graph#NONE}
+     */
+    public int getOutput(String name) {
+        return graph.findPort(id, Graph.OUTPUT, name);
     }
 
-    public record Connection(
-        Port src,
-        Port dst
-    ) {}
+    public static final class Connection {
+
+        public static final int SEGMENTS = 24;
+        public static final float MIN_HANDLE_LENGTH = 30;
+        public static final float MAX_HANDLE_LENGTH = 200;
+
+        // NOTE: stored in the graph by ordinal, Graph.STYLES has to match the number of styles
+        public enum Style { CURVED, ORTHOGONAL }
+
+        // NOTE: a view of the graph connection with this id, src and dst are graph port ids
+        final Graph graph;
+        final int id;
+        final int src;
+        final int dst;
+        final Style style;
+
+        // NOTE: cached bezier tessellation as world space x,y pairs,
+        //  the control points and bounds are refreshed when an endpoint node moves
+        //  but the curve itself is only tessellated again once it's drawn
+        final float[] curve = new float[(SEGMENTS + 1) * 2];
+        final float[] controls = new float[8];
+        final Rectangle bounds = new Rectangle();
+
+        // NOTE: orthogonal connections draw a simple elbow between the port stubs
+        //  until the ConnectionRouter publishes an obstacle avoiding route for them
+        final float[] elbow = new float[10];
+        float[] route = null;
+        float[] vertices = curve;
+
+        // NOTE: bumped whenever an endpoint moves, routes computed for an older version are stale
+        int version = 0;
+        // NOTE: the version no route could be found for, it isn't searched for again until an endpoint moves
+        int unroutableVersion = -1;
+        boolean dirty = true;
+        boolean tessellated = false;
+
+        public Connection(Graph graph, int id) {
+            this.graph = graph;
+            this.id = id;
+            this.src = graph.connectionSrc(id);
+            this.dst = graph.connectionDst(id);
+            this.style = Style.values()[graph.connectionStyle(id)];
+        }
+
+        public int id() {
+            return id;
+        }
+
+        public int src() {
+            return src;
+        }
+
+        public int dst() {
+            return dst;
+        }
+
+        public Style style() {
+            return style;
+        }
+
+        /**
+         * @return true if no route could be found since an endpoint last moved, it keeps drawing its elbow
+         */
+        public boolean isUnroutable() {
+            return unroutableVersion == version;
+        }
+
+        public void invalidate() {
+            dirty = true;
+            version++;
+        }
+
+        public Rectangle bounds() {
+            if (dirty) {
+                updateControls();
+            }
+            return bounds;
+        }
+
+        public float[] vertices() {
+            if (dirty) {
+                updateControls();
+            }
+            if (!tessellated) {
+                tessellate();
+            }
+            return vertices;
+        }
+
+        void setRoute(float[] route) {
+            this.route = route;
+            vertices = route;
+            tessellated = true;
+            updateBounds(route);
+        }
+
+        private void updateControls() {
+            dirty = false;
+            tessellated = false;
+            route = null;
+
+            float x0 = graph.portWorldX(src);
+            float y0 = graph.portWorldY(src);
+            float x3 = graph.portWorldX(dst);
+            float y3 = graph.portWorldY(dst);
+            var srcEdge = graph.portEdge(src);
+            var dstEdge = graph.portEdge(dst);
+
+            if (style == Style.ORTHOGONAL) {
+                updateElbow(x0, y0, srcEdge, x3, y3, dstEdge);
+                return;
+            }
+
+            // handles extend out of each port's edge so the curve leaves and enters from the correct side
+            float handle = MathUtils.clamp(Vector2.dst(x0, y0, x3, y3) / 2f, MIN_HANDLE_LENGTH, MAX_HANDLE_LENGTH);
+            controls[0] = x0;
+            controls[1] = y0;
+            controls[2] = x0 + srcEdge.dx * handle;
+            controls[3] = y0 + srcEdge.dy * handle;
+            controls[4] = x3 + dstEdge.dx * handle;
+            controls[5] = y3 + dstEdge.dy * handle;
+            controls[6] = x3;
+            controls[7] = y3;
+
+            // a bezier curve is contained by the convex hull of its control points,
+            // so their extents are good enough for culling without tessellating first
+            updateBounds(controls);
+        }
+
+        private void updateElbow(float x0, float y0, Edge srcEdge, float x3, float y3, Edge dstEdge) {
+            float stub = OrthogonalRouter.Defaults.STUB_LENGTH;
+            float x1 = x0 + srcEdge.dx * stub;
+            float y1 = y0 + srcEdge.dy * stub;
+            float x2 = x3 + dstEdge.dx * stub;
+            float y2 = y3 + dstEdge.dy * stub;
+
+            // turn once between the stubs, along the axis the source port leaves on
+            boolean horizontal = (srcEdge.dx != 0);
+            float[] points = elbow;
+            points[0] = x0;  points[1] = y0;
+            points[2] = x1;  points[3] = y1;
+            points[4] = horizontal ? x2 : x1;
+            points[5] = horizontal ? y1 : y2;
+            points[6] = x2;  points[7] = y2;
+            points[8] = x3;  points[9] = y3;
+
+            vertices = elbow;
+            tessellated = true;
+            updateBounds(elbow);
+        }
+
+        private void updateBounds(float[] points) {
+            float minX = points[0], maxX = points[0];
+            float minY = points[1], maxY = points[1];
+            for (int i = 2; i < points.length; i += 2) {
+                minX = Math.min(minX, points[i]);
+                maxX = Math.max(maxX, points[i]);
+                minY = Math.min(minY, points[i + 1]);
+                maxY = Math.max(maxY, points[i + 1]);
+            }
+            bounds.set(minX, minY, maxX - minX, maxY - minY);
+        }
+
+        private void tessellate() {
+            tessellated = true;
+            vertices = curve;
+
+            for (int i = 0; i <= SEGMENTS; i++) {
+                float t = i / (float) SEGMENTS;
+                float u = 1 - t;
+                float b0 = u * u * u;
+                float b1 = 3 * u * u * t;
+                float b2 = 3 * u * t * t;
+                float b3 = t * t * t;
+                curve[2 * i]     = b0 * controls[0] + b1 * controls[2] + b2 * controls[4] + b3 * controls[6];
+                curve[2 * i + 1] = b0 * controls[1] + b1 * controls[3] + b2 * controls[5] + b3 * controls[7];
+            }
+        }
+    }
 
     private void addInputListener() {
         addListener(new InputListener() {
             private final Vector2 touchStart = new Vector2();
+            private final Vector2 dragStart = new Vector2();
 
             @Override
             public boolean touchDown(InputEvent event, float x, float y, int pointer, int button) {
-                Gdx.app.log("Node", "touched: p=%d|b=%d @ (%.0f, %.0f)".formatted(pointer, button, x, y));
+                Trace.global.record(Trace.Event.NODE_TOUCH_DOWN, pointer, button, x, y);
                 if (button == Input.Buttons.LEFT) {
                     // NOTE: this shouldn't be necessary when returning true
                     //  but NodeBoard is receiving the touchDown event after this for some reason
@@ -159,7 +534,11 @@ public class Node extends VisWindow {
             @Override
             public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
                 if (dragging) {
-                    Gdx.app.log("Node", "drag stopped");
+                    Trace.global.record(Trace.Event.NODE_DRAG_STOP, id);
+                    // NOTE: the history gets one move for the whole drag, rather than one per drag event
+                    if (getParent() instanceof NodeBoard board) {
+                        board.nodeDragged(id, dragStart.x, dragStart.y);
+                    }
                 }
                 dragging = false;
             }
@@ -168,9 +547,10 @@ public class Node extends VisWindow {
             public void touchDragged(InputEvent event, float x, float y, int pointer) {
                 if (!dragging) {
                     dragging = true;
+                    dragStart.set(getX(), getY());
 
-                    // log once per drag
-                    Gdx.app.log("Node", "drag started");
+                    // trace once per drag
+                    Trace.global.record(Trace.Event.NODE_DRAG_START, id);
                 }
 
                 float dx = x - touchStart.x;
@@ -182,102 +562,95 @@ public class Node extends VisWindow {
         });
     }
 
-    private void addPort(Port.Type type, String name, Edge edge) {
-        var port = new Port(this, type, edge, name);
-        if (type == Port.Type.INPUT) {
-            inputsByEdge.get(edge).add(port);
-            inputs.put(name, port);
-        } else {
-            outputsByEdge.get(edge).add(port);
-            outputs.put(name, port);
+    private void invalidateConnections() {
+        if (getParent() instanceof NodeBoard board) {
+            board.invalidateConnections(id);
         }
     }
 
-    private void drawPorts(Batch batch) {
+    /**
+     * Ports are drawn by the board's overlay pass rather than in draw(),
+     * so they end up on top of the connections attached to them.
+     */
+    void drawPorts(Batch batch) {
         var textures = Main.get.radioBtnTextures;
-        drawPorts(batch, inputs.values(), textures.over(), textures.tick());
-        drawPorts(batch, outputs.values(), textures.down(), textures.tickDisabled());
-    }
-
-    private void drawPorts(Batch batch, Collection<Port> ports, TextureRegion texture, TextureRegion tick) {
         float radius = Defaults.PORT_RADIUS;
         float size = 2 * radius;
-        float x = getX();
-        float y = getY();
-
-        for (var port : ports) {
-            batch.draw(texture,
-                x + port.pos.x - radius,
-                y + port.pos.y - radius,
-                size, size);
-            batch.draw(tick,
-                x + port.pos.x - radius,
-                y + port.pos.y - radius,
-                size, size);
+        float x = getX() - radius;
+        float y = getY() - radius;
+
+        for (int port = graph.firstPort(id); port != Graph.NONE; port = graph.nextPort(port)) {
+            boolean isInput = (graph.portType(port) == Graph.INPUT);
+            var texture = isInput ? textures.over() : textures.down();
+            var tick = isInput ? textures.tick() : textures.tickDisabled();
+            float px = x + graph.portX(port);
+            float py = y + graph.portY(port);
+            batch.draw(texture, px, py, size, size);
+            batch.draw(tick, px, py, size, size);
         }
     }
 
-    private void updatePortPositions() {
-        for (var edge : Edge.values()) {
-            var edgeInputs = inputsByEdge.get(edge);
-            var edgeOutputs = outputsByEdge.get(edge);
-
-            // given some margin, calculate even spacing between each port
-            float margin = Defaults.PORT_EDGE_MARGIN;
-            float inputSpacing = getPortSpacing(edge, margin, edgeInputs.size());
-            float outputSpacing = getPortSpacing(edge, margin, edgeOutputs.size());
-
-            // get the center of the edge relative to (0, 0)
-            // as the bottom left corner of the node window
-            float centerX = getEdgeCenterX(edge);
-            float centerY = getEdgeCenterY(edge);
+    /**
+     * Draw the node with one of the simplified levels of detail, without laying out or drawing the window itself.
+     * Expects the batch to be drawing with the board's camera, like {@link #draw(Batch, float)} for the full detail level.
+     * The title is drawn separately, see {@link #drawTitleSimplified(Batch)}.
+     */
+    void drawSimplified(ShapeDrawer shapes) {
+        float x = getX();
+        float y = getY();
+        float width = getWidth();
+        float height = getHeight();
+        float titleHeight = Math.min(getPadTop(), height);
 
-            // position ports along the shared edge, spaced evenly from the center out to margins
-            positionPorts(edgeInputs, edge, centerX, centerY, inputSpacing);
-            positionPorts(edgeOutputs, edge, centerX, centerY, outputSpacing);
-        }
+        shapes.filledRectangle(x, y, width, height - titleHeight, Defaults.DETAIL_BODY_COLOR);
+        shapes.filledRectangle(x, y + height - titleHeight, width, titleHeight, Defaults.DETAIL_TITLE_COLOR);
     }
 
-    private void positionPorts(List<Port> ports, Edge edge, float centerX, float centerY, float spacing) {
-        int count = ports.size();
-        if (count == 0) return;
-
-        // center alignment offset for the ports
-        float offset = -(count - 1) * spacing / 2f;
-
-        for (int i = 0; i < count; i++) {
-            var port = ports.get(i);
-            var space = i * spacing;
-            switch (edge) {
-                case TOP, BOTTOM -> port.pos.set(centerX + offset + space, centerY);
-                case LEFT, RIGHT -> port.pos.set(centerX, centerY + offset + space);
-            }
+    /**
+     * Draw the title for the TITLE detail level, over the title bar drawn by {@link #drawSimplified(ShapeDrawer)}.
+     */
+    void drawTitleSimplified(Batch batch) {
+        float x = getX();
+        float y = getY();
+        float width = getWidth();
+        float height = getHeight();
+        float titleHeight = Math.min(getPadTop(), height);
+
+        var style = getTitleLabel().getStyle();
+        var font = style.font;
+        float pad = Defaults.PORT_RADIUS;
+        if (titleLayoutDirty) {
+            titleLayoutDirty = false;
+            var text = getTitleLabel().getText();
+            var color = (style.fontColor != null) ? style.fontColor : Color.WHITE;
+            titleLayout.setText(font, text, 0, text.length, color, width - 2 * pad, Align.center, false, "...");
         }
+        // center the text vertically in the title bar
+        float textY = y + height - (titleHeight - titleLayout.height) / 2f;
+        font.draw(batch, titleLayout, x + pad, textY);
     }
 
-    private float getPortSpacing(Edge edge, float margin, int count) {
-        // no spacing if there's only one port
-        if (count < 2) return 0;
-
-        return switch (edge) {
-            case BOTTOM, TOP -> (getWidth() - 2 * margin) / (count - 1);
-            case LEFT, RIGHT -> (getHeight() - 2 * margin) / (count - 1);
-        };
-    }
-
-    private float getEdgeCenterX(Edge edge) {
-        return switch (edge) {
-            case TOP, BOTTOM -> getWidth() / 2f;
-            case LEFT -> 0;
-            case RIGHT -> getWidth();
-        };
+    /**
+     * Draw ports as plain squares, for the TITLE detail level where the port textures would be too small to read.
+     */
+    void drawPortsSimplified(ShapeDrawer shapes) {
+        float size = Defaults.PORT_RADIUS;
+        float x = getX() - size / 2f;
+        float y = getY() - size / 2f;
+
+        for (int port = graph.firstPort(id); port != Graph.NONE; port = graph.nextPort(port)) {
+            var color = (graph.portType(port) == Graph.INPUT) ? Defaults.DETAIL_INPUT_COLOR : Defaults.DETAIL_OUTPUT_COLOR;
+            shapes.filledRectangle(x + graph.portX(port), y + graph.portY(port), size, size, color);
+        }
     }
 
-    private float getEdgeCenterY(Edge edge) {
-        return switch (edge) {
-            case TOP -> getHeight();
-            case BOTTOM -> 0;
-            case LEFT, RIGHT -> getHeight() / 2;
-        };
+    public void updatePortPositions() {
+        portsDirty = false;
+        portLayoutCount++;
+        graph.layoutPorts(id, Defaults.PORT_EDGE_MARGIN);
+        invalidateConnections();
+        if (getParent() instanceof NodeBoard board) {
+            board.portsMoved(id);
+        }
     }
 }
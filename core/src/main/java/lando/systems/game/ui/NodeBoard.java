@@ -2,38 +2,133 @@ package lando.systems.game.ui;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Camera;
-import com.badlogic.gdx.graphics.Color;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.Batch;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.scenes.scene2d.Actor;
 import com.badlogic.gdx.scenes.scene2d.InputEvent;
 import com.badlogic.gdx.scenes.scene2d.InputListener;
 import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
 import com.badlogic.gdx.scenes.scene2d.ui.WidgetGroup;
 import com.badlogic.gdx.scenes.scene2d.utils.ScissorStack;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntSet;
+import com.badlogic.gdx.utils.ObjectSet;
+import com.badlogic.gdx.utils.Pool;
+import com.badlogic.gdx.utils.StreamUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
+import com.github.tommyettinger.ds.IntList;
 import lando.systems.game.Edge;
-import lando.systems.game.Main;
+import lando.systems.game.graph.ChunkStore;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.graph.GraphEvaluator;
+import lando.systems.game.graph.GraphFile;
+import lando.systems.game.render.GlyphCache;
+import lando.systems.game.utils.DensityGrid;
+import lando.systems.game.utils.FrameProfiler;
+import lando.systems.game.utils.SpatialGrid;
+import lando.systems.game.utils.Trace;
 import space.earlygrey.shapedrawer.JoinType;
 import space.earlygrey.shapedrawer.ShapeDrawer;
 
-public class NodeBoard extends WidgetGroup {
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+
+public class NodeBoard extends WidgetGroup implements Disposable {
+
+    public static class Defaults {
+        public static final float INDEX_CELL_SIZE = 256;
+        /** node views are bound for nodes within this many screen pixels of the view */
+        public static final float VIEW_BIND_MARGIN = 200;
+        /** and released once they're further than this, farther out than binding so views don't churn at the edge */
+        public static final float VIEW_RELEASE_MARGIN = 400;
+        /** idle views kept for reuse, views released beyond this are left for the garbage collector */
+        public static final int VIEW_POOL_MAX = 512;
+        /** zoomed out past this, nodes are drawn as rects with their title instead of the full window */
+        public static final float DETAIL_TITLE_ZOOM = 1.25f;
+        /** and past this, as plain rects */
+        public static final float DETAIL_RECT_ZOOM = 1.6f;
+        /** world size of the chunks boards are split into when saved for paging, see {@link ChunkStore} */
+        public static final float CHUNK_SIZE = 4096;
+        /** world size of the cells ports are bucketed in for picking, a few ports across */
+        public static final float PORT_INDEX_CELL_SIZE = 64;
+        /** pressing within this many screen pixels of a port starts a connection from it */
+        public static final float PORT_PICK_RADIUS = 10;
+        /** a connection being dragged snaps to the nearest compatible port within this many screen pixels */
+        public static final float PORT_SNAP_RADIUS = 32;
+        /** world size of the cells nodes are counted in for the minimap, a few nodes across */
+        public static final float DENSITY_CELL_SIZE = 512;
+        /** world size of the cells orthogonal connections' paths are bucketed in, see collectAffectedRoutes() */
+        public static final float ROUTE_INDEX_CELL_SIZE = 512;
+    }
 
     final Stage stage;
     final Skin skin;
     final OrthographicCamera camera;
 
+    // NOTE: the graph is the board's model, node and connection views are indexed by their graph ids.
+    //  Node views only exist for nodes in or near the camera's view, see updateViews(),
+    //  they're pooled and rebound to other nodes as the camera moves, so nodes holds nulls for the rest.
+    final Graph graph = new Graph();
     final Array<Node> nodes = new Array<>();
+    final Array<Node> views = new Array<>(false, 64);
     final Array<Node.Connection> connections = new Array<>();
+    final SpatialGrid index = new SpatialGrid(Defaults.INDEX_CELL_SIZE);
+    final ConnectionRouter router = new ConnectionRouter(Defaults.INDEX_CELL_SIZE);
+    final ObjectSet<Node.Connection> pendingRoutes = new ObjectSet<>();
+    final IntSet movedNodes = new IntSet();
+    // NOTE: nodes registered since the routes were last updated, a subset of the moved ones
+    final IntSet registeredNodes = new IntSet();
+    // NOTE: orthogonal connections by the bounds of the path they currently draw, elbow or route
+    final SpatialGrid routeIndex = new SpatialGrid(Defaults.ROUTE_INDEX_CELL_SIZE);
+    // NOTE: ports by their world space position, nodes whose ports moved are reindexed lazily before picking
+    final SpatialGrid portIndex = new SpatialGrid(Defaults.PORT_INDEX_CELL_SIZE);
+    final IntSet movedPorts = new IntSet();
+    // NOTE: node counts by the world space cell of their center, kept up to date with the index, see Minimap
+    final DensityGrid density = new DensityGrid(Defaults.DENSITY_CELL_SIZE);
+    final ConnectionDrag connectionDrag = new ConnectionDrag(this);
+    final Pool<Node> viewPool = new Pool<>(64, Defaults.VIEW_POOL_MAX) {
+        @Override
+        protected Node newObject() {
+            createdViewCount++;
+            return new Node(graph, stage, skin);
+        }
+    };
+    final Rectangle viewBounds = new Rectangle();
+    final GridRenderer grid = new GridRenderer();
+    final GraphEvaluator evaluator = new GraphEvaluator(graph);
+    final EditHistory history = new EditHistory(this);
+    final BoardLayout autoLayout = new BoardLayout(this);
 
     boolean panning = false;
+    int nextDrawOrder = 0;
+    Node.Detail detail = Node.Detail.FULL;
+    FrameProfiler profiler = null;
+    GlyphCache glyphCache = null;
+    BoardLoader loader = null;
+    BoardPager pager = null;
+    int createdViewCount = 0;
+
+    // NOTE: draw order per graph node id, so it survives the node's view being released
+    private int[] drawOrders = new int[0];
+
+    private final IntArray queryIds = new IntArray();
+    private final IntList connectionIds = new IntList();
+    private final Array<Node.Connection> routed = new Array<>();
+    private final Array<Node> drawList = new Array<>();
+    private final Vector2 tmpCoords = new Vector2();
+    private final Rectangle tmpRect = new Rectangle();
 
-    private final Array<Vector2> path = new Array<>();
+    private static final Comparator<Node> drawOrderComparator = (a, b) -> Integer.compare(a.drawOrder, b.drawOrder);
 
     public NodeBoard(Stage stage, Skin skin) {
         this.stage = stage;
@@ -45,99 +140,888 @@ public class NodeBoard extends WidgetGroup {
         this.camera.update();
 
         setStage(stage);
+        fitToStage();
 
         build();
     }
 
     public void build() {
-        clearChildren();
-
-        var node1 = new Node("Node 1", stage, skin);
-        var node2 = new Node("Node 2", stage, skin);
+        clearBoard();
 
+        float size = Node.Defaults.NODE_SIZE;
         float spacing = 100;
         float x1 = 600;
-        float x2 = x1 + node1.getWidth() + spacing;
-        float y1 = (stage.getHeight() - node1.getHeight()) / 2f;
-        float y2 = (stage.getHeight() - node2.getHeight()) / 2f;
-        node1.setPosition(x1, y1);
-        node2.setPosition(x2, y2);
+        float x2 = x1 + size + spacing;
+        float y = (stage.getHeight() - size) / 2f;
+        int node1 = createNode("Node 1", x1, y);
+        int node2 = createNode("Node 2", x2, y);
 
         buildTestPorts(node1, node2);
 
-        nodes.addAll(node1, node2);
-        nodes.forEach(this::addActor);
+        connect(graph.findPort(node1, Graph.OUTPUT, "out_RIGHT_1"), graph.findPort(node2, Graph.INPUT, "in_LEFT_1"));
+        connect(graph.findPort(node1, Graph.OUTPUT, "out_BOTTOM_1"), graph.findPort(node2, Graph.INPUT, "in_TOP_1"),
+            Node.Connection.Style.ORTHOGONAL);
 
         addListener(panZoomListener);
+        addCaptureListener(connectionDrag);
+
+        // NOTE: the test nodes are the starting point, not an edit to undo
+        history.clear();
+    }
+
+    /**
+     * Remove every node and connection, leaving the camera and listeners as they are.
+     */
+    public void clearBoard() {
+        autoLayout.cancel();
+        connectionDrag.cancel();
+        cancelLoad();
+        closePager();
+        for (var view : views) {
+            viewPool.free(view);
+        }
+        views.clear();
+        clearChildren();
+        graph.clear();
+        evaluator.clear();
+        history.clear();
+        nodes.clear();
+        connections.clear();
+        pendingRoutes.clear();
+        movedNodes.clear();
+        registeredNodes.clear();
+        routeIndex.clear();
+        index.clear();
+        density.clear();
+        portIndex.clear();
+        movedPorts.clear();
+        nextDrawOrder = 0;
+    }
+
+    public Graph getGraph() {
+        return graph;
+    }
+
+    public GraphEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    public EditHistory getHistory() {
+        return history;
+    }
+
+    public BoardLayout getAutoLayout() {
+        return autoLayout;
+    }
+
+    /**
+     * Node counts by world space cell, for an overview of the board that doesn't walk its nodes.
+     * Paged boards only count the nodes of resident chunks.
+     */
+    public DensityGrid getDensity() {
+        return density;
+    }
+
+    /**
+     * @return the view of the graph node with the specified id, or null if it doesn't currently have one
+     */
+    public Node getView(int id) {
+        return (id >= 0 && id < nodes.size) ? nodes.get(id) : null;
+    }
+
+    /**
+     * Node views that are currently bound, in no particular order.
+     */
+    public Array<Node> getViews() {
+        return views;
+    }
+
+    /**
+     * Node views the last {@link #drawContent} drew, those that overlapped the view then, in draw order.
+     */
+    public Array<Node> getDrawnViews() {
+        return drawList;
+    }
+
+    /**
+     * Total node views created by the board, including those since released to the pool.
+     */
+    public int getCreatedViewCount() {
+        return createdViewCount;
+    }
+
+    public int getPooledViewCount() {
+        return viewPool.getFree();
+    }
+
+    /**
+     * Connection views indexed by graph connection id, ids of removed connections are null until they're reused.
+     */
+    public Array<Node.Connection> getConnections() {
+        return connections;
+    }
+
+    /**
+     * Add a node to the graph, it gets a view when it's in or near the camera's view.
+     *
+     * @return the graph id of the new node
+     */
+    public int createNode(String title, float x, float y) {
+        int id = graph.addNode(x, y, Node.Defaults.NODE_SIZE, Node.Defaults.NODE_SIZE);
+        graph.setNodeTitle(id, title);
+        registerNode(id);
+        history.recordAddNode(id);
+        return id;
+    }
+
+    /**
+     * Track a node that was added to the graph directly, with its ports already laid out.
+     */
+    void registerNode(int id) {
+        if (id >= nodes.size) {
+            nodes.setSize(id + 1);
+        }
+        if (id >= drawOrders.length) {
+            drawOrders = Arrays.copyOf(drawOrders, Math.max(id + 1, 2 * drawOrders.length));
+        }
+        drawOrders[id] = nextDrawOrder++;
+
+        nodeBoundsChanged(id);
+        registeredNodes.add(id);
+        // NOTE: a new node's ports are indexed right away rather than with the moved ones,
+        //  so loading a board doesn't leave every port for the first pick to index
+        movedPorts.remove(id);
+        indexPorts(id);
+    }
+
+    /**
+     * @return the graph id of the new port
+     */
+    public int addInput(int node, String name, Edge edge) {
+        return addPort(node, Graph.INPUT, name, edge);
+    }
+
+    /**
+     * @return the graph id of the new port
+     */
+    public int addOutput(int node, String name, Edge edge) {
+        return addPort(node, Graph.OUTPUT, name, edge);
+    }
+
+    /**
+     * Move a node, through its view if it has one so the view stays in sync.
+     */
+    public void setNodePosition(int id, float x, float y) {
+        history.recordMove(id, graph.nodeX(id), graph.nodeY(id), x, y);
+        placeNode(id, x, y);
+    }
+
+    /**
+     * Move a node without recording the move, for edits that record their moves as a whole, see {@link BoardLayout}.
+     */
+    void placeNode(int id, float x, float y) {
+        var view = getView(id);
+        if (view != null) {
+            view.setPosition(x, y);
+            return;
+        }
+        graph.setNodePosition(id, x, y);
+        invalidateConnections(id);
+        nodeBoundsChanged(id);
+    }
+
+    /**
+     * Remove the node from the board and its graph, along with its connections.
+     */
+    public void removeNode(int id) {
+        history.recordRemoveNode(id);
+        var view = getView(id);
+        if (view != null) {
+            releaseView(views.indexOf(view, true));
+        }
+
+        connectionIds.clear();
+        graph.connections(id, connectionIds);
+        for (int i = 0; i < connectionIds.size(); i++) {
+            releaseConnection(connectionIds.get(i));
+        }
+
+        for (int port = graph.firstPort(id); port != Graph.NONE; port = graph.nextPort(port)) {
+            portIndex.remove(port);
+        }
+        graph.removeNode(id);
+        evaluator.resetNode(id);
+        index.remove(id);
+        density.remove(id);
+        movedNodes.remove(id);
+        registeredNodes.remove(id);
+        movedPorts.remove(id);
+    }
+
+    public Node.Connection connect(int srcPort, int dstPort) {
+        return connect(srcPort, dstPort, Node.Connection.Style.CURVED);
+    }
+
+    /**
+     * Connect two graph ports, by id, see {@link Node#getOutput(String)} and {@link Node#getInput(String)}.
+     */
+    public Node.Connection connect(int srcPort, int dstPort, Node.Connection.Style style) {
+        var connection = registerConnection(graph.connect(srcPort, dstPort, style.ordinal()));
+        history.recordConnect(connection.id);
+        return connection;
+    }
+
+    /**
+     * Remove a connection, by graph id.
+     */
+    public void disconnect(int id) {
+        history.recordDisconnect(id);
+        releaseConnection(id);
+        graph.disconnect(id);
+    }
+
+    /**
+     * Create the view for a connection that was added to the graph directly.
+     */
+    Node.Connection registerConnection(int id) {
+        var connection = new Node.Connection(graph, id);
+        if (id >= connections.size) {
+            connections.setSize(id + 1);
+        }
+        connections.set(id, connection);
+        if (connection.style() == Node.Connection.Style.ORTHOGONAL) {
+            pendingRoutes.add(connection);
+            indexRoute(connection);
+        }
+        return connection;
+    }
+
+    /**
+     * Remove a port along with its connections, which isn't an edit the board offers, only used to undo adding one.
+     */
+    void removePort(int port) {
+        int node = graph.portNode(port);
+        connectionIds.clear();
+        graph.connections(node, connectionIds);
+        for (int i = 0; i < connectionIds.size(); i++) {
+            int id = connectionIds.get(i);
+            if (graph.connectionSrc(id) == port || graph.connectionDst(id) == port) {
+                releaseConnection(id);
+            }
+        }
+        portIndex.remove(port);
+        graph.removePort(port);
+        portsChanged(node);
+    }
+
+    /**
+     * Lay out the node's ports again after its port set changed.
+     */
+    void portsChanged(int node) {
+        graph.layoutPorts(node, Node.Defaults.PORT_EDGE_MARGIN);
+        invalidateConnections(node);
+        movedPorts.add(node);
+    }
+
+    /**
+     * Called when the node's ports moved relative to it, eg. after its view resized and laid them out again.
+     */
+    void portsMoved(int node) {
+        movedPorts.add(node);
+    }
+
+    /**
+     * Find the port nearest a world space point, within the radius.
+     * With a {@code source} port, only ports it could be connected to count, see {@link #canConnect(int, int)}.
+     *
+     * @return the graph id of the port, or {@link Graph#NONE} if there isn't one in reach
+     */
+    public int pickPort(float x, float y, float radius, int source) {
+        updatePortIndex();
+
+        queryIds.clear();
+        portIndex.query(x - radius, y - radius, 2 * radius, 2 * radius, queryIds);
+        int nearest = Graph.NONE;
+        float nearestDist2 = radius * radius;
+        for (int i = 0; i < queryIds.size; i++) {
+            int port = queryIds.get(i);
+            float dx = graph.portWorldX(port) - x;
+            float dy = graph.portWorldY(port) - y;
+            float dist2 = dx * dx + dy * dy;
+            if (dist2 > nearestDist2) continue;
+            if (source != Graph.NONE && !canConnect(source, port)) continue;
+            nearest = port;
+            nearestDist2 = dist2;
+        }
+        return nearest;
+    }
+
+    /**
+     * Whether a new connection could join the two ports: an input and an output, on different nodes,
+     * that aren't connected already.
+     */
+    public boolean canConnect(int portA, int portB) {
+        if (graph.portType(portA) == graph.portType(portB)) return false;
+        if (graph.portNode(portA) == graph.portNode(portB)) return false;
+
+        connectionIds.clear();
+        graph.connections(graph.portNode(portA), connectionIds);
+        for (int i = 0; i < connectionIds.size(); i++) {
+            int id = connectionIds.get(i);
+            int src = graph.connectionSrc(id);
+            int dst = graph.connectionDst(id);
+            if ((src == portA && dst == portB) || (src == portB && dst == portA)) return false;
+        }
+        return true;
+    }
+
+    private void updatePortIndex() {
+        if (movedPorts.isEmpty()) return;
+        var moved = movedPorts.iterator();
+        while (moved.hasNext) {
+            indexPorts(moved.next());
+        }
+        movedPorts.clear();
+    }
+
+    private void indexPorts(int node) {
+        float radius = Node.Defaults.PORT_RADIUS;
+        for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+            portIndex.put(port, graph.portWorldX(port) - radius, graph.portWorldY(port) - radius,
+                2 * radius, 2 * radius);
+        }
+    }
+
+    /**
+     * Called when a drag of the node's view ends, the whole drag is one edit.
+     */
+    void nodeDragged(int id, float fromX, float fromY) {
+        history.recordMove(id, fromX, fromY, graph.nodeX(id), graph.nodeY(id));
+    }
+
+    private void releaseConnection(int id) {
+        var connection = connections.get(id);
+        if (connection == null) return;
+        pendingRoutes.remove(connection);
+        routeIndex.remove(id);
+        connections.set(id, null);
+    }
+
+    void invalidateConnections(int nodeId) {
+        connectionIds.clear();
+        graph.connections(nodeId, connectionIds);
+        for (int i = 0; i < connectionIds.size(); i++) {
+            var connection = connections.get(connectionIds.get(i));
+            if (connection != null) {
+                connection.invalidate();
+                indexRoute(connection);
+            }
+        }
+    }
+
+    void nodeBoundsChanged(int id) {
+        index.put(id, graph.nodeX(id), graph.nodeY(id), graph.nodeWidth(id), graph.nodeHeight(id));
+        density.put(id, graph.nodeX(id) + graph.nodeWidth(id) / 2f, graph.nodeY(id) + graph.nodeHeight(id) / 2f);
+        movedNodes.add(id);
+        movedPorts.add(id);
+        if (pager != null) {
+            pager.nodeChanged(id);
+        }
+    }
+
+    void nodeToFront(Node node) {
+        node.drawOrder = drawOrders[node.id] = nextDrawOrder++;
+    }
+
+    /**
+     * Cover the whole stage, so input events anywhere on it reach the board.
+     * Call when the stage's size changes, the board isn't laid out by a parent.
+     */
+    public void fitToStage() {
+        if (getWidth() != stage.getWidth() || getHeight() != stage.getHeight()) {
+            setBounds(0, 0, stage.getWidth(), stage.getHeight());
+        }
     }
 
     @Override
     public void act(float delta) {
+        updateLoad();
+        autoLayout.update();
+        if (glyphCache != null) {
+            glyphCache.update();
+        }
+        updateCamera();
+        if (pager != null) {
+            pager.update(delta, viewBounds, camera.zoom);
+        }
+        updateViews();
+        updateValues();
         super.act(delta);
-        // NOTE: this is needed so that input events are processed by the board
-        setBounds(0, 0, stage.getWidth(), stage.getHeight());
+        updateRoutes();
+    }
+
+    private int addPort(int node, int type, String name, Edge edge) {
+        int port = graph.addPort(node, type, edge, name);
+        portsChanged(node);
+        history.recordAddPort(port);
+        return port;
+    }
+
+    /**
+     * Release views of nodes that are well outside the camera's view, and bind views to nodes near it.
+     */
+    private void updateViews() {
+        var rect = tmpRect;
+
+        float release = Defaults.VIEW_RELEASE_MARGIN * camera.zoom;
+        rect.set(viewBounds.x - release, viewBounds.y - release,
+            viewBounds.width + 2 * release, viewBounds.height + 2 * release);
+        for (int i = views.size - 1; i >= 0; i--) {
+            var view = views.get(i);
+            // NOTE: a node being dragged keeps its view, or the drag would end when it leaves the view
+            if (view.dragging) continue;
+            if (!overlapsNode(rect, view.id)) {
+                releaseView(i);
+            }
+        }
+
+        float bind = Defaults.VIEW_BIND_MARGIN * camera.zoom;
+        rect.set(viewBounds.x - bind, viewBounds.y - bind,
+            viewBounds.width + 2 * bind, viewBounds.height + 2 * bind);
+        queryIds.clear();
+        index.query(rect.x, rect.y, rect.width, rect.height, queryIds);
+        for (int i = 0; i < queryIds.size; i++) {
+            int id = queryIds.get(i);
+            if (nodes.get(id) == null && overlapsNode(rect, id)) {
+                bindView(id);
+            }
+        }
+    }
+
+    /**
+     * Publish the graph's latest evaluation to the views of nodes whose outputs changed, and start the next one.
+     */
+    private void updateValues() {
+        if (!evaluator.update()) return;
+        var changed = evaluator.changedNodes();
+        for (int i = 0; i < changed.size(); i++) {
+            int id = changed.get(i);
+            var view = getView(id);
+            if (view != null) {
+                view.updateValues(evaluator);
+            }
+        }
+    }
+
+    private void bindView(int id) {
+        var view = viewPool.obtain().bind(id);
+        view.updateValues(evaluator);
+        view.drawOrder = drawOrders[id];
+        nodes.set(id, view);
+        views.add(view);
+        addActor(view);
+    }
+
+    private void releaseView(int index) {
+        var view = views.removeIndex(index);
+        nodes.set(view.id, null);
+        removeActor(view);
+        viewPool.free(view);
+    }
+
+    private boolean overlapsNode(Rectangle rect, int id) {
+        float x = graph.nodeX(id);
+        float y = graph.nodeY(id);
+        return x < rect.x + rect.width && x + graph.nodeWidth(id) > rect.x
+            && y < rect.y + rect.height && y + graph.nodeHeight(id) > rect.y;
     }
 
     @Override
-    public void draw(Batch batch, float parentAlpha) {
-        var shapes = Main.get.shapes;
-        var stageCamera = Main.get.uiCamera;
+    public void dispose() {
+        cancelLoad();
+        closePager();
+        autoLayout.dispose();
+        router.dispose();
+    }
+
+    /**
+     * Write the board's graph and camera to a file, see {@link GraphFile}.
+     *
+     * @return the number of bytes written
+     */
+    public long save(Path path) throws IOException {
+        return GraphFile.write(graph, new GraphFile.View(camera.position.x, camera.position.y, camera.zoom), path);
+    }
+
+    /**
+     * Replace the board's contents with the file's graph, which is read over the following frames,
+     * see {@link BoardLoader}. The board takes ownership of the reader and closes it once loading ends.
+     */
+    public void load(GraphFile.Reader reader) {
+        clearBoard();
+
+        var view = reader.view();
+        camera.position.set(view.x(), view.y(), 0);
+        camera.zoom = MathUtils.clamp(view.zoom(), 0.1f, 2f);
+        camera.update();
+
+        loader = new BoardLoader(this, reader);
+    }
+
+    /**
+     * Split the board's graph into chunks saved to the directory, for opening with {@link #openPaged(ChunkStore)}.
+     * A paged board only saves the chunks that are currently resident.
+     */
+    public ChunkStore saveChunked(Path directory) throws IOException {
+        var view = new GraphFile.View(camera.position.x, camera.position.y, camera.zoom);
+        return ChunkStore.create(graph, view, directory, Defaults.CHUNK_SIZE);
+    }
+
+    /**
+     * Replace the board's contents with a view onto the chunk store, whose chunks are paged in and out
+     * as the camera moves, see {@link BoardPager}. Moved nodes are written back to the store.
+     */
+    public void openPaged(ChunkStore store) {
+        clearBoard();
 
+        var view = store.view();
+        camera.position.set(view.x(), view.y(), 0);
+        camera.zoom = MathUtils.clamp(view.zoom(), 0.1f, 2f);
         camera.update();
-        batch.setProjectionMatrix(camera.combined);
-        shapes.getBatch().setProjectionMatrix(camera.combined);
 
-        drawGrid(batch, shapes);
+        pager = new BoardPager(this, store);
+        // NOTE: graph ids of paged nodes change as they're paged in and out, so edits can't be undone by id
+        history.setEnabled(false);
+    }
+
+    /**
+     * @return the pager streaming this board's chunks, or null if the board isn't paged
+     */
+    public BoardPager getPager() {
+        return pager;
+    }
+
+    public boolean isLoading() {
+        return loader != null;
+    }
+
+    /**
+     * @return the fraction of the file being loaded that's been read, or 1 if nothing is loading
+     */
+    public float getLoadProgress() {
+        return (loader != null) ? loader.progress() : 1f;
+    }
+
+    private void updateLoad() {
+        if (loader == null) return;
+        try {
+            if (loader.step()) {
+                cancelLoad();
+            }
+        } catch (IOException | RuntimeException e) {
+            // NOTE: whatever was read before the failure stays on the board
+            Gdx.app.error("Board", "failed to load board", e);
+            cancelLoad();
+        }
+    }
+
+    private void closePager() {
+        if (pager == null) return;
+        // NOTE: disposing writes back moved nodes, so it has to happen before the graph is cleared
+        pager.dispose();
+        pager = null;
+        history.setEnabled(true);
+    }
+
+    private void cancelLoad() {
+        if (loader == null) return;
+        StreamUtils.closeQuietly(loader.reader);
+        loader = null;
+    }
+
+    private void updateRoutes() {
+        router.publish(routed);
+        for (var connection : routed) {
+            indexRoute(connection);
+        }
+        routed.clear();
+
+        if (movedNodes.notEmpty()) {
+            collectAffectedRoutes();
+            movedNodes.clear();
+            registeredNodes.clear();
+        }
+
+        if (pendingRoutes.notEmpty() && !router.isBusy()) {
+            router.submit(graph, pendingRoutes);
+            pendingRoutes.clear();
+        }
+    }
+
+    private void collectAffectedRoutes() {
+        // connections attached to a moved node need new endpoints
+        var moved = movedNodes.iterator();
+        while (moved.hasNext) {
+            connectionIds.clear();
+            graph.connections(moved.next(), connectionIds);
+            for (int i = 0; i < connectionIds.size(); i++) {
+                var connection = connections.get(connectionIds.get(i));
+                // NOTE: a graph connection can be left without a view, eg. by a load that failed part way
+                if (connection != null && connection.style() == Node.Connection.Style.ORTHOGONAL) {
+                    pendingRoutes.add(connection);
+                }
+            }
+        }
+
+        // connections whose current path now runs through a moved node need to go around it
+        // NOTE: nodes that were only just registered are skipped, a load or page-in adds many at once
+        //  and the routes around them are left as they are until something moves
+        var rect = tmpRect;
+        moved = movedNodes.iterator();
+        while (moved.hasNext) {
+            int node = moved.next();
+            if (registeredNodes.contains(node)) continue;
+            rect.set(graph.nodeX(node), graph.nodeY(node), graph.nodeWidth(node), graph.nodeHeight(node));
+            queryIds.clear();
+            routeIndex.query(rect.x, rect.y, rect.width, rect.height, queryIds);
+            for (int i = 0; i < queryIds.size; i++) {
+                var connection = connections.get(queryIds.get(i));
+                if (connection == null || connection.isUnroutable() || pendingRoutes.contains(connection)) continue;
+                if (rect.overlaps(connection.bounds())) {
+                    pendingRoutes.add(connection);
+                }
+            }
+        }
+    }
+
+    /**
+     * Put an orthogonal connection in the route index by the bounds of the path it draws now.
+     */
+    private void indexRoute(Node.Connection connection) {
+        if (connection.style() != Node.Connection.Style.ORTHOGONAL) return;
+        var bounds = connection.bounds();
+        routeIndex.put(connection.id(), bounds.x, bounds.y, bounds.width, bounds.height);
+    }
+
+    @Override
+    public void draw(Batch batch, float parentAlpha) {
         // NOTE: super.draw(batch, parentAlpha) applies the stage's camera
         //  which causes problems keeping the board and its contents independent
         //  of the other ui in the stage that's suppose to remain fixed
         //  relative to the stage's camera, not the board's camera,
-        //  so we'll draw the children 'manually' instead.
-        //super.draw(batch, parentAlpha);
-        for (var child : getChildren()) {
-            if (child.isVisible()) {
-                child.draw(batch, parentAlpha);
+        //  so the board is drawn separately in the BOARD and OVERLAY render passes instead,
+        //  see Main.render(), and there's nothing left to draw when the stage gets here.
+    }
+
+    /**
+     * Draw the grid, the nodes that overlap the camera's view, and connections.
+     * Expects the batch to be drawing with this board's camera as its projection.
+     */
+    public void drawContent(Batch batch, ShapeDrawer shapes) {
+        if (profiler != null) profiler.begin(FrameProfiler.Phase.BOARD_GRID);
+        grid.draw(shapes, camera, viewBounds);
+        if (profiler != null) profiler.end(FrameProfiler.Phase.BOARD_GRID);
+
+        if (profiler != null) profiler.begin(FrameProfiler.Phase.BOARD_NODES);
+        detail = detailForZoom(camera.zoom);
+        collectVisibleNodes(drawList);
+        if (glyphCache != null && detail != Node.Detail.RECT) {
+            for (var node : drawList) {
+                node.setTitleFont(glyphCache.font(camera.zoom, node.getTitleLabel().getText()));
+            }
+        }
+        if (detail == Node.Detail.FULL) {
+            for (var node : drawList) {
+                node.draw(batch, 1f);
+            }
+        } else {
+            for (var node : drawList) {
+                node.drawSimplified(shapes);
+            }
+            // NOTE: titles go on top in a second pass, so the glyph cache's pages are bound once
+            //  rather than swapped with the skin's atlas for every node
+            if (detail == Node.Detail.TITLE) {
+                for (var node : drawList) {
+                    node.drawTitleSimplified(batch);
+                }
+            }
+        }
+        if (profiler != null) profiler.end(FrameProfiler.Phase.BOARD_NODES);
+
+        if (profiler != null) profiler.begin(FrameProfiler.Phase.BOARD_CONNECTIONS);
+        drawConnections(shapes);
+        if (profiler != null) profiler.end(FrameProfiler.Phase.BOARD_CONNECTIONS);
+    }
+
+    /**
+     * Draw things that belong on top of the board's content, like ports over the ends of connections.
+     * Expects to be called after {@link #drawContent(Batch, ShapeDrawer)} in the same frame.
+     */
+    public void drawOverlay(Batch batch, ShapeDrawer shapes) {
+        if (profiler != null) profiler.begin(FrameProfiler.Phase.BOARD_OVERLAY);
+        switch (detail) {
+            case FULL -> {
+                for (var node : drawList) {
+                    node.drawPorts(batch);
+                }
+            }
+            case TITLE -> {
+                for (var node : drawList) {
+                    node.drawPortsSimplified(shapes);
+                }
+            }
+            // NOTE: ports aren't drawn at all at the RECT level, connections still show where they are
+            case RECT -> {}
+        }
+        connectionDrag.draw(shapes);
+        if (profiler != null) profiler.end(FrameProfiler.Phase.BOARD_OVERLAY);
+    }
+
+    /**
+     * Time the board's draw phases with the specified profiler, or stop timing them if it's null.
+     */
+    public void setProfiler(FrameProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    /**
+     * Draw node titles with fonts generated for the zoom by the specified cache, or with the skin's font if it's null.
+     * The board updates the cache as it acts, but doesn't own it.
+     */
+    public void setGlyphCache(GlyphCache glyphCache) {
+        this.glyphCache = glyphCache;
+        if (glyphCache == null) {
+            for (var view : views) {
+                view.setTitleFont(null);
+            }
+        }
+    }
+
+    /**
+     * The level of detail nodes were drawn with in the most recent frame.
+     */
+    public Node.Detail getDetail() {
+        return detail;
+    }
+
+    public static Node.Detail detailForZoom(float zoom) {
+        if (zoom >= Defaults.DETAIL_RECT_ZOOM) return Node.Detail.RECT;
+        if (zoom >= Defaults.DETAIL_TITLE_ZOOM) return Node.Detail.TITLE;
+        return Node.Detail.FULL;
+    }
+
+    public OrthographicCamera getCamera() {
+        return camera;
+    }
+
+    public Rectangle getViewBounds() {
+        return viewBounds;
+    }
+
+    @Override
+    public Actor hit(float x, float y, boolean touchable) {
+        if (touchable && getTouchable() == Touchable.disabled) return null;
+        if (!isVisible()) return null;
+
+        var world = screenToWorld(tmpCoords.set(x, y));
+        queryIds.clear();
+        index.query(world.x, world.y, queryIds);
+
+        // the cell's candidates aren't ordered, so keep the topmost node that was actually hit
+        Actor hit = null;
+        int hitOrder = -1;
+        for (int i = 0; i < queryIds.size; i++) {
+            var node = nodes.get(queryIds.get(i));
+            if (node == null || !node.isVisible() || node.drawOrder < hitOrder) continue;
+
+            var local = node.parentToLocalCoordinates(tmpCoords.set(x, y));
+            var nodeHit = node.hit(local.x, local.y, touchable);
+            if (nodeHit != null) {
+                hit = nodeHit;
+                hitOrder = node.drawOrder;
             }
         }
-        drawConnections(batch, shapes);
+        if (hit != null) {
+            return hit;
+        }
 
-        shapes.getBatch().setProjectionMatrix(stageCamera.combined);
-        batch.setProjectionMatrix(stageCamera.combined);
+        if (touchable && getTouchable() != Touchable.enabled) return null;
+        return (x >= 0 && x < getWidth() && y >= 0 && y < getHeight()) ? this : null;
     }
 
-    private void drawGrid(Batch batch, ShapeDrawer shapes) {
-        var color = Color.DARK_GRAY;
-        float lineWidth = 1f;
-        float grid = 50;
-        float left = camera.position.x - camera.viewportWidth / 2 * camera.zoom;
-        float right = camera.position.x + camera.viewportWidth / 2 * camera.zoom;
-        float bottom = camera.position.y - camera.viewportHeight / 2 * camera.zoom;
-        float top = camera.position.y + camera.viewportHeight / 2 * camera.zoom;
-        float xOffset = left % grid;
-        float yOffset = bottom % grid;
+    /**
+     * Convert coordinates relative to the board (which covers the stage) to the board camera's world space.
+     */
+    public Vector2 screenToWorld(Vector2 coords) {
+        float scaleX = (getWidth() > 0) ? camera.viewportWidth / getWidth() : 1;
+        float scaleY = (getHeight() > 0) ? camera.viewportHeight / getHeight() : 1;
+        coords.x = camera.position.x + (coords.x * scaleX - camera.viewportWidth / 2f) * camera.zoom;
+        coords.y = camera.position.y + (coords.y * scaleY - camera.viewportHeight / 2f) * camera.zoom;
+        return coords;
+    }
 
-        float startX = left - xOffset;
-        float endX = right;
-        float startY = bottom - yOffset;
-        float endY = top;
+    /**
+     * Convert coordinates in the board camera's world space to coordinates relative to the board.
+     */
+    public Vector2 worldToScreen(Vector2 coords) {
+        float scaleX = (getWidth() > 0) ? getWidth() / camera.viewportWidth : 1;
+        float scaleY = (getHeight() > 0) ? getHeight() / camera.viewportHeight : 1;
+        coords.x = ((coords.x - camera.position.x) / camera.zoom + camera.viewportWidth / 2f) * scaleX;
+        coords.y = ((coords.y - camera.position.y) / camera.zoom + camera.viewportHeight / 2f) * scaleY;
+        return coords;
+    }
+
+    /**
+     * Update the camera's matrices and the world space bounds of its view.
+     */
+    public void updateCamera() {
+        camera.update();
+        updateViewBounds();
+    }
+
+    private void updateViewBounds() {
+        float width = camera.viewportWidth * camera.zoom;
+        float height = camera.viewportHeight * camera.zoom;
+        viewBounds.set(
+            camera.position.x - width / 2f,
+            camera.position.y - height / 2f,
+            width, height);
+    }
+
+    private void collectVisibleNodes(Array<Node> out) {
+        out.clear();
 
-        shapes.getBatch().begin();
-        for (float x = startX; x < endX; x += grid) shapes.line(x, bottom, x, top, color, lineWidth);
-        for (float y = startY; y < endY; y += grid) shapes.line(left, y, right, y, color, lineWidth);
-        shapes.getBatch().end();
+        // NOTE: ports are drawn centered on the node's edges, so pad the view to include them
+        float pad = Node.Defaults.PORT_RADIUS;
+        queryIds.clear();
+        index.query(
+            viewBounds.x - pad, viewBounds.y - pad,
+            viewBounds.width + 2 * pad, viewBounds.height + 2 * pad,
+            queryIds);
+
+        for (int i = 0; i < queryIds.size; i++) {
+            var node = nodes.get(queryIds.get(i));
+            if (node != null && node.isVisible()) {
+                out.add(node);
+            }
+        }
+        out.sort(drawOrderComparator);
     }
 
-    private void drawConnections(Batch batch, ShapeDrawer shapes) {
-        shapes.getBatch().begin();
+    public void drawConnections(ShapeDrawer shapes) {
+        float lineWidth = 2f;
+
+        shapes.setColor(1, 0, 1, 1);
         for (var connection : connections) {
-            shapes.setColor(1, 0, 1, 1);
-            shapes.path(path, 2, JoinType.SMOOTH, true);
-            shapes.setColor(1, 1, 1, 1);
+            if (connection == null) continue;
+            // NOTE: culling only needs the control point bounds, offscreen curves are never tessellated
+            if (!viewBounds.overlaps(connection.bounds())) continue;
+            shapes.path(connection.vertices(), lineWidth, JoinType.POINTY, true);
         }
-        shapes.getBatch().end();
+        shapes.setColor(1, 1, 1, 1);
     }
 
-    private void buildTestPorts(Node node1, Node node2) {
+    private void buildTestPorts(int node1, int node2) {
         for (var edge : Edge.values()) {
             int count;
 
@@ -145,11 +1029,11 @@ public class NodeBoard extends WidgetGroup {
             if (edge == Edge.LEFT || edge == Edge.TOP) {
                 count = MathUtils.random(1, 5);
                 for (int i = 1; i <= count; i++) {
-                    node1.addInput("in_%s_%d".formatted(edge, i), edge);
+                    addInput(node1, "in_%s_%d".formatted(edge, i), edge);
                 }
                 count = MathUtils.random(1, 5);
                 for (int i = 1; i <= count; i++) {
-                    node2.addInput("in_%s_%d".formatted(edge, i), edge);
+                    addInput(node2, "in_%s_%d".formatted(edge, i), edge);
                 }
             }
 
@@ -157,11 +1041,11 @@ public class NodeBoard extends WidgetGroup {
             if (edge == Edge.BOTTOM || edge == Edge.RIGHT) {
                 count = MathUtils.random(1, 5);
                 for (int i = 1; i <= count; i++) {
-                    node1.addOutput("out_%s_%d".formatted(edge, i), edge);
+                    addOutput(node1, "out_%s_%d".formatted(edge, i), edge);
                 }
                 count = MathUtils.random(1, 5);
                 for (int i = 1; i <= count; i++) {
-                    node2.addOutput("out_%s_%d".formatted(edge, i), edge);
+                    addOutput(node2, "out_%s_%d".formatted(edge, i), edge);
                 }
             }
         }
@@ -177,7 +1061,7 @@ public class NodeBoard extends WidgetGroup {
 
         @Override
         public boolean touchDown(InputEvent event, float x, float y, int pointer, int button) {
-            Gdx.app.log("Board", "touched: p=%d|b=%d @ (%.0f, %.0f)".formatted(pointer, button, x, y));
+            Trace.global.record(Trace.Event.BOARD_TOUCH_DOWN, pointer, button, x, y);
             touchStart.set(x, y);
             return true;
         }
@@ -186,7 +1070,7 @@ public class NodeBoard extends WidgetGroup {
         public void touchUp(InputEvent event, float x, float y, int pointer, int button) {
             super.touchUp(event, x, y, pointer, button);
             if (panning) {
-                Gdx.app.log("Board", "drag stopped");
+                Trace.global.record(Trace.Event.BOARD_PAN_STOP, camera.position.x, camera.position.y);
             }
             panning = false;
         }
@@ -195,8 +1079,8 @@ public class NodeBoard extends WidgetGroup {
         public void touchDragged(InputEvent event, float x, float y, int pointer) {
             if (!panning) {
                 panning = true;
-                // log once per drag
-                Gdx.app.log("Board", "drag started");
+                // trace once per drag
+                Trace.global.record(Trace.Event.BOARD_PAN_START, camera.position.x, camera.position.y);
             }
 
             float dx = touchStart.x - x;
@@ -205,9 +1089,21 @@ public class NodeBoard extends WidgetGroup {
 
             camera.position.add(dx, dy, 0);
             camera.update();
+            if (pager != null) {
+                pager.panned(dx, dy);
+            }
         }
     };
 
+    /**
+     * Move the camera so it's centered on the specified world position.
+     */
+    public void centerOn(float x, float y) {
+        // NOTE: not reported to the pager as a pan, a jump across the board says nothing about where it's heading
+        camera.position.set(x, y, 0);
+        updateCamera();
+    }
+
     public void zoomBy(float amount) {
         // TODO(brian): scale amount relative to current zoom level and extents
         camera.zoom += amount * 0.05f;
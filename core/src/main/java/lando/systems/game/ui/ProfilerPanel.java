@@ -0,0 +1,143 @@
+package lando.systems.game.ui;
+
+import com.badlogic.gdx.scenes.scene2d.Actor;
+import com.badlogic.gdx.scenes.scene2d.ui.Label;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.scenes.scene2d.utils.ChangeListener;
+import com.badlogic.gdx.utils.Align;
+import com.badlogic.gdx.utils.StringBuilder;
+import com.kotcrab.vis.ui.widget.VisCheckBox;
+import com.kotcrab.vis.ui.widget.VisLabel;
+import lando.systems.game.utils.FrameProfiler;
+
+/**
+ * Live table of {@link FrameProfiler} results: percentiles of each phase's time over the rolling window,
+ * bytes allocated per frame and the per frame counts of resizes and layout passes. Refreshed a few times
+ * a second rather than every frame so it stays readable, and refreshing doesn't allocate.
+ */
+public class ProfilerPanel extends CountingTable {
+
+    public static class Defaults {
+        public static final float REFRESH_INTERVAL = 0.25f;
+    }
+
+    private static final String[] COLUMNS = { "phase (ms)", "p50", "p95", "p99", "max" };
+    private static final double[] PERCENTILES = { 50, 95, 99 };
+
+    private final Label[][] phaseCells = new Label[FrameProfiler.Phase.values().length][];
+    private final Label[][] counterCells = new Label[FrameProfiler.Counter.values().length][];
+    private final Label[] allocCells;
+    private final Label summary;
+    private final StringBuilder text = new StringBuilder();
+    private float refreshTimer = 0;
+
+    public ProfilerPanel(FrameProfiler profiler, Skin skin) {
+        super(profiler, true);
+        setSkin(skin);
+        defaults().left();
+
+        var enabled = new VisCheckBox("Profile frames", profiler.isEnabled());
+        enabled.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                profiler.setEnabled(enabled.isChecked());
+                profiler.clear();
+            }
+        });
+        add(enabled).colspan(COLUMNS.length).row();
+
+        for (var column : COLUMNS) {
+            add(new VisLabel(column));
+        }
+        row();
+
+        for (var phase : FrameProfiler.Phase.values()) {
+            phaseCells[phase.ordinal()] = addRow(phase.name().toLowerCase());
+        }
+        allocCells = addRow("alloc (bytes)");
+        for (var counter : FrameProfiler.Counter.values()) {
+            counterCells[counter.ordinal()] = addRow(counter.name().toLowerCase() + "s");
+        }
+
+        summary = new VisLabel("");
+        add(summary).colspan(COLUMNS.length).row();
+        add().grow();
+    }
+
+    @Override
+    public void act(float delta) {
+        super.act(delta);
+
+        refreshTimer -= delta;
+        if (refreshTimer > 0 || !profiler.isEnabled()) return;
+        refreshTimer = Defaults.REFRESH_INTERVAL;
+
+        for (var phase : FrameProfiler.Phase.values()) {
+            var series = profiler.get(phase);
+            var cells = phaseCells[phase.ordinal()];
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                setMillis(cells[i], series.percentile(PERCENTILES[i]));
+            }
+            setMillis(cells[PERCENTILES.length], series.max());
+        }
+
+        var allocation = profiler.allocation();
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            setCount(allocCells[i], allocation.percentile(PERCENTILES[i]));
+        }
+        setCount(allocCells[PERCENTILES.length], allocation.max());
+
+        for (var counter : FrameProfiler.Counter.values()) {
+            var series = profiler.get(counter);
+            var cells = counterCells[counter.ordinal()];
+            for (int i = 0; i < PERCENTILES.length; i++) {
+                setCount(cells[i], series.percentile(PERCENTILES[i]));
+            }
+            setCount(cells[PERCENTILES.length], series.max());
+        }
+
+        text.setLength(0);
+        text.append("frames: ").append(profiler.getFrameCount());
+        if (!profiler.isAllocationSupported()) {
+            text.append(", allocation unavailable");
+        }
+        summary.setText(text);
+    }
+
+    @Override
+    public void invalidateHierarchy() {
+        // NOTE: every refresh changes the labels' text, but rarely the panel's size,
+        //  so the tables around it are only laid out again when its preferred size changes
+        float prefWidth = getPrefWidth();
+        float prefHeight = getPrefHeight();
+        invalidate();
+        if (getPrefWidth() != prefWidth || getPrefHeight() != prefHeight) {
+            super.invalidateHierarchy();
+        }
+    }
+
+    private Label[] addRow(String name) {
+        add(new VisLabel(name));
+        var cells = new Label[COLUMNS.length - 1];
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] = new VisLabel("-");
+            cells[i].setAlignment(Align.right);
+            add(cells[i]).right();
+        }
+        row();
+        return cells;
+    }
+
+    private void setMillis(Label label, long nanos) {
+        long micros = nanos / 1000;
+        text.setLength(0);
+        text.append(micros / 1000).append('.').append((int) (micros % 1000), 3);
+        label.setText(text);
+    }
+
+    private void setCount(Label label, long count) {
+        text.setLength(0);
+        text.append(count);
+        label.setText(text);
+    }
+}
@@ -9,15 +9,17 @@ import com.kotcrab.vis.ui.widget.VisTable;
 import com.kotcrab.vis.ui.widget.tabbedpane.Tab;
 import com.kotcrab.vis.ui.widget.tabbedpane.TabbedPane;
 import com.kotcrab.vis.ui.widget.tabbedpane.TabbedPaneAdapter;
+import lando.systems.game.utils.FrameProfiler;
 
-public class Toolbar extends VisTable {
+public class Toolbar extends CountingTable {
 
     Stage stage;
     Skin skin;
     TabbedPane pane;
     VisTable container;
 
-    public Toolbar(Stage stage, Skin skin) {
+    public Toolbar(Stage stage, Skin skin, FrameProfiler profiler) {
+        super(profiler);
         this.stage = stage;
         this.skin = skin;
         setSkin(skin);
@@ -67,13 +69,12 @@ public class Toolbar extends VisTable {
         // populate the pane with tabs
 
         var tab1 = new VisTabTable("Tab One");
-        var tab2 = new VisTabTable("Tab Two");
+        var tab2 = new VisTabTable("Profiler");
         tab1.getTab().setCloseableByUser(false);
         tab2.getTab().setCloseableByUser(false);
 
         tab1.add(split).grow();
-        tab2.add("This is the second tab").growX().row();
-        tab2.add().grow();
+        tab2.add(new ProfilerPanel(profiler, skin)).grow();
 
         pane.add(tab1.getTab());
         pane.add(tab2.getTab());
@@ -0,0 +1,235 @@
+package lando.systems.game.utils;
+
+import com.github.tommyettinger.ds.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Coarse world space grid counting how many ids are in each cell, by a single point per id (eg. a node's center).
+ * Like {@link SpatialGrid}, ids are used as array indices, so they should be small and dense.
+ * <p>
+ * Kept up to date incrementally, putting an id only touches the cell it left and the one it entered,
+ * so readers like the minimap walk the occupied cells rather than every id. {@link #version()} changes
+ * whenever a count does, so readers can tell when what they built from the grid is stale.
+ */
+public class DensityGrid {
+
+    private static final long NONE = Long.MIN_VALUE;
+
+    private final float cellSize;
+    private final LongIntMap counts = new LongIntMap();
+
+    // NOTE: the cell each id was counted in, NONE if the id isn't in the grid
+    private long[] cellById = new long[0];
+
+    private int size;
+    private int maxCount;
+    private int version;
+
+    // NOTE: inclusive range of occupied cells, recomputed lazily after a cell is emptied
+    private int minCellX, minCellY, maxCellX, maxCellY;
+    private boolean boundsDirty;
+
+    public DensityGrid(float cellSize) {
+        this.cellSize = cellSize;
+        clear();
+    }
+
+    public float cellSize() {
+        return cellSize;
+    }
+
+    /**
+     * @return the number of ids in the grid
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the number of occupied cells
+     */
+    public int cellCount() {
+        return counts.size();
+    }
+
+    public int version() {
+        return version;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < cellById.length && cellById[id] != NONE;
+    }
+
+    /**
+     * Count the id in the cell containing the point, moving it out of its previous cell if it's already in the grid.
+     * Moving within the same cell is a no-op.
+     */
+    public void put(int id, float x, float y) {
+        ensureCapacity(id + 1);
+
+        int cx = cell(x);
+        int cy = cell(y);
+        long key = key(cx, cy);
+        long previous = cellById[id];
+        if (previous == key) return;
+
+        if (previous != NONE) {
+            decrement(previous);
+        } else {
+            size++;
+        }
+        cellById[id] = key;
+
+        int count = counts.getAndIncrement(key, 0, 1) + 1;
+        maxCount = Math.max(maxCount, count);
+        if (!boundsDirty) {
+            if (counts.size() == 1) {
+                minCellX = maxCellX = cx;
+                minCellY = maxCellY = cy;
+            } else {
+                minCellX = Math.min(minCellX, cx);
+                minCellY = Math.min(minCellY, cy);
+                maxCellX = Math.max(maxCellX, cx);
+                maxCellY = Math.max(maxCellY, cy);
+            }
+        }
+        version++;
+    }
+
+    public boolean remove(int id) {
+        if (!contains(id)) return false;
+
+        decrement(cellById[id]);
+        cellById[id] = NONE;
+        size--;
+        version++;
+        return true;
+    }
+
+    public void clear() {
+        counts.clear();
+        Arrays.fill(cellById, NONE);
+        size = 0;
+        maxCount = 0;
+        minCellX = minCellY = 0;
+        maxCellX = maxCellY = -1;
+        boundsDirty = false;
+        version++;
+    }
+
+    /**
+     * @return the count of the cell at the specified cell coordinates
+     */
+    public int count(int cellX, int cellY) {
+        return counts.getOrDefault(key(cellX, cellY), 0);
+    }
+
+    /**
+     * @return an upper bound of the largest cell count, exact until cells are emptied or ids move out of them
+     */
+    public int maxCount() {
+        updateBounds();
+        return maxCount;
+    }
+
+    /**
+     * Occupied cells with their counts, cell coordinates are packed in the key,
+     * see {@link #cellX(long)} and {@link #cellY(long)}. The iterator is reused, so it shouldn't be nested.
+     */
+    public LongIntMap.EntryIterator cells() {
+        return counts.iterator();
+    }
+
+    public boolean isEmpty() {
+        return counts.isEmpty();
+    }
+
+    // NOTE: bounds are in cell coordinates, inclusive, and min > max when the grid is empty
+
+    public int minCellX() {
+        updateBounds();
+        return minCellX;
+    }
+
+    public int minCellY() {
+        updateBounds();
+        return minCellY;
+    }
+
+    public int maxCellX() {
+        updateBounds();
+        return maxCellX;
+    }
+
+    public int maxCellY() {
+        updateBounds();
+        return maxCellY;
+    }
+
+    public int cell(float coord) {
+        return (int) Math.floor(coord / cellSize);
+    }
+
+    public static int cellX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int cellY(long key) {
+        return (int) key;
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xffffffffL);
+    }
+
+    private void decrement(long key) {
+        int count = counts.getOrDefault(key, 0) - 1;
+        if (count > 0) {
+            counts.put(key, count);
+            return;
+        }
+        counts.remove(key);
+
+        // an emptied cell on the edge of the occupied range can shrink it
+        int cx = cellX(key);
+        int cy = cellY(key);
+        if (cx == minCellX || cx == maxCellX || cy == minCellY || cy == maxCellY) {
+            boundsDirty = true;
+        }
+    }
+
+    /**
+     * Recompute the bounds and largest count from the occupied cells, after cells on the edge were emptied.
+     */
+    private void updateBounds() {
+        if (!boundsDirty) return;
+        boundsDirty = false;
+
+        minCellX = minCellY = Integer.MAX_VALUE;
+        maxCellX = maxCellY = Integer.MIN_VALUE;
+        maxCount = 0;
+        for (var entry : counts) {
+            int cx = cellX(entry.key);
+            int cy = cellY(entry.key);
+            minCellX = Math.min(minCellX, cx);
+            minCellY = Math.min(minCellY, cy);
+            maxCellX = Math.max(maxCellX, cx);
+            maxCellY = Math.max(maxCellY, cy);
+            maxCount = Math.max(maxCount, entry.value);
+        }
+        if (counts.isEmpty()) {
+            minCellX = minCellY = 0;
+            maxCellX = maxCellY = -1;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= cellById.length) return;
+
+        int oldLength = cellById.length;
+        int newLength = Math.max(capacity, Math.max(16, oldLength * 2));
+        cellById = Arrays.copyOf(cellById, newLength);
+        Arrays.fill(cellById, oldLength, newLength, NONE);
+    }
+}
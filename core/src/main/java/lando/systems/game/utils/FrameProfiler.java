@@ -0,0 +1,304 @@
+package lando.systems.game.utils;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Low overhead per-phase frame timer.
+ * <p>
+ * Phases are timed with {@link #begin(Phase)} and {@link #end(Phase)} between {@link #beginFrame()} and
+ * {@link #endFrame()}, a phase entered more than once in a frame accumulates. At the end of each frame every
+ * phase's total, and the bytes allocated by the calling thread during the frame, are added to rolling windows
+ * of the most recent frames. Each window keeps a histogram with exponentially growing buckets alongside its
+ * samples, so percentiles are read without sorting. Recording doesn't allocate.
+ * <p>
+ * Events that shouldn't happen every frame, like layout passes, are counted with {@link #count(Counter)}
+ * and each frame's counts go to rolling windows the same way.
+ * <p>
+ * Not thread safe, frames should be profiled from the thread that runs them.
+ */
+public class FrameProfiler {
+
+    public static class Defaults {
+        /** frames kept in each rolling window */
+        public static final int WINDOW = 240;
+        public static final int BUCKETS = 96;
+        /** each bucket's upper bound is this much larger than the previous one's */
+        public static final double BUCKET_GROWTH = 1.15;
+        public static final long FIRST_TIME_BUCKET_NANOS = 1_000;
+        public static final long FIRST_ALLOC_BUCKET_BYTES = 16;
+    }
+
+    public enum Phase {
+        FRAME,
+        UPDATE,
+        STAGE_ACT,
+        RENDER,
+        BOARD_GRID,
+        BOARD_NODES,
+        BOARD_CONNECTIONS,
+        BOARD_OVERLAY,
+        STAGE_DRAW;
+
+        static final Phase[] values = values();
+    }
+
+    public enum Counter {
+        /** window resizes applied, at most one per frame */
+        RESIZE,
+        /** layout passes of the ui tables around the board */
+        UI_LAYOUT,
+        /** layout passes of node views */
+        NODE_LAYOUT;
+
+        static final Counter[] values = values();
+    }
+
+    /**
+     * Rolling window of samples with a histogram over the same samples.
+     */
+    public static final class Series {
+        private final long[] samples = new long[Defaults.WINDOW];
+        private final int[] counts = new int[Defaults.BUCKETS];
+        private final long[] bounds = new long[Defaults.BUCKETS];
+        private int size;
+        private int next;
+        private long sum;
+        private long last;
+
+        Series(long firstBound) {
+            double bound = firstBound;
+            for (int i = 0; i < bounds.length; i++) {
+                bounds[i] = (long) bound;
+                bound *= Defaults.BUCKET_GROWTH;
+            }
+        }
+
+        void add(long value) {
+            if (size == samples.length) {
+                long evicted = samples[next];
+                counts[bucket(evicted)]--;
+                sum -= evicted;
+            } else {
+                size++;
+            }
+            samples[next] = value;
+            counts[bucket(value)]++;
+            sum += value;
+            last = value;
+            next = (next + 1) % samples.length;
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            size = next = 0;
+            sum = last = 0;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public long last() {
+            return last;
+        }
+
+        public long mean() {
+            return (size == 0) ? 0 : sum / size;
+        }
+
+        public long max() {
+            long max = 0;
+            for (int i = 0; i < size; i++) {
+                max = Math.max(max, samples[i]);
+            }
+            return max;
+        }
+
+        /**
+         * @return the upper bound of the histogram bucket holding the specified percentile,
+         *         clamped to the largest sample in the window
+         */
+        public long percentile(double percent) {
+            if (size == 0) return 0;
+
+            int rank = Math.max(1, (int) Math.ceil(percent / 100.0 * size));
+            int seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bounds[i], max());
+                }
+            }
+            return max();
+        }
+
+        private int bucket(long value) {
+            int i = Arrays.binarySearch(bounds, value);
+            if (i < 0) i = -i - 1;
+            return Math.min(i, bounds.length - 1);
+        }
+    }
+
+    private final Series[] phases = new Series[Phase.values.length];
+    private final Series allocation = new Series(Defaults.FIRST_ALLOC_BUCKET_BYTES);
+    private final long[] starts = new long[Phase.values.length];
+    private final long[] totals = new long[Phase.values.length];
+    private final Series[] counters = new Series[Counter.values.length];
+    private final long[] counts = new long[Counter.values.length];
+    private final com.sun.management.ThreadMXBean threads;
+
+    private boolean enabled = true;
+    private long frame;
+    private long frameStartBytes;
+
+    public FrameProfiler() {
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Series(Defaults.FIRST_TIME_BUCKET_NANOS);
+        }
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new Series(1);
+        }
+        threads = allocationCounter();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @return true if bytes allocated per frame are available on this platform
+     */
+    public boolean isAllocationSupported() {
+        return threads != null;
+    }
+
+    public long getFrameCount() {
+        return frame;
+    }
+
+    public Series get(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    /**
+     * Events counted per frame.
+     */
+    public Series get(Counter counter) {
+        return counters[counter.ordinal()];
+    }
+
+    /**
+     * Bytes allocated by the profiled thread per frame, empty if unsupported.
+     */
+    public Series allocation() {
+        return allocation;
+    }
+
+    public void clear() {
+        for (var series : phases) {
+            series.clear();
+        }
+        for (var series : counters) {
+            series.clear();
+        }
+        Arrays.fill(counts, 0);
+        allocation.clear();
+        frame = 0;
+    }
+
+    public void beginFrame() {
+        if (!enabled) return;
+        Arrays.fill(totals, 0);
+        frameStartBytes = allocatedBytes();
+        starts[Phase.FRAME.ordinal()] = System.nanoTime();
+    }
+
+    public void endFrame() {
+        if (!enabled) return;
+        end(Phase.FRAME);
+
+        for (int i = 0; i < phases.length; i++) {
+            phases[i].add(totals[i]);
+        }
+        if (threads != null) {
+            allocation.add(allocatedBytes() - frameStartBytes);
+        }
+        // NOTE: counts since the previous frame ended, so events between frames, like resize callbacks, aren't lost
+        for (int i = 0; i < counters.length; i++) {
+            counters[i].add(counts[i]);
+            counts[i] = 0;
+        }
+        frame++;
+    }
+
+    public void begin(Phase phase) {
+        if (!enabled) return;
+        starts[phase.ordinal()] = System.nanoTime();
+    }
+
+    public void end(Phase phase) {
+        if (!enabled) return;
+        int i = phase.ordinal();
+        totals[i] += System.nanoTime() - starts[i];
+    }
+
+    /**
+     * Count an event against the current frame.
+     */
+    public void count(Counter counter) {
+        if (!enabled) return;
+        counts[counter.ordinal()]++;
+    }
+
+    /**
+     * Write the CSV column names, matching {@link #writeCsvRow(Appendable)}.
+     */
+    public void writeCsvHeader(Appendable out) throws IOException {
+        out.append("frame");
+        for (var phase : Phase.values) {
+            out.append(',').append(phase.name().toLowerCase()).append("_ns");
+        }
+        for (var counter : Counter.values) {
+            out.append(',').append(counter.name().toLowerCase()).append("s");
+        }
+        out.append(",alloc_bytes\n");
+    }
+
+    /**
+     * Write the most recently completed frame's phase times, counts and allocation as a CSV row,
+     * call after {@link #endFrame()} so formatting isn't counted against the frame.
+     */
+    public void writeCsvRow(Appendable out) throws IOException {
+        out.append(Long.toString(frame - 1));
+        for (var series : phases) {
+            out.append(',').append(Long.toString(series.last()));
+        }
+        for (var series : counters) {
+            out.append(',').append(Long.toString(series.last()));
+        }
+        out.append(',').append((threads != null) ? Long.toString(allocation.last()) : "").append('\n');
+    }
+
+    private long allocatedBytes() {
+        return (threads != null) ? threads.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationCounter() {
+        try {
+            var bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean threads && threads.isThreadAllocatedMemorySupported()) {
+                threads.setThreadAllocatedMemoryEnabled(true);
+                return threads;
+            }
+        } catch (LinkageError | UnsupportedOperationException | SecurityException e) {
+            // NOTE: not every platform has the management api, allocation just isn't reported there
+        }
+        return null;
+    }
+}
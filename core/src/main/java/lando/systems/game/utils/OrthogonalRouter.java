@@ -0,0 +1,381 @@
+package lando.systems.game.utils;
+
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+
+import java.util.Arrays;
+
+/**
+ * Finds orthogonal (horizontal and vertical segment only) routes between two points that avoid a set of
+ * rectangular obstacles. The search runs A* over a sparse grid built from the obstacle borders and the
+ * route's endpoints, with a penalty for each bend so routes prefer fewer, longer segments.
+ * <p>
+ * The search starts with the obstacles just around the endpoints' bounds and only widens the region when
+ * no route was found in it. Routes that can't be found, or that span too many obstacles to search,
+ * come back as null, callers keep drawing whatever simpler path they had, see {@code ConnectionRouter}.
+ * <p>
+ * Instances keep their working buffers between calls and aren't thread safe, use one per thread.
+ */
+public class OrthogonalRouter {
+
+    public static class Defaults {
+        /** distance a route travels straight out of (and into) a port before it's allowed to turn */
+        public static final float STUB_LENGTH = 20;
+        /** space kept between a route and the obstacles it avoids */
+        public static final float PADDING = 10;
+        /** how far outside the endpoints' bounds obstacles are considered at first, and detours are allowed */
+        public static final float MIN_SEARCH_MARGIN = 40;
+        /** the margin is doubled each time no route is found, up to this */
+        public static final float SEARCH_MARGIN = 320;
+        public static final float BEND_PENALTY = 40;
+        /** search regions with more obstacles than this are too expensive to search, and aren't routed */
+        public static final int MAX_OBSTACLES = 256;
+    }
+
+    private static final int DIR_POS_X = 0;
+    private static final int DIR_NEG_X = 1;
+    private static final int DIR_POS_Y = 2;
+    private static final int DIR_NEG_Y = 3;
+
+    private final SpatialGrid obstacleIndex;
+    private final IntArray candidates = new IntArray();
+    private final FloatArray local = new FloatArray();
+    private final FloatArray xs = new FloatArray();
+    private final FloatArray ys = new FloatArray();
+
+    // NOTE: grid edges that run through an obstacle, horizontal ones by (iy * (nx - 1) + ix),
+    //  vertical ones by (iy * nx + ix), for the edge from grid node (ix, iy) to the next one
+    private boolean[] blockedX = new boolean[0];
+    private boolean[] blockedY = new boolean[0];
+
+    private float[] obstacles = new float[0];
+
+    // NOTE: search state, indexed by (grid node * 4 + direction of arrival)
+    private float[] costs = new float[0];
+    private int[] cameFrom = new int[0];
+    private boolean[] closed = new boolean[0];
+    private int[] heapStates = new int[0];
+    private float[] heapKeys = new float[0];
+    private int heapSize;
+    private final IntArray path = new IntArray();
+
+    public OrthogonalRouter(float cellSize) {
+        this.obstacleIndex = new SpatialGrid(cellSize);
+    }
+
+    /**
+     * Set the obstacles that subsequent routes avoid, as x, y, width, height quads.
+     * The array is referenced rather than copied, so it shouldn't be modified while routing.
+     */
+    public void setObstacles(float[] obstacles, int count) {
+        this.obstacles = obstacles;
+        obstacleIndex.clear();
+        for (int i = 0; i < count; i++) {
+            obstacleIndex.put(i, obstacles[4 * i], obstacles[4 * i + 1], obstacles[4 * i + 2], obstacles[4 * i + 3]);
+        }
+    }
+
+    /**
+     * Route from the start point, leaving in direction (startDx, startDy), to the end point,
+     * arriving from direction (endDx, endDy) as seen from the end point (ie. the end port's outward direction).
+     *
+     * @return the route as x,y pairs including both endpoints, or null if no route was found
+     */
+    public float[] route(float startX, float startY, int startDx, int startDy,
+                         float endX, float endY, int endDx, int endDy) {
+        float stub = Defaults.STUB_LENGTH;
+        float sx = startX + startDx * stub;
+        float sy = startY + startDy * stub;
+        float ex = endX + endDx * stub;
+        float ey = endY + endDy * stub;
+
+        for (float margin = Defaults.MIN_SEARCH_MARGIN; ; margin = Math.min(2 * margin, Defaults.SEARCH_MARGIN)) {
+            // search region around the stub points
+            float minX = Math.min(sx, ex) - margin;
+            float minY = Math.min(sy, ey) - margin;
+            float maxX = Math.max(sx, ex) + margin;
+            float maxY = Math.max(sy, ey) + margin;
+
+            collectObstacles(minX, minY, maxX, maxY, sx, sy, ex, ey);
+            // NOTE: a wider region only has more obstacles, so there's no point widening it
+            if (local.size / 4 > Defaults.MAX_OBSTACLES) {
+                return null;
+            }
+            var route = route(minX, minY, maxX, maxY, startX, startY, startDx, startDy, endX, endY, endDx, endDy);
+            if (route != null || margin >= Defaults.SEARCH_MARGIN) {
+                return route;
+            }
+        }
+    }
+
+    private float[] route(float minX, float minY, float maxX, float maxY,
+                          float startX, float startY, int startDx, int startDy,
+                          float endX, float endY, int endDx, int endDy) {
+        float stub = Defaults.STUB_LENGTH;
+        float sx = startX + startDx * stub;
+        float sy = startY + startDy * stub;
+        float ex = endX + endDx * stub;
+        float ey = endY + endDy * stub;
+        buildAxes(minX, minY, maxX, maxY, sx, sy, ex, ey);
+        markBlocked();
+
+        int nx = xs.size;
+        int ny = ys.size;
+        int start = nodeIndex(xs.indexOf(sx), ys.indexOf(sy), nx);
+        int goal = nodeIndex(xs.indexOf(ex), ys.indexOf(ey), nx);
+        int startDir = direction(startDx, startDy);
+        // the final segment runs from the end stub back into the port, opposite the port's outward direction
+        int goalDir = direction(-endDx, -endDy);
+
+        int goalState = search(nx, ny, start, startDir, goal, goalDir, ex, ey);
+        if (goalState < 0) {
+            return null;
+        }
+
+        return buildRoute(goalState, nx, startX, startY, endX, endY);
+    }
+
+    private void collectObstacles(float minX, float minY, float maxX, float maxY,
+                                  float sx, float sy, float ex, float ey) {
+        float pad = Defaults.PADDING;
+
+        candidates.clear();
+        obstacleIndex.query(minX, minY, maxX - minX, maxY - minY, candidates);
+
+        local.clear();
+        for (int i = 0; i < candidates.size; i++) {
+            int o = 4 * candidates.get(i);
+            float x0 = obstacles[o] - pad;
+            float y0 = obstacles[o + 1] - pad;
+            float x1 = obstacles[o] + obstacles[o + 2] + pad;
+            float y1 = obstacles[o + 1] + obstacles[o + 3] + pad;
+
+            // NOTE: overlapping nodes can swallow a stub point, ignore those rather than failing the route
+            if (contains(x0, y0, x1, y1, sx, sy) || contains(x0, y0, x1, y1, ex, ey)) continue;
+
+            local.add(x0, y0, x1, y1);
+        }
+    }
+
+    private void buildAxes(float minX, float minY, float maxX, float maxY,
+                           float sx, float sy, float ex, float ey) {
+        xs.clear();
+        ys.clear();
+        xs.add(minX, maxX, sx, ex);
+        ys.add(minY, maxY, sy, ey);
+
+        float[] rects = local.items;
+        for (int i = 0; i < local.size; i += 4) {
+            xs.add(rects[i], rects[i + 2]);
+            ys.add(rects[i + 1], rects[i + 3]);
+        }
+
+        sortUnique(xs);
+        sortUnique(ys);
+    }
+
+    private int search(int nx, int ny, int start, int startDir, int goal, int goalDir, float goalX, float goalY) {
+        int states = nx * ny * 4;
+        ensureCapacity(states);
+        Arrays.fill(costs, 0, states, Float.POSITIVE_INFINITY);
+        Arrays.fill(closed, 0, states, false);
+        heapSize = 0;
+
+        int startState = start * 4 + startDir;
+        costs[startState] = 0;
+        cameFrom[startState] = -1;
+        push(startState, heuristic(start, nx, goalX, goalY));
+
+        while (heapSize > 0) {
+            int state = pop();
+            if (closed[state]) continue;
+            closed[state] = true;
+
+            int node = state >> 2;
+            int dir = state & 3;
+            if (node == goal) {
+                return state;
+            }
+
+            int ix = node % nx;
+            int iy = node / nx;
+            for (int next = 0; next < 4; next++) {
+                // never reverse direction, it would only retrace the previous segment
+                if (next == opposite(dir)) continue;
+
+                int jx = ix + ((next == DIR_POS_X) ? 1 : (next == DIR_NEG_X) ? -1 : 0);
+                int jy = iy + ((next == DIR_POS_Y) ? 1 : (next == DIR_NEG_Y) ? -1 : 0);
+                if (jx < 0 || jx >= nx || jy < 0 || jy >= ny) continue;
+                if (isBlocked(ix, iy, next, nx)) continue;
+
+                int neighbor = nodeIndex(jx, jy, nx);
+                int nextState = neighbor * 4 + next;
+                if (closed[nextState]) continue;
+
+                float cost = costs[state]
+                    + Math.abs(xs.get(jx) - xs.get(ix)) + Math.abs(ys.get(jy) - ys.get(iy))
+                    + ((next != dir) ? Defaults.BEND_PENALTY : 0)
+                    + ((neighbor == goal && next != goalDir) ? Defaults.BEND_PENALTY : 0);
+                if (cost < costs[nextState]) {
+                    costs[nextState] = cost;
+                    cameFrom[nextState] = state;
+                    push(nextState, cost + heuristic(neighbor, nx, goalX, goalY));
+                }
+            }
+        }
+        return -1;
+    }
+
+    private float[] buildRoute(int goalState, int nx, float startX, float startY, float endX, float endY) {
+        path.clear();
+        for (int state = goalState; state != -1; state = cameFrom[state]) {
+            path.add(state >> 2);
+        }
+
+        var points = new FloatArray(true, (path.size + 2) * 2);
+        addPoint(points, startX, startY);
+        for (int i = path.size - 1; i >= 0; i--) {
+            int node = path.get(i);
+            addPoint(points, xs.get(node % nx), ys.get(node / nx));
+        }
+        addPoint(points, endX, endY);
+        return points.toArray();
+    }
+
+    /**
+     * Append a point, merging it into the previous segment if the three points are collinear.
+     */
+    private static void addPoint(FloatArray points, float x, float y) {
+        int n = points.size;
+        if (n >= 2 && points.get(n - 2) == x && points.get(n - 1) == y) return;
+        if (n >= 4) {
+            float ax = points.get(n - 4), ay = points.get(n - 3);
+            float bx = points.get(n - 2), by = points.get(n - 1);
+            if ((ax == bx && bx == x) || (ay == by && by == y)) {
+                points.set(n - 2, x);
+                points.set(n - 1, y);
+                return;
+            }
+        }
+        points.add(x, y);
+    }
+
+    /**
+     * Mark the grid edges that run through an obstacle, so the search tests an edge in constant time.
+     */
+    private void markBlocked() {
+        int nx = xs.size;
+        int ny = ys.size;
+        int edgesX = (nx - 1) * ny;
+        int edgesY = nx * (ny - 1);
+        if (blockedX.length < edgesX) blockedX = new boolean[Math.max(edgesX, 2 * blockedX.length)];
+        if (blockedY.length < edgesY) blockedY = new boolean[Math.max(edgesY, 2 * blockedY.length)];
+        Arrays.fill(blockedX, 0, edgesX, false);
+        Arrays.fill(blockedY, 0, edgesY, false);
+
+        // NOTE: the grid lines include every obstacle border, so an edge between adjacent grid nodes is
+        //  either entirely inside an obstacle or not at all, edges along its border aren't blocked by it
+        float[] rects = local.items;
+        for (int i = 0; i < local.size; i += 4) {
+            int ix0 = Arrays.binarySearch(xs.items, 0, nx, rects[i]);
+            int iy0 = Arrays.binarySearch(ys.items, 0, ny, rects[i + 1]);
+            int ix1 = Arrays.binarySearch(xs.items, 0, nx, rects[i + 2]);
+            int iy1 = Arrays.binarySearch(ys.items, 0, ny, rects[i + 3]);
+            for (int iy = iy0; iy <= iy1; iy++) {
+                for (int ix = ix0; ix <= ix1; ix++) {
+                    if (ix < ix1 && iy > iy0 && iy < iy1) blockedX[iy * (nx - 1) + ix] = true;
+                    if (iy < iy1 && ix > ix0 && ix < ix1) blockedY[iy * nx + ix] = true;
+                }
+            }
+        }
+    }
+
+    private boolean isBlocked(int ix, int iy, int dir, int nx) {
+        return switch (dir) {
+            case DIR_POS_X -> blockedX[iy * (nx - 1) + ix];
+            case DIR_NEG_X -> blockedX[iy * (nx - 1) + ix - 1];
+            case DIR_POS_Y -> blockedY[iy * nx + ix];
+            default -> blockedY[(iy - 1) * nx + ix];
+        };
+    }
+
+    private float heuristic(int node, int nx, float goalX, float goalY) {
+        return Math.abs(xs.get(node % nx) - goalX) + Math.abs(ys.get(node / nx) - goalY);
+    }
+
+    private void push(int state, float key) {
+        if (heapSize == heapStates.length) {
+            int capacity = Math.max(64, heapSize * 2);
+            heapStates = Arrays.copyOf(heapStates, capacity);
+            heapKeys = Arrays.copyOf(heapKeys, capacity);
+        }
+
+        int i = heapSize++;
+        while (i > 0) {
+            int parent = (i - 1) >> 1;
+            if (heapKeys[parent] <= key) break;
+            heapStates[i] = heapStates[parent];
+            heapKeys[i] = heapKeys[parent];
+            i = parent;
+        }
+        heapStates[i] = state;
+        heapKeys[i] = key;
+    }
+
+    private int pop() {
+        int result = heapStates[0];
+        int lastState = heapStates[--heapSize];
+        float lastKey = heapKeys[heapSize];
+
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) break;
+            if (child + 1 < heapSize && heapKeys[child + 1] < heapKeys[child]) child++;
+            if (heapKeys[child] >= lastKey) break;
+            heapStates[i] = heapStates[child];
+            heapKeys[i] = heapKeys[child];
+            i = child;
+        }
+        heapStates[i] = lastState;
+        heapKeys[i] = lastKey;
+        return result;
+    }
+
+    private void ensureCapacity(int states) {
+        if (states <= costs.length) return;
+        costs = new float[states];
+        cameFrom = new int[states];
+        closed = new boolean[states];
+    }
+
+    private static void sortUnique(FloatArray values) {
+        values.sort();
+        int n = 0;
+        for (int i = 0; i < values.size; i++) {
+            if (n == 0 || values.items[n - 1] != values.items[i]) {
+                values.items[n++] = values.items[i];
+            }
+        }
+        values.size = n;
+    }
+
+    private static boolean contains(float x0, float y0, float x1, float y1, float x, float y) {
+        return x > x0 && x < x1 && y > y0 && y < y1;
+    }
+
+    private static int nodeIndex(int ix, int iy, int nx) {
+        return iy * nx + ix;
+    }
+
+    private static int direction(int dx, int dy) {
+        if (dx > 0) return DIR_POS_X;
+        if (dx < 0) return DIR_NEG_X;
+        if (dy > 0) return DIR_POS_Y;
+        return DIR_NEG_Y;
+    }
+
+    private static int opposite(int dir) {
+        return dir ^ 1;
+    }
+}
@@ -0,0 +1,210 @@
+package lando.systems.game.utils;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid that buckets integer ids by the world space cells their bounds overlap.
+ * Ids are used as array indices, so they should be small and dense (eg. a node's index on the board).
+ * Queries are allocation free once the grid has warmed up.
+ */
+public class SpatialGrid {
+
+    private final float cellSize;
+    private final LongMap<IntArray> cells = new LongMap<>();
+    private final Array<IntArray> freeCells = new Array<>();
+
+    // NOTE: inclusive cell range covered by each id, minX > maxX means the id isn't in the grid
+    private int[] minCellX = new int[0];
+    private int[] minCellY = new int[0];
+    private int[] maxCellX = new int[0];
+    private int[] maxCellY = new int[0];
+
+    // NOTE: per-id query stamps, used to report an id only once when it spans several cells
+    private int[] stamps = new int[0];
+    private int stamp;
+    private int size;
+
+    public SpatialGrid(float cellSize) {
+        this.cellSize = cellSize;
+    }
+
+    public float cellSize() {
+        return cellSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int id) {
+        return id >= 0 && id < minCellX.length && minCellX[id] <= maxCellX[id];
+    }
+
+    /**
+     * Insert the id with the specified bounds, or update its bounds if it's already in the grid.
+     * Moving within the same set of cells is a no-op.
+     */
+    public void put(int id, float x, float y, float width, float height) {
+        ensureCapacity(id + 1);
+
+        int x0 = cell(x);
+        int y0 = cell(y);
+        int x1 = cell(x + width);
+        int y1 = cell(y + height);
+
+        if (contains(id)) {
+            if (minCellX[id] == x0 && minCellY[id] == y0
+             && maxCellX[id] == x1 && maxCellY[id] == y1) {
+                return;
+            }
+            removeFromCells(id);
+        } else {
+            size++;
+        }
+
+        minCellX[id] = x0;
+        minCellY[id] = y0;
+        maxCellX[id] = x1;
+        maxCellY[id] = y1;
+
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                var key = key(cx, cy);
+                var cell = cells.get(key);
+                if (cell == null) {
+                    cell = freeCells.isEmpty() ? new IntArray() : freeCells.pop();
+                    cells.put(key, cell);
+                }
+                cell.add(id);
+            }
+        }
+    }
+
+    public boolean remove(int id) {
+        if (!contains(id)) return false;
+
+        removeFromCells(id);
+        minCellX[id] = 0;
+        maxCellX[id] = -1;
+        size--;
+        return true;
+    }
+
+    public void clear() {
+        for (var cell : cells.values()) {
+            cell.clear();
+            freeCells.add(cell);
+        }
+        cells.clear();
+        Arrays.fill(minCellX, 0);
+        Arrays.fill(maxCellX, -1);
+        size = 0;
+    }
+
+    /**
+     * Append every id whose cells overlap the specified rectangle to {@code out}, each id at most once.
+     * Results are candidates only, callers should test exact bounds if they need them.
+     */
+    public IntArray query(float x, float y, float width, float height, IntArray out) {
+        nextStamp();
+
+        int x0 = cell(x);
+        int y0 = cell(y);
+        int x1 = cell(x + width);
+        int y1 = cell(y + height);
+
+        // when the query covers more cells than are occupied, walking the occupied cells is cheaper
+        long area = (long) (x1 - x0 + 1) * (y1 - y0 + 1);
+        if (area > cells.size) {
+            for (var entry : cells.entries()) {
+                int cx = (int) (entry.key >> 32);
+                int cy = (int) entry.key;
+                if (cx >= x0 && cx <= x1 && cy >= y0 && cy <= y1) {
+                    collect(entry.value, out);
+                }
+            }
+            return out;
+        }
+
+        for (int cy = y0; cy <= y1; cy++) {
+            for (int cx = x0; cx <= x1; cx++) {
+                var cell = cells.get(key(cx, cy));
+                if (cell != null) {
+                    collect(cell, out);
+                }
+            }
+        }
+        return out;
+    }
+
+    /**
+     * Append every id sharing the cell that contains the specified point to {@code out}.
+     */
+    public IntArray query(float x, float y, IntArray out) {
+        var cell = cells.get(key(cell(x), cell(y)));
+        if (cell != null) {
+            out.addAll(cell);
+        }
+        return out;
+    }
+
+    private void collect(IntArray cell, IntArray out) {
+        int[] ids = cell.items;
+        for (int i = 0, n = cell.size; i < n; i++) {
+            int id = ids[i];
+            if (stamps[id] != stamp) {
+                stamps[id] = stamp;
+                out.add(id);
+            }
+        }
+    }
+
+    private void removeFromCells(int id) {
+        for (int cy = minCellY[id]; cy <= maxCellY[id]; cy++) {
+            for (int cx = minCellX[id]; cx <= maxCellX[id]; cx++) {
+                var key = key(cx, cy);
+                var cell = cells.get(key);
+                if (cell == null) continue;
+
+                cell.removeValue(id);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                    freeCells.add(cell);
+                }
+            }
+        }
+    }
+
+    private void nextStamp() {
+        stamp++;
+        if (stamp == Integer.MAX_VALUE) {
+            Arrays.fill(stamps, 0);
+            stamp = 1;
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= minCellX.length) return;
+
+        int oldLength = minCellX.length;
+        int newLength = Math.max(capacity, Math.max(16, oldLength * 2));
+        minCellX = Arrays.copyOf(minCellX, newLength);
+        minCellY = Arrays.copyOf(minCellY, newLength);
+        maxCellX = Arrays.copyOf(maxCellX, newLength);
+        maxCellY = Arrays.copyOf(maxCellY, newLength);
+        stamps = Arrays.copyOf(stamps, newLength);
+        Arrays.fill(maxCellX, oldLength, newLength, -1);
+    }
+
+    private int cell(float value) {
+        return (int) Math.floor(value / cellSize);
+    }
+
+    private static long key(int cx, int cy) {
+        return ((long) cx << 32) | (cy & 0xFFFFFFFFL);
+    }
+}
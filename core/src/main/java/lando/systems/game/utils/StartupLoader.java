@@ -0,0 +1,331 @@
+package lando.systems.game.utils;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.JsonReader;
+import com.badlogic.gdx.utils.JsonValue;
+import com.badlogic.gdx.utils.ObjectMap;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads the skin, its atlas and other startup textures across frames instead of blocking the first one.
+ * <p>
+ * Everything that doesn't need the GL context runs in parallel on worker threads: parsing the atlas,
+ * decoding its pages and the other textures, parsing the skin's JSON and its bitmap fonts. {@link #update()}
+ * runs on the render thread once per frame, uploading at most {@link Defaults#UPLOADS_PER_FRAME} decoded
+ * textures, and once everything is in, resolves the skin's styles against the atlas, see {@link #skin()}.
+ * Each step is recorded with the {@link StartupTimer}.
+ * <p>
+ * NOTE: the skin's JSON isn't cached in any baked form. Parsing the text is a small part of loading it, most
+ *  of the time goes to resolving its styles, which needs the atlas and happens on the render thread either way.
+ */
+public class StartupLoader implements Disposable {
+
+    public static class Defaults {
+        public static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+        /** textures uploaded per frame, each upload is a whole texture */
+        public static final int UPLOADS_PER_FRAME = 1;
+    }
+
+    // NOTE: the skin's JSON can name a type by its class or by its tag
+    private static final String[] FONT_SECTIONS = {"com.badlogic.gdx.graphics.g2d.BitmapFont", "BitmapFont"};
+
+    /**
+     * A texture decoded on a worker, waiting for its turn to be uploaded.
+     */
+    private static final class Upload {
+        final String name;
+        final CompletableFuture<Pixmap> pixmap;
+        final Pixmap.Format format;
+        final boolean useMipMaps;
+        final TextureAtlas.TextureAtlasData.Page page;
+        Texture texture;
+
+        Upload(String name, CompletableFuture<Pixmap> pixmap, Pixmap.Format format, boolean useMipMaps,
+               TextureAtlas.TextureAtlasData.Page page) {
+            this.name = name;
+            this.pixmap = pixmap;
+            this.format = format;
+            this.useMipMaps = useMipMaps;
+            this.page = page;
+        }
+    }
+
+    private record AtlasData(TextureAtlas.TextureAtlasData data, List<CompletableFuture<Pixmap>> pages) {}
+
+    private record FontData(String name, JsonValue params, FileHandle file, BitmapFont.BitmapFontData data) {}
+
+    /**
+     * The skin's styles, with the fonts taken out and parsed ahead of the rest.
+     */
+    private record SkinData(JsonValue styles, List<FontData> fonts) {}
+
+    /**
+     * Reads styles from an already parsed tree, {@link Skin} only reads them from files.
+     */
+    private static class ParsedSkin extends Skin {
+        ParsedSkin(TextureAtlas atlas) {
+            super(atlas);
+        }
+
+        void load(FileHandle skinFile, JsonValue styles) {
+            getJsonLoader(skinFile).readValue(Skin.class, styles);
+        }
+    }
+
+    private final StartupTimer timer;
+    private final FileHandle skinFile;
+    private final ExecutorService executor;
+    private final CompletableFuture<AtlasData> atlasData;
+    private final CompletableFuture<SkinData> skinData;
+    private final Array<Upload> uploads = new Array<>();
+    private final ObjectMap<String, Texture> textures = new ObjectMap<>();
+    private boolean pagesQueued = false;
+    private TextureAtlas atlas;
+    private Skin skin;
+
+    /**
+     * Start loading on worker threads.
+     *
+     * @param atlasFile the skin's atlas
+     * @param skinFile the skin's JSON
+     * @param textureFiles other textures, see {@link #texture(String)}
+     */
+    public StartupLoader(StartupTimer timer, FileHandle atlasFile, FileHandle skinFile, FileHandle... textureFiles) {
+        this.timer = timer;
+        this.skinFile = skinFile;
+        var threadCount = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(Defaults.THREADS, runnable -> {
+            var thread = new Thread(runnable, "startup-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.atlasData = CompletableFuture.supplyAsync(() -> loadAtlas(atlasFile), executor);
+        this.skinData = CompletableFuture.supplyAsync(this::loadSkin, executor);
+        for (var file : textureFiles) {
+            var pixmap = CompletableFuture.supplyAsync(() -> decode(file), executor);
+            uploads.add(new Upload(file.path(), pixmap, null, false, null));
+        }
+    }
+
+    /**
+     * Upload textures that have been decoded, and finish up once everything is in.
+     * Must be called from the render thread.
+     *
+     * @return true once loading is complete
+     */
+    public boolean update() {
+        return advance(false);
+    }
+
+    /**
+     * Wait for the workers and upload everything now, for when there aren't frames to spread the work over.
+     * Must be called from the render thread.
+     */
+    public void finish() {
+        advance(true);
+    }
+
+    public boolean isDone() {
+        return skin != null;
+    }
+
+    /**
+     * @return the skin's atlas, owned by the caller once loading is complete
+     */
+    public TextureAtlas atlas() {
+        return atlas;
+    }
+
+    /**
+     * @return the skin with its styles resolved, owned by the caller once loading is complete
+     */
+    public Skin skin() {
+        return skin;
+    }
+
+    /**
+     * @return one of the other textures by its path, owned by the caller once loading is complete
+     */
+    public Texture texture(String path) {
+        return textures.get(path);
+    }
+
+    /**
+     * Stop the workers. If loading didn't complete, also release what was loaded so far.
+     */
+    @Override
+    public void dispose() {
+        executor.shutdownNow();
+        if (isDone()) return;
+
+        for (var upload : uploads) {
+            if (upload.texture != null) {
+                upload.texture.dispose();
+            } else {
+                upload.pixmap.thenAccept(Pixmap::dispose);
+            }
+        }
+        if (!pagesQueued) {
+            atlasData.thenAccept(loaded -> loaded.pages.forEach(page -> page.thenAccept(Pixmap::dispose)));
+        }
+    }
+
+    private boolean advance(boolean wait) {
+        if (isDone()) return true;
+
+        if (!pagesQueued && (wait || atlasData.isDone())) {
+            var loaded = result(atlasData);
+            var pages = loaded.data.getPages();
+            for (int i = 0; i < pages.size; i++) {
+                var page = pages.get(i);
+                uploads.add(new Upload(page.textureFile.path(), loaded.pages.get(i), page.format, page.useMipMaps, page));
+            }
+            pagesQueued = true;
+        }
+
+        int uploaded = 0;
+        boolean uploading = !pagesQueued;
+        for (var upload : uploads) {
+            if (upload.texture != null) continue;
+            if (wait || (uploaded < Defaults.UPLOADS_PER_FRAME && upload.pixmap.isDone())) {
+                upload(upload);
+                uploaded++;
+            } else {
+                uploading = true;
+            }
+        }
+        if (uploading || !(wait || skinData.isDone())) return false;
+
+        build();
+        return true;
+    }
+
+    private void upload(Upload upload) {
+        var pixmap = result(upload.pixmap);
+        long start = timer.start();
+        var format = (upload.format != null) ? upload.format : pixmap.getFormat();
+        upload.texture = new Texture(pixmap, format, upload.useMipMaps);
+        pixmap.dispose();
+        if (upload.page != null) {
+            upload.page.texture = upload.texture;
+        } else {
+            textures.put(upload.name, upload.texture);
+        }
+        timer.record("upload " + upload.name, start);
+    }
+
+    private void build() {
+        long start = timer.start();
+        // NOTE: the pages already have their textures, the atlas only sets their filters and creates regions
+        var atlas = new TextureAtlas(result(atlasData).data);
+        timer.record("atlas regions", start);
+
+        start = timer.start();
+        var loaded = result(skinData);
+        var skin = new ParsedSkin(atlas);
+        for (var font : loaded.fonts) {
+            skin.add(font.name, createFont(skin, font), BitmapFont.class);
+        }
+        skin.load(skinFile, loaded.styles);
+        timer.record("skin styles", start);
+
+        this.atlas = atlas;
+        this.skin = skin;
+        executor.shutdown();
+    }
+
+    /**
+     * Create the font the way {@link Skin} would from its entry in the JSON, with its data already parsed.
+     */
+    private static BitmapFont createFont(Skin skin, FontData font) {
+        var regionName = font.file.nameWithoutExtension();
+        var regions = skin.getRegions(regionName);
+        BitmapFont bitmapFont;
+        if (regions != null) {
+            bitmapFont = new BitmapFont(font.data, regions, true);
+        } else {
+            bitmapFont = new BitmapFont(font.data, skin.optional(regionName, TextureRegion.class), true);
+        }
+        bitmapFont.getData().markupEnabled = font.params.getBoolean("markupEnabled", false);
+        bitmapFont.setUseIntegerPositions(font.params.getBoolean("useIntegerPositions", true));
+        float scaledSize = font.params.getFloat("scaledSize", -1);
+        if (scaledSize != -1) {
+            bitmapFont.getData().setScale(scaledSize / bitmapFont.getCapHeight());
+        }
+        return bitmapFont;
+    }
+
+    // ------------------------------------------------------------------------
+    // Worker tasks
+    // ------------------------------------------------------------------------
+
+    private AtlasData loadAtlas(FileHandle atlasFile) {
+        long start = timer.start();
+        var data = new TextureAtlas.TextureAtlasData(atlasFile, atlasFile.parent(), false);
+        var pages = new ArrayList<CompletableFuture<Pixmap>>();
+        for (var page : data.getPages()) {
+            pages.add(CompletableFuture.supplyAsync(() -> decode(page.textureFile), executor));
+        }
+        timer.record("parse " + atlasFile.name(), start);
+        return new AtlasData(data, pages);
+    }
+
+    private Pixmap decode(FileHandle file) {
+        long start = timer.start();
+        var pixmap = new Pixmap(file);
+        timer.record("decode " + file.name(), start);
+        return pixmap;
+    }
+
+    private SkinData loadSkin() {
+        long start = timer.start();
+        var styles = new JsonReader().parse(skinFile);
+        timer.record("parse " + skinFile.name(), start);
+
+        start = timer.start();
+        var fonts = new ArrayList<FontData>();
+        for (var section : FONT_SECTIONS) {
+            var entries = styles.get(section);
+            if (entries == null) continue;
+            styles.remove(section);
+            for (var entry = entries.child; entry != null; entry = entry.next) {
+                var path = entry.getString("file");
+                var file = skinFile.parent().child(path);
+                if (!file.exists()) {
+                    file = Gdx.files.internal(path);
+                }
+                var data = new BitmapFont.BitmapFontData(file, entry.getBoolean("flip", false));
+                fonts.add(new FontData(entry.name, entry, file, data));
+            }
+        }
+        timer.record("parse fonts", start);
+        return new SkinData(styles, fonts);
+    }
+
+    private static <T> T result(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new GdxRuntimeException("startup loading failed", e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,82 @@
+package lando.systems.game.utils;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records how long each step of startup takes, and on which thread, up to the first frame.
+ * <p>
+ * Steps run in parallel on worker threads as well as on the render thread, so each is recorded with
+ * its start relative to the timer's creation along with its duration, see {@link #record(String, long)}.
+ * {@link #report()} lays them out in start order, with the time since the JVM started for reference.
+ * Thread safe.
+ */
+public class StartupTimer {
+
+    public static class Defaults {
+        /** time from creation to the first frame that's reported as over budget */
+        public static final long FIRST_FRAME_BUDGET_MILLIS = 1000;
+    }
+
+    private record Step(String name, String thread, long startNanos, long nanos) {}
+
+    private final long createdNanos = System.nanoTime();
+    private final long jvmUptimeMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+    private final List<Step> steps = new ArrayList<>();
+    private long finishedNanos = -1;
+
+    /**
+     * @return a start time for {@link #record(String, long)}
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Record a step that ran on the calling thread from the specified start time until now.
+     */
+    public synchronized void record(String name, long startNanos) {
+        long now = System.nanoTime();
+        steps.add(new Step(name, Thread.currentThread().getName(), startNanos - createdNanos, now - startNanos));
+    }
+
+    /**
+     * Mark startup as finished, the first frame has been drawn.
+     */
+    public synchronized void finish() {
+        if (finishedNanos < 0) {
+            finishedNanos = System.nanoTime() - createdNanos;
+        }
+    }
+
+    /**
+     * @return milliseconds from creation to {@link #finish()}, or to now if it hasn't finished
+     */
+    public synchronized long elapsedMillis() {
+        long nanos = (finishedNanos >= 0) ? finishedNanos : System.nanoTime() - createdNanos;
+        return nanos / 1_000_000;
+    }
+
+    public boolean isOverBudget() {
+        return elapsedMillis() > Defaults.FIRST_FRAME_BUDGET_MILLIS;
+    }
+
+    /**
+     * @return one line per step, in the order they started
+     */
+    public synchronized String report() {
+        var sorted = new ArrayList<>(steps);
+        sorted.sort((a, b) -> Long.compare(a.startNanos, b.startNanos));
+
+        var text = new StringBuilder();
+        text.append("%d ms to first frame (budget %d ms), %d ms after jvm start\n".formatted(
+            elapsedMillis(), Defaults.FIRST_FRAME_BUDGET_MILLIS, jvmUptimeMillis + elapsedMillis()));
+        for (var step : sorted) {
+            text.append("  %7.1f ms +%7.1f ms  %-24s %s\n".formatted(
+                step.startNanos / 1e6, step.nanos / 1e6, step.name, step.thread));
+        }
+        return text.toString();
+    }
+
+}
@@ -0,0 +1,184 @@
+package lando.systems.game.utils;
+
+import java.io.IOException;
+
+/**
+ * Structured event trace recorded into a preallocated ring buffer.
+ * <p>
+ * Each event is a fixed {@link Event} code, a timestamp and up to {@link Defaults#ARGS} primitive arguments,
+ * so recording is a few array writes and never allocates. Text is only produced when the buffer is written out
+ * with {@link #dump(Appendable)} or {@link #drain(Appendable)}. Once the buffer is full the oldest events are
+ * overwritten, and a drain reports how many were lost since the previous one.
+ * <p>
+ * Not thread safe, events should be recorded from the render thread, like input events are dispatched.
+ */
+public class Trace {
+
+    public static class Defaults {
+        /** events kept in the ring buffer, rounded up to a power of two */
+        public static final int CAPACITY = 4096;
+        public static final int ARGS = 4;
+    }
+
+    /** Shared trace for ui input listeners. */
+    public static final Trace global = new Trace(Defaults.CAPACITY);
+
+    /**
+     * Event codes, each with a tag and message, and the names of its arguments.
+     * Argument names prefixed with {@code #} are formatted as floats, the rest as ints.
+     */
+    public enum Event {
+        NODE_TOUCH_DOWN  ("Node", "touched", "p", "b", "#x", "#y"),
+        NODE_DRAG_START  ("Node", "drag started", "id"),
+        NODE_DRAG_STOP   ("Node", "drag stopped", "id"),
+        BOARD_TOUCH_DOWN ("Board", "touched", "p", "b", "#x", "#y"),
+        BOARD_PAN_START  ("Board", "drag started", "#cx", "#cy"),
+        BOARD_PAN_STOP   ("Board", "drag stopped", "#cx", "#cy"),
+        LINK_START       ("Board", "link started", "port"),
+        LINK_STOP        ("Board", "link stopped", "src", "dst", "#x", "#y");
+
+        static final Event[] values = values();
+
+        final String tag;
+        final String message;
+        final String[] args;
+
+        Event(String tag, String message, String... args) {
+            this.tag = tag;
+            this.message = message;
+            this.args = args;
+        }
+    }
+
+    private final int mask;
+    private final int[] codes;
+    private final long[] times;
+    // NOTE: Defaults.ARGS slots per event, floats are stored as their raw int bits
+    private final int[] args;
+    private final long epoch = System.nanoTime();
+
+    private boolean enabled = true;
+    // NOTE: total events ever recorded, and how many of those have been drained
+    private long recorded;
+    private long drained;
+
+    public Trace(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        codes = new int[size];
+        times = new long[size];
+        args = new int[size * Defaults.ARGS];
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int capacity() {
+        return codes.length;
+    }
+
+    /**
+     * @return the number of events currently in the buffer
+     */
+    public int size() {
+        return (int) Math.min(recorded, codes.length);
+    }
+
+    public long getRecordedCount() {
+        return recorded;
+    }
+
+    public void clear() {
+        recorded = drained = 0;
+    }
+
+    public void record(Event event) {
+        put(event, 0, 0, 0, 0);
+    }
+
+    public void record(Event event, int a) {
+        put(event, a, 0, 0, 0);
+    }
+
+    public void record(Event event, float a, float b) {
+        put(event, Float.floatToRawIntBits(a), Float.floatToRawIntBits(b), 0, 0);
+    }
+
+    public void record(Event event, int a, int b, float c, float d) {
+        put(event, a, b, Float.floatToRawIntBits(c), Float.floatToRawIntBits(d));
+    }
+
+    private void put(Event event, int a0, int a1, int a2, int a3) {
+        if (!enabled) return;
+
+        int slot = (int) (recorded & mask);
+        codes[slot] = event.ordinal();
+        times[slot] = System.nanoTime() - epoch;
+
+        int a = slot * Defaults.ARGS;
+        args[a]     = a0;
+        args[a + 1] = a1;
+        args[a + 2] = a2;
+        args[a + 3] = a3;
+        recorded++;
+    }
+
+    /**
+     * Write every event in the buffer, oldest first, one per line. Doesn't change what {@link #drain(Appendable)} writes next.
+     */
+    public void dump(Appendable out) throws IOException {
+        for (long i = recorded - size(); i < recorded; i++) {
+            format(out, (int) (i & mask));
+        }
+    }
+
+    /**
+     * Write the events recorded since the previous drain, oldest first, for streaming the trace to a file.
+     *
+     * @return the number of events written
+     */
+    public int drain(Appendable out) throws IOException {
+        long first = Math.max(drained, recorded - size());
+        if (first > drained) {
+            out.append("[Trace] dropped ").append(Long.toString(first - drained)).append(" events\n");
+        }
+        for (long i = first; i < recorded; i++) {
+            format(out, (int) (i & mask));
+        }
+        int count = (int) (recorded - first);
+        drained = recorded;
+        return count;
+    }
+
+    private void format(Appendable out, int slot) throws IOException {
+        var event = Event.values[codes[slot]];
+        long micros = times[slot] / 1000;
+        out.append(Long.toString(micros / 1000)).append('.');
+        appendPadded(out, (int) (micros % 1000));
+        out.append("ms [").append(event.tag).append("] ").append(event.message);
+
+        for (int i = 0; i < event.args.length; i++) {
+            var name = event.args[i];
+            int value = args[slot * Defaults.ARGS + i];
+            out.append(i == 0 ? ": " : " ");
+            if (name.charAt(0) == '#') {
+                out.append(name, 1, name.length()).append('=')
+                    .append(Integer.toString(Math.round(Float.intBitsToFloat(value))));
+            } else {
+                out.append(name).append('=').append(Integer.toString(value));
+            }
+        }
+        out.append('\n');
+    }
+
+    private static void appendPadded(Appendable out, int value) throws IOException {
+        if (value < 100) out.append('0');
+        if (value < 10) out.append('0');
+        out.append(Integer.toString(value));
+    }
+}
@@ -0,0 +1,454 @@
+package lando.systems.game.headless;
+
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.RandomXS128;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import lando.systems.game.ui.BoardGenerator;
+import lando.systems.game.ui.Node;
+import lando.systems.game.ui.NodeBoard;
+import lando.systems.game.utils.FrameProfiler;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Stress simulation for capacity planning: builds boards of increasing size and drives them for a number
+ * of frames with synthetic node drags, panning and zooming, then reports frame time percentiles and
+ * allocation per frame for each size.
+ * <p>
+ * Frames are drawn through a {@link NoopBatch}, so times cover the CPU side of a frame
+ * (input, act, culling, tessellation and vertex generation) but not the GPU.
+ * Allocation is measured on the simulation thread only, background work like connection routing isn't included.
+ * <p>
+ * Options, all optional, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code nodes}: comma separated node counts to simulate, one run each (default 100,1000,5000)</li>
+ *     <li>{@code ports}: ports per node (default 8)</li>
+ *     <li>{@code connections}: connections per node (default 2)</li>
+ *     <li>{@code frames}: measured frames per run (default 600)</li>
+ *     <li>{@code warmup}: unmeasured frames before each run (default 120)</li>
+ *     <li>{@code budget}: frame budget in milliseconds (default 16.67)</li>
+ *     <li>{@code seed}: seed for the board and the synthetic input (default 1)</li>
+ *     <li>{@code width}, {@code height}: size of the simulated window (default 1920x1080)</li>
+ *     <li>{@code csv}: file to stream per-frame phase times and allocation to as CSV, or {@code -} for stdout (default none)</li>
+ * </ul>
+ */
+public class BoardSimulation {
+
+    public static class Defaults {
+        public static final String NODES = "100,1000,5000";
+        public static final int PORTS = 8;
+        public static final int CONNECTIONS_PER_NODE = 2;
+        public static final int FRAMES = 600;
+        public static final int WARMUP_FRAMES = 120;
+        public static final float BUDGET_MILLIS = 1000f / 60f;
+        public static final long SEED = 1;
+        public static final int WIDTH = 1920;
+        public static final int HEIGHT = 1080;
+
+        /** frames each synthetic drag lasts before the pointer is released */
+        public static final int DRAG_FRAMES = 45;
+        /** frames between the end of one drag and the start of the next */
+        public static final int DRAG_PAUSE_FRAMES = 15;
+        public static final float DRAG_SPEED = 6;
+        public static final float PAN_SPEED = 4;
+        /** frames for a full zoom in and out cycle */
+        public static final int ZOOM_PERIOD = 240;
+        public static final float FRAME_DELTA = 1 / 60f;
+    }
+
+    public record Options(
+        int[] nodeCounts,
+        int ports,
+        int connectionsPerNode,
+        int frames,
+        int warmup,
+        float budgetMillis,
+        long seed,
+        int width,
+        int height,
+        String csv
+    ) {
+        public static Options parse(String[] args) {
+            var nodes = Defaults.NODES;
+            int ports = Defaults.PORTS;
+            int connections = Defaults.CONNECTIONS_PER_NODE;
+            int frames = Defaults.FRAMES;
+            int warmup = Defaults.WARMUP_FRAMES;
+            float budget = Defaults.BUDGET_MILLIS;
+            long seed = Defaults.SEED;
+            int width = Defaults.WIDTH;
+            int height = Defaults.HEIGHT;
+            String csv = null;
+
+            for (var arg : args) {
+                int split = arg.indexOf('=');
+                if (!arg.startsWith("--") || split < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+                }
+                var name = arg.substring(2, split);
+                var value = arg.substring(split + 1);
+                switch (name) {
+                    case "nodes"       -> nodes = value;
+                    case "ports"       -> ports = Integer.parseInt(value);
+                    case "connections" -> connections = Integer.parseInt(value);
+                    case "frames"      -> frames = Integer.parseInt(value);
+                    case "warmup"      -> warmup = Integer.parseInt(value);
+                    case "budget"      -> budget = Float.parseFloat(value);
+                    case "seed"        -> seed = Long.parseLong(value);
+                    case "width"       -> width = Integer.parseInt(value);
+                    case "height"      -> height = Integer.parseInt(value);
+                    case "csv"         -> csv = value;
+                    default -> throw new IllegalArgumentException("Unknown option '" + name + "'");
+                }
+            }
+
+            var nodeCounts = Arrays.stream(nodes.split(","))
+                .map(String::trim)
+                .filter(count -> !count.isEmpty())
+                .mapToInt(Integer::parseInt)
+                .toArray();
+            if (nodeCounts.length == 0) {
+                throw new IllegalArgumentException("Expected at least one node count, got '" + nodes + "'");
+            }
+            if (frames < 1) {
+                throw new IllegalArgumentException("Frames must be positive, got " + frames);
+            }
+            return new Options(nodeCounts, ports, connections, frames, warmup, budget, seed, width, height, csv);
+        }
+    }
+
+    public record Result(
+        int nodes,
+        int connections,
+        int views,
+        int createdViews,
+        int frames,
+        double p50Millis,
+        double p95Millis,
+        double p99Millis,
+        double maxMillis,
+        double overBudgetPercent,
+        long bytesPerFrame,
+        long gcCount,
+        long gcMillis
+    ) {}
+
+    private final Options options;
+    private final HeadlessContext context;
+    private final RandomXS128 random;
+    private final com.sun.management.ThreadMXBean threads;
+    private final FrameProfiler profiler = new FrameProfiler();
+    private Writer csv;
+    private final Array<Node> visibleNodes = new Array<>();
+    private final Vector2 tmp = new Vector2();
+
+    private NodeBoard board;
+    private boolean pointerDown;
+    private int dragFrame;
+    private float pointerX;
+    private float pointerY;
+    private float dragDirX;
+    private float dragDirY;
+    private float panAngle;
+
+    public BoardSimulation(Options options, HeadlessContext context) {
+        this.options = options;
+        this.context = context;
+        this.random = new RandomXS128(options.seed());
+
+        var bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean sunBean && sunBean.isThreadAllocatedMemorySupported()) {
+            sunBean.setThreadAllocatedMemoryEnabled(true);
+            this.threads = sunBean;
+        } else {
+            this.threads = null;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        var options = Options.parse(args);
+        var context = new HeadlessContext(options.width(), options.height());
+        Writer csv = null;
+        try {
+            var simulation = new BoardSimulation(options, context);
+            if (options.csv() != null) {
+                csv = options.csv().equals("-")
+                    ? new BufferedWriter(new OutputStreamWriter(System.out))
+                    : Files.newBufferedWriter(Path.of(options.csv()));
+                simulation.streamCsv(csv);
+            }
+
+            System.out.printf("board simulation: %dx%d, %d ports/node, %d connections/node, %d frames (+%d warmup), budget %.2f ms%n",
+                options.width(), options.height(), options.ports(), options.connectionsPerNode(),
+                options.frames(), options.warmup(), options.budgetMillis());
+            System.out.printf("%8s %8s %7s %8s %9s %9s %9s %9s %8s %12s %6s %8s%n",
+                "nodes", "conns", "views", "created", "p50 ms", "p95 ms", "p99 ms", "max ms", "over %", "bytes/frame", "gcs", "gc ms");
+
+            for (int nodeCount : options.nodeCounts()) {
+                var result = simulation.run(nodeCount);
+                System.out.printf("%8d %8d %7d %8d %9.3f %9.3f %9.3f %9.3f %8.1f %12s %6d %8d%n",
+                    result.nodes(), result.connections(), result.views(), result.createdViews(),
+                    result.p50Millis(), result.p95Millis(), result.p99Millis(), result.maxMillis(),
+                    result.overBudgetPercent(),
+                    (result.bytesPerFrame() < 0) ? "n/a" : Long.toString(result.bytesPerFrame()),
+                    result.gcCount(), result.gcMillis());
+                if (csv == null) {
+                    simulation.printPhases();
+                }
+            }
+        } finally {
+            if (csv != null) {
+                csv.flush();
+                if (!options.csv().equals("-")) {
+                    csv.close();
+                }
+            }
+            context.dispose();
+        }
+    }
+
+    /**
+     * Write a CSV row per measured frame to the writer, starting with a header, see {@link FrameProfiler#writeCsvRow(Appendable)}.
+     */
+    public void streamCsv(Writer csv) throws IOException {
+        this.csv = csv;
+        csv.append("nodes,");
+        profiler.writeCsvHeader(csv);
+    }
+
+    /**
+     * Print each phase's p50/p95/p99 over the last measured frames, then the per frame counts that aren't all zero.
+     */
+    public void printPhases() {
+        for (var phase : FrameProfiler.Phase.values()) {
+            var series = profiler.get(phase);
+            if (series.max() == 0) continue;
+            System.out.printf("%17s %9.3f %9.3f %9.3f%n", phase.name().toLowerCase(),
+                series.percentile(50) / 1e6, series.percentile(95) / 1e6, series.percentile(99) / 1e6);
+        }
+        for (var counter : FrameProfiler.Counter.values()) {
+            var series = profiler.get(counter);
+            if (series.max() == 0) continue;
+            System.out.printf("%17s %9d %9d %9d%n", counter.name().toLowerCase() + "s",
+                series.percentile(50), series.percentile(95), series.percentile(99));
+        }
+    }
+
+    /**
+     * Build a board with the specified number of nodes, then simulate warmup and measured frames on it.
+     */
+    public Result run(int nodeCount) {
+        if (board != null) {
+            board.remove();
+            board.dispose();
+        }
+        board = context.createBoard();
+        board.setProfiler(profiler);
+        BoardGenerator.generate(board, nodeCount, options.ports(), nodeCount * options.connectionsPerNode(), options.seed());
+
+        // start centered over the board, the same area of it is on screen at every size
+        int columns = Math.max(1, (int) Math.ceil(Math.sqrt(nodeCount)));
+        float center = columns * BoardGenerator.Defaults.NODE_SPACING / 2f;
+        var camera = board.getCamera();
+        camera.position.set(center, center, 0);
+        camera.zoom = 1;
+        board.updateCamera();
+
+        pointerDown = false;
+        dragFrame = 0;
+        panAngle = 0;
+
+        for (int i = 0; i < options.warmup(); i++) {
+            frame(i);
+        }
+
+        int frames = options.frames();
+        var frameNanos = new long[frames];
+        long gcCountStart = gcCount();
+        long gcMillisStart = gcMillis();
+        long bytesStart = allocatedBytes();
+
+        profiler.clear();
+        for (int i = 0; i < frames; i++) {
+            long start = System.nanoTime();
+            frame(options.warmup() + i);
+            frameNanos[i] = System.nanoTime() - start;
+
+            if (csv != null) {
+                writeCsvRow(nodeCount);
+            }
+        }
+
+        long bytesEnd = allocatedBytes();
+        long bytesPerFrame = (bytesStart < 0 || bytesEnd < 0) ? -1 : (bytesEnd - bytesStart) / frames;
+
+        Arrays.sort(frameNanos);
+        long budgetNanos = (long) (options.budgetMillis() * 1_000_000L);
+        int overBudget = 0;
+        for (long nanos : frameNanos) {
+            if (nanos > budgetNanos) overBudget++;
+        }
+
+        return new Result(
+            nodeCount,
+            board.getConnections().size,
+            board.getViews().size,
+            board.getCreatedViewCount(),
+            frames,
+            percentile(frameNanos, 50) / 1e6,
+            percentile(frameNanos, 95) / 1e6,
+            percentile(frameNanos, 99) / 1e6,
+            frameNanos[frames - 1] / 1e6,
+            100.0 * overBudget / frames,
+            bytesPerFrame,
+            gcCount() - gcCountStart,
+            gcMillis() - gcMillisStart);
+    }
+
+    private void frame(int frame) {
+        profiler.beginFrame();
+
+        profiler.begin(FrameProfiler.Phase.UPDATE);
+        simulateDrag();
+        simulatePanZoom(frame);
+
+        var stage = context.stage;
+        profiler.begin(FrameProfiler.Phase.STAGE_ACT);
+        stage.act(Defaults.FRAME_DELTA);
+        profiler.end(FrameProfiler.Phase.STAGE_ACT);
+        profiler.end(FrameProfiler.Phase.UPDATE);
+
+        // NOTE: mirrors the passes in Main.render(), with the board passes drawn through the board's camera
+        profiler.begin(FrameProfiler.Phase.RENDER);
+        var batch = context.batch;
+        var shapes = context.main.shapes;
+        batch.setProjectionMatrix(board.getCamera().combined);
+        batch.begin();
+        board.drawContent(batch, shapes);
+        board.drawOverlay(batch, shapes);
+        batch.end();
+
+        profiler.begin(FrameProfiler.Phase.STAGE_DRAW);
+        stage.draw();
+        profiler.end(FrameProfiler.Phase.STAGE_DRAW);
+        profiler.end(FrameProfiler.Phase.RENDER);
+
+        profiler.endFrame();
+    }
+
+    private void writeCsvRow(int nodeCount) {
+        try {
+            csv.append(Integer.toString(nodeCount)).append(',');
+            profiler.writeCsvRow(csv);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drag a random on screen node by its title bar, through the stage's input handling like a real pointer,
+     * pausing briefly between drags.
+     */
+    private void simulateDrag() {
+        var stage = context.stage;
+        int height = context.height;
+
+        if (pointerDown) {
+            if (dragFrame++ < Defaults.DRAG_FRAMES) {
+                pointerX += dragDirX * Defaults.DRAG_SPEED;
+                pointerY += dragDirY * Defaults.DRAG_SPEED;
+                stage.touchDragged((int) pointerX, height - (int) pointerY, 0);
+            } else {
+                stage.touchUp((int) pointerX, height - (int) pointerY, 0, Input.Buttons.LEFT);
+                pointerDown = false;
+                dragFrame = 0;
+            }
+            return;
+        }
+
+        if (dragFrame++ < Defaults.DRAG_PAUSE_FRAMES) return;
+
+        var node = randomVisibleNode();
+        if (node == null) return;
+
+        // grab the middle of the title bar, in board coordinates which match the stage's
+        var grab = board.worldToScreen(tmp.set(
+            node.getX() + node.getWidth() / 2f,
+            node.getY() + node.getHeight() - node.getPadTop() / 2f));
+        pointerX = grab.x;
+        pointerY = grab.y;
+
+        float angle = random.nextFloat() * MathUtils.PI2;
+        dragDirX = MathUtils.cos(angle);
+        dragDirY = MathUtils.sin(angle);
+
+        stage.touchDown((int) pointerX, height - (int) pointerY, 0, Input.Buttons.LEFT);
+        pointerDown = true;
+        dragFrame = 0;
+    }
+
+    /**
+     * Pan the camera in a slow circle while zooming in and out, the way the board's pan and scroll handlers do.
+     */
+    private void simulatePanZoom(int frame) {
+        panAngle += MathUtils.PI2 / (4 * Defaults.ZOOM_PERIOD);
+        board.getCamera().position.add(
+            MathUtils.cos(panAngle) * Defaults.PAN_SPEED,
+            MathUtils.sin(panAngle) * Defaults.PAN_SPEED, 0);
+
+        // scroll amounts alternate direction every half period, so zoom oscillates around where it started
+        boolean zoomingOut = (frame / (Defaults.ZOOM_PERIOD / 2)) % 2 == 0;
+        board.zoomBy(zoomingOut ? 0.25f : -0.25f);
+    }
+
+    /**
+     * Pick from the nodes the last frame drew rather than every node, the camera has only moved a little since.
+     */
+    private Node randomVisibleNode() {
+        visibleNodes.clear();
+        var view = board.getViewBounds();
+        for (var node : board.getDrawnViews()) {
+            if (view.contains(node.getX() + node.getWidth() / 2f, node.getY() + node.getHeight() / 2f)) {
+                visibleNodes.add(node);
+            }
+        }
+        return visibleNodes.isEmpty() ? null : visibleNodes.get(random.nextInt(visibleNodes.size));
+    }
+
+    private long allocatedBytes() {
+        if (threads == null) return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().threadId());
+    }
+
+    private static long percentile(long[] sorted, double percent) {
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[MathUtils.clamp(rank - 1, 0, sorted.length - 1)];
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
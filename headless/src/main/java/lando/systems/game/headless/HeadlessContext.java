@@ -0,0 +1,89 @@
+package lando.systems.game.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.scenes.scene2d.Stage;
+import com.badlogic.gdx.scenes.scene2d.ui.Skin;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.viewport.ScreenViewport;
+import com.kotcrab.vis.ui.VisUI;
+import lando.systems.game.Main;
+import lando.systems.game.ui.NodeBoard;
+import space.earlygrey.shapedrawer.ShapeDrawer;
+
+/**
+ * Sets up just enough of the application to build and draw boards on the headless backend:
+ * a no-op GL, the ui skin and VisUI, a {@link Main} instance with the shared drawing state that
+ * widgets expect, and a stage drawn through a {@link NoopBatch}.
+ * Used by the board simulation and the benchmarks, which need to run on machines without a GPU.
+ */
+public class HeadlessContext implements Disposable {
+
+    public static final String SKIN_FILE = "ui/skin-talos/uiskin";
+
+    public final int width;
+    public final int height;
+    public final HeadlessApplication application;
+    public final NoopBatch batch;
+    public final TextureAtlas atlas;
+    public final Skin skin;
+    public final Main main;
+    public final Stage stage;
+
+    public HeadlessContext(int width, int height) {
+        this.width = width;
+        this.height = height;
+
+        var configuration = new HeadlessApplicationConfiguration();
+        configuration.updatesPerSecond = -1;
+        application = new HeadlessApplication(new ApplicationAdapter() {}, configuration);
+        Gdx.gl = Gdx.gl20 = NoopGL.create();
+
+        atlas = new TextureAtlas(Gdx.files.internal(SKIN_FILE + ".atlas"));
+        skin = new Skin(Gdx.files.internal(SKIN_FILE + ".json"), atlas);
+        skin.addRegions(atlas);
+        if (!VisUI.isLoaded()) {
+            VisUI.load(skin);
+        }
+
+        batch = new NoopBatch();
+
+        // NOTE: widgets reach shared drawing state through Main.get, so populate what they use
+        main = new Main();
+        main.shapes = new ShapeDrawer(batch, atlas.findRegion("white-pixel"));
+        main.radioBtnTextures = Main.RadioButtonTextures.from(atlas);
+        main.uiCamera = new OrthographicCamera();
+        main.uiCamera.setToOrtho(false, width, height);
+        main.windowCamera = new OrthographicCamera();
+        main.windowCamera.setToOrtho(false, width, height);
+
+        stage = new Stage(new ScreenViewport(main.uiCamera), batch);
+        stage.getViewport().update(width, height, true);
+    }
+
+    /**
+     * Create an empty board that covers the stage, with its camera sized to the context.
+     */
+    public NodeBoard createBoard() {
+        var board = new NodeBoard(stage, skin);
+        board.clearBoard();
+        board.getCamera().setToOrtho(false, width, height);
+        stage.addActor(board);
+        board.act(0);
+        return board;
+    }
+
+    @Override
+    public void dispose() {
+        stage.dispose();
+        if (VisUI.isLoaded()) {
+            VisUI.dispose();
+        }
+        atlas.dispose();
+        application.exit();
+    }
+}
@@ -0,0 +1,49 @@
+package lando.systems.game.headless;
+
+import com.badlogic.gdx.graphics.GL20;
+
+import java.lang.reflect.Proxy;
+import java.nio.IntBuffer;
+
+/**
+ * Creates a {@link GL20} where every call does nothing and returns a zero value.
+ * The headless backend leaves Gdx.gl unset, this lets textures, fonts, skins and shaders
+ * be created so widget code can run without a GPU.
+ */
+public final class NoopGL {
+
+    private NoopGL() {}
+
+    public static GL20 create() {
+        return (GL20) Proxy.newProxyInstance(
+            GL20.class.getClassLoader(),
+            new Class<?>[] { GL20.class },
+            (proxy, method, args) -> switch (method.getName()) {
+                case "toString" -> "NoopGL";
+                case "hashCode" -> System.identityHashCode(proxy);
+                case "equals" -> proxy == args[0];
+                case "glGetShaderiv", "glGetProgramiv" -> {
+                    // NOTE: shaders compile and link, so sprite batches can be created too
+                    int parameter = (int) args[1];
+                    if (parameter == GL20.GL_COMPILE_STATUS || parameter == GL20.GL_LINK_STATUS) {
+                        ((IntBuffer) args[2]).put(0, GL20.GL_TRUE);
+                    }
+                    yield null;
+                }
+                default -> defaultValue(method.getReturnType());
+            });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == float.class) return 0f;
+        if (type == long.class) return 0L;
+        if (type == byte.class) return (byte) 0;
+        if (type == short.class) return (short) 0;
+        if (type == char.class) return (char) 0;
+        if (type == double.class) return 0d;
+        // void methods and object return types (eg. glGetString)
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package lando.systems.game.headless;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Times startup with and without the class data sharing archive, by launching {@link StartupTraining}
+ * from the headless jar in fresh JVMs and reading the time from JVM start to the end of create() each reports,
+ * along with the wall time of the whole process. Runs alternate between configurations so that anything
+ * drifting over the benchmark, like file caches warming up, affects each alike.
+ * <p>
+ * Options as {@code --name=value}:
+ * <ul>
+ *     <li>{@code jar}: the headless jar, required</li>
+ *     <li>{@code archive}: a CDS archive dumped for the jar, runs without one are always included</li>
+ *     <li>{@code aot}: an AOT cache created for the jar, needs JDK 24 or newer (default none)</li>
+ *     <li>{@code runs}: runs of each configuration (default 10)</li>
+ *     <li>{@code frames}: frames each run renders after create(), see {@link StartupTraining} (default 0)</li>
+ * </ul>
+ */
+public class StartupBenchmark {
+
+    public static class Defaults {
+        public static final int RUNS = 10;
+        public static final int FRAMES = 0;
+    }
+
+    public record Options(Path jar, Path archive, Path aot, int runs, int frames) {
+        public static Options parse(String[] args) {
+            Path jar = null;
+            Path archive = null;
+            Path aot = null;
+            int runs = Defaults.RUNS;
+            int frames = Defaults.FRAMES;
+
+            for (var arg : args) {
+                int split = arg.indexOf('=');
+                if (!arg.startsWith("--") || split < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+                }
+                var name = arg.substring(2, split);
+                var value = arg.substring(split + 1);
+                switch (name) {
+                    case "jar"     -> jar = Path.of(value);
+                    case "archive" -> archive = Path.of(value);
+                    case "aot"     -> aot = Path.of(value);
+                    case "runs"    -> runs = Integer.parseInt(value);
+                    case "frames"  -> frames = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("Unknown option '" + name + "'");
+                }
+            }
+            if (jar == null) {
+                throw new IllegalArgumentException("Missing --jar=<headless jar>");
+            }
+            return new Options(jar, archive, aot, runs, frames);
+        }
+    }
+
+    private record Configuration(String name, List<String> jvmArgs, long[] createMillis, long[] wallMillis) {
+        Configuration(String name, List<String> jvmArgs, int runs) {
+            this(name, jvmArgs, new long[runs], new long[runs]);
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        var options = Options.parse(args);
+
+        var configurations = new ArrayList<Configuration>();
+        configurations.add(new Configuration("no archive", List.of(), options.runs()));
+        if (options.archive() != null && Files.exists(options.archive())) {
+            configurations.add(new Configuration("cds archive",
+                List.of("-XX:SharedArchiveFile=" + options.archive()), options.runs()));
+        }
+        if (options.aot() != null && Files.exists(options.aot())) {
+            configurations.add(new Configuration("aot cache",
+                List.of("-XX:AOTCache=" + options.aot()), options.runs()));
+        }
+
+        System.out.printf("startup benchmark: %s, %d runs each, %d frames after create()%n",
+            options.jar().getFileName(), options.runs(), options.frames());
+        for (int run = 0; run < options.runs(); run++) {
+            for (var configuration : configurations) {
+                launch(options, configuration, run);
+            }
+        }
+
+        System.out.printf("%-12s %14s %14s %14s %14s%n", "", "create p50 ms", "create min ms", "wall p50 ms", "wall min ms");
+        long baseline = median(configurations.get(0).createMillis);
+        for (var configuration : configurations) {
+            long create = median(configuration.createMillis);
+            System.out.printf("%-12s %14d %14d %14d %14d  %s%n", configuration.name,
+                create, Arrays.stream(configuration.createMillis).min().orElse(0),
+                median(configuration.wallMillis), Arrays.stream(configuration.wallMillis).min().orElse(0),
+                (configuration == configurations.get(0)) ? "" : "%+.1f%%".formatted(100.0 * (create - baseline) / baseline));
+        }
+    }
+
+    private static void launch(Options options, Configuration configuration, int run) throws IOException, InterruptedException {
+        var command = new ArrayList<String>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(configuration.jvmArgs);
+        command.add("-cp");
+        command.add(options.jar().toString());
+        command.add(StartupTraining.class.getName());
+        command.add("--frames=" + options.frames());
+
+        long start = System.nanoTime();
+        var process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        var output = new StringBuilder();
+        long createMillis = -1;
+        try (var reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append('\n');
+                if (line.startsWith(StartupTraining.RESULT_PREFIX)) {
+                    createMillis = parseCreateMillis(line);
+                }
+            }
+        }
+        int exitCode = process.waitFor();
+        long wallMillis = (System.nanoTime() - start) / 1_000_000;
+
+        if (exitCode != 0 || createMillis < 0) {
+            throw new IllegalStateException("%s run %d failed with exit code %d:%n%s".formatted(
+                configuration.name, run, exitCode, output));
+        }
+        configuration.createMillis[run] = createMillis;
+        configuration.wallMillis[run] = wallMillis;
+    }
+
+    private static long parseCreateMillis(String line) {
+        for (var field : line.substring(StartupTraining.RESULT_PREFIX.length()).trim().split(" ")) {
+            if (field.startsWith("create=")) {
+                return Long.parseLong(field.substring("create=".length()));
+            }
+        }
+        return -1;
+    }
+
+    private static long median(long[] values) {
+        var sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
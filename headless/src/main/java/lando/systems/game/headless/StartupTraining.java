@@ -0,0 +1,75 @@
+package lando.systems.game.headless;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import lando.systems.game.Main;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * Scripted startup, for recording the classes startup loads into class data sharing archives and for timing startup.
+ * Runs {@link Main} on the headless backend with a {@link NoopGL}, through create() and a number of frames,
+ * then exits. Prints one line with the milliseconds from JVM start to the end of create() and of the last frame,
+ * see {@link StartupBenchmark}.
+ * <p>
+ * Options, all optional, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code frames}: frames to render after create() (default 60)</li>
+ * </ul>
+ */
+public class StartupTraining {
+
+    public static class Defaults {
+        public static final int FRAMES = 60;
+    }
+
+    /** starts the line with the timings, followed by {@code create=<ms> frames=<ms>} */
+    public static final String RESULT_PREFIX = "startup-training:";
+
+    public static void main(String[] args) {
+        int frames = Defaults.FRAMES;
+        for (var arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            var name = arg.substring(2, split);
+            var value = arg.substring(split + 1);
+            switch (name) {
+                case "frames" -> frames = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option '" + name + "'");
+            }
+        }
+
+        int frameCount = frames;
+        var main = new Main();
+        var configuration = new HeadlessApplicationConfiguration();
+        configuration.updatesPerSecond = -1;
+        new HeadlessApplication(new ApplicationAdapter() {
+            @Override
+            public void create() {
+                Gdx.gl = Gdx.gl20 = NoopGL.create();
+                // NOTE: the no-op GL reports shaders without any uniforms, so setting them mustn't throw
+                ShaderProgram.pedantic = false;
+
+                main.create();
+                long createMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+                for (int i = 0; i < frameCount; i++) {
+                    main.render();
+                }
+                long framesMillis = ManagementFactory.getRuntimeMXBean().getUptime();
+
+                System.out.printf("%s create=%d frames=%d%n", RESULT_PREFIX, createMillis, framesMillis);
+                Gdx.app.exit();
+            }
+
+            @Override
+            public void dispose() {
+                main.dispose();
+            }
+        }, configuration);
+    }
+}
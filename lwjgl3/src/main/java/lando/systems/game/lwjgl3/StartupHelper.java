@@ -23,6 +23,7 @@ import java.io.File;
 import java.io.InputStreamReader;
 import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Adds some utilities to ensure that the JVM was started with the
@@ -115,7 +116,14 @@ public class StartupHelper {
         jvmArgs.add(javaExecPath);
         jvmArgs.add("-XstartOnFirstThread");
         jvmArgs.add("-D" + JVM_RESTARTED_ARG + "=true");
-        jvmArgs.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        List<String> inputArguments = ManagementFactory.getRuntimeMXBean().getInputArguments();
+        jvmArgs.addAll(inputArguments);
+        // The new JVM pays for startup all over again, so have it use the class data sharing archive
+        // next to the jar, if there is one (see the lwjgl3:cdsArchive task) and one wasn't specified already.
+        String archive = findSharedArchive();
+        if (archive != null && inputArguments.stream().noneMatch(arg -> arg.startsWith("-XX:SharedArchiveFile"))) {
+            jvmArgs.add("-XX:SharedArchiveFile=" + archive);
+        }
         jvmArgs.add("-cp");
         jvmArgs.add(System.getProperty("java.class.path"));
         String mainClass = System.getenv("JAVA_MAIN_CLASS_" + pid);
@@ -155,6 +163,26 @@ public class StartupHelper {
         return true;
     }
 
+    /**
+     * Finds the class data sharing archive dumped for the jar this class was loaded from,
+     * which has the same name as the jar with a {@code .jsa} extension.
+     *
+     * @return the archive's path, or null if there isn't one or this isn't running from a jar
+     */
+    private static String findSharedArchive() {
+        try {
+            File jar = new File(StartupHelper.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            if (!jar.isFile() || !jar.getName().endsWith(".jar")) {
+                return null;
+            }
+            String name = jar.getName();
+            File archive = new File(jar.getParentFile(), name.substring(0, name.length() - ".jar".length()) + ".jsa");
+            return archive.isFile() ? archive.getPath() : null;
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
     /**
      * Starts a new JVM if the application was started on macOS without the
      * {@code -XstartOnFirstThread} argument. Returns whether a new JVM was
@@ -0,0 +1,474 @@
+package lando.systems.game.server;
+
+import com.github.tommyettinger.ds.FloatList;
+import com.github.tommyettinger.ds.IntIntMap;
+import com.github.tommyettinger.ds.IntList;
+import com.github.tommyettinger.ds.LongList;
+import com.github.tommyettinger.ds.ObjectList;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.net.Delta;
+import lando.systems.game.net.DeltaWriter;
+import lando.systems.game.net.FrameReader;
+import lando.systems.game.net.Protocol;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+
+/**
+ * Holds the authoritative board {@link Graph} for any number of clients editing it at once, see {@link Protocol}.
+ * <p>
+ * One thread runs a non-blocking selector loop. Edits are applied to the graph as they're read, and what they
+ * changed is collected into a batch that's encoded once and sent to every client each tick. Moves of the same node
+ * within a tick are coalesced, only its last position is sent. Clients that join get the whole board in their
+ * first batches. Large batches are split over several frames with the same tick, so no frame passes
+ * {@link Protocol#MAX_FRAME_SIZE}. Clients that fall too far behind, or send anything malformed, are disconnected.
+ * <p>
+ * Edits that refer to something that's already gone, eg. a move of a node someone else just removed, are dropped.
+ */
+public class BoardServer implements Closeable {
+
+    public static class Defaults {
+        public static final int TICK_RATE = 30;
+        public static final int BUFFER_SIZE = 16 * 1024;
+        /** clients with more than this waiting to be written can't keep up, and are disconnected */
+        public static final int MAX_PENDING_BYTES = 32 << 20;
+        /** batch frames are split once they reach this size, far enough under the frame limit that any op fits */
+        public static final int MAX_BATCH_FRAME_SIZE = 1 << 20;
+    }
+
+    /**
+     * Counters since the server started, only safe to read from other threads once it's closed.
+     */
+    public static class Stats {
+        public long ticks;
+        public long batches;
+        public long opsReceived;
+        public long opsDropped;
+        public long movesCoalesced;
+        public long bytesReceived;
+        public long bytesSent;
+        public long tickNanos;
+        public long maxTickNanos;
+        public int clientsJoined;
+        public int clientsDropped;
+    }
+
+    private static final class Client {
+        final int id;
+        final SocketChannel channel;
+        final SelectionKey key;
+        final FrameReader in = new FrameReader(Defaults.BUFFER_SIZE);
+        final DeltaWriter out = new DeltaWriter(Defaults.BUFFER_SIZE);
+        final LongList pings = new LongList();
+
+        Client(int id, SocketChannel channel, SelectionKey key) {
+            this.id = id;
+            this.channel = channel;
+            this.key = key;
+        }
+    }
+
+    final Graph graph = new Graph();
+    final Stats stats = new Stats();
+
+    private final ServerSocketChannel serverChannel;
+    private final Selector selector;
+    private final long tickNanos;
+    private final ObjectList<Client> clients = new ObjectList<>();
+    private final ObjectList<Client> joining = new ObjectList<>();
+    private final Applier applier = new Applier();
+    private int nextClientId = 0;
+    private long tick = 0;
+    private volatile boolean running = true;
+    private Thread thread;
+
+    // NOTE: this tick's batch, structural changes are written as they're applied and moves are added at the end
+    private final DeltaWriter batch = new DeltaWriter(Defaults.BUFFER_SIZE);
+    private final DeltaWriter snapshot = new DeltaWriter(Defaults.BUFFER_SIZE);
+    private final IntIntMap moveSlots = new IntIntMap();
+    private final IntList moveNodes = new IntList();
+    private final FloatList moveX = new FloatList();
+    private final FloatList moveY = new FloatList();
+
+    /**
+     * Bind to the port, zero for any free one, see {@link #port()}. Nothing is accepted until the server runs.
+     */
+    public BoardServer(int port, int tickRate) throws IOException {
+        if (tickRate < 1) {
+            throw new IllegalArgumentException("Tick rate must be positive, got " + tickRate);
+        }
+        this.tickNanos = 1_000_000_000L / tickRate;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    public int port() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public Graph graph() {
+        return graph;
+    }
+
+    public Stats stats() {
+        return stats;
+    }
+
+    /**
+     * Run the server on its own thread, until it's closed.
+     */
+    public BoardServer start() {
+        thread = new Thread(this::run, "board-server");
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Run the server on the calling thread, until it's closed.
+     */
+    public void run() {
+        beginBatch();
+        long nextTick = System.nanoTime() + tickNanos;
+        try {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    selector.select(Math.max(1, wait / 1_000_000));
+                } else {
+                    selector.selectNow();
+                }
+                var keys = selector.selectedKeys();
+                for (var key : keys) {
+                    handle(key);
+                }
+                keys.clear();
+
+                long now = System.nanoTime();
+                if (now >= nextTick) {
+                    tick();
+                    long elapsed = System.nanoTime() - now;
+                    stats.tickNanos += elapsed;
+                    stats.maxTickNanos = Math.max(stats.maxTickNanos, elapsed);
+                    // NOTE: ticks that fall behind are skipped rather than run back to back to catch up
+                    nextTick = Math.max(nextTick + tickNanos, now);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Board server stopped: " + e);
+        } finally {
+            for (var client : clients) closeQuietly(client.channel);
+            for (var client : joining) closeQuietly(client.channel);
+            closeQuietly(serverChannel);
+            closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Stop the server and wait for its thread, if it has one, to finish.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+        if (thread != null && thread != Thread.currentThread()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void handle(SelectionKey key) throws IOException {
+        if (!key.isValid()) return;
+        if (key.isAcceptable()) {
+            accept();
+            return;
+        }
+        var client = (Client) key.attachment();
+        try {
+            if (key.isReadable()) {
+                read(client);
+            }
+            if (key.isValid() && key.isWritable()) {
+                write(client);
+            }
+        } catch (IOException e) {
+            drop(client, e);
+        } catch (RuntimeException e) {
+            // NOTE: whatever a client sends, it can only ever get itself dropped, never stop the server
+            drop(client, new IOException("Failed handling client: " + e, e));
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = serverChannel.accept()) != null) {
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            var key = channel.register(selector, SelectionKey.OP_READ);
+            var client = new Client(nextClientId++, channel, key);
+            key.attach(client);
+            client.out.begin(Protocol.HELLO).putInt(client.id).end();
+            // NOTE: clients join at the end of the tick, so this tick's batch isn't sent on top of their snapshot
+            joining.add(client);
+            stats.clientsJoined++;
+        }
+    }
+
+    private void read(Client client) throws IOException {
+        int read;
+        do {
+            read = client.in.readFrom(client.channel);
+            if (read < 0) {
+                drop(client, null);
+                return;
+            }
+            stats.bytesReceived += read;
+            for (byte type = client.in.next(); type != 0; type = client.in.next()) {
+                var payload = client.in.payload();
+                switch (type) {
+                    case Protocol.EDITS -> {
+                        applier.origin = client.id;
+                        stats.opsReceived += Delta.read(payload, applier);
+                    }
+                    case Protocol.PING -> {
+                        if (payload.remaining() != Long.BYTES) {
+                            throw new ProtocolException("Bad ping length " + payload.remaining());
+                        }
+                        client.pings.add(payload.getLong());
+                    }
+                    default -> throw new ProtocolException("Unexpected frame type " + type);
+                }
+            }
+        } while (read > 0);
+    }
+
+    private void write(Client client) throws IOException {
+        stats.bytesSent += client.out.writeTo(client.channel);
+        boolean pending = client.out.size() > 0;
+        if (pending && client.out.size() > Defaults.MAX_PENDING_BYTES) {
+            drop(client, new IOException("Client fell " + client.out.size() + " bytes behind"));
+            return;
+        }
+        int ops = pending ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (client.key.interestOps() != ops) {
+            client.key.interestOps(ops);
+        }
+    }
+
+    private void drop(Client client, IOException reason) {
+        if (!client.key.isValid()) return;
+        client.key.cancel();
+        closeQuietly(client.channel);
+        clients.remove(client);
+        joining.remove(client);
+        if (reason != null) {
+            stats.clientsDropped++;
+            System.err.println("Dropped client " + client.id + ": " + reason.getMessage());
+        }
+    }
+
+    private void tick() {
+        stats.ticks++;
+
+        // NOTE: moves go last, after any adds of the nodes they move
+        for (int i = 0; i < moveNodes.size(); i++) {
+            int node = moveNodes.get(i);
+            if (node == Graph.NONE) continue;
+            batch.nodeMove(node, moveX.get(i), moveY.get(i));
+            splitBatch(batch);
+        }
+        moveSlots.clear();
+        moveNodes.clear();
+        moveX.clear();
+        moveY.clear();
+
+        // NOTE: the open frame can be empty after a split, when everything before it already went out in full frames
+        boolean changed = batch.size() > Protocol.HEADER_SIZE + Long.BYTES;
+        if (batch.frameSize() > Protocol.HEADER_SIZE + Long.BYTES) {
+            batch.end();
+        } else {
+            batch.cancel();
+        }
+        if (changed) {
+            stats.batches++;
+        }
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            var client = clients.get(i);
+            if (changed) {
+                client.out.append(batch);
+            }
+            send(client);
+        }
+        batch.clear();
+
+        if (!joining.isEmpty()) {
+            writeSnapshot();
+            for (var client : joining) {
+                client.out.append(snapshot);
+                clients.add(client);
+            }
+            joining.clear();
+            for (int i = clients.size() - 1; i >= 0; i--) {
+                send(clients.get(i));
+            }
+        }
+
+        tick++;
+        beginBatch();
+    }
+
+    private void send(Client client) {
+        for (int i = 0; i < client.pings.size(); i++) {
+            client.out.begin(Protocol.PONG).putLong(client.pings.get(i)).end();
+        }
+        client.pings.clear();
+        if (client.out.size() == 0) return;
+        try {
+            write(client);
+        } catch (IOException e) {
+            drop(client, e);
+        }
+    }
+
+    private void beginBatch() {
+        batch.begin(Protocol.BATCH).putLong(tick);
+    }
+
+    /**
+     * Close the writer's batch frame once it's large enough, and continue in a new one for the same tick.
+     */
+    private void splitBatch(DeltaWriter writer) {
+        if (writer.frameSize() < Defaults.MAX_BATCH_FRAME_SIZE) return;
+        writer.end();
+        writer.begin(Protocol.BATCH).putLong(tick);
+    }
+
+    /**
+     * The whole board as batches of the current tick, for clients that just joined.
+     */
+    private void writeSnapshot() {
+        snapshot.clear();
+        snapshot.begin(Protocol.BATCH).putLong(tick);
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            if (!graph.isNode(node)) continue;
+            snapshot.nodeAdd(node, Graph.NONE, Graph.NONE, graph.nodeX(node), graph.nodeY(node),
+                graph.nodeWidth(node), graph.nodeHeight(node), graph.nodeTitle(node));
+            for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+                snapshot.portAdd(port, node, graph.portType(port), graph.portEdge(port), graph.portName(port));
+            }
+            splitBatch(snapshot);
+        }
+        for (int connection = 0; connection < graph.connectionLimit(); connection++) {
+            if (!graph.isConnection(connection)) continue;
+            snapshot.connect(connection, graph.connectionSrc(connection), graph.connectionDst(connection),
+                graph.connectionStyle(connection));
+            splitBatch(snapshot);
+        }
+        snapshot.end();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Applies a client's edits to the graph and records what they changed in the batch.
+     */
+    private final class Applier implements Delta.Handler {
+        int origin;
+
+        @Override
+        public void nodeAdded(int id, int origin, int tag, float x, float y, float width, float height, String title) {
+            int node = graph.addNode(x, y, width, height);
+            graph.setNodeTitle(node, title);
+            batch.nodeAdd(node, this.origin, tag, x, y, width, height, title);
+            splitBatch(batch);
+        }
+
+        @Override
+        public void nodeMoved(int id, float x, float y) {
+            if (!graph.isNode(id)) {
+                stats.opsDropped++;
+                return;
+            }
+            graph.setNodePosition(id, x, y);
+            int slot = moveSlots.getOrDefault(id, -1);
+            if (slot >= 0) {
+                moveX.set(slot, x);
+                moveY.set(slot, y);
+                stats.movesCoalesced++;
+            } else {
+                moveSlots.put(id, moveNodes.size());
+                moveNodes.add(id);
+                moveX.add(x);
+                moveY.add(y);
+            }
+        }
+
+        @Override
+        public void nodeRemoved(int id) {
+            if (!graph.isNode(id)) {
+                stats.opsDropped++;
+                return;
+            }
+            graph.removeNode(id);
+            batch.nodeRemove(id);
+            splitBatch(batch);
+            // NOTE: a pending move of the removed node is dropped, the id could be reused before the tick ends
+            int slot = moveSlots.getOrDefault(id, -1);
+            if (slot >= 0) {
+                moveNodes.set(slot, Graph.NONE);
+                moveSlots.remove(id);
+            }
+        }
+
+        @Override
+        public void portAdded(int id, int node, int type, Edge edge, String name) {
+            if (!graph.isNode(node) || (type != Graph.INPUT && type != Graph.OUTPUT)) {
+                stats.opsDropped++;
+                return;
+            }
+            int port = graph.addPort(node, type, edge, name);
+            batch.portAdd(port, node, type, edge, name);
+            splitBatch(batch);
+        }
+
+        @Override
+        public void connected(int id, int srcPort, int dstPort, int style) {
+            if (!graph.isPort(srcPort) || !graph.isPort(dstPort) || !Graph.isStyle(style)) {
+                stats.opsDropped++;
+                return;
+            }
+            int connection = graph.connect(srcPort, dstPort, style);
+            batch.connect(connection, srcPort, dstPort, style);
+            splitBatch(batch);
+        }
+
+        @Override
+        public void disconnected(int id) {
+            if (!graph.isConnection(id)) {
+                stats.opsDropped++;
+                return;
+            }
+            graph.disconnect(id);
+            batch.disconnect(id);
+            splitBatch(batch);
+        }
+    }
+}
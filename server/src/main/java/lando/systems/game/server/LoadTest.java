@@ -0,0 +1,361 @@
+package lando.systems.game.server;
+
+import com.github.tommyettinger.ds.FloatList;
+import com.github.tommyettinger.ds.IntList;
+import com.github.tommyettinger.ds.LongList;
+import com.github.tommyettinger.ds.ObjectList;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+import lando.systems.game.net.GraphMirror;
+import lando.systems.game.net.SyncClient;
+
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Load test for capacity planning: runs a {@link BoardServer} in process and drives it with simulated editors
+ * connected over loopback, then reports the edit and broadcast throughput, ping latency and tick times the server
+ * sustained, for each number of editors.
+ * <p>
+ * Each editor adds its own nodes, then spends the run dragging them around, with the occasional connection made or
+ * removed. Every editor mirrors the whole board, and at the end each mirror is checked against the server's graph.
+ * All editors are driven from one thread, so at high counts the driver can be the bottleneck rather than the server,
+ * compare edits sent with the target rate.
+ * <p>
+ * Options, all optional, as {@code --name=value}:
+ * <ul>
+ *     <li>{@code clients}: comma separated editor counts, one run each (default 10,50,100)</li>
+ *     <li>{@code rate}: edits per second per editor (default 60)</li>
+ *     <li>{@code nodes}: nodes per editor (default 20)</li>
+ *     <li>{@code seconds}: measured duration of each run (default 10)</li>
+ *     <li>{@code tick}: server ticks per second (default {@link BoardServer.Defaults#TICK_RATE})</li>
+ *     <li>{@code connects}: fraction of edits that connect or disconnect instead of moving (default 0.02)</li>
+ *     <li>{@code seed}: seed for the editors' random edits (default 1)</li>
+ * </ul>
+ */
+public class LoadTest {
+
+    public static class Defaults {
+        public static final String CLIENTS = "10,50,100";
+        public static final int RATE = 60;
+        public static final int NODES = 20;
+        public static final int SECONDS = 10;
+        public static final float CONNECTS = 0.02f;
+        public static final long SEED = 1;
+
+        public static final float NODE_SIZE = 200;
+        public static final float MOVE_STEP = 8;
+        public static final long PING_INTERVAL_NANOS = 100_000_000;
+        /** time allowed for editors to set up their nodes, and for the last batches to arrive after a run */
+        public static final long SETTLE_NANOS = 5_000_000_000L;
+    }
+
+    public record Options(
+        int[] clientCounts,
+        int rate,
+        int nodes,
+        int seconds,
+        int tickRate,
+        float connects,
+        long seed
+    ) {
+        public static Options parse(String[] args) {
+            var clients = Defaults.CLIENTS;
+            int rate = Defaults.RATE;
+            int nodes = Defaults.NODES;
+            int seconds = Defaults.SECONDS;
+            int tick = BoardServer.Defaults.TICK_RATE;
+            float connects = Defaults.CONNECTS;
+            long seed = Defaults.SEED;
+
+            for (var arg : args) {
+                int split = arg.indexOf('=');
+                if (!arg.startsWith("--") || split < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+                }
+                var name = arg.substring(2, split);
+                var value = arg.substring(split + 1);
+                switch (name) {
+                    case "clients"  -> clients = value;
+                    case "rate"     -> rate = Integer.parseInt(value);
+                    case "nodes"    -> nodes = Integer.parseInt(value);
+                    case "seconds"  -> seconds = Integer.parseInt(value);
+                    case "tick"     -> tick = Integer.parseInt(value);
+                    case "connects" -> connects = Float.parseFloat(value);
+                    case "seed"     -> seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option '" + name + "'");
+                }
+            }
+
+            var clientCounts = Arrays.stream(clients.split(","))
+                .map(String::trim)
+                .mapToInt(Integer::parseInt)
+                .toArray();
+            return new Options(clientCounts, rate, nodes, seconds, tick, connects, seed);
+        }
+    }
+
+    public record Result(
+        int clients,
+        long editsSent,
+        double editsPerSecond,
+        double coalescedPercent,
+        double sentMegabytesPerSecond,
+        double pingP50Millis,
+        double pingP99Millis,
+        double tickMeanMillis,
+        double tickMaxMillis,
+        int dropped,
+        int converged
+    ) {}
+
+    /**
+     * One simulated editor, a client with a mirror of the board and its own nodes to drag around.
+     */
+    private static final class Editor extends GraphMirror {
+        final SyncClient client;
+        final Random random;
+        final int nodeCount;
+        // NOTE: server ids of this editor's nodes, their ports and connections, and the node positions it last sent
+        final IntList nodes = new IntList();
+        final IntList outputs = new IntList();
+        final IntList inputs = new IntList();
+        final IntList connections = new IntList();
+        final FloatList x = new FloatList();
+        final FloatList y = new FloatList();
+        final LongList pings = new LongList();
+        long editsSent;
+        long lastPing;
+        boolean welcomed;
+
+        Editor(SyncClient client, int nodeCount, long seed) {
+            super(new Graph());
+            this.client = client;
+            this.nodeCount = nodeCount;
+            this.random = new Random(seed);
+        }
+
+        boolean ready() {
+            return welcomed && inputs.size() == nodeCount && outputs.size() == nodeCount;
+        }
+
+        @Override
+        public void welcomed(int clientId) {
+            super.welcomed(clientId);
+            welcomed = true;
+            for (int i = 0; i < nodeCount; i++) {
+                float nodeX = random.nextFloat() * 100 * Defaults.NODE_SIZE;
+                float nodeY = random.nextFloat() * 100 * Defaults.NODE_SIZE;
+                client.addNode(i, nodeX, nodeY, Defaults.NODE_SIZE, Defaults.NODE_SIZE, "Editor " + clientId + " node " + i);
+            }
+        }
+
+        @Override
+        public void nodeAdded(int id, int origin, int tag, float x, float y, float width, float height, String title) {
+            super.nodeAdded(id, origin, tag, x, y, width, height, title);
+            if (origin != client.clientId()) return;
+            nodes.add(id);
+            this.x.add(x);
+            this.y.add(y);
+            client.addPort(id, Graph.INPUT, Edge.LEFT, "in");
+            client.addPort(id, Graph.OUTPUT, Edge.RIGHT, "out");
+        }
+
+        @Override
+        public void portAdded(int id, int node, int type, Edge edge, String name) {
+            super.portAdded(id, node, type, edge, name);
+            if (!nodes.contains(node)) return;
+            (type == Graph.INPUT ? inputs : outputs).add(id);
+        }
+
+        @Override
+        public void connected(int id, int srcPort, int dstPort, int style) {
+            super.connected(id, srcPort, dstPort, style);
+            if (outputs.contains(srcPort)) {
+                connections.add(id);
+            }
+        }
+
+        @Override
+        public void ponged(long roundTripNanos) {
+            pings.add(roundTripNanos);
+        }
+
+        void edit(float connects) {
+            editsSent++;
+            if (random.nextFloat() >= connects) {
+                int i = random.nextInt(nodes.size());
+                float nodeX = x.get(i) + (random.nextFloat() - 0.5f) * 2 * Defaults.MOVE_STEP;
+                float nodeY = y.get(i) + (random.nextFloat() - 0.5f) * 2 * Defaults.MOVE_STEP;
+                x.set(i, nodeX);
+                y.set(i, nodeY);
+                client.moveNode(nodes.get(i), nodeX, nodeY);
+            } else if (connections.size() > nodeCount) {
+                client.disconnect(connections.removeAt(random.nextInt(connections.size())));
+            } else {
+                // NOTE: connect to any input on the board, other editors' included
+                int target = randomInput();
+                if (target == Graph.NONE) {
+                    target = inputs.get(random.nextInt(inputs.size()));
+                }
+                client.connect(outputs.get(random.nextInt(outputs.size())), target, 0);
+            }
+        }
+
+        private int randomInput() {
+            var graph = graph();
+            int node = random.nextInt(Math.max(1, graph.nodeLimit()));
+            if (!graph.isNode(node)) return Graph.NONE;
+            int port = graph.findPort(node, Graph.INPUT, "in");
+            return (port != Graph.NONE) ? serverPort(port) : Graph.NONE;
+        }
+    }
+
+    private final Options options;
+
+    public LoadTest(Options options) {
+        this.options = options;
+    }
+
+    public Result run(int clientCount) throws IOException {
+        var editors = new ObjectList<Editor>(clientCount);
+        try (var server = new BoardServer(0, options.tickRate()).start();
+             var selector = Selector.open()) {
+            for (int i = 0; i < clientCount; i++) {
+                var client = SyncClient.connect("localhost", server.port());
+                var editor = new Editor(client, options.nodes(), options.seed() + i);
+                client.channel().register(selector, SelectionKey.OP_READ, editor);
+                editors.add(editor);
+            }
+
+            long deadline = System.nanoTime() + Defaults.SETTLE_NANOS;
+            while (!editors.stream().allMatch(Editor::ready)) {
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("Editors weren't set up within " + Defaults.SETTLE_NANOS / 1_000_000 + " ms");
+                }
+                pump(selector, editors);
+            }
+
+            long start = System.nanoTime();
+            long end = start + options.seconds() * 1_000_000_000L;
+            long now;
+            while ((now = System.nanoTime()) < end) {
+                long due = (now - start) * options.rate() / 1_000_000_000L;
+                for (var editor : editors) {
+                    while (editor.editsSent < due) {
+                        editor.edit(options.connects());
+                    }
+                    if (now - editor.lastPing >= Defaults.PING_INTERVAL_NANOS) {
+                        editor.client.ping();
+                        editor.lastPing = now;
+                    }
+                }
+                pump(selector, editors);
+            }
+            long elapsed = System.nanoTime() - start;
+
+            // NOTE: let the last edits make it through a tick and back before comparing mirrors
+            long settle = System.nanoTime() + 4 * 1_000_000_000L / options.tickRate();
+            while (System.nanoTime() < settle) {
+                pump(selector, editors);
+            }
+            server.close();
+            return result(server, editors, elapsed);
+        } finally {
+            for (var editor : editors) {
+                editor.client.close();
+            }
+        }
+    }
+
+    private static void pump(Selector selector, ObjectList<Editor> editors) throws IOException {
+        for (var editor : editors) {
+            editor.client.flush();
+        }
+        selector.select(1);
+        var keys = selector.selectedKeys();
+        for (var key : keys) {
+            var editor = (Editor) key.attachment();
+            editor.client.poll(editor);
+        }
+        keys.clear();
+    }
+
+    private Result result(BoardServer server, ObjectList<Editor> editors, long elapsedNanos) {
+        var stats = server.stats();
+        var graph = server.graph();
+        double seconds = elapsedNanos / 1e9;
+
+        long edits = 0;
+        var pings = new LongList();
+        int converged = 0;
+        for (var editor : editors) {
+            edits += editor.editsSent;
+            pings.addAll(editor.pings);
+            if (matches(graph, editor)) {
+                converged++;
+            }
+        }
+        pings.sort();
+        long ops = Math.max(1, stats.opsReceived);
+
+        return new Result(
+            editors.size(),
+            edits,
+            edits / seconds,
+            100.0 * stats.movesCoalesced / ops,
+            stats.bytesSent / seconds / (1 << 20),
+            percentile(pings, 0.50) / 1e6,
+            percentile(pings, 0.99) / 1e6,
+            (stats.ticks > 0) ? stats.tickNanos / 1e6 / stats.ticks : 0,
+            stats.maxTickNanos / 1e6,
+            stats.clientsDropped,
+            converged
+        );
+    }
+
+    /**
+     * @return true if the editor's mirror has the same nodes, positions and connections as the server's graph
+     */
+    private static boolean matches(Graph graph, Editor editor) {
+        var mirror = editor.graph();
+        if (mirror.nodeCount() != graph.nodeCount() || mirror.connectionCount() != graph.connectionCount()) {
+            return false;
+        }
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            if (!graph.isNode(node)) continue;
+            int local = editor.localNode(node);
+            if (local == Graph.NONE || mirror.nodeX(local) != graph.nodeX(node) || mirror.nodeY(local) != graph.nodeY(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long percentile(LongList sorted, double fraction) {
+        if (sorted.isEmpty()) return 0;
+        return sorted.get(Math.min(sorted.size() - 1, (int) (fraction * sorted.size())));
+    }
+
+    public static void main(String[] args) throws IOException {
+        var options = Options.parse(args);
+        var test = new LoadTest(options);
+
+        System.out.printf("board server load test: %d nodes/editor, %d edits/s/editor, %.0f%% connects, %d s, %d ticks/s%n",
+            options.nodes(), options.rate(), 100 * options.connects(), options.seconds(), options.tickRate());
+        System.out.printf("%8s %10s %10s %10s %9s %10s %10s %10s %10s %8s %10s%n",
+            "editors", "edits", "edits/s", "coalesced", "out MB/s", "ping p50", "ping p99", "tick ms", "tick max", "dropped", "converged");
+
+        for (int clientCount : options.clientCounts()) {
+            var result = test.run(clientCount);
+            System.out.printf("%8d %10d %10.0f %9.1f%% %9.2f %10.3f %10.3f %10.3f %10.3f %8d %10s%n",
+                result.clients(), result.editsSent(), result.editsPerSecond(), result.coalescedPercent(),
+                result.sentMegabytesPerSecond(), result.pingP50Millis(), result.pingP99Millis(),
+                result.tickMeanMillis(), result.tickMaxMillis(), result.dropped(),
+                result.converged() + "/" + result.clients());
+        }
+    }
+}
@@ -1,8 +1,34 @@
 package lando.systems.game.server;
 
-/** Launches the server application. */
+import lando.systems.game.net.Protocol;
+
+import java.io.IOException;
+
+/**
+ * Launches the board server, see {@link BoardServer}.
+ * Options, as {@code --name=value}: {@code port} (default {@link Protocol#DEFAULT_PORT})
+ * and {@code tick}, ticks per second (default {@link BoardServer.Defaults#TICK_RATE}).
+ */
 public class ServerLauncher {
-    public static void main(String[] args) {
-        // TODO Implement server application.
+    public static void main(String[] args) throws IOException {
+        int port = Protocol.DEFAULT_PORT;
+        int tickRate = BoardServer.Defaults.TICK_RATE;
+        for (var arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+            }
+            var name = arg.substring(2, split);
+            var value = arg.substring(split + 1);
+            switch (name) {
+                case "port" -> port = Integer.parseInt(value);
+                case "tick" -> tickRate = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option '" + name + "'");
+            }
+        }
+
+        var server = new BoardServer(port, tickRate);
+        System.out.printf("board server listening on port %d, %d ticks/s%n", server.port(), tickRate);
+        server.run();
     }
-}
\ No newline at end of file
+}
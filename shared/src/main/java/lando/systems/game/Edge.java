@@ -0,0 +1,14 @@
+package lando.systems.game;
+
+public enum Edge {
+    TOP(0, 1), RIGHT(1, 0), BOTTOM(0, -1), LEFT(-1, 0);
+
+    // NOTE: outward facing direction of the edge, eg. the direction a connection leaves a port
+    public final int dx;
+    public final int dy;
+
+    Edge(int dx, int dy) {
+        this.dx = dx;
+        this.dy = dy;
+    }
+}
@@ -0,0 +1,471 @@
+package lando.systems.game.graph;
+
+import com.github.tommyettinger.ds.IntList;
+import com.github.tommyettinger.ds.LongIntMap;
+import com.github.tommyettinger.ds.LongObjectMap;
+import com.github.tommyettinger.ds.ObjectIntMap;
+import lando.systems.game.Edge;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A graph split into square chunks of world space, stored as one file per chunk in a directory,
+ * so a graph too large for the heap can be paged in and out a region at a time.
+ * <p>
+ * Every node belongs to the chunk containing its bottom left corner when the store was created.
+ * Nodes and connections have keys that are stable across the whole store, a connection is stored in the chunks
+ * of both of its nodes and only exists in a loaded graph while both of those chunks are loaded.
+ * <p>
+ * The directory holds an index, with the chunk size, the saved view and the node count of each chunk,
+ * and a {@code <x>_<y>.chunk} file per chunk. Encoding is little endian, with strings as in {@link GraphFile}.
+ * <pre>
+ * index  int magic, int version, float chunkSize, float viewX, float viewY, float viewZoom,
+ *        int chunkCount, then per chunk: int x, int y, int nodeCount
+ * chunk  int magic, int version, int x, int y, int nameCount, nameCount strings,
+ *        int nodeCount, then per node: int key, float x, y, width, height, string title, int portCount,
+ *        then per port: byte type, byte edge ordinal, int name index, float x, y relative to the node,
+ *        int connectionCount, then per connection: int key, int srcNodeKey, int srcPortIndex,
+ *        int dstNodeKey, int dstPortIndex, byte style, port indices being the port's position in its node's list
+ * </pre>
+ * Chunk files are read and written whole, see {@link #read(int, int)} and {@link #write(Chunk)},
+ * which may be called from a background thread as long as it's only one thread at a time.
+ */
+public final class ChunkStore {
+
+    public static final int INDEX_MAGIC = 0x58444943; // "CIDX"
+    public static final int CHUNK_MAGIC = 0x4b4e4843; // "CHNK"
+    public static final int VERSION = 1;
+    public static final String INDEX_FILE = "chunks.index";
+
+    private static final Edge[] EDGES = Edge.values();
+
+    /**
+     * The contents of one chunk, decoded into parallel arrays.
+     */
+    public static final class Chunk {
+        public final int x;
+        public final int y;
+
+        public int nodeCount;
+        public int[] nodeKeys;
+        /** x, y, width, height per node */
+        public float[] nodeBounds;
+        public String[] nodeTitles;
+        /** index of each node's first port, with an extra entry for the end of the last node's ports */
+        public int[] nodePortStart;
+
+        public int portCount;
+        public byte[] portTypes;
+        public byte[] portEdges;
+        public String[] portNames;
+        /** x, y per port, relative to its node */
+        public float[] portPositions;
+
+        public int connectionCount;
+        /** key, srcNodeKey, srcPortIndex, dstNodeKey, dstPortIndex, style per connection */
+        public int[] connections;
+
+        Chunk(int x, int y, int nodeCount, int portCount, int connectionCount) {
+            this.x = x;
+            this.y = y;
+            this.nodeCount = nodeCount;
+            this.nodeKeys = new int[nodeCount];
+            this.nodeBounds = new float[4 * nodeCount];
+            this.nodeTitles = new String[nodeCount];
+            this.nodePortStart = new int[nodeCount + 1];
+            this.portCount = portCount;
+            this.portTypes = new byte[portCount];
+            this.portEdges = new byte[portCount];
+            this.portNames = new String[portCount];
+            this.portPositions = new float[2 * portCount];
+            this.connectionCount = connectionCount;
+            this.connections = new int[6 * connectionCount];
+        }
+    }
+
+    final Path directory;
+    final float chunkSize;
+    final GraphFile.View view;
+    // NOTE: node count by packed chunk coordinates, chunks without nodes aren't stored
+    final LongIntMap chunks = new LongIntMap();
+
+    private ChunkStore(Path directory, float chunkSize, GraphFile.View view) {
+        this.directory = directory;
+        this.chunkSize = chunkSize;
+        this.view = view;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    public float chunkSize() {
+        return chunkSize;
+    }
+
+    public GraphFile.View view() {
+        return view;
+    }
+
+    public int chunkCount() {
+        return chunks.size();
+    }
+
+    public boolean hasChunk(int x, int y) {
+        return chunks.containsKey(key(x, y));
+    }
+
+    /**
+     * @return the number of nodes in the chunk, or zero if it isn't stored
+     */
+    public int nodeCount(int x, int y) {
+        return chunks.get(key(x, y));
+    }
+
+    /**
+     * @return the chunk coordinate containing the world coordinate, on either axis
+     */
+    public int chunkCoord(float world) {
+        return (int) Math.floor(world / chunkSize);
+    }
+
+    public static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    public static int keyX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int keyY(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Open an existing store, reading its index.
+     */
+    public static ChunkStore open(Path directory) throws IOException {
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(directory.resolve(INDEX_FILE))).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != INDEX_MAGIC) {
+                throw new IOException("Not a chunk store index");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported chunk store version " + version + ", expected " + VERSION);
+            }
+            float chunkSize = buffer.getFloat();
+            var view = new GraphFile.View(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+            if (!(chunkSize > 0)) {
+                throw new IOException("Corrupt chunk store index, chunk size " + chunkSize);
+            }
+
+            var store = new ChunkStore(directory, chunkSize, view);
+            int count = buffer.getInt();
+            for (int i = 0; i < count; i++) {
+                int x = buffer.getInt();
+                int y = buffer.getInt();
+                store.chunks.put(key(x, y), buffer.getInt());
+            }
+            return store;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated chunk store index", e);
+        }
+    }
+
+    /**
+     * Split the graph into chunks and write them, with an index, to the directory, replacing any store already there.
+     */
+    public static ChunkStore create(Graph graph, GraphFile.View view, Path directory, float chunkSize) throws IOException {
+        Files.createDirectories(directory);
+        var store = new ChunkStore(directory, chunkSize, view);
+
+        // NOTE: keys are dense over the graph's live nodes, and port indices are positions within a node's list
+        var nodeKeys = new int[graph.nodeLimit()];
+        var portIndices = new int[graph.portLimit()];
+        var chunkNodes = new LongObjectMap<IntList>();
+        var chunkConnections = new LongObjectMap<IntList>();
+        int nextKey = 0;
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            if (!graph.isNode(node)) continue;
+            nodeKeys[node] = nextKey++;
+
+            int index = 0;
+            for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+                portIndices[port] = index++;
+            }
+
+            long chunk = store.chunkOf(graph, node);
+            var nodes = chunkNodes.get(chunk);
+            if (nodes == null) {
+                chunkNodes.put(chunk, nodes = new IntList());
+                chunkConnections.put(chunk, new IntList());
+            }
+            nodes.add(node);
+        }
+
+        for (int connection = 0; connection < graph.connectionLimit(); connection++) {
+            if (!graph.isConnection(connection)) continue;
+            long srcChunk = store.chunkOf(graph, graph.portNode(graph.connectionSrc(connection)));
+            long dstChunk = store.chunkOf(graph, graph.portNode(graph.connectionDst(connection)));
+            chunkConnections.get(srcChunk).add(connection);
+            if (dstChunk != srcChunk) {
+                chunkConnections.get(dstChunk).add(connection);
+            }
+        }
+
+        for (var entry : chunkNodes) {
+            long key = entry.key;
+            var nodes = entry.value;
+            var connections = chunkConnections.get(key);
+
+            int portCount = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                for (int port = graph.firstPort(nodes.get(i)); port != Graph.NONE; port = graph.nextPort(port)) {
+                    portCount++;
+                }
+            }
+
+            var chunk = new Chunk(keyX(key), keyY(key), nodes.size(), portCount, connections.size());
+            int p = 0;
+            for (int i = 0; i < nodes.size(); i++) {
+                int node = nodes.get(i);
+                chunk.nodeKeys[i] = nodeKeys[node];
+                chunk.nodeBounds[4 * i]     = graph.nodeX(node);
+                chunk.nodeBounds[4 * i + 1] = graph.nodeY(node);
+                chunk.nodeBounds[4 * i + 2] = graph.nodeWidth(node);
+                chunk.nodeBounds[4 * i + 3] = graph.nodeHeight(node);
+                chunk.nodeTitles[i] = graph.nodeTitle(node);
+                chunk.nodePortStart[i] = p;
+                for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port), p++) {
+                    chunk.portTypes[p] = (byte) graph.portType(port);
+                    chunk.portEdges[p] = (byte) graph.portEdge(port).ordinal();
+                    chunk.portNames[p] = graph.portName(port);
+                    chunk.portPositions[2 * p]     = graph.portX(port);
+                    chunk.portPositions[2 * p + 1] = graph.portY(port);
+                }
+            }
+            chunk.nodePortStart[nodes.size()] = p;
+
+            for (int i = 0; i < connections.size(); i++) {
+                int connection = connections.get(i);
+                int src = graph.connectionSrc(connection);
+                int dst = graph.connectionDst(connection);
+                int c = 6 * i;
+                chunk.connections[c]     = connection;
+                chunk.connections[c + 1] = nodeKeys[graph.portNode(src)];
+                chunk.connections[c + 2] = portIndices[src];
+                chunk.connections[c + 3] = nodeKeys[graph.portNode(dst)];
+                chunk.connections[c + 4] = portIndices[dst];
+                chunk.connections[c + 5] = graph.connectionStyle(connection);
+            }
+
+            store.write(chunk);
+            store.chunks.put(key, nodes.size());
+        }
+
+        store.writeIndex();
+        return store;
+    }
+
+    /**
+     * Read and decode a chunk's file.
+     */
+    public Chunk read(int x, int y) throws IOException {
+        var buffer = ByteBuffer.wrap(Files.readAllBytes(chunkFile(x, y))).order(ByteOrder.LITTLE_ENDIAN);
+        try {
+            if (buffer.getInt() != CHUNK_MAGIC) {
+                throw new IOException("Not a chunk file: " + chunkFile(x, y));
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported chunk version " + version + ", expected " + VERSION);
+            }
+            if (buffer.getInt() != x || buffer.getInt() != y) {
+                throw new IOException("Chunk file doesn't match its coordinates: " + chunkFile(x, y));
+            }
+
+            var names = new String[checkCount(buffer.getInt())];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = getString(buffer);
+            }
+
+            // NOTE: port and connection counts aren't known up front, arrays start sized for a few ports per node
+            int nodeCount = checkCount(buffer.getInt());
+            var chunk = new Chunk(x, y, nodeCount, 4 * nodeCount, 0);
+            int p = 0;
+            for (int i = 0; i < nodeCount; i++) {
+                chunk.nodeKeys[i] = buffer.getInt();
+                for (int b = 0; b < 4; b++) {
+                    chunk.nodeBounds[4 * i + b] = buffer.getFloat();
+                }
+                chunk.nodeTitles[i] = getString(buffer);
+                chunk.nodePortStart[i] = p;
+
+                int ports = checkCount(buffer.getInt());
+                ensurePortCapacity(chunk, p + ports);
+                for (int end = p + ports; p < end; p++) {
+                    chunk.portTypes[p] = buffer.get();
+                    chunk.portEdges[p] = buffer.get();
+                    int name = buffer.getInt();
+                    if (chunk.portTypes[p] != Graph.INPUT && chunk.portTypes[p] != Graph.OUTPUT
+                        || chunk.portEdges[p] < 0 || chunk.portEdges[p] >= EDGES.length
+                        || name < 0 || name >= names.length) {
+                        throw new IOException("Corrupt chunk file, bad port " + p + ": " + chunkFile(x, y));
+                    }
+                    chunk.portNames[p] = names[name];
+                    chunk.portPositions[2 * p]     = buffer.getFloat();
+                    chunk.portPositions[2 * p + 1] = buffer.getFloat();
+                }
+            }
+            chunk.nodePortStart[nodeCount] = p;
+            chunk.portCount = p;
+
+            int connectionCount = checkCount(buffer.getInt());
+            chunk.connectionCount = connectionCount;
+            chunk.connections = new int[6 * connectionCount];
+            for (int i = 0; i < connectionCount; i++) {
+                int c = 6 * i;
+                for (int f = 0; f < 5; f++) {
+                    chunk.connections[c + f] = buffer.getInt();
+                }
+                chunk.connections[c + 5] = buffer.get();
+                if (!Graph.isStyle(chunk.connections[c + 5])) {
+                    throw new IOException("Corrupt chunk file, bad connection " + i + ": " + chunkFile(x, y));
+                }
+            }
+            return chunk;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated chunk file: " + chunkFile(x, y), e);
+        }
+    }
+
+    /**
+     * Encode a chunk and replace its file, the old file stays intact if writing fails part way.
+     */
+    public void write(Chunk chunk) throws IOException {
+        var names = new ObjectIntMap<String>();
+        var nameList = new IntList();
+        for (int p = 0; p < chunk.portCount; p++) {
+            if (!names.containsKey(chunk.portNames[p])) {
+                names.put(chunk.portNames[p], names.size());
+                nameList.add(p);
+            }
+        }
+
+        var file = chunkFile(chunk.x, chunk.y);
+        var temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (var channel = FileChannel.open(temp,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var out = new GraphFile.Output(channel);
+
+            out.ensure(5 * Integer.BYTES);
+            out.buffer.putInt(CHUNK_MAGIC)
+                .putInt(VERSION)
+                .putInt(chunk.x)
+                .putInt(chunk.y)
+                .putInt(nameList.size());
+            for (int i = 0; i < nameList.size(); i++) {
+                out.putString(chunk.portNames[nameList.get(i)]);
+            }
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(chunk.nodeCount);
+            for (int i = 0; i < chunk.nodeCount; i++) {
+                out.ensure(Integer.BYTES + 4 * Float.BYTES);
+                out.buffer.putInt(chunk.nodeKeys[i]);
+                for (int b = 0; b < 4; b++) {
+                    out.buffer.putFloat(chunk.nodeBounds[4 * i + b]);
+                }
+                out.putString(chunk.nodeTitles[i]);
+
+                int start = chunk.nodePortStart[i];
+                int end = chunk.nodePortStart[i + 1];
+                out.ensure(Integer.BYTES);
+                out.buffer.putInt(end - start);
+                for (int p = start; p < end; p++) {
+                    out.ensure(2 + Integer.BYTES + 2 * Float.BYTES);
+                    out.buffer.put(chunk.portTypes[p])
+                        .put(chunk.portEdges[p])
+                        .putInt(names.get(chunk.portNames[p]))
+                        .putFloat(chunk.portPositions[2 * p])
+                        .putFloat(chunk.portPositions[2 * p + 1]);
+                }
+            }
+
+            out.ensure(Integer.BYTES);
+            out.buffer.putInt(chunk.connectionCount);
+            for (int i = 0; i < chunk.connectionCount; i++) {
+                int c = 6 * i;
+                out.ensure(5 * Integer.BYTES + 1);
+                for (int f = 0; f < 5; f++) {
+                    out.buffer.putInt(chunk.connections[c + f]);
+                }
+                out.buffer.put((byte) chunk.connections[c + 5]);
+            }
+            out.flush();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeIndex() throws IOException {
+        var buffer = ByteBuffer.allocate(7 * Integer.BYTES + 3 * Integer.BYTES * chunks.size()).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(INDEX_MAGIC)
+            .putInt(VERSION)
+            .putFloat(chunkSize)
+            .putFloat(view.x())
+            .putFloat(view.y())
+            .putFloat(view.zoom())
+            .putInt(chunks.size());
+        for (var entry : chunks) {
+            buffer.putInt(keyX(entry.key)).putInt(keyY(entry.key)).putInt(entry.value);
+        }
+        Files.write(directory.resolve(INDEX_FILE), buffer.array());
+    }
+
+    private Path chunkFile(int x, int y) {
+        return directory.resolve(x + "_" + y + ".chunk");
+    }
+
+    private long chunkOf(Graph graph, int node) {
+        return key(chunkCoord(graph.nodeX(node)), chunkCoord(graph.nodeY(node)));
+    }
+
+    private static void ensurePortCapacity(Chunk chunk, int capacity) {
+        if (capacity <= chunk.portTypes.length) return;
+
+        int length = Math.max(capacity, 2 * chunk.portTypes.length);
+        chunk.portTypes = Arrays.copyOf(chunk.portTypes, length);
+        chunk.portEdges = Arrays.copyOf(chunk.portEdges, length);
+        chunk.portNames = Arrays.copyOf(chunk.portNames, length);
+        chunk.portPositions = Arrays.copyOf(chunk.portPositions, 2 * length);
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Corrupt chunk file, negative count " + count);
+        }
+        return count;
+    }
+
+    private static String getString(ByteBuffer buffer) throws IOException {
+        int length = buffer.getInt();
+        if (length == -1) return null;
+        if (length < 0 || length > buffer.remaining()) {
+            throw new IOException("Corrupt chunk file, bad string length " + length);
+        }
+        var string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
@@ -0,0 +1,299 @@
+package lando.systems.game.graph;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/**
+ * A force directed layout, nodes push each other apart while connections pull their ends together,
+ * with a weak pull towards where the nodes started so separate components stay close.
+ * <p>
+ * Repulsion is approximated with a Barnes-Hut quadtree rebuilt each step, distant groups of nodes push as one
+ * body at their center of mass, so a step is O(n log n) rather than O(n^2). Repulsion is accumulated in parallel
+ * on the common {@link java.util.concurrent.ForkJoinPool} once there are enough nodes to split.
+ * Moves are capped by a temperature that cools every step, the layout is done once it's cooled
+ * to the point nodes barely move, or after {@link Defaults#MAX_ITERATIONS}.
+ */
+public class ForceLayout implements GraphLayout {
+
+    public static class Defaults {
+        public static final int MAX_ITERATIONS = 600;
+        /** cells smaller than this fraction of their distance from a node push it as one body */
+        public static final float THETA = 1.2f;
+        /** ideal connection length, as a multiple of the average node size */
+        public static final float SPACING = 2f;
+        /** strength of the pull towards the start, one keeps the layout about sqrt(n) ideal lengths across */
+        public static final float GRAVITY = 1f;
+        public static final float COOLING = 0.97f;
+        /** finished once no node moves further than this fraction of the ideal length in a step */
+        public static final float MIN_MOVE = 0.01f;
+        /** repulsion between two nodes whose bounding circles overlap is this many times stronger */
+        public static final float OVERLAP_REPULSION = 100f;
+        /** nodes per task when repulsion is split across threads */
+        public static final int CHUNK_SIZE = 256;
+    }
+
+    private static final int EMPTY = -1;
+    private static final int INTERNAL = -2;
+    private static final int MULTIPLE = -3;
+    // NOTE: nodes closer than this many levels deep share a leaf, so stacked nodes can't split the tree forever
+    private static final int MAX_DEPTH = 24;
+
+    private final LayoutGraph graph;
+    private final float[] cx;
+    private final float[] cy;
+    private final float[] dispX;
+    private final float[] dispY;
+    private final float[] radius;
+    private final float ideal;
+    private final float startX;
+    private final float startY;
+    private float temperature;
+    private int iterations;
+    private boolean done;
+
+    // NOTE: quadtree, children of a split cell are four consecutive cells starting at children[cell]
+    private int cellCount;
+    private int[] body = new int[0];
+    private int[] children = new int[0];
+    private float[] mass = new float[0];
+    // NOTE: doubles, these sum positions of up to every node
+    private double[] sumX = new double[0];
+    private double[] sumY = new double[0];
+    private float[] cellX = new float[0];
+    private float[] cellY = new float[0];
+    private float[] cellHalf = new float[0];
+
+    public ForceLayout(LayoutGraph graph) {
+        this.graph = graph;
+        int n = graph.nodeCount;
+        this.cx = new float[n];
+        this.cy = new float[n];
+        this.dispX = new float[n];
+        this.dispY = new float[n];
+        this.radius = new float[n];
+
+        float size = 0;
+        double sumCx = 0;
+        double sumCy = 0;
+        for (int i = 0; i < n; i++) {
+            size += Math.max(graph.width[i], graph.height[i]);
+            cx[i] = graph.x[i] + graph.width[i] / 2;
+            cy[i] = graph.y[i] + graph.height[i] / 2;
+            radius[i] = (float) Math.sqrt(graph.width[i] * graph.width[i] + graph.height[i] * graph.height[i]) / 2;
+            sumCx += cx[i];
+            sumCy += cy[i];
+        }
+        this.ideal = Defaults.SPACING * Math.max(1, (n > 0) ? size / n : 1);
+        this.startX = (n > 0) ? (float) (sumCx / n) : 0;
+        this.startY = (n > 0) ? (float) (sumCy / n) : 0;
+        this.temperature = ideal * Math.max(1, (float) Math.sqrt(n) / 4);
+        this.done = (n == 0);
+
+        // NOTE: nodes stacked on the same spot have no direction to push each other in, nudge everything a little
+        var random = new Random(n);
+        for (int i = 0; i < n; i++) {
+            cx[i] += (random.nextFloat() - 0.5f) * ideal * 0.1f;
+            cy[i] += (random.nextFloat() - 0.5f) * ideal * 0.1f;
+        }
+    }
+
+    @Override
+    public boolean step() {
+        if (done) return true;
+        iterations++;
+        int n = graph.nodeCount;
+
+        buildTree();
+        int chunks = (n + Defaults.CHUNK_SIZE - 1) / Defaults.CHUNK_SIZE;
+        if (chunks > 1) {
+            IntStream.range(0, chunks).parallel().forEach(this::repel);
+        } else {
+            repel(0);
+        }
+
+        // attraction along connections, d^2 / k
+        for (int e = 0; e < graph.edgeCount; e++) {
+            int src = graph.edgeSrc[e];
+            int dst = graph.edgeDst[e];
+            float dx = cx[dst] - cx[src];
+            float dy = cy[dst] - cy[src];
+            float f = (float) Math.sqrt(dx * dx + dy * dy) / ideal;
+            dispX[src] += dx * f;
+            dispY[src] += dy * f;
+            dispX[dst] -= dx * f;
+            dispY[dst] -= dy * f;
+        }
+
+        float maxMove = 0;
+        float gravity = Defaults.GRAVITY;
+        for (int i = 0; i < n; i++) {
+            float dx = dispX[i] - (cx[i] - startX) * gravity;
+            float dy = dispY[i] - (cy[i] - startY) * gravity;
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+            if (length == 0) continue;
+            float move = Math.min(length, temperature);
+            cx[i] += dx / length * move;
+            cy[i] += dy / length * move;
+            maxMove = Math.max(maxMove, move);
+        }
+
+        temperature *= Defaults.COOLING;
+        done = iterations >= Defaults.MAX_ITERATIONS || maxMove < Defaults.MIN_MOVE * ideal;
+        return done;
+    }
+
+    @Override
+    public void positions(float[] out) {
+        for (int i = 0; i < graph.nodeCount; i++) {
+            out[2 * i]     = cx[i] - graph.width[i] / 2;
+            out[2 * i + 1] = cy[i] - graph.height[i] / 2;
+        }
+    }
+
+    @Override
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * Set the displacement of one chunk of nodes to the repulsion from all the others, k^2 / d, through the tree.
+     */
+    private void repel(int chunk) {
+        var stack = new int[4 * (MAX_DEPTH + 1)];
+        float k2 = ideal * ideal;
+        float theta2 = Defaults.THETA * Defaults.THETA;
+        float minDist2 = (Defaults.MIN_MOVE * ideal) * (Defaults.MIN_MOVE * ideal);
+        int end = Math.min(graph.nodeCount, (chunk + 1) * Defaults.CHUNK_SIZE);
+        for (int i = chunk * Defaults.CHUNK_SIZE; i < end; i++) {
+            float px = cx[i];
+            float py = cy[i];
+            float fx = 0;
+            float fy = 0;
+            int top = 0;
+            stack[top++] = 0;
+            while (top > 0) {
+                int cell = stack[--top];
+                float m = mass[cell];
+                int b = body[cell];
+                if (m == 0 || b == i) continue;
+                float dx = (float) (px - sumX[cell] / m);
+                float dy = (float) (py - sumY[cell] / m);
+                float d2 = dx * dx + dy * dy;
+                float size = 2 * cellHalf[cell];
+                if (b == INTERNAL && size * size >= theta2 * d2) {
+                    int first = children[cell];
+                    stack[top++] = first;
+                    stack[top++] = first + 1;
+                    stack[top++] = first + 2;
+                    stack[top++] = first + 3;
+                    continue;
+                }
+                if (d2 < minDist2) continue;
+                float f = k2 * m / d2;
+                if (b >= 0) {
+                    float touching = radius[i] + radius[b];
+                    if (d2 < touching * touching) {
+                        f *= Defaults.OVERLAP_REPULSION;
+                    }
+                }
+                fx += dx * f;
+                fy += dy * f;
+            }
+            dispX[i] = fx;
+            dispY[i] = fy;
+        }
+    }
+
+    private void buildTree() {
+        int n = graph.nodeCount;
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, cx[i]);
+            minY = Math.min(minY, cy[i]);
+            maxX = Math.max(maxX, cx[i]);
+            maxY = Math.max(maxY, cy[i]);
+        }
+
+        cellCount = 0;
+        float half = Math.max(maxX - minX, maxY - minY) / 2 + 1;
+        newCell((minX + maxX) / 2, (minY + maxY) / 2, half);
+        for (int i = 0; i < n; i++) {
+            insert(i);
+        }
+    }
+
+    private void insert(int i) {
+        float px = cx[i];
+        float py = cy[i];
+        int cell = 0;
+        for (int depth = 0; ; depth++) {
+            int b = body[cell];
+            mass[cell] += 1;
+            sumX[cell] += px;
+            sumY[cell] += py;
+            if (b == EMPTY) {
+                body[cell] = i;
+                return;
+            }
+            if (b == MULTIPLE) return;
+            if (b >= 0) {
+                if (depth == MAX_DEPTH) {
+                    body[cell] = MULTIPLE;
+                    return;
+                }
+                // push the leaf's body down into a new child before descending with this one
+                split(cell);
+                int child = childAt(cell, cx[b], cy[b]);
+                body[child] = b;
+                mass[child] = 1;
+                sumX[child] = cx[b];
+                sumY[child] = cy[b];
+            }
+            cell = childAt(cell, px, py);
+        }
+    }
+
+    private void split(int cell) {
+        float half = cellHalf[cell] / 2;
+        float x = cellX[cell];
+        float y = cellY[cell];
+        int first = newCell(x - half, y - half, half);
+        newCell(x + half, y - half, half);
+        newCell(x - half, y + half, half);
+        newCell(x + half, y + half, half);
+        children[cell] = first;
+        body[cell] = INTERNAL;
+    }
+
+    private int childAt(int cell, float x, float y) {
+        int quadrant = ((x >= cellX[cell]) ? 1 : 0) + ((y >= cellY[cell]) ? 2 : 0);
+        return children[cell] + quadrant;
+    }
+
+    private int newCell(float x, float y, float half) {
+        if (cellCount == body.length) {
+            int length = Math.max(64, 2 * body.length);
+            body = Arrays.copyOf(body, length);
+            children = Arrays.copyOf(children, length);
+            mass = Arrays.copyOf(mass, length);
+            sumX = Arrays.copyOf(sumX, length);
+            sumY = Arrays.copyOf(sumY, length);
+            cellX = Arrays.copyOf(cellX, length);
+            cellY = Arrays.copyOf(cellY, length);
+            cellHalf = Arrays.copyOf(cellHalf, length);
+        }
+        int cell = cellCount++;
+        body[cell] = EMPTY;
+        children[cell] = -1;
+        mass[cell] = 0;
+        sumX[cell] = 0;
+        sumY[cell] = 0;
+        cellX[cell] = x;
+        cellY[cell] = y;
+        cellHalf[cell] = half;
+        return cell;
+    }
+
+}
@@ -0,0 +1,713 @@
+package lando.systems.game.graph;
+
+import com.github.tommyettinger.ds.IntList;
+import com.github.tommyettinger.ds.ObjectIntMap;
+import com.github.tommyettinger.ds.ObjectList;
+import lando.systems.game.Edge;
+
+import java.util.Arrays;
+
+/**
+ * Compact store for a node graph: nodes, the ports along their edges, and connections between ports.
+ * <p>
+ * Everything is identified by an int id and stored as parallel primitive arrays indexed by that id,
+ * ids of removed entries are recycled. A node's ports and connections are intrusive linked lists
+ * threaded through the same arrays, so once capacity has grown to fit the graph no operation allocates.
+ * Port names are interned, each distinct name is stored once no matter how many ports share it.
+ * <p>
+ * Positions are in world space, port positions are relative to the bottom left corner of their node.
+ * Not thread safe.
+ */
+public class Graph {
+
+    public static final int NONE = -1;
+
+    // port types
+    public static final int INPUT = 0;
+    public static final int OUTPUT = 1;
+
+    /** number of connection styles, styles are 0 until this, see {@link #isStyle(int)} */
+    public static final int STYLES = 2;
+
+    private static final Edge[] EDGES = Edge.values();
+
+    /**
+     * Told about each change to the graph's structure as it's made, eg. to keep a copy of the structure
+     * up to date without rebuilding it. Not told about moves, renames or port positions.
+     * Connections attached to a removed node or port are disconnected before the node or port is removed,
+     * a removed node's ports are removed along with it without being reported one by one.
+     */
+    public interface StructureListener {
+        void nodeAdded(int node);
+        void nodeRemoved(int node);
+        void portAdded(int port, int node, int type);
+        void portRemoved(int port, int node);
+        void connected(int connection, int srcPort, int dstPort);
+        void disconnected(int connection, int srcPort, int dstPort);
+        void cleared();
+    }
+
+    // NOTE: nodes
+    private int nodeLimit;
+    private int nodeCount;
+    private boolean[] nodeAlive = new boolean[0];
+    private float[] nodeX = new float[0];
+    private float[] nodeY = new float[0];
+    private float[] nodeWidth = new float[0];
+    private float[] nodeHeight = new float[0];
+    private String[] nodeTitle = new String[0];
+    private int[] nodeFirstPort = new int[0];
+    private int[] nodeLastPort = new int[0];
+    private int[] nodeFirstLink = new int[0];
+    private final IntList freeNodes = new IntList();
+
+    // NOTE: ports
+    private int portLimit;
+    private int portCount;
+    private boolean[] portAlive = new boolean[0];
+    private int[] portNode = new int[0];
+    private int[] portType = new int[0];
+    private int[] portEdge = new int[0];
+    private int[] portName = new int[0];
+    private int[] portNext = new int[0];
+    private float[] portX = new float[0];
+    private float[] portY = new float[0];
+    private final IntList freePorts = new IntList();
+
+    // NOTE: connections, each has two links (2 * id for the source end, 2 * id + 1 for the destination end)
+    //  that thread it into the connection lists of the nodes at either end
+    private int connectionLimit;
+    private int connectionCount;
+    private boolean[] connectionAlive = new boolean[0];
+    private int[] connectionSrc = new int[0];
+    private int[] connectionDst = new int[0];
+    private int[] connectionStyle = new int[0];
+    private int[] linkNext = new int[0];
+    private final IntList freeConnections = new IntList();
+
+    // NOTE: bumped by every change to the set of nodes, ports or connections, but not by moves or renames
+    private int version;
+    private StructureListener structureListener;
+
+    private final ObjectIntMap<String> nameIds = new ObjectIntMap<>();
+    private final ObjectList<String> names = new ObjectList<>();
+
+    // NOTE: port layout scratch, per (type, edge)
+    private final int[] layoutCounts = new int[2 * EDGES.length];
+    private final int[] layoutIndices = new int[2 * EDGES.length];
+
+    public Graph() {
+        nameIds.setDefaultValue(NONE);
+    }
+
+    /**
+     * Remove everything, keeping allocated capacity and interned names.
+     */
+    public void clear() {
+        Arrays.fill(nodeAlive, 0, nodeLimit, false);
+        Arrays.fill(nodeTitle, 0, nodeLimit, null);
+        Arrays.fill(portAlive, 0, portLimit, false);
+        Arrays.fill(connectionAlive, 0, connectionLimit, false);
+        nodeLimit = nodeCount = 0;
+        portLimit = portCount = 0;
+        connectionLimit = connectionCount = 0;
+        freeNodes.clear();
+        freePorts.clear();
+        freeConnections.clear();
+        version++;
+        if (structureListener != null) structureListener.cleared();
+    }
+
+    /**
+     * Set the one listener told about changes to the graph's structure, or null for none.
+     */
+    public void setStructureListener(StructureListener listener) {
+        structureListener = listener;
+    }
+
+    /**
+     * @return a counter that changes whenever nodes, ports or connections are added or removed,
+     *         for caches of the graph's structure to check whether they're stale
+     */
+    public int version() {
+        return version;
+    }
+
+    // ------------------------------------------------------------------------
+    // Nodes
+    // ------------------------------------------------------------------------
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Every node id is less than this, iterate up to it and skip ids where {@link #isNode(int)} is false.
+     */
+    public int nodeLimit() {
+        return nodeLimit;
+    }
+
+    public boolean isNode(int node) {
+        return node >= 0 && node < nodeLimit && nodeAlive[node];
+    }
+
+    public int addNode(float x, float y, float width, float height) {
+        int node;
+        if (freeNodes.isEmpty()) {
+            node = nodeLimit++;
+            ensureNodeCapacity(nodeLimit);
+        } else {
+            node = freeNodes.pop();
+        }
+        initNode(node, x, y, width, height);
+        return node;
+    }
+
+    /**
+     * Add a node with a specific id that isn't in use, eg. to bring back a removed node with the id
+     * other entries, like an undo history, still refer to it by.
+     */
+    public void restoreNode(int node, float x, float y, float width, float height) {
+        if (isNode(node)) {
+            throw new IllegalArgumentException("Node id " + node + " is in use");
+        }
+        if (node >= nodeLimit) {
+            for (int id = nodeLimit; id < node; id++) {
+                freeNodes.add(id);
+            }
+            nodeLimit = node + 1;
+            ensureNodeCapacity(nodeLimit);
+        } else {
+            freeNodes.remove(node);
+        }
+        initNode(node, x, y, width, height);
+    }
+
+    private void initNode(int node, float x, float y, float width, float height) {
+        nodeCount++;
+
+        nodeAlive[node] = true;
+        nodeX[node] = x;
+        nodeY[node] = y;
+        nodeWidth[node] = width;
+        nodeHeight[node] = height;
+        nodeTitle[node] = null;
+        nodeFirstPort[node] = NONE;
+        nodeLastPort[node] = NONE;
+        nodeFirstLink[node] = NONE;
+        version++;
+        if (structureListener != null) structureListener.nodeAdded(node);
+    }
+
+    /**
+     * Remove the node along with its ports and every connection attached to it.
+     */
+    public void removeNode(int node) {
+        checkNode(node);
+
+        while (nodeFirstLink[node] != NONE) {
+            disconnect(nodeFirstLink[node] >> 1);
+        }
+        for (int port = nodeFirstPort[node]; port != NONE; port = portNext[port]) {
+            portAlive[port] = false;
+            freePorts.add(port);
+            portCount--;
+        }
+
+        nodeAlive[node] = false;
+        nodeTitle[node] = null;
+        freeNodes.add(node);
+        nodeCount--;
+        version++;
+        if (structureListener != null) structureListener.nodeRemoved(node);
+    }
+
+    public float nodeX(int node) {
+        return nodeX[node];
+    }
+
+    public float nodeY(int node) {
+        return nodeY[node];
+    }
+
+    public float nodeWidth(int node) {
+        return nodeWidth[node];
+    }
+
+    public float nodeHeight(int node) {
+        return nodeHeight[node];
+    }
+
+    public String nodeTitle(int node) {
+        return nodeTitle[node];
+    }
+
+    public void setNodeTitle(int node, String title) {
+        nodeTitle[node] = title;
+    }
+
+    public void setNodePosition(int node, float x, float y) {
+        nodeX[node] = x;
+        nodeY[node] = y;
+    }
+
+    public void setNodeSize(int node, float width, float height) {
+        nodeWidth[node] = width;
+        nodeHeight[node] = height;
+    }
+
+    public void ensureNodeCapacity(int capacity) {
+        if (capacity <= nodeAlive.length) return;
+
+        int length = Math.max(capacity, Math.max(16, nodeAlive.length * 2));
+        nodeAlive = Arrays.copyOf(nodeAlive, length);
+        nodeX = Arrays.copyOf(nodeX, length);
+        nodeY = Arrays.copyOf(nodeY, length);
+        nodeWidth = Arrays.copyOf(nodeWidth, length);
+        nodeHeight = Arrays.copyOf(nodeHeight, length);
+        nodeTitle = Arrays.copyOf(nodeTitle, length);
+        nodeFirstPort = Arrays.copyOf(nodeFirstPort, length);
+        nodeLastPort = Arrays.copyOf(nodeLastPort, length);
+        nodeFirstLink = Arrays.copyOf(nodeFirstLink, length);
+    }
+
+    // ------------------------------------------------------------------------
+    // Ports
+    // ------------------------------------------------------------------------
+
+    public int portCount() {
+        return portCount;
+    }
+
+    public int portLimit() {
+        return portLimit;
+    }
+
+    public boolean isPort(int port) {
+        return port >= 0 && port < portLimit && portAlive[port];
+    }
+
+    /**
+     * Add a port to the end of the node's port list.
+     * Its position is undefined until the node's ports are laid out, see {@link #layoutPorts(int, float)}.
+     */
+    public int addPort(int node, int type, Edge edge, String name) {
+        checkNode(node);
+
+        int port;
+        if (freePorts.isEmpty()) {
+            port = portLimit++;
+            ensurePortCapacity(portLimit);
+        } else {
+            port = freePorts.pop();
+        }
+        initPort(port, node, type, edge, name);
+        return port;
+    }
+
+    /**
+     * Add a port with a specific id that isn't in use to the end of the node's port list, see {@link #restoreNode}.
+     */
+    public void restorePort(int port, int node, int type, Edge edge, String name) {
+        checkNode(node);
+        if (isPort(port)) {
+            throw new IllegalArgumentException("Port id " + port + " is in use");
+        }
+        if (port >= portLimit) {
+            for (int id = portLimit; id < port; id++) {
+                freePorts.add(id);
+            }
+            portLimit = port + 1;
+            ensurePortCapacity(portLimit);
+        } else {
+            freePorts.remove(port);
+        }
+        initPort(port, node, type, edge, name);
+    }
+
+    /**
+     * Remove the port along with every connection attached to it.
+     */
+    public void removePort(int port) {
+        checkPort(port);
+        int node = portNode[port];
+
+        int link = nodeFirstLink[node];
+        while (link != NONE) {
+            int next = linkNext[link];
+            int connection = link >> 1;
+            if (connectionSrc[connection] == port || connectionDst[connection] == port) {
+                // NOTE: a connection from one of the node's ports to another is in its list twice, skip its second link
+                if (next != NONE && next >> 1 == connection) {
+                    next = linkNext[next];
+                }
+                disconnect(connection);
+            }
+            link = next;
+        }
+
+        int previous = NONE;
+        for (int current = nodeFirstPort[node]; current != port; current = portNext[current]) {
+            previous = current;
+        }
+        if (previous == NONE) {
+            nodeFirstPort[node] = portNext[port];
+        } else {
+            portNext[previous] = portNext[port];
+        }
+        if (nodeLastPort[node] == port) {
+            nodeLastPort[node] = previous;
+        }
+
+        portAlive[port] = false;
+        freePorts.add(port);
+        portCount--;
+        version++;
+        if (structureListener != null) structureListener.portRemoved(port, node);
+    }
+
+    private void initPort(int port, int node, int type, Edge edge, String name) {
+        portCount++;
+
+        portAlive[port] = true;
+        portNode[port] = node;
+        portType[port] = type;
+        portEdge[port] = edge.ordinal();
+        portName[port] = intern(name);
+        portNext[port] = NONE;
+        portX[port] = 0;
+        portY[port] = 0;
+
+        if (nodeLastPort[node] == NONE) {
+            nodeFirstPort[node] = port;
+        } else {
+            portNext[nodeLastPort[node]] = port;
+        }
+        nodeLastPort[node] = port;
+        version++;
+        if (structureListener != null) structureListener.portAdded(port, node, type);
+    }
+
+    /**
+     * @return the id of the node's first port, or {@link #NONE}, continue with {@link #nextPort(int)}
+     */
+    public int firstPort(int node) {
+        return nodeFirstPort[node];
+    }
+
+    /**
+     * @return the id of the next port on the same node, or {@link #NONE}
+     */
+    public int nextPort(int port) {
+        return portNext[port];
+    }
+
+    /**
+     * @return the id of the node's port with the specified type and name, or {@link #NONE}
+     */
+    public int findPort(int node, int type, String name) {
+        int nameId = nameIds.get(name);
+        if (nameId == NONE) return NONE;
+
+        for (int port = nodeFirstPort[node]; port != NONE; port = portNext[port]) {
+            if (portName[port] == nameId && portType[port] == type) {
+                return port;
+            }
+        }
+        return NONE;
+    }
+
+    public int portNode(int port) {
+        return portNode[port];
+    }
+
+    public int portType(int port) {
+        return portType[port];
+    }
+
+    public Edge portEdge(int port) {
+        return EDGES[portEdge[port]];
+    }
+
+    public String portName(int port) {
+        return names.get(portName[port]);
+    }
+
+    /**
+     * @return the id of the port's interned name, see {@link #name(int)}
+     */
+    public int portNameId(int port) {
+        return portName[port];
+    }
+
+    public float portX(int port) {
+        return portX[port];
+    }
+
+    public float portY(int port) {
+        return portY[port];
+    }
+
+    /**
+     * Position the port relative to its node, for ports whose layout is already known, eg. when loading a saved graph.
+     */
+    public void setPortPosition(int port, float x, float y) {
+        portX[port] = x;
+        portY[port] = y;
+    }
+
+    public float portWorldX(int port) {
+        return nodeX[portNode[port]] + portX[port];
+    }
+
+    public float portWorldY(int port) {
+        return nodeY[portNode[port]] + portY[port];
+    }
+
+    /**
+     * Position the node's ports along their edges: inputs and outputs on each edge are spaced evenly,
+     * in the order they were added, between {@code margin} from either corner and centered on the edge.
+     */
+    public void layoutPorts(int node, float margin) {
+        Arrays.fill(layoutCounts, 0);
+        Arrays.fill(layoutIndices, 0);
+        for (int port = nodeFirstPort[node]; port != NONE; port = portNext[port]) {
+            layoutCounts[layoutSlot(port)]++;
+        }
+
+        float width = nodeWidth[node];
+        float height = nodeHeight[node];
+        for (int port = nodeFirstPort[node]; port != NONE; port = portNext[port]) {
+            int slot = layoutSlot(port);
+            int count = layoutCounts[slot];
+            int index = layoutIndices[slot]++;
+
+            var edge = EDGES[portEdge[port]];
+            boolean horizontal = (edge == Edge.TOP || edge == Edge.BOTTOM);
+            float length = horizontal ? width : height;
+
+            // no spacing if there's only one port
+            float spacing = (count < 2) ? 0 : (length - 2 * margin) / (count - 1);
+            float offset = -(count - 1) * spacing / 2f + index * spacing;
+
+            // start from the center of the edge relative to the bottom left corner of the node
+            float centerX = switch (edge) {
+                case TOP, BOTTOM -> width / 2f;
+                case LEFT -> 0;
+                case RIGHT -> width;
+            };
+            float centerY = switch (edge) {
+                case TOP -> height;
+                case BOTTOM -> 0;
+                case LEFT, RIGHT -> height / 2f;
+            };
+
+            portX[port] = horizontal ? centerX + offset : centerX;
+            portY[port] = horizontal ? centerY : centerY + offset;
+        }
+    }
+
+    public void ensurePortCapacity(int capacity) {
+        if (capacity <= portAlive.length) return;
+
+        int length = Math.max(capacity, Math.max(64, portAlive.length * 2));
+        portAlive = Arrays.copyOf(portAlive, length);
+        portNode = Arrays.copyOf(portNode, length);
+        portType = Arrays.copyOf(portType, length);
+        portEdge = Arrays.copyOf(portEdge, length);
+        portName = Arrays.copyOf(portName, length);
+        portNext = Arrays.copyOf(portNext, length);
+        portX = Arrays.copyOf(portX, length);
+        portY = Arrays.copyOf(portY, length);
+    }
+
+    /**
+     * @return the number of interned port names, name ids are less than this
+     */
+    public int nameCount() {
+        return names.size();
+    }
+
+    public String name(int nameId) {
+        return names.get(nameId);
+    }
+
+    private int layoutSlot(int port) {
+        return portType[port] * EDGES.length + portEdge[port];
+    }
+
+    private int intern(String name) {
+        int id = nameIds.get(name);
+        if (id == NONE) {
+            id = names.size();
+            names.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    // ------------------------------------------------------------------------
+    // Connections
+    // ------------------------------------------------------------------------
+
+    public int connectionCount() {
+        return connectionCount;
+    }
+
+    public int connectionLimit() {
+        return connectionLimit;
+    }
+
+    public boolean isConnection(int connection) {
+        return connection >= 0 && connection < connectionLimit && connectionAlive[connection];
+    }
+
+    /**
+     * @return whether the connection style is in range, for validating styles read from files or the network
+     */
+    public static boolean isStyle(int style) {
+        return style >= 0 && style < STYLES;
+    }
+
+    /**
+     * Connect two ports. The style is opaque to the graph, it's stored for whoever draws the connection.
+     */
+    public int connect(int srcPort, int dstPort, int style) {
+        checkPort(srcPort);
+        checkPort(dstPort);
+
+        int connection;
+        if (freeConnections.isEmpty()) {
+            connection = connectionLimit++;
+            ensureConnectionCapacity(connectionLimit);
+        } else {
+            connection = freeConnections.pop();
+        }
+        initConnection(connection, srcPort, dstPort, style);
+        return connection;
+    }
+
+    /**
+     * Connect two ports with a specific connection id that isn't in use, see {@link #restoreNode}.
+     */
+    public void restoreConnection(int connection, int srcPort, int dstPort, int style) {
+        checkPort(srcPort);
+        checkPort(dstPort);
+        if (isConnection(connection)) {
+            throw new IllegalArgumentException("Connection id " + connection + " is in use");
+        }
+        if (connection >= connectionLimit) {
+            for (int id = connectionLimit; id < connection; id++) {
+                freeConnections.add(id);
+            }
+            connectionLimit = connection + 1;
+            ensureConnectionCapacity(connectionLimit);
+        } else {
+            freeConnections.remove(connection);
+        }
+        initConnection(connection, srcPort, dstPort, style);
+    }
+
+    private void initConnection(int connection, int srcPort, int dstPort, int style) {
+        connectionCount++;
+
+        connectionAlive[connection] = true;
+        connectionSrc[connection] = srcPort;
+        connectionDst[connection] = dstPort;
+        connectionStyle[connection] = style;
+
+        int srcNode = portNode[srcPort];
+        int dstNode = portNode[dstPort];
+        pushLink(srcNode, 2 * connection);
+        pushLink(dstNode, 2 * connection + 1);
+        version++;
+        if (structureListener != null) structureListener.connected(connection, srcPort, dstPort);
+    }
+
+    public void disconnect(int connection) {
+        if (!isConnection(connection)) {
+            throw new IllegalArgumentException("No connection with id " + connection);
+        }
+
+        removeLink(portNode[connectionSrc[connection]], 2 * connection);
+        removeLink(portNode[connectionDst[connection]], 2 * connection + 1);
+
+        connectionAlive[connection] = false;
+        freeConnections.add(connection);
+        connectionCount--;
+        version++;
+        if (structureListener != null) {
+            structureListener.disconnected(connection, connectionSrc[connection], connectionDst[connection]);
+        }
+    }
+
+    public int connectionSrc(int connection) {
+        return connectionSrc[connection];
+    }
+
+    public int connectionDst(int connection) {
+        return connectionDst[connection];
+    }
+
+    public int connectionStyle(int connection) {
+        return connectionStyle[connection];
+    }
+
+    /**
+     * Append the id of every connection attached to the node to {@code out}, each at most once.
+     */
+    public IntList connections(int node, IntList out) {
+        for (int link = nodeFirstLink[node]; link != NONE; link = linkNext[link]) {
+            int connection = link >> 1;
+            // a connection between two ports on the same node is in its list twice, report it for the source end only
+            boolean isDstEnd = (link & 1) == 1;
+            if (isDstEnd && portNode[connectionSrc[connection]] == node) continue;
+            out.add(connection);
+        }
+        return out;
+    }
+
+    public void ensureConnectionCapacity(int capacity) {
+        if (capacity <= connectionAlive.length) return;
+
+        int length = Math.max(capacity, Math.max(64, connectionAlive.length * 2));
+        connectionAlive = Arrays.copyOf(connectionAlive, length);
+        connectionSrc = Arrays.copyOf(connectionSrc, length);
+        connectionDst = Arrays.copyOf(connectionDst, length);
+        connectionStyle = Arrays.copyOf(connectionStyle, length);
+        linkNext = Arrays.copyOf(linkNext, 2 * length);
+    }
+
+    private void pushLink(int node, int link) {
+        linkNext[link] = nodeFirstLink[node];
+        nodeFirstLink[node] = link;
+    }
+
+    private void removeLink(int node, int link) {
+        int previous = NONE;
+        for (int current = nodeFirstLink[node]; current != NONE; current = linkNext[current]) {
+            if (current == link) {
+                if (previous == NONE) {
+                    nodeFirstLink[node] = linkNext[current];
+                } else {
+                    linkNext[previous] = linkNext[current];
+                }
+                return;
+            }
+            previous = current;
+        }
+    }
+
+    private void checkNode(int node) {
+        if (!isNode(node)) {
+            throw new IllegalArgumentException("No node with id " + node);
+        }
+    }
+
+    private void checkPort(int port) {
+        if (!isPort(port)) {
+            throw new IllegalArgumentException("No port with id " + port);
+        }
+    }
+}
@@ -0,0 +1,831 @@
+package lando.systems.game.graph;
+
+import com.github.tommyettinger.ds.DoubleList;
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.Edge;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates a {@link Graph} as a dataflow DAG on a {@link ForkJoinPool}, incrementally.
+ * <p>
+ * Each node has a {@link NodeFunction} and a constant, values flow from output ports into the input ports they're
+ * connected to, an input connected to several outputs gets their sum. Each port's last value is cached, and
+ * evaluating only recomputes nodes downstream of the ones marked dirty. Recomputation is cut off early at nodes
+ * whose inputs all came out unchanged. Nodes in or downstream of a cycle can't be evaluated, their outputs are NaN.
+ * <p>
+ * The evaluator is the graph's {@link Graph.StructureListener}, structural edits are logged as they're made and
+ * handed to the next job, which replays them on the worker's own copy of the structure, so workers never touch
+ * the graph and the calling thread never walks it. The worker patches its adjacency lists edit by edit, and only
+ * rebuilds them for a clear or a batch that edits a large part of the graph. The nodes an edit touched, eg. the
+ * destination of a new connection, are evaluated along with what's downstream of them, like nodes whose constant
+ * changed.
+ * The dirty subgraph is split into levels by longest path from its roots, levels run one after another and
+ * the nodes within a level run in parallel. Results are handed back as a whole by {@link #publish()}, only one
+ * job is in flight at a time and changes made meanwhile wait for the next one. Apart from the functions
+ * themselves, use from a single thread.
+ */
+public class GraphEvaluator {
+
+    public static class Defaults {
+        /** levels with fewer nodes than this are evaluated without forking */
+        public static final int PARALLEL_THRESHOLD = 256;
+        /** nodes per leaf task once a level is split */
+        public static final int TASK_GRAIN = 64;
+        /** a batch of edits larger than this fraction of the graph's nodes, ports and connections rebuilds the topology */
+        public static final float REBUILD_FRACTION = 0.25f;
+    }
+
+    // structural edit log ops, each followed by its ids
+    private static final int OP_NODE_ADDED = 0;
+    private static final int OP_NODE_REMOVED = 1;
+    private static final int OP_PORT_ADDED = 2;
+    private static final int OP_PORT_REMOVED = 3;
+    private static final int OP_CONNECTED = 4;
+    private static final int OP_DISCONNECTED = 5;
+    private static final int OP_CLEARED = 6;
+    // ints taken by each op, by op
+    private static final int[] OP_SIZES = {2, 2, 4, 2, 4, 2, 1};
+
+    private static final Edge ANY_EDGE = Edge.values()[0];
+
+    /**
+     * The graph's structure as adjacency lists, kept in step with the worker's copy of the structure.
+     * <p>
+     * NOTE: the graph disconnects a port's connections before it removes the port, and a node's before it
+     *  removes the node, and logs each disconnect, so removing a port or a node never has connections to drop.
+     */
+    private static final class Topology {
+        int nodeLimit;
+        int portLimit;
+        // NOTE: per node id, its input and output ports in port order, and the node at the far end of each
+        //  connection from its outputs, once per connection
+        IntList[] inputs = new IntList[0];
+        IntList[] outputs = new IntList[0];
+        IntList[] down = new IntList[0];
+        // NOTE: per input port id, the output ports connected to it
+        IntList[] sources = new IntList[0];
+        // NOTE: only grow while patching, they size the scratch buffers
+        int maxInputs;
+        int maxOutputs;
+
+        void rebuild(Graph structure) {
+            // NOTE: clears past the limits too, they shrink when the structure is cleared
+            ensureCapacity(structure);
+            for (int node = 0; node < inputs.length; node++) {
+                if (inputs[node] != null) {
+                    inputs[node].clear();
+                    outputs[node].clear();
+                    down[node].clear();
+                }
+            }
+            for (int port = 0; port < sources.length; port++) {
+                if (sources[port] != null) {
+                    sources[port].clear();
+                }
+            }
+            maxInputs = 0;
+            maxOutputs = 0;
+
+            for (int node = 0; node < nodeLimit; node++) {
+                if (!structure.isNode(node)) continue;
+                nodeAdded(node);
+                for (int port = structure.firstPort(node); port != Graph.NONE; port = structure.nextPort(port)) {
+                    portAdded(structure, port, node);
+                }
+            }
+            for (int connection = 0; connection < structure.connectionLimit(); connection++) {
+                if (!structure.isConnection(connection)) continue;
+                connected(structure, connection);
+            }
+        }
+
+        void ensureCapacity(Graph structure) {
+            nodeLimit = structure.nodeLimit();
+            portLimit = structure.portLimit();
+            if (inputs.length < nodeLimit) {
+                int length = Math.max(nodeLimit, 2 * inputs.length);
+                inputs = Arrays.copyOf(inputs, length);
+                outputs = Arrays.copyOf(outputs, length);
+                down = Arrays.copyOf(down, length);
+            }
+            if (sources.length < portLimit) {
+                sources = Arrays.copyOf(sources, Math.max(portLimit, 2 * sources.length));
+            }
+        }
+
+        void nodeAdded(int node) {
+            if (inputs[node] == null) {
+                inputs[node] = new IntList();
+                outputs[node] = new IntList();
+                down[node] = new IntList();
+            }
+        }
+
+        void nodeRemoved(int node) {
+            // NOTE: its ports are removed along with it, without ops of their own
+            for (int i = 0; i < inputs[node].size(); i++) {
+                sources[inputs[node].get(i)].clear();
+            }
+            inputs[node].clear();
+            outputs[node].clear();
+            down[node].clear();
+        }
+
+        void portAdded(Graph structure, int port, int node) {
+            if (structure.portType(port) == Graph.INPUT) {
+                inputs[node].add(port);
+                maxInputs = Math.max(maxInputs, inputs[node].size());
+                if (sources[port] == null) {
+                    sources[port] = new IntList();
+                }
+            } else {
+                outputs[node].add(port);
+                maxOutputs = Math.max(maxOutputs, outputs[node].size());
+            }
+        }
+
+        void portRemoved(Graph structure, int port, int node) {
+            if (structure.portType(port) == Graph.INPUT) {
+                inputs[node].remove(port);
+                sources[port].clear();
+            } else {
+                outputs[node].remove(port);
+            }
+        }
+
+        void connected(Graph structure, int connection) {
+            if (!carriesValue(structure, connection)) return;
+            int src = structure.connectionSrc(connection);
+            int dst = structure.connectionDst(connection);
+            sources[dst].add(src);
+            down[structure.portNode(src)].add(structure.portNode(dst));
+        }
+
+        void disconnected(Graph structure, int connection) {
+            if (!carriesValue(structure, connection)) return;
+            int src = structure.connectionSrc(connection);
+            int dst = structure.connectionDst(connection);
+            sources[dst].remove(src);
+            down[structure.portNode(src)].remove(structure.portNode(dst));
+        }
+
+        // NOTE: only connections from an output to an input carry values
+        private static boolean carriesValue(Graph graph, int connection) {
+            return graph.portType(graph.connectionSrc(connection)) == Graph.OUTPUT
+                && graph.portType(graph.connectionDst(connection)) == Graph.INPUT;
+        }
+    }
+
+    /**
+     * A thread's buffers for the input and output values of the node it's evaluating.
+     */
+    private static final class Scratch {
+        double[] inputs = new double[0];
+        double[] outputs = new double[0];
+    }
+
+    // NOTE: shared by every evaluator, a thread evaluates one node at a time whichever evaluator it's for
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private static final class Job {
+        // NOTE: inputs, set on the calling thread
+        final IntList ops = new IntList();
+        final IntList roots = new IntList();
+        final DoubleList rootConstants = new DoubleList();
+        NodeFunction[] rootFunctions = new NodeFunction[0];
+
+        // NOTE: outputs, set by the worker
+        int portLimit;
+        final IntList changedPorts = new IntList();
+        final DoubleList changedValues = new DoubleList();
+        final IntList changedNodes = new IntList();
+        int evaluatedCount;
+        int skippedCount;
+        int cyclicCount;
+        long nanos;
+    }
+
+    private final Graph graph;
+    private final ForkJoinPool pool;
+    private final AtomicReference<Job> finished = new AtomicReference<>();
+
+    // NOTE: calling thread state
+    private Job spare = new Job();
+    private Future<?> inFlight;
+    private boolean busy;
+    private final IntList ops = new IntList();
+    private final StructureLog log = new StructureLog();
+    private double[] constants = new double[0];
+    private NodeFunction[] functions = new NodeFunction[0];
+    private final IntList pending = new IntList();
+    private double[] values = new double[0];
+    private final IntList changedNodes = new IntList();
+    private int evaluatedCount;
+    private int skippedCount;
+    private int cyclicCount;
+    private long evaluationNanos;
+    private long jobCount;
+
+    // NOTE: worker state, only touched while running a job, and jobs never overlap
+    private final Graph structure = new Graph();
+    private final Topology topology = new Topology();
+    private double[] workConstants = new double[0];
+    private NodeFunction[] workFunctions = new NodeFunction[0];
+    private double[] portValues = new double[0];
+    private boolean[] portChanged = new boolean[0];
+    private boolean[] nodeChanged = new boolean[0];
+    private boolean[] isRoot = new boolean[0];
+    private int[] closureStamp = new int[0];
+    private int stamp;
+    private int[] indegree = new int[0];
+    private int[] level = new int[0];
+    private int[] closure = new int[0];
+    private int[] queue = new int[0];
+    private int[] levelStart = new int[0];
+    private int[] levelOrder = new int[0];
+
+    public GraphEvaluator(Graph graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public GraphEvaluator(Graph graph, ForkJoinPool pool) {
+        this.graph = graph;
+        this.pool = pool;
+
+        // NOTE: what's already in the graph is logged like any later edit, so the first job copies it
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            if (!graph.isNode(node)) continue;
+            log.nodeAdded(node);
+            for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+                log.portAdded(port, node, graph.portType(port));
+            }
+        }
+        for (int connection = 0; connection < graph.connectionLimit(); connection++) {
+            if (!graph.isConnection(connection)) continue;
+            log.connected(connection, graph.connectionSrc(connection), graph.connectionDst(connection));
+        }
+        graph.setStructureListener(log);
+    }
+
+    public boolean isBusy() {
+        return busy;
+    }
+
+    public double constant(int node) {
+        return (node < constants.length) ? constants[node] : 0;
+    }
+
+    /**
+     * Set the constant passed to the node's function, the node and everything downstream of it is recomputed.
+     */
+    public void setConstant(int node, double constant) {
+        ensureNodeCapacity(node + 1);
+        constants[node] = constant;
+        pending.add(node);
+    }
+
+    public void setFunction(int node, NodeFunction function) {
+        ensureNodeCapacity(node + 1);
+        functions[node] = function;
+        pending.add(node);
+    }
+
+    /**
+     * Recompute the node and everything downstream of it, eg. when its function depends on something outside the graph.
+     */
+    public void markDirty(int node) {
+        pending.add(node);
+    }
+
+    /**
+     * Forget the node's constant and function, call when the node is removed so a new node reusing its id starts fresh.
+     */
+    public void resetNode(int node) {
+        if (node >= constants.length) return;
+        constants[node] = 0;
+        functions[node] = null;
+    }
+
+    /**
+     * Forget every node's constant and function and any pending changes, call when the graph is cleared.
+     * Values already evaluated stay until the next evaluation replaces them.
+     */
+    public void clear() {
+        Arrays.fill(constants, 0);
+        Arrays.fill(functions, null);
+        pending.clear();
+    }
+
+    /**
+     * @return the value of the port as of the last published evaluation, zero if it hasn't been evaluated
+     */
+    public double value(int port) {
+        return (port < values.length) ? values[port] : 0;
+    }
+
+    /**
+     * Nodes with outputs that changed in the last published evaluation.
+     */
+    public IntList changedNodes() {
+        return changedNodes;
+    }
+
+    public int getEvaluatedCount() {
+        return evaluatedCount;
+    }
+
+    /**
+     * @return nodes in the last evaluation's dirty subgraph that were skipped because their inputs didn't change
+     */
+    public int getSkippedCount() {
+        return skippedCount;
+    }
+
+    public int getCyclicCount() {
+        return cyclicCount;
+    }
+
+    public long getEvaluationNanos() {
+        return evaluationNanos;
+    }
+
+    public long getJobCount() {
+        return jobCount;
+    }
+
+    /**
+     * Publish a finished evaluation if there is one, then start another if anything changed and nothing is in flight.
+     * Call once per frame.
+     *
+     * @return true if an evaluation was published, see {@link #changedNodes()}
+     */
+    public boolean update() {
+        boolean published = publish();
+        if (!busy && (!pending.isEmpty() || !ops.isEmpty())) {
+            submit();
+        }
+        return published;
+    }
+
+    /**
+     * Apply the results of the most recently finished evaluation, if any.
+     *
+     * @return true if there was one
+     */
+    public boolean publish() {
+        var job = finished.getAndSet(null);
+        if (job == null) return false;
+
+        if (values.length < job.portLimit) {
+            values = Arrays.copyOf(values, job.portLimit);
+        }
+        for (int i = 0; i < job.changedPorts.size(); i++) {
+            values[job.changedPorts.get(i)] = job.changedValues.get(i);
+        }
+        changedNodes.clear();
+        changedNodes.addAll(job.changedNodes);
+        evaluatedCount = job.evaluatedCount;
+        skippedCount = job.skippedCount;
+        cyclicCount = job.cyclicCount;
+        evaluationNanos = job.nanos;
+        jobCount++;
+
+        spare = job;
+        busy = false;
+        inFlight = null;
+        return true;
+    }
+
+    /**
+     * Block until the evaluation in flight, if any, has finished, then publish it.
+     */
+    public void awaitResult() {
+        if (inFlight == null) return;
+        try {
+            inFlight.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Graph evaluation failed", e.getCause());
+        }
+        publish();
+    }
+
+    private void submit() {
+        var job = spare;
+        spare = null;
+
+        job.ops.clear();
+        job.ops.addAll(ops);
+        ops.clear();
+
+        job.roots.clear();
+        job.rootConstants.clear();
+        ensureNodeCapacity(graph.nodeLimit());
+        if (job.rootFunctions.length < pending.size()) {
+            job.rootFunctions = new NodeFunction[Math.max(pending.size(), 2 * job.rootFunctions.length)];
+        }
+        for (int i = 0; i < pending.size(); i++) {
+            int node = pending.get(i);
+            if (!graph.isNode(node)) continue;
+            job.rootFunctions[job.roots.size()] = functions[node];
+            job.roots.add(node);
+            job.rootConstants.add(constants[node]);
+        }
+        pending.clear();
+
+        busy = true;
+        inFlight = pool.submit(() -> {
+            try {
+                evaluate(job);
+            } finally {
+                finished.set(job);
+            }
+        });
+    }
+
+    private void ensureNodeCapacity(int capacity) {
+        if (capacity <= constants.length) return;
+        int length = Math.max(capacity, Math.max(64, 2 * constants.length));
+        constants = Arrays.copyOf(constants, length);
+        functions = Arrays.copyOf(functions, length);
+    }
+
+    // ------------------------------------------------------------------------
+    // Worker
+    // ------------------------------------------------------------------------
+
+    private void evaluate(Job job) {
+        long start = System.nanoTime();
+        job.changedPorts.clear();
+        job.changedValues.clear();
+        job.changedNodes.clear();
+
+        replay(job.ops);
+        ensureWorkerCapacity();
+        var topo = topology;
+        job.portLimit = topo.portLimit;
+
+        // collect the roots and everything downstream of them
+        // NOTE: roots can have been removed by edits made after they were marked
+        stamp++;
+        int closureSize = 0;
+        for (int i = 0; i < job.roots.size(); i++) {
+            int node = job.roots.get(i);
+            var function = job.rootFunctions[i];
+            job.rootFunctions[i] = null;
+            if (!structure.isNode(node)) continue;
+            workConstants[node] = job.rootConstants.get(i);
+            workFunctions[node] = function;
+            isRoot[node] = true;
+            if (closureStamp[node] != stamp) {
+                closureStamp[node] = stamp;
+                closure[closureSize++] = node;
+            }
+        }
+        for (int i = 0; i < closureSize; i++) {
+            int node = closure[i];
+            var down = topo.down[node];
+            for (int d = 0; d < down.size(); d++) {
+                int next = down.get(d);
+                if (closureStamp[next] != stamp) {
+                    closureStamp[next] = stamp;
+                    closure[closureSize++] = next;
+                }
+            }
+        }
+
+        // levels by longest path within the closure, nodes left over are in a cycle
+        for (int i = 0; i < closureSize; i++) {
+            int node = closure[i];
+            indegree[node] = 0;
+            level[node] = 0;
+        }
+        for (int i = 0; i < closureSize; i++) {
+            int node = closure[i];
+            var down = topo.down[node];
+            for (int d = 0; d < down.size(); d++) {
+                indegree[down.get(d)]++;
+            }
+        }
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < closureSize; i++) {
+            if (indegree[closure[i]] == 0) {
+                queue[tail++] = closure[i];
+            }
+        }
+        int levelCount = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            levelCount = Math.max(levelCount, level[node] + 1);
+            var down = topo.down[node];
+            for (int d = 0; d < down.size(); d++) {
+                int next = down.get(d);
+                level[next] = Math.max(level[next], level[node] + 1);
+                if (--indegree[next] == 0) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+        int ordered = tail;
+
+        // bucket the ordered nodes by level
+        if (levelStart.length < levelCount + 1) {
+            levelStart = new int[levelCount + 1];
+        }
+        Arrays.fill(levelStart, 0, levelCount + 1, 0);
+        for (int i = 0; i < ordered; i++) {
+            levelStart[level[queue[i]] + 1]++;
+        }
+        for (int l = 0; l < levelCount; l++) {
+            levelStart[l + 1] += levelStart[l];
+        }
+        for (int i = 0; i < ordered; i++) {
+            int node = queue[i];
+            // NOTE: levelStart is used as the fill cursor, leaving each entry at the start of the next level
+            levelOrder[levelStart[level[node]]++] = node;
+        }
+        for (int l = levelCount; l > 0; l--) {
+            levelStart[l] = levelStart[l - 1];
+        }
+        levelStart[0] = 0;
+
+        for (int l = 0; l < levelCount; l++) {
+            int from = levelStart[l];
+            int to = levelStart[l + 1];
+            if (to - from < Defaults.PARALLEL_THRESHOLD) {
+                evaluateRange(from, to);
+            } else {
+                new LevelTask(from, to).invoke();
+            }
+        }
+
+        // nodes in or downstream of a cycle never became ready
+        job.cyclicCount = closureSize - ordered;
+        if (job.cyclicCount > 0) {
+            for (int i = 0; i < closureSize; i++) {
+                int node = closure[i];
+                if (indegree[node] > 0) {
+                    setOutputs(node, null, 0);
+                }
+            }
+        }
+
+        // collect what changed, resetting the flags for the next job
+        int evaluated = 0;
+        for (int i = 0; i < closureSize; i++) {
+            int node = closure[i];
+            isRoot[node] = false;
+            if (indegree[node] == Integer.MIN_VALUE) {
+                evaluated++;
+            }
+            if (!nodeChanged[node]) continue;
+            nodeChanged[node] = false;
+            job.changedNodes.add(node);
+            var outputs = topo.outputs[node];
+            for (int o = 0; o < outputs.size(); o++) {
+                int port = outputs.get(o);
+                if (!portChanged[port]) continue;
+                portChanged[port] = false;
+                job.changedPorts.add(port);
+                job.changedValues.add(portValues[port]);
+            }
+        }
+        job.evaluatedCount = evaluated;
+        job.skippedCount = ordered - evaluated;
+        job.nanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Apply logged structural edits to the worker's copy of the structure, patching the topology along with it,
+     * or rebuilding it afterwards when the batch has a clear or edits a large part of the graph.
+     */
+    private void replay(IntList ops) {
+        if (ops.isEmpty()) return;
+
+        boolean rebuild = isLargeBatch(ops);
+        var topo = topology;
+        for (int i = 0; i < ops.size(); ) {
+            switch (ops.get(i++)) {
+                case OP_NODE_ADDED -> {
+                    int node = ops.get(i++);
+                    structure.restoreNode(node, 0, 0, 0, 0);
+                    if (rebuild) continue;
+                    topo.ensureCapacity(structure);
+                    topo.nodeAdded(node);
+                }
+                case OP_NODE_REMOVED -> {
+                    int node = ops.get(i++);
+                    if (!rebuild) topo.nodeRemoved(node);
+                    structure.removeNode(node);
+                }
+                case OP_PORT_ADDED -> {
+                    int port = ops.get(i++);
+                    int node = ops.get(i++);
+                    structure.restorePort(port, node, ops.get(i++), ANY_EDGE, "");
+                    if (rebuild) continue;
+                    topo.ensureCapacity(structure);
+                    topo.portAdded(structure, port, node);
+                }
+                case OP_PORT_REMOVED -> {
+                    int port = ops.get(i++);
+                    if (!rebuild) topo.portRemoved(structure, port, structure.portNode(port));
+                    structure.removePort(port);
+                }
+                case OP_CONNECTED -> {
+                    int connection = ops.get(i++);
+                    int src = ops.get(i++);
+                    structure.restoreConnection(connection, src, ops.get(i++), 0);
+                    if (!rebuild) topo.connected(structure, connection);
+                }
+                case OP_DISCONNECTED -> {
+                    int connection = ops.get(i++);
+                    if (!rebuild) topo.disconnected(structure, connection);
+                    structure.disconnect(connection);
+                }
+                case OP_CLEARED -> structure.clear();
+                default -> throw new IllegalStateException("Unknown structure op at " + (i - 1));
+            }
+        }
+        if (rebuild) {
+            topo.rebuild(structure);
+        }
+    }
+
+    private boolean isLargeBatch(IntList ops) {
+        int edits = 0;
+        for (int i = 0; i < ops.size(); i += OP_SIZES[ops.get(i)]) {
+            if (ops.get(i) == OP_CLEARED) return true;
+            edits++;
+        }
+        int size = structure.nodeCount() + structure.portCount() + structure.connectionCount();
+        return edits > size * Defaults.REBUILD_FRACTION;
+    }
+
+    private void ensureWorkerCapacity() {
+        int nodes = topology.nodeLimit;
+        int ports = topology.portLimit;
+        if (workConstants.length < nodes) {
+            workConstants = Arrays.copyOf(workConstants, nodes);
+            workFunctions = Arrays.copyOf(workFunctions, nodes);
+            nodeChanged = Arrays.copyOf(nodeChanged, nodes);
+            isRoot = Arrays.copyOf(isRoot, nodes);
+            closureStamp = Arrays.copyOf(closureStamp, nodes);
+            indegree = Arrays.copyOf(indegree, nodes);
+            level = Arrays.copyOf(level, nodes);
+            closure = Arrays.copyOf(closure, nodes);
+            queue = Arrays.copyOf(queue, nodes);
+            levelOrder = Arrays.copyOf(levelOrder, nodes);
+        }
+        if (portValues.length < ports) {
+            // NOTE: cached values are kept, port ids are stable so unchanged outputs aren't reported again
+            portValues = Arrays.copyOf(portValues, ports);
+            portChanged = Arrays.copyOf(portChanged, ports);
+        }
+    }
+
+    private void evaluateRange(int from, int to) {
+        var scratch = SCRATCH.get();
+        if (scratch.inputs.length < topology.maxInputs) {
+            scratch.inputs = new double[topology.maxInputs];
+        }
+        if (scratch.outputs.length < topology.maxOutputs) {
+            scratch.outputs = new double[topology.maxOutputs];
+        }
+        for (int i = from; i < to; i++) {
+            evaluateNode(levelOrder[i], scratch.inputs, scratch.outputs);
+        }
+    }
+
+    private void evaluateNode(int node, double[] inputs, double[] outputs) {
+        var topo = topology;
+        var inputPorts = topo.inputs[node];
+        int inputCount = inputPorts.size();
+
+        // NOTE: nodes downstream of the roots only need recomputing if one of their inputs changed
+        boolean inputChanged = isRoot[node];
+        for (int i = 0; i < inputCount; i++) {
+            var sources = topo.sources[inputPorts.get(i)];
+            double sum = 0;
+            for (int s = 0; s < sources.size(); s++) {
+                int source = sources.get(s);
+                sum += portValues[source];
+                inputChanged |= portChanged[source];
+            }
+            inputs[i] = sum;
+        }
+        if (!inputChanged) return;
+
+        // NOTE: marks the node as evaluated for the counts, indegree is zero for every ordered node by now
+        indegree[node] = Integer.MIN_VALUE;
+
+        int outputCount = topo.outputs[node].size();
+        var function = (workFunctions[node] != null) ? workFunctions[node] : NodeFunction.SUM;
+        try {
+            function.evaluate(workConstants[node], inputs, inputCount, outputs, outputCount);
+            setOutputs(node, outputs, outputCount);
+        } catch (RuntimeException e) {
+            setOutputs(node, null, 0);
+        }
+    }
+
+    /**
+     * Store the node's outputs, flagging the ones that changed. Null outputs set every output to NaN.
+     */
+    private void setOutputs(int node, double[] outputs, int count) {
+        var ports = topology.outputs[node];
+        for (int o = 0; o < ports.size(); o++) {
+            int port = ports.get(o);
+            double value = (outputs != null && o < count) ? outputs[o] : Double.NaN;
+            if (Double.compare(value, portValues[port]) != 0) {
+                portValues[port] = value;
+                portChanged[port] = true;
+                nodeChanged[node] = true;
+            }
+        }
+    }
+
+    /**
+     * Logs the graph's structural edits for the next job, and marks the nodes they touched to be evaluated.
+     */
+    private final class StructureLog implements Graph.StructureListener {
+        @Override
+        public void nodeAdded(int node) {
+            ops.add(OP_NODE_ADDED);
+            ops.add(node);
+            pending.add(node);
+        }
+
+        @Override
+        public void nodeRemoved(int node) {
+            // NOTE: nodes downstream were marked as its connections were disconnected
+            ops.add(OP_NODE_REMOVED);
+            ops.add(node);
+        }
+
+        @Override
+        public void portAdded(int port, int node, int type) {
+            ops.add(OP_PORT_ADDED);
+            ops.add(port);
+            ops.add(node);
+            ops.add(type);
+            pending.add(node);
+        }
+
+        @Override
+        public void portRemoved(int port, int node) {
+            ops.add(OP_PORT_REMOVED);
+            ops.add(port);
+            pending.add(node);
+        }
+
+        @Override
+        public void connected(int connection, int srcPort, int dstPort) {
+            ops.add(OP_CONNECTED);
+            ops.add(connection);
+            ops.add(srcPort);
+            ops.add(dstPort);
+            pending.add(graph.portNode(dstPort));
+        }
+
+        @Override
+        public void disconnected(int connection, int srcPort, int dstPort) {
+            ops.add(OP_DISCONNECTED);
+            ops.add(connection);
+            pending.add(graph.portNode(dstPort));
+        }
+
+        @Override
+        public void cleared() {
+            ops.add(OP_CLEARED);
+        }
+    }
+
+    private final class LevelTask extends RecursiveAction {
+        final int from;
+        final int to;
+
+        LevelTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= Defaults.TASK_GRAIN) {
+                evaluateRange(from, to);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new LevelTask(from, mid), new LevelTask(mid, to));
+        }
+    }
+}
@@ -0,0 +1,355 @@
+package lando.systems.game.graph;
+
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.Edge;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Versioned binary file format for a {@link Graph}, plus the view it was saved with.
+ * <p>
+ * Everything is little endian. Strings are an int byte length followed by that many bytes of UTF-8,
+ * a length of -1 is a null string. Nodes, ports and connections are renumbered densely in the order
+ * they're written, so the ids in a loaded graph don't depend on what was removed before saving.
+ * <pre>
+ * header      int magic, int version, int nodeCount, int portCount, int connectionCount, int nameCount,
+ *             float viewX, float viewY, float viewZoom
+ * names       nameCount strings, the port name table
+ * nodes       per node: float x, y, width, height, string title, int portCount,
+ *             then per port: byte type, byte edge ordinal, int name index, float x, y relative to the node
+ * connections per connection: int source port index, int destination port index, byte style
+ * </pre>
+ * Writing streams through a reusable direct buffer, reading goes through a memory mapped {@link FileChannel}
+ * in batches, see {@link Reader}, so a large graph can be loaded a few thousand nodes at a time.
+ */
+public final class GraphFile {
+
+    public static final int MAGIC = 0x48505247; // "GRPH"
+    public static final int VERSION = 1;
+    public static final String EXTENSION = "graph";
+
+    private static final int HEADER_BYTES = 9 * Integer.BYTES;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    private static final Edge[] EDGES = Edge.values();
+
+    /**
+     * Camera state saved alongside the graph, in the graph's world space.
+     */
+    public record View(float x, float y, float zoom) {}
+
+    private GraphFile() {}
+
+    /**
+     * Write the graph and view to the file, replacing it if it exists.
+     *
+     * @return the number of bytes written
+     */
+    public static long write(Graph graph, View view, Path path) throws IOException {
+        try (var channel = FileChannel.open(path,
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var out = new Output(channel);
+
+            out.ensure(HEADER_BYTES);
+            out.buffer.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(graph.nodeCount())
+                .putInt(graph.portCount())
+                .putInt(graph.connectionCount())
+                .putInt(graph.nameCount())
+                .putFloat(view.x())
+                .putFloat(view.y())
+                .putFloat(view.zoom());
+
+            for (int i = 0; i < graph.nameCount(); i++) {
+                out.putString(graph.name(i));
+            }
+
+            // NOTE: dense index of each written port by port id, for the connections
+            var portIndices = new int[graph.portLimit()];
+            int nextPortIndex = 0;
+            for (int node = 0; node < graph.nodeLimit(); node++) {
+                if (!graph.isNode(node)) continue;
+
+                out.ensure(4 * Float.BYTES);
+                out.buffer.putFloat(graph.nodeX(node))
+                    .putFloat(graph.nodeY(node))
+                    .putFloat(graph.nodeWidth(node))
+                    .putFloat(graph.nodeHeight(node));
+                out.putString(graph.nodeTitle(node));
+
+                int portCount = 0;
+                for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+                    portCount++;
+                }
+                out.ensure(Integer.BYTES);
+                out.buffer.putInt(portCount);
+
+                for (int port = graph.firstPort(node); port != Graph.NONE; port = graph.nextPort(port)) {
+                    portIndices[port] = nextPortIndex++;
+                    out.ensure(2 + Integer.BYTES + 2 * Float.BYTES);
+                    out.buffer.put((byte) graph.portType(port))
+                        .put((byte) graph.portEdge(port).ordinal())
+                        .putInt(graph.portNameId(port))
+                        .putFloat(graph.portX(port))
+                        .putFloat(graph.portY(port));
+                }
+            }
+
+            for (int connection = 0; connection < graph.connectionLimit(); connection++) {
+                if (!graph.isConnection(connection)) continue;
+                out.ensure(2 * Integer.BYTES + 1);
+                out.buffer.putInt(portIndices[graph.connectionSrc(connection)])
+                    .putInt(portIndices[graph.connectionDst(connection)])
+                    .put((byte) graph.connectionStyle(connection));
+            }
+
+            out.flush();
+            return out.written;
+        }
+    }
+
+    /**
+     * Map the file and read its header, the graph itself is read with {@link Reader#readNodes(Graph, int, IntList)}
+     * and {@link Reader#readConnections(Graph, int, IntList)}.
+     */
+    public static Reader open(Path path) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Graph file is too large to map: " + size + " bytes");
+            }
+            var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            return new Reader(channel, buffer);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Incremental reader over a mapped graph file. Nodes, with their ports, are read first, then connections,
+     * each call reads at most the requested number of entries into the graph and reports the ids it added.
+     * Ids are added in file order, so the graph should be empty when reading starts if loaded ids should be dense.
+     * <p>
+     * Not thread safe.
+     */
+    public static final class Reader implements Closeable {
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+        private final int version;
+        private final int nodeCount;
+        private final int portCount;
+        private final int connectionCount;
+        private final View view;
+        private final String[] names;
+        // NOTE: graph port id by dense file index, filled in as nodes are read
+        private final int[] portIds;
+
+        private byte[] scratch = new byte[64];
+        private int nodesRead;
+        private int portsRead;
+        private int connectionsRead;
+
+        private Reader(FileChannel channel, MappedByteBuffer buffer) throws IOException {
+            this.channel = channel;
+            this.buffer = buffer;
+            try {
+                int magic = buffer.getInt();
+                if (magic != MAGIC) {
+                    throw new IOException("Not a graph file");
+                }
+                version = buffer.getInt();
+                if (version != VERSION) {
+                    throw new IOException("Unsupported graph file version " + version + ", expected " + VERSION);
+                }
+                nodeCount = buffer.getInt();
+                portCount = buffer.getInt();
+                connectionCount = buffer.getInt();
+                int nameCount = buffer.getInt();
+                if (nodeCount < 0 || portCount < 0 || connectionCount < 0 || nameCount < 0) {
+                    throw new IOException("Corrupt graph file header");
+                }
+                view = new View(buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+
+                names = new String[nameCount];
+                for (int i = 0; i < nameCount; i++) {
+                    names[i] = getString();
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated graph file", e);
+            }
+            portIds = new int[portCount];
+        }
+
+        public int version() {
+            return version;
+        }
+
+        public int nodeCount() {
+            return nodeCount;
+        }
+
+        public int portCount() {
+            return portCount;
+        }
+
+        public int connectionCount() {
+            return connectionCount;
+        }
+
+        public View view() {
+            return view;
+        }
+
+        public boolean isDone() {
+            return nodesRead == nodeCount && connectionsRead == connectionCount;
+        }
+
+        /**
+         * @return the fraction of the file's nodes and connections read so far
+         */
+        public float progress() {
+            int total = nodeCount + connectionCount;
+            return (total == 0) ? 1f : (nodesRead + connectionsRead) / (float) total;
+        }
+
+        /**
+         * Read up to {@code max} nodes along with their ports, appending the ids of the added nodes to {@code out}.
+         *
+         * @return the number of nodes read, zero once every node has been read
+         */
+        public int readNodes(Graph graph, int max, IntList out) throws IOException {
+            int count = Math.min(max, nodeCount - nodesRead);
+            try {
+                for (int i = 0; i < count; i++) {
+                    int node = graph.addNode(buffer.getFloat(), buffer.getFloat(), buffer.getFloat(), buffer.getFloat());
+                    graph.setNodeTitle(node, getString());
+
+                    int ports = buffer.getInt();
+                    if (ports < 0 || portsRead + ports > portCount) {
+                        throw new IOException("Corrupt graph file, node " + nodesRead + " has " + ports + " ports");
+                    }
+                    for (int p = 0; p < ports; p++) {
+                        int type = buffer.get();
+                        int edge = buffer.get();
+                        int name = buffer.getInt();
+                        if ((type != Graph.INPUT && type != Graph.OUTPUT)
+                            || edge < 0 || edge >= EDGES.length || name < 0 || name >= names.length) {
+                            throw new IOException("Corrupt graph file, bad port " + portsRead);
+                        }
+                        int port = graph.addPort(node, type, EDGES[edge], names[name]);
+                        graph.setPortPosition(port, buffer.getFloat(), buffer.getFloat());
+                        portIds[portsRead++] = port;
+                    }
+
+                    out.add(node);
+                    nodesRead++;
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated graph file", e);
+            }
+            return count;
+        }
+
+        /**
+         * Read up to {@code max} connections, appending the ids of the added connections to {@code out}.
+         * Only valid once every node has been read.
+         *
+         * @return the number of connections read, zero once every connection has been read
+         */
+        public int readConnections(Graph graph, int max, IntList out) throws IOException {
+            if (nodesRead < nodeCount) {
+                throw new IllegalStateException("Connections can't be read until every node has been read");
+            }
+
+            int count = Math.min(max, connectionCount - connectionsRead);
+            try {
+                for (int i = 0; i < count; i++) {
+                    int src = buffer.getInt();
+                    int dst = buffer.getInt();
+                    int style = buffer.get();
+                    if (src < 0 || src >= portsRead || dst < 0 || dst >= portsRead || !Graph.isStyle(style)) {
+                        throw new IOException("Corrupt graph file, bad connection " + connectionsRead);
+                    }
+                    out.add(graph.connect(portIds[src], portIds[dst], style));
+                    connectionsRead++;
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated graph file", e);
+            }
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+
+        private String getString() throws IOException {
+            int length = buffer.getInt();
+            if (length == -1) return null;
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Corrupt graph file, bad string length " + length);
+            }
+            if (scratch.length < length) {
+                scratch = new byte[Math.max(length, 2 * scratch.length)];
+            }
+            buffer.get(scratch, 0, length);
+            return new String(scratch, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+
+    static final class Output {
+        final FileChannel channel;
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        long written;
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        void putString(String string) throws IOException {
+            ensure(Integer.BYTES);
+            if (string == null) {
+                buffer.putInt(-1);
+                return;
+            }
+
+            var bytes = string.getBytes(StandardCharsets.UTF_8);
+            buffer.putInt(bytes.length);
+            // NOTE: strings longer than the buffer are written through it in pieces
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package lando.systems.game.graph;
+
+/**
+ * An iterative layout over a {@link LayoutGraph}, stepped until it's done so callers can show
+ * intermediate positions as it converges. Not thread safe, a layout is stepped from one thread at a time.
+ */
+public interface GraphLayout {
+
+    /**
+     * Run one iteration.
+     *
+     * @return true once the layout is finished, further steps do nothing
+     */
+    boolean step();
+
+    /**
+     * Write the current bottom left corner of each node to {@code out}, as x, y pairs by node index.
+     */
+    void positions(float[] out);
+
+    /**
+     * @return the number of steps run so far
+     */
+    int iterations();
+
+}
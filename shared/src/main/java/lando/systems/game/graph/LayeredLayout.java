@@ -0,0 +1,368 @@
+package lando.systems.game.graph;
+
+import java.util.Arrays;
+
+/**
+ * A layered (Sugiyama style) layout, nodes are placed in layers along the direction connections flow
+ * so that connections run from one layer to a later one wherever possible.
+ * <p>
+ * The direction of flow follows the ports: if most connections leave and enter through left and right edges
+ * the layers are columns running left to right, otherwise rows running top to bottom. Each connection is
+ * oriented by the edges of its ports, an output on a left edge flows leftwards, and connections that would
+ * close a cycle are turned around. Nodes are layered by longest path, then the first step places them and
+ * each further step is one barycenter sweep to reduce crossings, alternately downstream and upstream.
+ * Long connections aren't split into dummy nodes, a node's barycenter is taken over its neighbours in every
+ * earlier (or later) layer, by their relative position in their own layer, which keeps memory linear.
+ */
+public class LayeredLayout implements GraphLayout {
+
+    public static class Defaults {
+        /** gap between layers, along the direction of flow */
+        public static final float LAYER_GAP = 150;
+        /** gap between neighbouring nodes within a layer */
+        public static final float NODE_GAP = 50;
+        /** barycenter sweeps run at most, each is one step */
+        public static final int SWEEPS = 24;
+    }
+
+    private final LayoutGraph graph;
+    private final float startX;
+    private final float startY;
+    private boolean horizontal;
+    private int iterations;
+    private boolean done;
+    private boolean lastSweepUnchanged;
+
+    // NOTE: per node index, offsets into the predecessor and successor node indices, with an extra entry at the end
+    private int[] predStart;
+    private int[] preds;
+    private int[] succStart;
+    private int[] succs;
+
+    private int[] layer;
+    private int[][] layers;
+    // NOTE: per node, relative position within its layer in (0, 1), and its center along and across the flow
+    private float[] rank;
+    private float[] along;
+    private float[] across;
+    private float[] barycenters;
+    private long[] sortKeys = new long[0];
+    private int[] sortNodes = new int[0];
+    private float shiftX;
+    private float shiftY;
+
+    public LayeredLayout(LayoutGraph graph) {
+        this.graph = graph;
+        double sumX = 0;
+        double sumY = 0;
+        for (int i = 0; i < graph.nodeCount; i++) {
+            sumX += graph.x[i] + graph.width[i] / 2;
+            sumY += graph.y[i] + graph.height[i] / 2;
+        }
+        int n = Math.max(1, graph.nodeCount);
+        this.startX = (float) (sumX / n);
+        this.startY = (float) (sumY / n);
+        this.done = (graph.nodeCount == 0);
+    }
+
+    @Override
+    public boolean step() {
+        if (done) return true;
+        iterations++;
+        if (iterations == 1) {
+            orient();
+            assignLayers();
+            orderLayers();
+            place();
+            return false;
+        }
+
+        int sweep = iterations - 2;
+        boolean changed = (sweep % 2 == 0)
+            ? sweep(1, layers.length, 1, predStart, preds)
+            : sweep(layers.length - 2, -1, -1, succStart, succs);
+        place();
+        // NOTE: a sweep in each direction without changes means the order has settled
+        if (!changed && sweep > 0 && lastSweepUnchanged) {
+            done = true;
+        }
+        lastSweepUnchanged = !changed;
+        done |= sweep + 1 >= Defaults.SWEEPS;
+        return done;
+    }
+
+    @Override
+    public void positions(float[] out) {
+        for (int i = 0; i < graph.nodeCount; i++) {
+            float cx, cy;
+            if (iterations == 0) {
+                cx = graph.x[i] + graph.width[i] / 2;
+                cy = graph.y[i] + graph.height[i] / 2;
+            } else if (horizontal) {
+                cx = along[i] + shiftX;
+                cy = -across[i] + shiftY;
+            } else {
+                cx = across[i] + shiftX;
+                cy = -along[i] + shiftY;
+            }
+            out[2 * i]     = cx - graph.width[i] / 2;
+            out[2 * i + 1] = cy - graph.height[i] / 2;
+        }
+    }
+
+    @Override
+    public int iterations() {
+        return iterations;
+    }
+
+    /**
+     * Pick the direction of flow and orient every edge along it, turning edges that close cycles around.
+     */
+    private void orient() {
+        int n = graph.nodeCount;
+        int edges = graph.edgeCount;
+
+        int sideways = 0;
+        int upright = 0;
+        for (int e = 0; e < edges; e++) {
+            sideways += Math.abs(graph.srcSide[e].dx) + Math.abs(graph.dstSide[e].dx);
+            upright += Math.abs(graph.srcSide[e].dy) + Math.abs(graph.dstSide[e].dy);
+        }
+        horizontal = sideways >= upright;
+
+        // NOTE: an edge runs forwards when its output faces downstream or its input faces upstream,
+        //  flow runs towards +x when horizontal and towards -y otherwise
+        var from = new int[edges];
+        var to = new int[edges];
+        for (int e = 0; e < edges; e++) {
+            var src = graph.srcSide[e];
+            var dst = graph.dstSide[e];
+            int facing = horizontal ? (src.dx - dst.dx) : (dst.dy - src.dy);
+            boolean forwards = facing >= 0;
+            from[e] = forwards ? graph.edgeSrc[e] : graph.edgeDst[e];
+            to[e] = forwards ? graph.edgeDst[e] : graph.edgeSrc[e];
+        }
+
+        // depth first from each unvisited node, edges back to a node still on the stack close a cycle
+        var outStart = new int[n + 1];
+        for (int e = 0; e < edges; e++) {
+            outStart[from[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            outStart[i + 1] += outStart[i];
+        }
+        var outEdges = new int[edges];
+        var cursor = Arrays.copyOf(outStart, n);
+        for (int e = 0; e < edges; e++) {
+            outEdges[cursor[from[e]]++] = e;
+        }
+
+        var state = new byte[n];
+        var stack = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (state[root] != 0) continue;
+            int top = 0;
+            stack[top++] = root;
+            state[root] = 1;
+            cursor[root] = outStart[root];
+            while (top > 0) {
+                int node = stack[top - 1];
+                if (cursor[node] == outStart[node + 1]) {
+                    state[node] = 2;
+                    top--;
+                    continue;
+                }
+                int e = outEdges[cursor[node]++];
+                int next = to[e];
+                if (state[next] == 1) {
+                    to[e] = from[e];
+                    from[e] = next;
+                } else if (state[next] == 0) {
+                    state[next] = 1;
+                    cursor[next] = outStart[next];
+                    stack[top++] = next;
+                }
+            }
+        }
+
+        predStart = new int[n + 1];
+        succStart = new int[n + 1];
+        for (int e = 0; e < edges; e++) {
+            predStart[to[e] + 1]++;
+            succStart[from[e] + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            predStart[i + 1] += predStart[i];
+            succStart[i + 1] += succStart[i];
+        }
+        preds = new int[edges];
+        succs = new int[edges];
+        var predFill = Arrays.copyOf(predStart, n);
+        var succFill = Arrays.copyOf(succStart, n);
+        for (int e = 0; e < edges; e++) {
+            preds[predFill[to[e]]++] = from[e];
+            succs[succFill[from[e]]++] = to[e];
+        }
+    }
+
+    /**
+     * Layer each node one past its furthest predecessor, in topological order.
+     */
+    private void assignLayers() {
+        int n = graph.nodeCount;
+        layer = new int[n];
+        var remaining = new int[n];
+        var queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < n; i++) {
+            remaining[i] = predStart[i + 1] - predStart[i];
+            if (remaining[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+        int layerCount = 0;
+        while (head < tail) {
+            int node = queue[head++];
+            layerCount = Math.max(layerCount, layer[node] + 1);
+            for (int s = succStart[node]; s < succStart[node + 1]; s++) {
+                int next = succs[s];
+                layer[next] = Math.max(layer[next], layer[node] + 1);
+                if (--remaining[next] == 0) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+
+        var sizes = new int[layerCount];
+        for (int i = 0; i < n; i++) {
+            sizes[layer[i]]++;
+        }
+        layers = new int[layerCount][];
+        for (int l = 0; l < layerCount; l++) {
+            layers[l] = new int[sizes[l]];
+            sizes[l] = 0;
+        }
+        for (int i = 0; i < n; i++) {
+            layers[layer[i]][sizes[layer[i]]++] = i;
+        }
+
+        rank = new float[n];
+        along = new float[n];
+        across = new float[n];
+        barycenters = new float[n];
+    }
+
+    /**
+     * Start each layer in the order its nodes were already in, across the flow, so a layout of a board
+     * that's already roughly arranged keeps that arrangement.
+     */
+    private void orderLayers() {
+        for (int[] nodes : layers) {
+            for (int node : nodes) {
+                float cx = graph.x[node] + graph.width[node] / 2;
+                float cy = graph.y[node] + graph.height[node] / 2;
+                barycenters[node] = horizontal ? -cy : cx;
+            }
+            sortByBarycenter(nodes);
+        }
+    }
+
+    /**
+     * Reorder each layer from {@code first} towards {@code end} by the barycenter of each node's neighbours.
+     *
+     * @return true if any layer's order changed
+     */
+    private boolean sweep(int first, int end, int direction, int[] start, int[] neighbours) {
+        boolean changed = false;
+        for (int l = first; l != end; l += direction) {
+            var nodes = layers[l];
+            for (int node : nodes) {
+                int count = start[node + 1] - start[node];
+                if (count == 0) {
+                    barycenters[node] = rank[node];
+                    continue;
+                }
+                float sum = 0;
+                for (int i = start[node]; i < start[node + 1]; i++) {
+                    sum += rank[neighbours[i]];
+                }
+                barycenters[node] = sum / count;
+            }
+            changed |= sortByBarycenter(nodes);
+        }
+        return changed;
+    }
+
+    /**
+     * Stably sort the layer's nodes by their barycenter, and update their ranks.
+     *
+     * @return true if the order changed
+     */
+    private boolean sortByBarycenter(int[] nodes) {
+        int count = nodes.length;
+        if (sortKeys.length < count) {
+            sortKeys = new long[count];
+            sortNodes = new int[count];
+        }
+        // NOTE: the barycenter's order preserving bits above the node's current position, so ties keep their order
+        for (int i = 0; i < count; i++) {
+            int bits = Float.floatToIntBits(barycenters[nodes[i]]);
+            bits ^= (bits >> 31) & 0x7fffffff;
+            sortKeys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(sortKeys, 0, count);
+
+        boolean changed = false;
+        System.arraycopy(nodes, 0, sortNodes, 0, count);
+        for (int i = 0; i < count; i++) {
+            int previous = (int) sortKeys[i];
+            changed |= previous != i;
+            nodes[i] = sortNodes[previous];
+            rank[nodes[i]] = (i + 0.5f) / count;
+        }
+        return changed;
+    }
+
+    /**
+     * Place the layers one after another along the flow, and each layer's nodes side by side across it,
+     * centered on the line of flow, with the whole layout centered where the nodes started.
+     */
+    private void place() {
+        float position = 0;
+        float minAlong = Float.MAX_VALUE, maxAlong = -Float.MAX_VALUE;
+        float minAcross = Float.MAX_VALUE, maxAcross = -Float.MAX_VALUE;
+        for (int[] nodes : layers) {
+            float depth = 0;
+            float breadth = -Defaults.NODE_GAP;
+            for (int node : nodes) {
+                depth = Math.max(depth, horizontal ? graph.width[node] : graph.height[node]);
+                breadth += (horizontal ? graph.height[node] : graph.width[node]) + Defaults.NODE_GAP;
+            }
+
+            float offset = -breadth / 2;
+            for (int node : nodes) {
+                float size = horizontal ? graph.height[node] : graph.width[node];
+                along[node] = position + depth / 2;
+                across[node] = offset + size / 2;
+                offset += size + Defaults.NODE_GAP;
+            }
+            minAlong = Math.min(minAlong, position);
+            maxAlong = Math.max(maxAlong, position + depth);
+            minAcross = Math.min(minAcross, -breadth / 2);
+            maxAcross = Math.max(maxAcross, breadth / 2);
+            position += depth + Defaults.LAYER_GAP;
+        }
+
+        float midAlong = (minAlong + maxAlong) / 2;
+        float midAcross = (minAcross + maxAcross) / 2;
+        if (horizontal) {
+            shiftX = startX - midAlong;
+            shiftY = startY + midAcross;
+        } else {
+            shiftX = startX - midAcross;
+            shiftY = startY + midAlong;
+        }
+    }
+
+}
@@ -0,0 +1,113 @@
+package lando.systems.game.graph;
+
+import com.github.tommyettinger.ds.LongSet;
+import lando.systems.game.Edge;
+
+/**
+ * A snapshot of a {@link Graph}'s node rectangles and connections, in flat arrays indexed densely from 0,
+ * for a {@link GraphLayout} to work on off the thread that owns the graph.
+ * <p>
+ * Connections between two ports on the same node, and duplicates between the same two nodes, are left out.
+ */
+public final class LayoutGraph {
+
+    public final int nodeCount;
+    /** graph node id per index */
+    public final int[] ids;
+    /** bottom left corner and size per index, as of the snapshot */
+    public final float[] x;
+    public final float[] y;
+    public final float[] width;
+    public final float[] height;
+
+    public final int edgeCount;
+    /** node index at the source (output) and destination (input) end of each edge */
+    public final int[] edgeSrc;
+    public final int[] edgeDst;
+    /** edges of the nodes the ports sit on, at each end */
+    public final Edge[] srcSide;
+    public final Edge[] dstSide;
+
+    // NOTE: undirected adjacency, per node index offsets into the neighbour edge ids, with an extra entry at the end
+    public final int[] adjacencyStart;
+    public final int[] adjacency;
+
+    private LayoutGraph(int nodeCount, int edgeCount) {
+        this.nodeCount = nodeCount;
+        this.ids = new int[nodeCount];
+        this.x = new float[nodeCount];
+        this.y = new float[nodeCount];
+        this.width = new float[nodeCount];
+        this.height = new float[nodeCount];
+        this.edgeCount = edgeCount;
+        this.edgeSrc = new int[edgeCount];
+        this.edgeDst = new int[edgeCount];
+        this.srcSide = new Edge[edgeCount];
+        this.dstSide = new Edge[edgeCount];
+        this.adjacencyStart = new int[nodeCount + 1];
+        this.adjacency = new int[2 * edgeCount];
+    }
+
+    public static LayoutGraph of(Graph graph) {
+        var indices = new int[graph.nodeLimit()];
+        int nodeCount = 0;
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            indices[node] = graph.isNode(node) ? nodeCount++ : -1;
+        }
+
+        // NOTE: keyed by the node pair, so several connections between the same nodes pull only once
+        var pairs = new LongSet();
+        var kept = new int[graph.connectionLimit()];
+        int edgeCount = 0;
+        for (int connection = 0; connection < graph.connectionLimit(); connection++) {
+            if (!graph.isConnection(connection)) continue;
+            int src = indices[graph.portNode(graph.connectionSrc(connection))];
+            int dst = indices[graph.portNode(graph.connectionDst(connection))];
+            if (src == dst || !pairs.add(((long) src << 32) | dst)) continue;
+            kept[edgeCount++] = connection;
+        }
+
+        var layout = new LayoutGraph(nodeCount, edgeCount);
+        for (int node = 0; node < graph.nodeLimit(); node++) {
+            int i = indices[node];
+            if (i < 0) continue;
+            layout.ids[i] = node;
+            layout.x[i] = graph.nodeX(node);
+            layout.y[i] = graph.nodeY(node);
+            layout.width[i] = graph.nodeWidth(node);
+            layout.height[i] = graph.nodeHeight(node);
+        }
+        var degree = layout.adjacencyStart;
+        for (int e = 0; e < edgeCount; e++) {
+            int srcPort = graph.connectionSrc(kept[e]);
+            int dstPort = graph.connectionDst(kept[e]);
+            int src = indices[graph.portNode(srcPort)];
+            int dst = indices[graph.portNode(dstPort)];
+            layout.edgeSrc[e] = src;
+            layout.edgeDst[e] = dst;
+            layout.srcSide[e] = graph.portEdge(srcPort);
+            layout.dstSide[e] = graph.portEdge(dstPort);
+            degree[src + 1]++;
+            degree[dst + 1]++;
+        }
+        for (int i = 0; i < nodeCount; i++) {
+            degree[i + 1] += degree[i];
+        }
+        var fill = new int[nodeCount];
+        for (int e = 0; e < edgeCount; e++) {
+            int src = layout.edgeSrc[e];
+            int dst = layout.edgeDst[e];
+            layout.adjacency[layout.adjacencyStart[src] + fill[src]++] = e;
+            layout.adjacency[layout.adjacencyStart[dst] + fill[dst]++] = e;
+        }
+        return layout;
+    }
+
+    /**
+     * @return the node at the other end of the edge from {@code node}
+     */
+    public int opposite(int edge, int node) {
+        return (edgeSrc[edge] == node) ? edgeDst[edge] : edgeSrc[edge];
+    }
+
+}
@@ -0,0 +1,29 @@
+package lando.systems.game.graph;
+
+import java.util.Arrays;
+
+/**
+ * What a node computes when its graph is evaluated, see {@link GraphEvaluator}.
+ * <p>
+ * Inputs and outputs are in the order of the node's input and output ports. Functions are called
+ * from worker threads, possibly for several nodes at once, so they shouldn't keep any mutable state.
+ */
+@FunctionalInterface
+public interface NodeFunction {
+
+    /** Every output is the node's constant plus the sum of its inputs. */
+    NodeFunction SUM = (constant, inputs, inputCount, outputs, outputCount) -> {
+        double sum = constant;
+        for (int i = 0; i < inputCount; i++) {
+            sum += inputs[i];
+        }
+        Arrays.fill(outputs, 0, outputCount, sum);
+    };
+
+    /**
+     * @param constant the node's constant, see {@link GraphEvaluator#setConstant(int, double)}
+     * @param inputs the value of each input port, the sum of the outputs connected to it or zero if there are none
+     * @param outputs filled with the value of each output port
+     */
+    void evaluate(double constant, double[] inputs, int inputCount, double[] outputs, int outputCount);
+}
@@ -0,0 +1,115 @@
+package lando.systems.game.net;
+
+import lando.systems.game.Edge;
+
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The ops edits and batches are made of, each an op code byte followed by its fields, see {@link DeltaWriter}.
+ * <p>
+ * Clients send ops with the ids they don't know yet set to {@code Graph.NONE}, the server fills them in when it
+ * applies the op and broadcasts it. A node add carries a tag chosen by the client that asked for it, along with
+ * the client's id as its origin, so the client can tell which of the added nodes are its own.
+ */
+public final class Delta {
+
+    public static final byte NODE_ADD = 1;
+    public static final byte NODE_MOVE = 2;
+    public static final byte NODE_REMOVE = 3;
+    public static final byte PORT_ADD = 4;
+    public static final byte CONNECT = 5;
+    public static final byte DISCONNECT = 6;
+
+    private static final Edge[] EDGES = Edge.values();
+
+    /**
+     * Receives ops as they're read, see {@link #read(ByteBuffer, Handler)}.
+     */
+    public interface Handler {
+        void nodeAdded(int id, int origin, int tag, float x, float y, float width, float height, String title);
+
+        void nodeMoved(int id, float x, float y);
+
+        void nodeRemoved(int id);
+
+        void portAdded(int id, int node, int type, Edge edge, String name);
+
+        void connected(int id, int srcPort, int dstPort, int style);
+
+        void disconnected(int id);
+    }
+
+    private Delta() {}
+
+    /**
+     * Pass each op in the payload to the handler, up to the end of the payload.
+     *
+     * @return the number of ops read
+     * @throws ProtocolException if the payload isn't a valid sequence of ops
+     */
+    public static int read(ByteBuffer payload, Handler handler) throws ProtocolException {
+        int count = 0;
+        try {
+            while (payload.hasRemaining()) {
+                byte op = payload.get();
+                switch (op) {
+                    case NODE_ADD -> {
+                        int id = payload.getInt();
+                        int origin = payload.getInt();
+                        int tag = payload.getInt();
+                        float x = payload.getFloat();
+                        float y = payload.getFloat();
+                        float width = payload.getFloat();
+                        float height = payload.getFloat();
+                        handler.nodeAdded(id, origin, tag, x, y, width, height, getString(payload));
+                    }
+                    case NODE_MOVE -> handler.nodeMoved(payload.getInt(), payload.getFloat(), payload.getFloat());
+                    case NODE_REMOVE -> handler.nodeRemoved(payload.getInt());
+                    case PORT_ADD -> {
+                        int id = payload.getInt();
+                        int node = payload.getInt();
+                        int type = payload.get();
+                        int edge = payload.get();
+                        if (edge < 0 || edge >= EDGES.length) {
+                            throw new ProtocolException("Invalid port edge " + edge);
+                        }
+                        handler.portAdded(id, node, type, EDGES[edge], getString(payload));
+                    }
+                    case CONNECT -> handler.connected(payload.getInt(), payload.getInt(), payload.getInt(), payload.get());
+                    case DISCONNECT -> handler.disconnected(payload.getInt());
+                    default -> throw new ProtocolException("Unknown op " + op);
+                }
+                count++;
+            }
+        } catch (BufferUnderflowException e) {
+            throw new ProtocolException("Truncated op");
+        }
+        return count;
+    }
+
+    static void putString(ByteBuffer buffer, byte[] utf8) {
+        buffer.putShort((short) utf8.length);
+        buffer.put(utf8);
+    }
+
+    static byte[] utf8(String string) {
+        var bytes = (string != null) ? string.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        if (bytes.length > 0xFFFF) {
+            throw new IllegalArgumentException("String too long to send, " + bytes.length + " bytes");
+        }
+        return bytes;
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        var string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return string;
+    }
+}
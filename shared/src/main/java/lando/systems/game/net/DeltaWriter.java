@@ -0,0 +1,190 @@
+package lando.systems.game.net;
+
+import lando.systems.game.Edge;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A growable buffer of outgoing frames, see {@link Protocol}. Ops are appended to the frame opened
+ * with {@link #begin(byte)}, and only frames that have been closed with {@link #end()} are written out.
+ */
+public class DeltaWriter {
+
+    private ByteBuffer buffer;
+    private int frameStart = -1;
+
+    public DeltaWriter(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * @return bytes waiting to be written, including the open frame if there is one
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    public boolean inFrame() {
+        return frameStart >= 0;
+    }
+
+    /**
+     * @return bytes in the open frame, including its header
+     */
+    public int frameSize() {
+        return inFrame() ? buffer.position() - frameStart : 0;
+    }
+
+    public void clear() {
+        buffer.clear();
+        frameStart = -1;
+    }
+
+    public DeltaWriter begin(byte type) {
+        if (inFrame()) {
+            throw new IllegalStateException("Frame already open");
+        }
+        ensure(Protocol.HEADER_SIZE);
+        frameStart = buffer.position();
+        buffer.putInt(0);
+        buffer.put(type);
+        return this;
+    }
+
+    public DeltaWriter end() {
+        if (!inFrame()) {
+            throw new IllegalStateException("No frame open");
+        }
+        buffer.putInt(frameStart, buffer.position() - frameStart - Integer.BYTES);
+        frameStart = -1;
+        return this;
+    }
+
+    /**
+     * Drop the open frame, along with everything written to it.
+     */
+    public DeltaWriter cancel() {
+        if (inFrame()) {
+            buffer.position(frameStart);
+            frameStart = -1;
+        }
+        return this;
+    }
+
+    public DeltaWriter putInt(int value) {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        return this;
+    }
+
+    public DeltaWriter putLong(long value) {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+        return this;
+    }
+
+    /**
+     * Append the closed frames of another writer, eg. to send one encoded batch to many clients.
+     */
+    public DeltaWriter append(DeltaWriter frames) {
+        int length = frames.inFrame() ? frames.frameStart : frames.buffer.position();
+        ensure(length);
+        buffer.put(frames.buffer.array(), 0, length);
+        return this;
+    }
+
+    public DeltaWriter nodeAdd(int id, int origin, int tag, float x, float y, float width, float height, String title) {
+        var utf8 = Delta.utf8(title);
+        ensure(1 + 3 * Integer.BYTES + 4 * Float.BYTES + Short.BYTES + utf8.length);
+        buffer.put(Delta.NODE_ADD);
+        buffer.putInt(id);
+        buffer.putInt(origin);
+        buffer.putInt(tag);
+        buffer.putFloat(x);
+        buffer.putFloat(y);
+        buffer.putFloat(width);
+        buffer.putFloat(height);
+        Delta.putString(buffer, utf8);
+        return this;
+    }
+
+    public DeltaWriter nodeMove(int id, float x, float y) {
+        ensure(1 + Integer.BYTES + 2 * Float.BYTES);
+        buffer.put(Delta.NODE_MOVE);
+        buffer.putInt(id);
+        buffer.putFloat(x);
+        buffer.putFloat(y);
+        return this;
+    }
+
+    public DeltaWriter nodeRemove(int id) {
+        ensure(1 + Integer.BYTES);
+        buffer.put(Delta.NODE_REMOVE);
+        buffer.putInt(id);
+        return this;
+    }
+
+    public DeltaWriter portAdd(int id, int node, int type, Edge edge, String name) {
+        var utf8 = Delta.utf8(name);
+        ensure(1 + 2 * Integer.BYTES + 2 + Short.BYTES + utf8.length);
+        buffer.put(Delta.PORT_ADD);
+        buffer.putInt(id);
+        buffer.putInt(node);
+        buffer.put((byte) type);
+        buffer.put((byte) edge.ordinal());
+        Delta.putString(buffer, utf8);
+        return this;
+    }
+
+    public DeltaWriter connect(int id, int srcPort, int dstPort, int style) {
+        ensure(1 + 3 * Integer.BYTES + 1);
+        buffer.put(Delta.CONNECT);
+        buffer.putInt(id);
+        buffer.putInt(srcPort);
+        buffer.putInt(dstPort);
+        buffer.put((byte) style);
+        return this;
+    }
+
+    public DeltaWriter disconnect(int id) {
+        ensure(1 + Integer.BYTES);
+        buffer.put(Delta.DISCONNECT);
+        buffer.putInt(id);
+        return this;
+    }
+
+    /**
+     * Write as much of the closed frames as the channel takes without blocking.
+     *
+     * @return the number of bytes written
+     */
+    public int writeTo(WritableByteChannel channel) throws IOException {
+        int length = inFrame() ? frameStart : buffer.position();
+        if (length == 0) return 0;
+
+        var out = buffer.duplicate();
+        out.position(0).limit(length);
+        int written = channel.write(out);
+        if (written > 0) {
+            // NOTE: shift what's left to the front, the next write starts from there
+            buffer.flip();
+            buffer.position(written);
+            buffer.compact();
+            if (inFrame()) {
+                frameStart -= written;
+            }
+        }
+        return written;
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+        var grown = ByteBuffer.allocate(capacity);
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+}
@@ -0,0 +1,79 @@
+package lando.systems.game.net;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits the bytes read from a channel into frames, see {@link Protocol}. The buffer starts small
+ * and grows to fit the largest frame seen, so idle connections don't hold on to much memory.
+ */
+public class FrameReader {
+
+    private ByteBuffer buffer;
+    private int readPosition = 0;
+    private ByteBuffer payload;
+
+    public FrameReader(int capacity) {
+        buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Read whatever the channel has available, call {@link #next()} until it returns zero afterward.
+     *
+     * @return the number of bytes read, or -1 at the end of the stream
+     */
+    public int readFrom(ReadableByteChannel channel) throws IOException {
+        compact();
+        return channel.read(buffer);
+    }
+
+    /**
+     * Move on to the next complete frame, its payload is then available from {@link #payload()}
+     * until the next call to {@link #readFrom(ReadableByteChannel)}.
+     *
+     * @return the frame type, or zero if there isn't a complete frame buffered yet
+     * @throws ProtocolException if the frame length is invalid
+     */
+    public byte next() throws ProtocolException {
+        int available = buffer.position() - readPosition;
+        if (available < Integer.BYTES) return 0;
+
+        int length = buffer.getInt(readPosition);
+        if (length < 1 || length > Protocol.MAX_FRAME_SIZE) {
+            throw new ProtocolException("Invalid frame length " + length);
+        }
+        if (available < Integer.BYTES + length) {
+            ensure(Integer.BYTES + length);
+            return 0;
+        }
+        byte type = buffer.get(readPosition + Integer.BYTES);
+        payload = buffer.slice(readPosition + Protocol.HEADER_SIZE, length - 1);
+        readPosition += Integer.BYTES + length;
+        return type;
+    }
+
+    public ByteBuffer payload() {
+        return payload;
+    }
+
+    private void compact() {
+        if (readPosition == 0) return;
+        buffer.flip();
+        buffer.position(readPosition);
+        buffer.compact();
+        readPosition = 0;
+    }
+
+    private void ensure(int frameLength) {
+        if (buffer.capacity() >= frameLength) return;
+        // NOTE: the partial frame is moved to the front of the new buffer
+        var grown = ByteBuffer.allocate(Math.max(frameLength, 2 * buffer.capacity()));
+        buffer.flip();
+        buffer.position(readPosition);
+        grown.put(buffer);
+        buffer = grown;
+        readPosition = 0;
+    }
+}
@@ -0,0 +1,133 @@
+package lando.systems.game.net;
+
+import com.github.tommyettinger.ds.IntIntMap;
+import com.github.tommyettinger.ds.IntList;
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+
+/**
+ * Keeps a local {@link Graph} in step with the server's, from the batches a {@link SyncClient} receives.
+ * <p>
+ * The local graph hands out its own ids, so the mirror maps between them and the server's,
+ * edits sent to the server need the server's ids, see {@link #serverNode(int)} and friends.
+ */
+public class GraphMirror implements SyncClient.Listener {
+
+    final Graph graph;
+
+    // NOTE: server id to local id, and back
+    private final IntIntMap nodes = new IntIntMap();
+    private final IntIntMap ports = new IntIntMap();
+    private final IntIntMap connections = new IntIntMap();
+    private final IntIntMap serverNodes = new IntIntMap();
+    private final IntIntMap serverPorts = new IntIntMap();
+    private final IntIntMap serverConnections = new IntIntMap();
+
+    private final IntList ids = new IntList();
+
+    public GraphMirror(Graph graph) {
+        this.graph = graph;
+    }
+
+    public Graph graph() {
+        return graph;
+    }
+
+    public int localNode(int serverId) {
+        return nodes.getOrDefault(serverId, Graph.NONE);
+    }
+
+    public int localPort(int serverId) {
+        return ports.getOrDefault(serverId, Graph.NONE);
+    }
+
+    public int localConnection(int serverId) {
+        return connections.getOrDefault(serverId, Graph.NONE);
+    }
+
+    public int serverNode(int localId) {
+        return serverNodes.getOrDefault(localId, Graph.NONE);
+    }
+
+    public int serverPort(int localId) {
+        return serverPorts.getOrDefault(localId, Graph.NONE);
+    }
+
+    public int serverConnection(int localId) {
+        return serverConnections.getOrDefault(localId, Graph.NONE);
+    }
+
+    @Override
+    public void welcomed(int clientId) {
+        // NOTE: the first batch after a welcome holds the whole board
+        graph.clear();
+        nodes.clear();
+        ports.clear();
+        connections.clear();
+        serverNodes.clear();
+        serverPorts.clear();
+        serverConnections.clear();
+    }
+
+    @Override
+    public void nodeAdded(int id, int origin, int tag, float x, float y, float width, float height, String title) {
+        int local = graph.addNode(x, y, width, height);
+        graph.setNodeTitle(local, title);
+        nodes.put(id, local);
+        serverNodes.put(local, id);
+    }
+
+    @Override
+    public void nodeMoved(int id, float x, float y) {
+        int local = localNode(id);
+        if (local == Graph.NONE) return;
+        graph.setNodePosition(local, x, y);
+    }
+
+    @Override
+    public void nodeRemoved(int id) {
+        int local = localNode(id);
+        if (local == Graph.NONE) return;
+
+        // NOTE: removing the node takes its ports and connections with it, so unmap those too
+        ids.clear();
+        graph.connections(local, ids);
+        for (int i = 0; i < ids.size(); i++) {
+            connections.remove(serverConnections.remove(ids.get(i)));
+        }
+        for (int port = graph.firstPort(local); port != Graph.NONE; port = graph.nextPort(port)) {
+            ports.remove(serverPorts.remove(port));
+        }
+        graph.removeNode(local);
+        nodes.remove(id);
+        serverNodes.remove(local);
+    }
+
+    @Override
+    public void portAdded(int id, int node, int type, Edge edge, String name) {
+        int local = localNode(node);
+        if (local == Graph.NONE) return;
+        int port = graph.addPort(local, type, edge, name);
+        ports.put(id, port);
+        serverPorts.put(port, id);
+    }
+
+    @Override
+    public void connected(int id, int srcPort, int dstPort, int style) {
+        int src = localPort(srcPort);
+        int dst = localPort(dstPort);
+        if (src == Graph.NONE || dst == Graph.NONE) return;
+        int connection = graph.connect(src, dst, style);
+        connections.put(id, connection);
+        serverConnections.put(connection, id);
+    }
+
+    @Override
+    public void disconnected(int id) {
+        int local = localConnection(id);
+        if (local == Graph.NONE) return;
+        graph.disconnect(local);
+        connections.remove(id);
+        serverConnections.remove(local);
+    }
+}
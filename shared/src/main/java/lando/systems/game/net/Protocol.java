@@ -0,0 +1,35 @@
+package lando.systems.game.net;
+
+/**
+ * Wire format shared by the board server and its clients.
+ * <p>
+ * Everything is sent as frames: an int length, counting the bytes after it, then a frame type byte and its payload.
+ * Edit and batch payloads are a sequence of {@link Delta} ops that runs to the end of the frame.
+ * Numbers are big endian.
+ * <ul>
+ *     <li>{@link #HELLO}: server to client once it's connected, an int client id</li>
+ *     <li>{@link #EDITS}: client to server, ops to apply to the board</li>
+ *     <li>{@link #BATCH}: server to client each tick anything changed, a long tick number then the ops applied in it,
+ *     a tick with too many ops for one frame sends them in several batches with the same tick number</li>
+ *     <li>{@link #PING}: client to server, a long the server sends back as is in a {@link #PONG} after its next tick</li>
+ * </ul>
+ * Edits refer to nodes, ports and connections by the server's ids, which clients learn from batches.
+ * The first batches a client gets hold the whole board.
+ */
+public final class Protocol {
+
+    public static final int DEFAULT_PORT = 7777;
+
+    /** the frame length and type */
+    public static final int HEADER_SIZE = 5;
+    /** larger frames are treated as corrupt and the connection is closed */
+    public static final int MAX_FRAME_SIZE = 1 << 24;
+
+    public static final byte HELLO = 1;
+    public static final byte EDITS = 2;
+    public static final byte BATCH = 3;
+    public static final byte PING = 4;
+    public static final byte PONG = 5;
+
+    private Protocol() {}
+}
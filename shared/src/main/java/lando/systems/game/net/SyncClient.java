@@ -0,0 +1,189 @@
+package lando.systems.game.net;
+
+import lando.systems.game.Edge;
+import lando.systems.game.graph.Graph;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ProtocolException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A connection to a board server, driven by calling {@link #poll(Listener)} and {@link #flush()} regularly,
+ * eg. once a frame. Neither blocks. Edits are queued into one frame until the next flush.
+ * <p>
+ * Edits aren't applied locally, the server's batches are the only source of changes, including the client's own
+ * edits once they come back. Use from a single thread.
+ */
+public class SyncClient implements Closeable {
+
+    public static class Defaults {
+        public static final int BUFFER_SIZE = 16 * 1024;
+    }
+
+    /**
+     * Receives the server's batches, see {@link GraphMirror}.
+     */
+    public interface Listener extends Delta.Handler {
+        default void welcomed(int clientId) {}
+
+        /** called after the ops of each batch, a tick split over several batches calls it for each */
+        default void batchApplied(long tick) {}
+
+        default void ponged(long roundTripNanos) {}
+    }
+
+    private final SocketChannel channel;
+    private final FrameReader in = new FrameReader(Defaults.BUFFER_SIZE);
+    private final DeltaWriter out = new DeltaWriter(Defaults.BUFFER_SIZE);
+
+    private int clientId = Graph.NONE;
+    private long tick = -1;
+
+    /**
+     * Connect to the server, blocking until the connection is made.
+     */
+    public static SyncClient connect(String host, int port) throws IOException {
+        var channel = SocketChannel.open(new InetSocketAddress(host, port));
+        try {
+            return new SyncClient(channel);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private SyncClient(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        channel.configureBlocking(false);
+    }
+
+    public SocketChannel channel() {
+        return channel;
+    }
+
+    /**
+     * @return the id the server gave this client, {@link Graph#NONE} until it's been welcomed
+     */
+    public int clientId() {
+        return clientId;
+    }
+
+    /**
+     * @return the last tick a batch was received for
+     */
+    public long tick() {
+        return tick;
+    }
+
+    /**
+     * @return bytes queued that haven't been written yet
+     */
+    public int pendingBytes() {
+        return out.size();
+    }
+
+    /**
+     * Ask the server for a node, it comes back in a batch with this client's id as its origin and the same tag.
+     */
+    public void addNode(int tag, float x, float y, float width, float height, String title) {
+        edits().nodeAdd(Graph.NONE, Graph.NONE, tag, x, y, width, height, title);
+    }
+
+    public void moveNode(int node, float x, float y) {
+        edits().nodeMove(node, x, y);
+    }
+
+    public void removeNode(int node) {
+        edits().nodeRemove(node);
+    }
+
+    public void addPort(int node, int type, Edge edge, String name) {
+        edits().portAdd(Graph.NONE, node, type, edge, name);
+    }
+
+    public void connect(int srcPort, int dstPort, int style) {
+        edits().connect(Graph.NONE, srcPort, dstPort, style);
+    }
+
+    public void disconnect(int connection) {
+        edits().disconnect(connection);
+    }
+
+    /**
+     * Queue a ping, its round trip time is passed to {@link Listener#ponged(long)}.
+     */
+    public void ping() {
+        if (out.inFrame()) {
+            out.end();
+        }
+        out.begin(Protocol.PING).putLong(System.nanoTime()).end();
+    }
+
+    /**
+     * Close the pending edits and write as much as the connection takes.
+     *
+     * @return bytes written
+     */
+    public int flush() throws IOException {
+        if (out.inFrame()) {
+            out.end();
+        }
+        return out.writeTo(channel);
+    }
+
+    /**
+     * Read what the server has sent and pass it to the listener.
+     *
+     * @return the number of frames handled
+     * @throws EOFException if the server closed the connection
+     */
+    public int poll(Listener listener) throws IOException {
+        int frames = 0;
+        int read;
+        do {
+            read = in.readFrom(channel);
+            if (read < 0) {
+                throw new EOFException("Server closed the connection");
+            }
+            for (byte type = in.next(); type != 0; type = in.next()) {
+                handle(type, listener);
+                frames++;
+            }
+        } while (read > 0);
+        return frames;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void handle(byte type, Listener listener) throws ProtocolException {
+        var payload = in.payload();
+        switch (type) {
+            case Protocol.HELLO -> {
+                clientId = payload.getInt();
+                listener.welcomed(clientId);
+            }
+            case Protocol.BATCH -> {
+                tick = payload.getLong();
+                Delta.read(payload, listener);
+                listener.batchApplied(tick);
+            }
+            case Protocol.PONG -> listener.ponged(System.nanoTime() - payload.getLong());
+            default -> throw new ProtocolException("Unexpected frame type " + type);
+        }
+    }
+
+    private DeltaWriter edits() {
+        if (!out.inFrame()) {
+            out.begin(Protocol.EDITS);
+        }
+        return out;
+    }
+}